@@ -0,0 +1,90 @@
+package mainPackage;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import mainPackage.CommandProcess.Arbol;
+
+//Lo que agregan los totales del subarbol a cada alta (suben por toda la cadena de padres, asi que en un arbol
+//profundo es lo mas caro) contra lo que se gana en la consulta: du contra contar las lineas de ls -r.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class AggregateBenchmark {
+	
+	@Param({ "deep", "balanced" })
+	public String shape;
+	
+	@Param({ "100000" })
+	public int nodes;
+	
+	private Arbol<String> arbol;
+	
+	private CommandProcess deepest;
+	
+	private CommandProcess reader;
+	
+	private long lines;
+	
+	private int counter;
+	
+	private final String[] du = { "du" };
+	
+	private final String[] lsRecursive = { "ls", "-r" };
+	
+	@Setup
+	public void buildTree(final Blackhole blackhole) {
+		
+		arbol = BenchmarkTrees.build(shape, nodes);
+		
+		deepest = new CommandProcess(arbol, BenchmarkTrees.discard(blackhole));
+		deepest.execute(new String[] { "cd", BenchmarkTrees.targetPath(arbol) });
+		
+		reader = new CommandProcess(arbol, new OutputSink() {
+			
+			@Override
+			public void println(String line) {
+				lines++;
+				blackhole.consume(line);
+			}
+			
+			@Override
+			public void flush() {
+			}
+		});
+	}
+	
+	//touch en el nodo mas profundo: actualiza los totales de todos sus ancestros
+	@Benchmark
+	public void touchAtTheDeepestNode() {
+		deepest.execute(new String[] { "touch", Integer.toString(counter++) });
+	}
+	
+	@Benchmark
+	public void du() {
+		reader.execute(du);
+	}
+	
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public long countWithLsRecursive() {
+		lines = 0;
+		reader.execute(lsRecursive);
+		return lines;
+	}
+}
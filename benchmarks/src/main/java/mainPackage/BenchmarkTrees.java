@@ -0,0 +1,109 @@
+package mainPackage;
+
+import java.util.ArrayDeque;
+
+import org.openjdk.jmh.infra.Blackhole;
+
+import mainPackage.CommandProcess.Arbol;
+import mainPackage.CommandProcess.Nodo;
+
+//Arboles sinteticos para los benchmarks. Cada directorio tiene un archivo.
+//  wide      todos los directorios cuelgan de la raiz
+//  deep      cadenas de DEEP_CHAIN directorios colgando de la raiz
+//  balanced  cada directorio tiene BALANCED_FANOUT hijos
+final class BenchmarkTrees {
+	
+	static final int DEEP_CHAIN = 256;
+	
+	static final int BALANCED_FANOUT = 8;
+	
+	//profundidad maxima del camino que usan los benchmarks de cd con varios segmentos
+	static final int TARGET_DEPTH = 16;
+	
+	private BenchmarkTrees() {
+	}
+	
+	static Arbol<String> build(String shape, int nodes) {
+		return build(shape, nodes, PathCache.DEFAULT_CAPACITY);
+	}
+	
+	static Arbol<String> build(String shape, int nodes, int pathCacheCapacity) {
+		
+		Arbol<String> arbol = new Arbol<String>("root", pathCacheCapacity);
+		Nodo<String> raiz = arbol.getRaiz();
+		raiz.addFile("file");
+		
+		if ("wide".equals(shape)) {
+			
+			for (int i = 0; i < nodes; i++) {
+				raiz.addDirectory("d" + i, raiz).addFile("file");
+			}
+			
+		} else if ("deep".equals(shape)) {
+			
+			Nodo<String> nodo = raiz;
+			
+			for (int i = 0; i < nodes; i++) {
+				if (i % DEEP_CHAIN == 0) {
+					nodo = raiz;
+				}
+				nodo = nodo.addDirectory("d" + i, nodo);
+				nodo.addFile("file");
+			}
+			
+		} else if ("balanced".equals(shape)) {
+			
+			ArrayDeque<Nodo<String>> pending = new ArrayDeque<Nodo<String>>();
+			pending.add(raiz);
+			int created = 0;
+			
+			while (created < nodes) {
+				
+				Nodo<String> padre = pending.poll();
+				
+				for (int i = 0; i < BALANCED_FANOUT && created < nodes; i++, created++) {
+					Nodo<String> nodo = padre.addDirectory("d" + created, padre);
+					nodo.addFile("file");
+					pending.add(nodo);
+				}
+			}
+			
+		} else {
+			throw new IllegalArgumentException("Unknown shape " + shape);
+		}
+		
+		return arbol;
+	}
+	
+	//sigue siempre al primer hijo, hasta TARGET_DEPTH niveles
+	static Nodo<String> target(Arbol<String> arbol) {
+		
+		Nodo<String> nodo = arbol.getRaiz();
+		
+		for (int depth = 0; depth < TARGET_DEPTH && !nodo.getDirectorios().isEmpty(); depth++) {
+			nodo = nodo.getDirectorios().get(0);
+		}
+		
+		return nodo;
+	}
+	
+	//el path como lo recibe cd: "\d0\d1\..." relativo a la raiz
+	static String targetPath(Arbol<String> arbol) {
+		String fullPath = target(arbol).getFullPath();
+		return fullPath.substring(arbol.getRaiz().getNodeValue().length());
+	}
+	
+	static OutputSink discard(final Blackhole blackhole) {
+		return new OutputSink() {
+			
+			@Override
+			public void println(String line) {
+				blackhole.consume(line);
+			}
+			
+			@Override
+			public void flush() {
+			}
+		};
+	}
+}
@@ -0,0 +1,124 @@
+package mainPackage;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import mainPackage.CommandProcess.Arbol;
+
+//Cada operacion de CommandInput sobre arboles wide, deep y balanced de 1K a 10M directorios.
+//Para ver asignaciones: java -jar benchmarks/target/benchmarks.jar CommandBenchmark -prof gc
+//Los arboles de 10M necesitan heap: -jvmArgs -Xmx8g, o limitar con -p nodes=1000,100000
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class CommandBenchmark {
+	
+	@Param({ "wide", "deep", "balanced" })
+	public String shape;
+	
+	@Param({ "1000", "100000", "1000000", "10000000" })
+	public int nodes;
+	
+	private Arbol<String> arbol;
+	
+	private String[] cdSingle;
+	
+	private String[] cdMultiple;
+	
+	private String[] ls;
+	
+	private String[] lsRecursive;
+	
+	private String[] pwd;
+	
+	private CommandProcess session;
+	
+	private CommandProcess targetSession;
+	
+	private CommandProcess scratch;
+	
+	private int counter;
+	
+	@Setup(Level.Trial)
+	public void buildTree(Blackhole blackhole) {
+		
+		arbol = BenchmarkTrees.build(shape, nodes);
+		
+		String firstChild = arbol.getRaiz().getDirectorios().get(0).getNodeValue();
+		
+		cdSingle = new String[] { "cd", firstChild, "cd", ".." };
+		cdMultiple = new String[] { "cd", BenchmarkTrees.targetPath(arbol) };
+		ls = new String[] { "ls" };
+		lsRecursive = new String[] { "ls", "-r" };
+		pwd = new String[] { "pwd" };
+		
+		session = new CommandProcess(arbol, BenchmarkTrees.discard(blackhole));
+		
+		targetSession = new CommandProcess(arbol, BenchmarkTrees.discard(blackhole));
+		targetSession.execute(cdMultiple);
+	}
+	
+	//mkdir y touch escriben en un directorio nuevo en cada iteracion para no acumular entradas entre iteraciones
+	@Setup(Level.Iteration)
+	public void newScratchDirectory(Blackhole blackhole) {
+		
+		scratch = new CommandProcess(arbol, BenchmarkTrees.discard(blackhole));
+		
+		String name = "scratch" + counter++;
+		scratch.execute(new String[] { "mkdir", name, "cd", name });
+	}
+	
+	@Benchmark
+	public void mkdir() {
+		scratch.execute(new String[] { "mkdir", Integer.toString(counter++) });
+	}
+	
+	@Benchmark
+	public void touch() {
+		scratch.execute(new String[] { "touch", Integer.toString(counter++) });
+	}
+	
+	@Benchmark
+	public void cdSingleSegment() {
+		session.execute(cdSingle);
+	}
+	
+	@Benchmark
+	public CommandProcess cdMultipleSegments(Blackhole blackhole) {
+		CommandProcess fresh = new CommandProcess(arbol, BenchmarkTrees.discard(blackhole));
+		fresh.execute(cdMultiple);
+		return fresh;
+	}
+	
+	@Benchmark
+	public void ls() {
+		session.execute(ls);
+	}
+	
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public void lsRecursive() {
+		session.execute(lsRecursive);
+	}
+	
+	@Benchmark
+	public void pwd() {
+		targetSession.execute(pwd);
+	}
+}
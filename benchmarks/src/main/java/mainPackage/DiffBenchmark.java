@@ -0,0 +1,58 @@
+package mainPackage;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import mainPackage.CommandProcess.Arbol;
+
+//TreeDiff entre dos replicas del mismo arbol que difieren en un archivo, en el directorio que devuelve
+//BenchmarkTrees.target. Con las huellas solo se abren los directorios del camino hasta el cambio: en balanced el
+//tiempo tiene que ser casi el mismo con diez mil que con un millon de nodos; en wide la raiz tiene todos los
+//directorios y hay que compararlos a todos.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class DiffBenchmark {
+	
+	@Param({ "balanced", "wide" })
+	public String shape;
+	
+	@Param({ "10000", "1000000" })
+	public int nodes;
+	
+	private Arbol<String> from;
+	
+	private Arbol<String> to;
+	
+	private OutputSink script;
+	
+	@Setup
+	public void setUp(Blackhole blackhole) {
+		
+		from = BenchmarkTrees.build(shape, nodes);
+		to = BenchmarkTrees.build(shape, nodes);
+		BenchmarkTrees.target(to).addFile("changed");
+		
+		script = BenchmarkTrees.discard(blackhole);
+	}
+	
+	@Benchmark
+	public TreeDiff.Result oneChange() {
+		return TreeDiff.diff(from, to, script);
+	}
+}
@@ -0,0 +1,111 @@
+package mainPackage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import mainPackage.CommandProcess.Arbol;
+
+//Cuanto le cuestan los watchers a un escritor (touch). Uno de cada cuatro watchers mira el directorio donde se
+//escribe y el resto otros directorios, asi tambien se ve el costo de los que no coinciden.
+//En "delivered" otro hilo vacia los buffers en lotes; en "overflow" nadie los lee y los eventos se descartan.
+//Se compara el throughput de "writer" contra el de watchers = 0.
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class EventBenchmark {
+	
+	@Param({ "0", "1", "64", "1024" })
+	public int watchers;
+	
+	private Arbol<String> arbol;
+	
+	private TreeWatcher[] registered;
+	
+	@Setup
+	public void setUp() {
+		
+		arbol = BenchmarkTrees.build("balanced", 20000);
+		registered = new TreeWatcher[watchers];
+		
+		for (int i = 0; i < watchers; i++) {
+			registered[i] = arbol.watch(i % 4 == 0 ? "root\\writes" : "root\\other" + i, 1024);
+		}
+	}
+	
+	@State(Scope.Thread)
+	public static class Writer {
+		
+		private CommandProcess process;
+		
+		private int counter;
+		
+		@Setup
+		public void setUp(EventBenchmark shared, Blackhole blackhole) {
+			
+			process = new CommandProcess(shared.arbol, BenchmarkTrees.discard(blackhole));
+			process.execute(new String[] { "mkdir", "writes", "cd", "writes" });
+		}
+		
+		void touch() {
+			process.execute(new String[] { "touch", Integer.toString(counter++) });
+		}
+	}
+	
+	@State(Scope.Thread)
+	public static class Consumer {
+		
+		private final List<TreeEvent> batch = new ArrayList<TreeEvent>();
+	}
+	
+	@Benchmark
+	@Group("delivered")
+	@GroupThreads(1)
+	public void writer(Writer writer) {
+		writer.touch();
+	}
+	
+	@Benchmark
+	@Group("delivered")
+	@GroupThreads(1)
+	public int consumer(Consumer consumer) {
+		
+		int drained = 0;
+		
+		for (TreeWatcher watcher : registered) {
+			drained += watcher.drain(consumer.batch, 256);
+			consumer.batch.clear();
+		}
+		
+		if (drained == 0) {
+			Thread.yield();
+		}
+		
+		return drained;
+	}
+	
+	@Benchmark
+	@Group("overflow")
+	@GroupThreads(1)
+	public void writerOverflow(Writer writer) {
+		writer.touch();
+	}
+}
@@ -0,0 +1,130 @@
+package mainPackage;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import mainPackage.CommandProcess.Arbol;
+
+//import y export contra un directorio real armado con BenchmarkTrees, con 1 hilo y con un pool por CPU.
+//Cada llamada importa a un arbol nuevo o exporta a un directorio nuevo; el tiempo por llamada dividido por
+//las entradas da las entradas por segundo que imprime el comando.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileSystemBenchmark {
+	
+	@Param({ "balanced" })
+	public String shape;
+	
+	@Param({ "5000" })
+	public int nodes;
+	
+	@Param({ "1", "cpus" })
+	public String threads;
+	
+	private Path folder;
+	
+	private Path source;
+	
+	private Path target;
+	
+	private ForkJoinPool pool;
+	
+	private Arbol<String> arbol;
+	
+	private Blackhole blackhole;
+	
+	private int exports;
+	
+	@Setup
+	public void setUp(Blackhole blackhole) throws IOException {
+		
+		this.blackhole = blackhole;
+		
+		pool = new ForkJoinPool("1".equals(threads) ? 1 : Runtime.getRuntime().availableProcessors());
+		folder = Files.createTempDirectory("filesystem-benchmark");
+		source = folder.resolve("source");
+		
+		arbol = BenchmarkTrees.build(shape, nodes);
+		
+		CommandProcess process = new CommandProcess(arbol, BenchmarkTrees.discard(blackhole));
+		process.setParallelListing(pool);
+		process.execute(new String[] { "export", source.toString() });
+	}
+	
+	@TearDown
+	public void tearDown() throws IOException {
+		pool.shutdown();
+		delete(folder);
+	}
+	
+	@TearDown(Level.Invocation)
+	public void deleteExport() throws IOException {
+		if (target != null) {
+			delete(target);
+			target = null;
+		}
+	}
+	
+	@Benchmark
+	public Arbol<String> importTree() {
+		
+		CommandProcess process = new CommandProcess(BenchmarkTrees.discard(blackhole));
+		process.setParallelListing(pool);
+		process.execute(new String[] { "import", source.toString() });
+		
+		return process.getArbol();
+	}
+	
+	@Benchmark
+	public void exportTree() {
+		
+		target = folder.resolve("export" + exports++);
+		
+		CommandProcess process = new CommandProcess(arbol, BenchmarkTrees.discard(blackhole));
+		process.setParallelListing(pool);
+		process.execute(new String[] { "export", target.toString() });
+	}
+	
+	private static void delete(Path directory) throws IOException {
+		
+		Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+			
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+				Files.delete(file);
+				return FileVisitResult.CONTINUE;
+			}
+			
+			@Override
+			public FileVisitResult postVisitDirectory(Path directory, IOException e) throws IOException {
+				Files.delete(directory);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+}
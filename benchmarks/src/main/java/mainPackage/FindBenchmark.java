@@ -0,0 +1,77 @@
+package mainPackage;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import mainPackage.CommandProcess.Arbol;
+
+//find contra volcar todo el arbol con ls -r, que era la alternativa.
+//-name recorre todo el arbol; -path con un prefijo fijo descarta los subarboles que no empiezan con el.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class FindBenchmark {
+	
+	@Param({ "100000", "1000000" })
+	public int nodes;
+	
+	private Arbol<String> arbol;
+	
+	private ForkJoinPool pool;
+	
+	private String[] lsRecursive = { "ls", "-r" };
+	
+	private String[] findName = { "find", "-name", "d12*" };
+	
+	private String[] findPath = { "find", "-path", "d1\\**" };
+	
+	@Setup
+	public void buildTree() {
+		arbol = BenchmarkTrees.build("balanced", nodes);
+		pool = new ForkJoinPool();
+	}
+	
+	@TearDown
+	public void shutdown() {
+		pool.shutdown();
+	}
+	
+	@Benchmark
+	public void lsRecursive(Blackhole blackhole) {
+		new CommandProcess(arbol, BenchmarkTrees.discard(blackhole)).execute(lsRecursive);
+	}
+	
+	@Benchmark
+	public void findName(Blackhole blackhole) {
+		new CommandProcess(arbol, BenchmarkTrees.discard(blackhole)).execute(findName);
+	}
+	
+	@Benchmark
+	public void findNameParallel(Blackhole blackhole) {
+		CommandProcess session = new CommandProcess(arbol, BenchmarkTrees.discard(blackhole));
+		session.setParallelListing(pool);
+		session.execute(findName);
+	}
+	
+	@Benchmark
+	public void findPathPruned(Blackhole blackhole) {
+		new CommandProcess(arbol, BenchmarkTrees.discard(blackhole)).execute(findPath);
+	}
+}
@@ -0,0 +1,64 @@
+package mainPackage;
+
+import java.util.ArrayDeque;
+
+import org.openjdk.jol.info.GraphLayout;
+
+import mainPackage.CommandProcess.Arbol;
+import mainPackage.CommandProcess.Nodo;
+
+//Bytes por directorio del arbol de objetos (medido con JOL) contra ArbolCompacto, y lo que suma el NameIndex.
+//Uso: java -cp benchmarks/target/benchmarks.jar mainPackage.FootprintReport [nodes]
+public class FootprintReport {
+	
+	public static void main(String[] args) {
+		
+		int nodes = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		
+		for (String shape : new String[] { "wide", "deep", "balanced" }) {
+			
+			Arbol<String> arbol = BenchmarkTrees.build(shape, nodes);
+			long objectTree = GraphLayout.parseInstance(arbol.getRaiz()).totalSize();
+			
+			ArbolCompacto compacto = build(arbol);
+			
+			//el indice comparte los nodos y los nombres con el arbol: se mide solo lo que agrega
+			NameIndex<String> index = arbol.enableNameIndex();
+			long withIndex = GraphLayout.parseInstance(arbol.getRaiz(), index).totalSize();
+			
+			System.out.printf("%-9s %,d nodes  object tree %.1f bytes/node  compact %.1f bytes/node  name index +%.1f bytes/node%n",
+					shape, nodes, (double) objectTree / nodes, (double) compacto.sizeInBytes() / nodes,
+					(double) (withIndex - objectTree) / nodes);
+		}
+	}
+	
+	private static ArbolCompacto build(Arbol<String> arbol) {
+		
+		ArbolCompacto compacto = new ArbolCompacto(arbol.getRaiz().getNodeValue());
+		copy(arbol.getRaiz(), compacto, compacto.getRaiz());
+		return compacto;
+	}
+	
+	private static void copy(Nodo<String> nodo, ArbolCompacto compacto, int node) {
+		
+		ArrayDeque<Nodo<String>> nodos = new ArrayDeque<Nodo<String>>();
+		ArrayDeque<Integer> ids = new ArrayDeque<Integer>();
+		nodos.push(nodo);
+		ids.push(node);
+		
+		while (!nodos.isEmpty()) {
+			
+			Nodo<String> actual = nodos.pop();
+			int id = ids.pop();
+			
+			for (String file : actual.getFiles()) {
+				compacto.addFile(id, file);
+			}
+			
+			for (Nodo<String> child : actual.getDirectorios()) {
+				nodos.push(child);
+				ids.push(compacto.addDirectory(id, child.getNodeValue()));
+			}
+		}
+	}
+}
@@ -0,0 +1,88 @@
+package mainPackage;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+//touch con journal: batchSize 1 es un fsync por comando, los otros valores son group commit.
+//"none" corre sin journal como referencia.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JournalBenchmark {
+	
+	@Param({ "none", "1", "16", "256", "4096" })
+	public String batchSize;
+	
+	private Path directory;
+	
+	private CommandJournal journal;
+	
+	private CommandProcess session;
+	
+	private int counter;
+	
+	@Setup(Level.Iteration)
+	public void open(Blackhole blackhole) throws IOException {
+		
+		directory = Files.createTempDirectory("journal-benchmark");
+		
+		if ("none".equals(batchSize)) {
+			session = new CommandProcess(BenchmarkTrees.discard(blackhole));
+		} else {
+			journal = CommandJournal.open(directory, Integer.parseInt(batchSize), CommandJournal.DEFAULT_SYNC_INTERVAL_MILLIS);
+			session = new CommandProcess(journal.getArbol(), BenchmarkTrees.discard(blackhole));
+		}
+	}
+	
+	@TearDown(Level.Iteration)
+	public void close() throws IOException {
+		
+		if (journal != null) {
+			journal.close();
+			journal = null;
+		}
+		
+		Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+			
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+				Files.delete(file);
+				return FileVisitResult.CONTINUE;
+			}
+			
+			@Override
+			public FileVisitResult postVisitDirectory(Path dir, IOException ex) throws IOException {
+				Files.delete(dir);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+	
+	@Benchmark
+	public void touch() {
+		session.execute(new String[] { "touch", Integer.toString(counter++) });
+	}
+}
@@ -0,0 +1,86 @@
+package mainPackage;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import mainPackage.CommandProcess.Arbol;
+
+//Una pagina de 100 entradas de un directorio enorme contra listarlo entero.
+//sortedPageAfterAppend agrega una entrada antes de cada pagina: mide mantener SortedOrder en cada alta.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ListPageBenchmark {
+	
+	@Param({ "100000", "1000000" })
+	public int entries;
+	
+	private Arbol<String> arbol;
+	
+	private CommandProcess session;
+	
+	private String[] page;
+	
+	private String[] sortedPage;
+	
+	private int counter;
+	
+	private final String[] ls = { "ls" };
+	
+	private final String[] count = { "ls", "-count" };
+	
+	@Setup
+	public void buildTree(Blackhole blackhole) {
+		
+		arbol = BenchmarkTrees.build("wide", entries);
+		session = new CommandProcess(arbol, BenchmarkTrees.discard(blackhole));
+		
+		String middle = Integer.toString(entries / 2);
+		page = new String[] { "ls", "-offset", middle, "-limit", "100" };
+		sortedPage = new String[] { "ls", "-sort", "-offset", middle, "-limit", "100" };
+		
+		session.execute(sortedPage);
+	}
+	
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public void wholeDirectory() {
+		session.execute(ls);
+	}
+	
+	@Benchmark
+	public void page() {
+		session.execute(page);
+	}
+	
+	@Benchmark
+	public void sortedPage() {
+		session.execute(sortedPage);
+	}
+	
+	@Benchmark
+	public void sortedPageAfterAppend() {
+		arbol.getRaiz().addFile("new" + counter++);
+		session.execute(sortedPage);
+	}
+	
+	@Benchmark
+	public void countOnly() {
+		session.execute(count);
+	}
+}
@@ -0,0 +1,69 @@
+package mainPackage;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+//ls -r secuencial contra ParallelListing sobre arboles anchos y profundos.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ListingBenchmark {
+	
+	private static final String[] LS_RECURSIVE = new String[] { "ls", "-r" };
+	
+	@Param({ "wide", "deep", "balanced" })
+	public String shape;
+	
+	@Param({ "100000", "1000000" })
+	public int nodes;
+	
+	private ForkJoinPool pool;
+	
+	private CommandProcess sequential;
+	
+	private CommandProcess parallel;
+	
+	@Setup
+	public void setUp(Blackhole blackhole) {
+		
+		CommandProcess.Arbol<String> arbol = BenchmarkTrees.build(shape, nodes);
+		pool = new ForkJoinPool();
+		
+		sequential = new CommandProcess(arbol, BenchmarkTrees.discard(blackhole));
+		
+		parallel = new CommandProcess(arbol, BenchmarkTrees.discard(blackhole));
+		parallel.setParallelListing(pool);
+	}
+	
+	@TearDown
+	public void tearDown() {
+		pool.shutdown();
+	}
+	
+	@Benchmark
+	public void sequential() {
+		sequential.execute(LS_RECURSIVE);
+	}
+	
+	@Benchmark
+	public void parallel() {
+		parallel.execute(LS_RECURSIVE);
+	}
+}
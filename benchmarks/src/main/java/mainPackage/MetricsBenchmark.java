@@ -0,0 +1,62 @@
+package mainPackage;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import mainPackage.CommandProcess.Arbol;
+
+//Lo que cuestan las metricas en los comandos mas baratos, donde mas se notan: off (la configuracion por defecto),
+//on (latencias y contadores) y allocations (ademas cuenta los bytes asignados por operacion).
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsBenchmark {
+	
+	@Param({ "off", "on", "allocations" })
+	public String metrics;
+	
+	private CommandProcess process;
+	
+	private CommandPlan navigate;
+	
+	private int counter;
+	
+	@Setup
+	public void setUp(Blackhole blackhole) {
+		
+		Arbol<String> arbol = new Arbol<String>("root");
+		arbol.getMetrics().setEnabled(!"off".equals(metrics));
+		arbol.getMetrics().setAllocationTracking("allocations".equals(metrics));
+		
+		process = new CommandProcess(arbol, BenchmarkTrees.discard(blackhole));
+		process.execute(new String[] { "mkdir", "a", "cd", "a", "mkdir", "b", "cd", "b" });
+		
+		navigate = CommandPlan.compile(new String[] { "cd", "..", "cd", "b", "pwd" });
+	}
+	
+	//tres comandos por llamada
+	@Benchmark
+	public boolean cdAndPwd() {
+		return process.execute(navigate);
+	}
+	
+	@Benchmark
+	public boolean touch() {
+		return process.execute(new String[] { "touch", Integer.toString(counter++) });
+	}
+}
@@ -0,0 +1,107 @@
+package mainPackage;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+//mv y rm -r de un subarbol de "subtree" directorios (cada uno con un archivo). Ninguno recorre el subarbol:
+//el tiempo tiene que ser el mismo con mil que con un millon de nodos.
+//moveSubtree lo pasa de un directorio a otro y renameSubtree le cambia el nombre sin moverlo; removeSubtree
+//arma el subarbol de nuevo antes de cada rm -r, fuera de la medicion.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class MoveBenchmark {
+	
+	@Param({ "1000", "1000000" })
+	public int subtree;
+	
+	private final String[] moveThere = { "mv", "left\\subtree", "right" };
+	
+	private final String[] moveBack = { "mv", "right\\subtree", "left" };
+	
+	private final String[] renameThere = { "mv", "left\\subtree", "left\\renamed" };
+	
+	private final String[] renameBack = { "mv", "left\\renamed", "left\\subtree" };
+	
+	private CommandProcess process;
+	
+	private boolean moved;
+	
+	@Setup
+	public void setUp(Blackhole blackhole) {
+		process = new CommandProcess(buildTree(subtree), BenchmarkTrees.discard(blackhole));
+	}
+	
+	//root\left\subtree con todo el arbol balanceado adentro, y root\right vacio
+	static CommandProcess.Arbol<String> buildTree(int nodes) {
+		
+		CommandProcess.Arbol<String> arbol = BenchmarkTrees.build("balanced", nodes);
+		CommandProcess process = new CommandProcess(arbol, new OutputSink() {
+			@Override
+			public void println(String line) {
+				throw new IllegalStateException(line);
+			}
+			
+			@Override
+			public void flush() {
+			}
+		});
+		
+		process.execute(new String[] { "mkdir", "-p", "left\\subtree", "right" });
+		
+		for (int i = 0; i < BenchmarkTrees.BALANCED_FANOUT && i < nodes; i++) {
+			process.execute(new String[] { "mv", "d" + i, "left\\subtree" });
+		}
+		
+		return arbol;
+	}
+	
+	@Benchmark
+	public void moveSubtree() {
+		process.execute(moved ? moveBack : moveThere);
+		moved = !moved;
+	}
+	
+	@Benchmark
+	public void renameSubtree() {
+		process.execute(moved ? renameBack : renameThere);
+		moved = !moved;
+	}
+	
+	@State(Scope.Thread)
+	public static class Removal {
+		
+		private final String[] remove = { "rm", "-r", "left\\subtree" };
+		
+		private CommandProcess process;
+		
+		@Setup(Level.Invocation)
+		public void setUp(MoveBenchmark benchmark, Blackhole blackhole) {
+			process = new CommandProcess(buildTree(benchmark.subtree), BenchmarkTrees.discard(blackhole));
+		}
+	}
+	
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@Warmup(iterations = 3, batchSize = 1)
+	@Measurement(iterations = 10, batchSize = 1)
+	public void removeSubtree(Removal removal) {
+		removal.process.execute(removal.remove);
+	}
+}
@@ -0,0 +1,93 @@
+package mainPackage;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import mainPackage.CommandProcess.Arbol;
+
+//Lo que cuesta mantener el NameIndex en touch, mkdir y rm -r, y where contra find -name para la misma consulta.
+//Todos los directorios del arbol tienen un archivo "file": rmSubtree crea y quita un subarbol chico con ese nombre
+//comun, y no tiene que depender de los cien mil duenos que tiene en el indice.
+//La memoria que agrega el indice la informa FootprintReport.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class NameIndexBenchmark {
+	
+	@Param({ "false", "true" })
+	public boolean nameIndex;
+	
+	private Arbol<String> arbol;
+	
+	private CommandProcess scratch;
+	
+	private CommandProcess reader;
+	
+	private int counter;
+	
+	private final String[] where = { "where", "d4242" };
+	
+	private final String[] find = { "find", "-name", "d4242" };
+	
+	private final String[] rmSubtree = { "mkdir", "-p", "t\\a\\b", "touch", "-p", "t\\file", "t\\a\\file", "t\\a\\b\\file",
+			"rm", "-r", "t" };
+	
+	@Setup(Level.Trial)
+	public void buildTree(Blackhole blackhole) {
+		
+		arbol = BenchmarkTrees.build("balanced", 100000);
+		
+		if (nameIndex) {
+			arbol.enableNameIndex();
+		}
+		
+		reader = new CommandProcess(arbol, BenchmarkTrees.discard(blackhole));
+	}
+	
+	@Setup(Level.Iteration)
+	public void newScratchDirectory(Blackhole blackhole) {
+		
+		scratch = new CommandProcess(arbol, BenchmarkTrees.discard(blackhole));
+		
+		String name = "scratch" + counter++;
+		scratch.execute(new String[] { "mkdir", name, "cd", name });
+	}
+	
+	@Benchmark
+	public void mkdir() {
+		scratch.execute(new String[] { "mkdir", Integer.toString(counter++) });
+	}
+	
+	@Benchmark
+	public void touch() {
+		scratch.execute(new String[] { "touch", Integer.toString(counter++) });
+	}
+	
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public void rmSubtree() {
+		scratch.execute(rmSubtree);
+	}
+	
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public void whereOrFind() {
+		reader.execute(nameIndex ? where : find);
+	}
+}
@@ -0,0 +1,94 @@
+package mainPackage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import mainPackage.CommandProcess.Nodo;
+
+//Punto de cruce entre la busqueda lineal y el hash al buscar un hijo por nombre.
+//Nodo.getDirectory usa la lista hasta Nodo.INDEX_THRESHOLD hijos y el indice a partir de ahi.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NodoLookupBenchmark {
+	
+	@Param({ "1", "2", "4", "8", "16", "32", "64", "1024", "65536" })
+	public int children;
+	
+	private List<Nodo<String>> list;
+	
+	private Map<String, Nodo<String>> map;
+	
+	private Nodo<String> nodo;
+	
+	private String[] names;
+	
+	private int next;
+	
+	@Setup
+	public void setUp() {
+		
+		nodo = new Nodo<String>("root", null);
+		list = new ArrayList<Nodo<String>>();
+		map = new HashMap<String, Nodo<String>>();
+		names = new String[children];
+		
+		for (int i = 0; i < children; i++) {
+			
+			//nombres nuevos para que equals compare caracteres y no solo referencias
+			names[i] = new String("folder " + i);
+			
+			Nodo<String> child = nodo.addDirectory("folder " + i, nodo);
+			list.add(child);
+			map.put(child.getNodeValue(), child);
+		}
+	}
+	
+	private String nextName() {
+		String name = names[next];
+		next = next + 1 == names.length ? 0 : next + 1;
+		return name;
+	}
+	
+	@Benchmark
+	public Nodo<String> linearScan() {
+		
+		String name = nextName();
+		
+		for (Nodo<String> child : list) {
+			if (child.getNodeValue().equals(name)) {
+				return child;
+			}
+		}
+		
+		return null;
+	}
+	
+	@Benchmark
+	public Nodo<String> hashLookup() {
+		return map.get(nextName());
+	}
+	
+	@Benchmark
+	public Nodo<String> nodoGetDirectory() {
+		return nodo.getDirectory(nextName());
+	}
+}
@@ -0,0 +1,97 @@
+package mainPackage;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+//System.out.println linea por linea contra ChannelOutputSink, los dos escribiendo a un destino que descarta los bytes.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OutputSinkBenchmark {
+	
+	private static final int LINES = 1000;
+	
+	private PrintStream printStream;
+	
+	private ChannelOutputSink sink;
+	
+	private String[] lines;
+	
+	@Setup
+	public void setUp(final Blackhole blackhole) {
+		
+		printStream = new PrintStream(new OutputStream() {
+			
+			@Override
+			public void write(int b) {
+				blackhole.consume(b);
+			}
+			
+			@Override
+			public void write(byte[] bytes, int offset, int length) {
+				blackhole.consume(bytes);
+			}
+		}, true);
+		
+		sink = new ChannelOutputSink(new WritableByteChannel() {
+			
+			@Override
+			public int write(ByteBuffer source) {
+				int written = source.remaining();
+				source.position(source.limit());
+				blackhole.consume(written);
+				return written;
+			}
+			
+			@Override
+			public boolean isOpen() {
+				return true;
+			}
+			
+			@Override
+			public void close() {
+			}
+		});
+		
+		lines = new String[LINES];
+		for (int i = 0; i < LINES; i++) {
+			lines[i] = "root\\New Folder\\Special Folder\\" + i;
+		}
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(LINES)
+	public void printStreamPerLine() {
+		for (String line : lines) {
+			printStream.println(line);
+		}
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(LINES)
+	public void channelSink() {
+		for (String line : lines) {
+			sink.println(line);
+		}
+		sink.flush();
+	}
+}
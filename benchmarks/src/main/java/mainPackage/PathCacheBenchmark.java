@@ -0,0 +1,62 @@
+package mainPackage;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import mainPackage.CommandProcess.Arbol;
+
+//ls de la misma ruta larga con la cache de rutas deshabilitada (pathCacheCapacity 0) y habilitada.
+//Para ver que un acierto no asigna memoria: -prof gc
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathCacheBenchmark {
+	
+	@Param({ "deep", "balanced" })
+	public String shape;
+	
+	@Param({ "0", "4096" })
+	public int pathCacheCapacity;
+	
+	private Arbol<String> arbol;
+	
+	private CommandProcess session;
+	
+	private String[] ls;
+	
+	@Setup
+	public void buildTree(Blackhole blackhole) {
+		
+		arbol = BenchmarkTrees.build(shape, 100000, pathCacheCapacity);
+		session = new CommandProcess(arbol, BenchmarkTrees.discard(blackhole));
+		ls = new String[] { "ls", BenchmarkTrees.targetPath(arbol) };
+	}
+	
+	@Benchmark
+	public void lsDeepPath() {
+		session.execute(ls);
+	}
+	
+	@TearDown
+	public void report() {
+		PathCache<String> cache = arbol.getPathCache();
+		System.out.printf("%nhit rate %.3f, avg hit %.0f ns, avg miss %.0f ns%n",
+				cache.getHitRate(), cache.getAverageHitNanos(), cache.getAverageMissNanos());
+	}
+}
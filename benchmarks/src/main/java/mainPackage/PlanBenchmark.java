@@ -0,0 +1,81 @@
+package mainPackage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import mainPackage.CommandProcess.Arbol;
+
+//El mismo script de lectura interpretado token a token y compilado una vez con CommandPlan.
+//El script no modifica el arbol, asi que se puede repetir sin que cambie el trabajo de cada iteracion.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlanBenchmark {
+	
+	@Param({ "10", "1000" })
+	public int repetitions;
+	
+	private String[] script;
+	
+	private CommandPlan plan;
+	
+	private CommandProcess session;
+	
+	@Setup
+	public void prepare(Blackhole blackhole) {
+		
+		Arbol<String> arbol = BenchmarkTrees.build("balanced", 1000);
+		
+		String first = arbol.getRaiz().getDirectorios().get(0).getNodeValue();
+		String targetPath = BenchmarkTrees.targetPath(arbol);
+		
+		//cada bloque vuelve a la raiz: un "cd .." por cada segmento de la ruta larga
+		List<String> tokens = new ArrayList<String>(Arrays.asList("cd", first, "pwd", "ls", "cd", "..", "ls", "\\" + first, "cd", targetPath, "pwd"));
+		for (int i = targetPath.split("\\\\").length - 1; i > 0; i--) {
+			tokens.add("cd");
+			tokens.add("..");
+		}
+		String[] block = tokens.toArray(new String[tokens.size()]);
+		
+		script = new String[block.length * repetitions];
+		for (int i = 0; i < repetitions; i++) {
+			System.arraycopy(block, 0, script, i * block.length, block.length);
+		}
+		
+		plan = CommandPlan.compile(script);
+		session = new CommandProcess(arbol, BenchmarkTrees.discard(blackhole));
+	}
+	
+	@Benchmark
+	public void interpreted() {
+		session.execute(script);
+	}
+	
+	@Benchmark
+	public void compiled() {
+		session.execute(plan);
+	}
+	
+	@Benchmark
+	public CommandPlan compileOnly() {
+		return CommandPlan.compile(script);
+	}
+}
@@ -0,0 +1,104 @@
+package mainPackage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+//Carga el mismo arbol (directorios de 3 niveles con un archivo en cada hoja) de dos formas:
+//mkdir/cd/touch token a token como antes, y un solo mkdir -p y un touch -p con todas las rutas.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class PopulateBenchmark {
+	
+	@Param({ "10", "30" })
+	public int fanout;
+	
+	private String[] tokenByToken;
+	
+	private String[] bulk;
+	
+	@Setup
+	public void buildScripts() {
+		
+		List<String> steps = new ArrayList<String>();
+		List<String> directories = new ArrayList<String>();
+		List<String> files = new ArrayList<String>();
+		
+		directories.add("mkdir");
+		directories.add("-p");
+		files.add("touch");
+		files.add("-p");
+		
+		for (int a = 0; a < fanout; a++) {
+			
+			enter(steps, "a" + a);
+			
+			for (int b = 0; b < fanout; b++) {
+				
+				enter(steps, "b" + b);
+				
+				for (int c = 0; c < fanout; c++) {
+					
+					String path = "\\a" + a + "\\b" + b + "\\c" + c;
+					directories.add(path);
+					files.add(path + "\\file");
+					
+					enter(steps, "c" + c);
+					steps.add("touch");
+					steps.add("file");
+					leave(steps);
+				}
+				leave(steps);
+			}
+			leave(steps);
+		}
+		
+		tokenByToken = steps.toArray(new String[steps.size()]);
+		
+		directories.addAll(files);
+		bulk = directories.toArray(new String[directories.size()]);
+	}
+	
+	@Benchmark
+	public CommandProcess tokenByToken(Blackhole blackhole) {
+		CommandProcess process = new CommandProcess(BenchmarkTrees.discard(blackhole));
+		process.execute(tokenByToken);
+		return process;
+	}
+	
+	@Benchmark
+	public CommandProcess bulk(Blackhole blackhole) {
+		CommandProcess process = new CommandProcess(BenchmarkTrees.discard(blackhole));
+		process.execute(bulk);
+		return process;
+	}
+	
+	private static void enter(List<String> steps, String name) {
+		steps.add("mkdir");
+		steps.add(name);
+		steps.add("cd");
+		steps.add(name);
+	}
+	
+	private static void leave(List<String> steps) {
+		steps.add("cd");
+		steps.add("..");
+	}
+}
@@ -0,0 +1,90 @@
+package mainPackage;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import mainPackage.CommandProcess.Arbol;
+
+//Varias sesiones sobre un mismo Arbol. Para medir el escalado de 1 a N hilos: -t 1, -t 2, -t 4 ...
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SessionScalingBenchmark {
+	
+	private final AtomicInteger sessions = new AtomicInteger();
+	
+	private Arbol<String> arbol;
+	
+	@Setup
+	public void buildTree() {
+		arbol = BenchmarkTrees.build("balanced", 100000);
+	}
+	
+	@State(Scope.Thread)
+	public static class Session {
+		
+		private CommandProcess writer;
+		
+		private CommandProcess reader;
+		
+		private String[] read;
+		
+		private int counter;
+		
+		@Setup
+		public void setUp(SessionScalingBenchmark shared, Blackhole blackhole) {
+			
+			writer = new CommandProcess(shared.arbol, BenchmarkTrees.discard(blackhole));
+			
+			String name = "session" + shared.sessions.incrementAndGet();
+			writer.execute(new String[] { "mkdir", name, "cd", name });
+			
+			reader = new CommandProcess(shared.arbol, BenchmarkTrees.discard(blackhole));
+			
+			String firstChild = shared.arbol.getRaiz().getDirectorios().get(0).getNodeValue();
+			read = new String[] { "cd", firstChild, "pwd", "ls", "cd", ".." };
+		}
+	}
+	
+	@Benchmark
+	public void touch(Session session) {
+		session.writer.execute(new String[] { "touch", Integer.toString(session.counter++) });
+	}
+	
+	@Benchmark
+	public void read(Session session) {
+		session.reader.execute(session.read);
+	}
+	
+	//un hilo escribe mientras tres leen
+	@Benchmark
+	@Group("mixed")
+	@GroupThreads(1)
+	public void mixedWriter(Session session) {
+		touch(session);
+	}
+	
+	@Benchmark
+	@Group("mixed")
+	@GroupThreads(3)
+	public void mixedReader(Session session) {
+		read(session);
+	}
+}
@@ -0,0 +1,109 @@
+package mainPackage;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import mainPackage.CommandProcess.Arbol;
+
+//Cuanto frena a un escritor (touch) tener lectores recorriendo todo el arbol a la vez: con ls -r, que toma
+//el lock de lectura durante todo el recorrido, y con ArbolVersion, que solo lo toma para abrir la version.
+//Se compara el throughput de "writer" en cada grupo contra el del grupo alone.
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SnapshotBenchmark {
+
+	private Arbol<String> arbol;
+
+	@Setup
+	public void buildTree() {
+		arbol = BenchmarkTrees.build("balanced", 20000);
+	}
+
+	//los touch van a un directorio propio, asi los lectores recorren siempre casi el mismo arbol
+	@State(Scope.Thread)
+	public static class Writer {
+
+		private CommandProcess process;
+
+		private int counter;
+
+		@Setup
+		public void setUp(SnapshotBenchmark shared, Blackhole blackhole) {
+
+			process = new CommandProcess(shared.arbol, BenchmarkTrees.discard(blackhole));
+			process.execute(new String[] { "mkdir", "writes", "cd", "writes" });
+		}
+
+		void touch() {
+			process.execute(new String[] { "touch", Integer.toString(counter++) });
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class Reader {
+
+		private final String[] lsRecursive = { "ls", "-r" };
+
+		private CommandProcess process;
+
+		@Setup
+		public void setUp(SnapshotBenchmark shared, Blackhole blackhole) {
+			process = new CommandProcess(shared.arbol, BenchmarkTrees.discard(blackhole));
+		}
+	}
+
+	@Benchmark
+	@Group("alone")
+	@GroupThreads(1)
+	public void writerAlone(Writer writer) {
+		writer.touch();
+	}
+
+	@Benchmark
+	@Group("lockedReaders")
+	@GroupThreads(1)
+	public void writer(Writer writer) {
+		writer.touch();
+	}
+
+	@Benchmark
+	@Group("lockedReaders")
+	@GroupThreads(2)
+	public void lsRecursive(Reader reader) {
+		reader.process.execute(reader.lsRecursive);
+	}
+
+	@Benchmark
+	@Group("versionReaders")
+	@GroupThreads(1)
+	public void writerWithVersions(Writer writer) {
+		writer.touch();
+	}
+
+	@Benchmark
+	@Group("versionReaders")
+	@GroupThreads(2)
+	public void versionListing(Blackhole blackhole) {
+
+		try (ArbolVersion version = ArbolVersion.take(arbol)) {
+			version.listRecursive(version.getRaiz(), BenchmarkTrees.discard(blackhole));
+		}
+	}
+}
@@ -0,0 +1,69 @@
+package mainPackage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+//Un lote de mkdir -p como comandos sueltos (un lock de escritura por comando) contra el mismo lote entre
+//begin y commit (se guarda y despues se aplica con el lock tomado una sola vez).
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransactionBenchmark {
+	
+	@Param({ "100", "1000" })
+	public int batch;
+	
+	private Blackhole blackhole;
+	
+	private CommandPlan loose;
+	
+	private CommandPlan transaction;
+	
+	@Setup
+	public void setUp(Blackhole blackhole) {
+		
+		this.blackhole = blackhole;
+		
+		List<String> tokens = new ArrayList<String>();
+		
+		for (int i = 0; i < batch; i++) {
+			tokens.add("mkdir");
+			tokens.add("-p");
+			tokens.add("a" + (i % 10) + "\\b" + i);
+		}
+		
+		loose = CommandPlan.compile(tokens.toArray(new String[tokens.size()]));
+		
+		tokens.add(0, "begin");
+		tokens.add("commit");
+		transaction = CommandPlan.compile(tokens.toArray(new String[tokens.size()]));
+	}
+	
+	//cada llamada empieza de un arbol vacio, asi los dos casos crean lo mismo
+	@Benchmark
+	public boolean looseCommands() {
+		return new CommandProcess(BenchmarkTrees.discard(blackhole)).execute(loose);
+	}
+	
+	@Benchmark
+	public boolean inTransaction() {
+		return new CommandProcess(BenchmarkTrees.discard(blackhole)).execute(transaction);
+	}
+}
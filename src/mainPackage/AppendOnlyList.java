@@ -0,0 +1,87 @@
+package mainPackage;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+//Lista de hijos o archivos de un Nodo: solo se agrega al final y solo escribe un hilo a la vez (el que tiene
+//el lock de escritura del arbol). El elemento se escribe antes de publicar el nuevo tamano, y al crecer se
+//copia el arreglo antes de publicarlo, asi un lector sin lock (ArbolVersion) que lee primero size() ve
+//completos todos los elementos hasta ese tamano.
+//Para quitar un elemento se arma una lista nueva con without: la anterior no cambia, asi quien la este leyendo
+//(o una ArbolVersion que la guardo en el historial del Nodo) sigue viendo lo mismo.
+final class AppendOnlyList<E> extends AbstractList<E> implements RandomAccess {
+
+	private volatile Object[] elements;
+
+	private volatile int size;
+
+	AppendOnlyList(int capacity) {
+		elements = new Object[capacity];
+	}
+
+	private AppendOnlyList(Object[] elements, int size) {
+		this.elements = elements;
+		this.size = size;
+	}
+
+	//copia sin el elemento de la posicion index
+	AppendOnlyList<E> without(int index) {
+
+		Object[] current = elements;
+		int count = size;
+
+		if (index < 0 || index >= count) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+		}
+
+		Object[] copy = new Object[Math.max(4, count - 1)];
+		System.arraycopy(current, 0, copy, 0, index);
+		System.arraycopy(current, index + 1, copy, index, count - index - 1);
+
+		return new AppendOnlyList<E>(copy, count - 1);
+	}
+
+	@Override
+	public boolean add(E element) {
+
+		Object[] current = elements;
+		int count = size;
+
+		if (count == current.length) {
+			current = Arrays.copyOf(current, Math.max(4, count + (count >> 1)));
+			elements = current;
+		}
+
+		current[count] = element;
+		size = count + 1;
+
+		return true;
+	}
+
+	//crece al menos como en add, para que reservar de a un elemento no copie el arreglo cada vez
+	void ensureCapacity(int capacity) {
+
+		int length = elements.length;
+
+		if (capacity > length) {
+			elements = Arrays.copyOf(elements, Math.max(capacity, length + (length >> 1)));
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public E get(int index) {
+
+		if (index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+
+		return (E) elements[index];
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+}
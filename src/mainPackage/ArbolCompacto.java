@@ -0,0 +1,296 @@
+package mainPackage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+//Arbol guardado como columnas de int (padre, primer y ultimo hijo, siguiente hermano, nombre) en lugar de
+//un objeto por nodo, pensado para decenas de millones de entradas. Los nombres van a un NamePool compartido
+//y la busqueda de un hijo por nombre usa un hash (padre, nombre) -> hijo de claves primitivas.
+//Con offHeap las columnas viven en ByteBuffers directos y el GC no tiene nada que recorrer.
+//No es thread-safe: esta pensado para una sola sesion.
+public class ArbolCompacto implements ArbolIndexado {
+	
+	private final NamePool nombres = new NamePool();
+	
+	private final IntArray padres;
+	
+	private final IntArray nodeNames;
+	
+	private final IntArray firstChildren;
+	
+	private final IntArray lastChildren;
+	
+	private final IntArray nextSiblings;
+	
+	private final IntArray firstFiles;
+	
+	private final IntArray lastFiles;
+	
+	private final IntArray fileNames;
+	
+	private final IntArray nextFiles;
+	
+	private final PairIndex directorios = new PairIndex();
+	
+	private final PairIndex archivos = new PairIndex();
+	
+	private int nodeCount;
+	
+	private int fileCount;
+	
+	public ArbolCompacto(String raiz) {
+		this(raiz, false);
+	}
+	
+	public ArbolCompacto(String raiz, boolean offHeap) {
+		
+		padres = new IntArray(offHeap);
+		nodeNames = new IntArray(offHeap);
+		firstChildren = new IntArray(offHeap);
+		lastChildren = new IntArray(offHeap);
+		nextSiblings = new IntArray(offHeap);
+		firstFiles = new IntArray(offHeap);
+		lastFiles = new IntArray(offHeap);
+		fileNames = new IntArray(offHeap);
+		nextFiles = new IntArray(offHeap);
+		
+		newNode(NO_NODE, nombres.intern(raiz));
+	}
+	
+	public int getNodeCount() {
+		return nodeCount;
+	}
+	
+	public int getFileCount() {
+		return fileCount;
+	}
+	
+	public long sizeInBytes() {
+		return padres.sizeInBytes() + nodeNames.sizeInBytes() + firstChildren.sizeInBytes() + lastChildren.sizeInBytes()
+				+ nextSiblings.sizeInBytes() + firstFiles.sizeInBytes() + lastFiles.sizeInBytes()
+				+ fileNames.sizeInBytes() + nextFiles.sizeInBytes()
+				+ nombres.sizeInBytes() + directorios.sizeInBytes() + archivos.sizeInBytes();
+	}
+	
+	@Override
+	public int getRaiz() {
+		return 0;
+	}
+	
+	@Override
+	public int getPadre(int node) {
+		return padres.get(node);
+	}
+	
+	@Override
+	public String getName(int node) {
+		return nombres.get(nodeNames.get(node));
+	}
+	
+	@Override
+	public String getFullPath(int node) {
+		
+		List<String> names = new ArrayList<String>();
+		
+		for (int current = node; current != NO_NODE; current = getPadre(current)) {
+			names.add(getName(current));
+		}
+		
+		StringBuilder fullPath = new StringBuilder(names.get(names.size() - 1));
+		
+		for (int i = names.size() - 2; i >= 0; i--) {
+			fullPath.append('\\').append(names.get(i));
+		}
+		
+		return fullPath.toString();
+	}
+	
+	@Override
+	public int getFirstChild(int node) {
+		return firstChildren.get(node);
+	}
+	
+	@Override
+	public int getNextSibling(int node) {
+		return nextSiblings.get(node);
+	}
+	
+	@Override
+	public int getDirectory(int node, String name) {
+		
+		int nameId = nombres.find(name);
+		
+		return nameId < 0 ? NO_NODE : directorios.get(node, nameId);
+	}
+	
+	@Override
+	public int getFirstFile(int node) {
+		return firstFiles.get(node);
+	}
+	
+	@Override
+	public int getNextFile(int node, int file) {
+		return nextFiles.get(file);
+	}
+	
+	@Override
+	public String getFileName(int file) {
+		return nombres.get(fileNames.get(file));
+	}
+	
+	@Override
+	public boolean containsFile(int node, String name) {
+		
+		int nameId = nombres.find(name);
+		
+		return nameId >= 0 && archivos.get(node, nameId) != NO_NODE;
+	}
+	
+	@Override
+	public boolean isReadOnly() {
+		return false;
+	}
+	
+	@Override
+	public int addDirectory(int node, String name) {
+		
+		int nameId = nombres.intern(name);
+		int child = newNode(node, nameId);
+		
+		if (lastChildren.get(node) == NO_NODE) {
+			firstChildren.set(node, child);
+		} else {
+			nextSiblings.set(lastChildren.get(node), child);
+		}
+		lastChildren.set(node, child);
+		
+		directorios.putIfAbsent(node, nameId, child);
+		
+		return child;
+	}
+	
+	@Override
+	public void addFile(int node, String name) {
+		
+		int nameId = nombres.intern(name);
+		int file = fileCount++;
+		
+		fileNames.set(file, nameId);
+		nextFiles.set(file, NO_NODE);
+		
+		if (lastFiles.get(node) == NO_NODE) {
+			firstFiles.set(node, file);
+		} else {
+			nextFiles.set(lastFiles.get(node), file);
+		}
+		lastFiles.set(node, file);
+		
+		archivos.putIfAbsent(node, nameId, file);
+	}
+	
+	private int newNode(int padre, int nameId) {
+		
+		int node = nodeCount++;
+		
+		padres.set(node, padre);
+		nodeNames.set(node, nameId);
+		firstChildren.set(node, NO_NODE);
+		lastChildren.set(node, NO_NODE);
+		nextSiblings.set(node, NO_NODE);
+		firstFiles.set(node, NO_NODE);
+		lastFiles.set(node, NO_NODE);
+		
+		return node;
+	}
+	
+	//hash abierto (nodo, nombre) -> id con claves long, sin objetos por entrada
+	private static class PairIndex {
+		
+		private static final long EMPTY = -1L;
+		
+		private long[] keys = newKeys(64);
+		
+		private int[] values = new int[64];
+		
+		private int size;
+		
+		int get(int node, int nameId) {
+			
+			long key = key(node, nameId);
+			int mask = keys.length - 1;
+			int slot = hash(key) & mask;
+			
+			while (keys[slot] != EMPTY) {
+				if (keys[slot] == key) {
+					return values[slot];
+				}
+				slot = (slot + 1) & mask;
+			}
+			
+			return NO_NODE;
+		}
+		
+		void putIfAbsent(int node, int nameId, int value) {
+			
+			if (insert(keys, values, key(node, nameId), value)) {
+				size++;
+				
+				if (size * 2 > keys.length) {
+					rehash();
+				}
+			}
+		}
+		
+		long sizeInBytes() {
+			return 12L * keys.length;
+		}
+		
+		private void rehash() {
+			
+			long[] grownKeys = newKeys(keys.length * 2);
+			int[] grownValues = new int[grownKeys.length];
+			
+			for (int slot = 0; slot < keys.length; slot++) {
+				if (keys[slot] != EMPTY) {
+					insert(grownKeys, grownValues, keys[slot], values[slot]);
+				}
+			}
+			
+			keys = grownKeys;
+			values = grownValues;
+		}
+		
+		private static boolean insert(long[] keys, int[] values, long key, int value) {
+			
+			int mask = keys.length - 1;
+			int slot = hash(key) & mask;
+			
+			while (keys[slot] != EMPTY) {
+				if (keys[slot] == key) {
+					return false;
+				}
+				slot = (slot + 1) & mask;
+			}
+			
+			keys[slot] = key;
+			values[slot] = value;
+			return true;
+		}
+		
+		private static long key(int node, int nameId) {
+			return ((long) node << 32) | (nameId & 0xffffffffL);
+		}
+		
+		private static int hash(long key) {
+			long hash = key * 0x9E3779B97F4A7C15L;
+			return (int) (hash ^ (hash >>> 32));
+		}
+		
+		private static long[] newKeys(int capacity) {
+			long[] keys = new long[capacity];
+			Arrays.fill(keys, EMPTY);
+			return keys;
+		}
+	}
+}
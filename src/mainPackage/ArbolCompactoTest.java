@@ -0,0 +1,87 @@
+package mainPackage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import mainPackage.CommandProcessTest.MemoryOutputSink;
+
+class ArbolCompactoTest {
+	
+	private static final String[] SCRIPT = new String[] { "mkdir", "New Folder", "mkdir", "Other", "mkdir", "New Folder",
+			"touch", "Root File", "touch", "Root File", "cd", "New Folder", "mkdir", "Special Folder", "touch", "Work File",
+			"cd", "Special Folder", "touch", "Deep File", "pwd", "cd", "..", "cd", "..", "cd", "Missing", "ls", "-r",
+			"ls", "\\New Folder\\Special Folder", "cd", "\\New Folder\\Special Folder", "pwd", "quit" };
+	
+	@Test
+	void answersLikeTheObjectTree() throws Exception {
+		assertEquals(run(SCRIPT), runCompact(new ArbolCompacto("root"), SCRIPT));
+	}
+	
+	@Test
+	void offHeapColumnsAnswerTheSame() throws Exception {
+		assertEquals(run(SCRIPT), runCompact(new ArbolCompacto("root", true), SCRIPT));
+	}
+	
+	@Test
+	void bulkCommandsAnswerLikeTheObjectTree() throws Exception {
+		
+		String[] script = { "mkdir", "a", "b", "a", "touch", "x", "y", "x", "mkdir", "-p", "\\a\\c\\d", "b\\e",
+				"touch", "-p", "\\a\\c\\d\\f", "\\n\\g", "ls", "-r" };
+		
+		assertEquals(run(script), runCompact(new ArbolCompacto("root"), script));
+	}
+	
+	@Test
+	void commitChecksTheWholeBatch() throws Exception {
+
+		ArbolCompacto arbol = new ArbolCompacto("root");
+
+		String failed = runCompact(arbol, new String[] { "mkdir", "a", "begin", "mkdir", "b", "touch", "-p", "b\\f", "cd", "b",
+				"cd", "missing", "commit", "ls", "-r" });
+		String unsupported = runCompact(arbol, new String[] { "begin", "mkdir", "c", "rm", "a", "commit", "ls" });
+		String applied = runCompact(arbol, new String[] { "begin", "mkdir", "b", "touch", "-p", "b\\f", "cd", "b", "commit",
+				"pwd" });
+
+		assertEquals("Directory not found\nTransaction aborted\nroot\na\nroot\\a\n", failed);
+		assertEquals("Not supported by indexed trees\nTransaction aborted\na\n", unsupported);
+		assertEquals("Current directory: root\\b\n", applied);
+	}
+
+	@Test
+	void growsPastTheInitialCapacity() throws Exception {
+		
+		ArbolCompacto arbol = new ArbolCompacto("root", true);
+		int padre = arbol.getRaiz();
+		
+		for (int i = 0; i < 10000; i++) {
+			int child = arbol.addDirectory(padre, "folder " + (i % 100));
+			arbol.addFile(child, "file " + i);
+			
+			if (i % 100 == 99) {
+				padre = child;
+			}
+		}
+		
+		assertEquals(10001, arbol.getNodeCount());
+		assertEquals(10000, arbol.getFileCount());
+		
+		int first = arbol.getDirectory(arbol.getRaiz(), "folder 42");
+		
+		assertEquals("root\\folder 42", arbol.getFullPath(first));
+		assertEquals("file 42", arbol.getFileName(arbol.getFirstFile(first)));
+		assertEquals(ArbolIndexado.NO_NODE, arbol.getDirectory(arbol.getRaiz(), "folder 100"));
+	}
+	
+	private String run(String[] script) {
+		MemoryOutputSink output = new MemoryOutputSink();
+		CommandProcess.processInputs(script, output);
+		return output.getContent();
+	}
+	
+	private String runCompact(ArbolCompacto arbol, String[] script) {
+		MemoryOutputSink output = new MemoryOutputSink();
+		new IndexedSession(arbol, output).execute(script);
+		return output.getContent();
+	}
+}
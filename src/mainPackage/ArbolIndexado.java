@@ -0,0 +1,39 @@
+package mainPackage;
+
+//Arbol cuyos directorios y archivos se identifican con enteros en lugar de objetos Nodo.
+//Lo implementan el snapshot mapeado y el ArbolCompacto; IndexedSession ejecuta los comandos sobre cualquiera de los dos.
+public interface ArbolIndexado {
+	
+	int NO_NODE = -1;
+	
+	int getRaiz();
+	
+	int getPadre(int node);
+	
+	String getName(int node);
+	
+	String getFullPath(int node);
+	
+	//hijos en orden de creacion: getFirstChild y despues getNextSibling hasta NO_NODE
+	int getFirstChild(int node);
+	
+	int getNextSibling(int node);
+	
+	//si hay nombres repetidos devuelve el primero que se creo
+	int getDirectory(int node, String name);
+	
+	//archivos en orden de creacion, con el mismo esquema que los hijos
+	int getFirstFile(int node);
+	
+	int getNextFile(int node, int file);
+	
+	String getFileName(int file);
+	
+	boolean containsFile(int node, String name);
+	
+	boolean isReadOnly();
+	
+	int addDirectory(int node, String name);
+	
+	void addFile(int node, String name);
+}
@@ -0,0 +1,521 @@
+package mainPackage;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import mainPackage.CommandProcess.Arbol;
+import mainPackage.CommandProcess.Nodo;
+
+//Imagen binaria de un Arbol que se abre con un MappedByteBuffer y se consulta sin deserializar los nodos.
+//
+//Formato (big endian):
+//  header     MAGIC, VERSION, cantidad de directorios, cantidad de archivos,
+//             offset de la tabla de archivos, de la tabla de hijos ordenados y de la tabla de strings
+//  nodos      por directorio: nombre, padre, primer hijo, cantidad de hijos, primer archivo, cantidad de archivos
+//  archivos   offset del nombre de cada archivo, contiguos por directorio
+//  ordenados  por directorio, los indices de sus hijos ordenados por nombre (para buscar con binary search)
+//  strings    largo + bytes UTF-8, cada nombre distinto se guarda una sola vez
+//
+//Los directorios se numeran recorriendo el arbol a lo ancho, asi los hijos de cada uno quedan contiguos
+//y en el mismo orden en que se crearon. La raiz es siempre el nodo 0.
+public class ArbolSnapshot implements ArbolIndexado, Closeable {
+	
+	private static final int MAGIC = 0x41524253;
+	
+	private static final int VERSION = 1;
+	
+	private static final int HEADER_SIZE = 7 * 4;
+	
+	private static final int NODE_SIZE = 6 * 4;
+	
+	private static final int NAME = 0;
+	
+	private static final int PADRE = 4;
+	
+	private static final int FIRST_CHILD = 8;
+	
+	private static final int CHILD_COUNT = 12;
+	
+	private static final int FIRST_FILE = 16;
+	
+	private static final int FILE_COUNT = 20;
+	
+	private final FileChannel channel;
+	
+	private final MappedByteBuffer buffer;
+	
+	private final int nodeCount;
+	
+	private final int fileCount;
+	
+	private final int filesOffset;
+	
+	private final int sortedOffset;
+	
+	private final int stringsOffset;
+	
+	private ArbolSnapshot(FileChannel channel) throws IOException {
+		
+		this.channel = channel;
+		this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		
+		if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+			channel.close();
+			throw new IOException("Not an Arbol snapshot");
+		}
+		
+		nodeCount = buffer.getInt(8);
+		fileCount = buffer.getInt(12);
+		filesOffset = buffer.getInt(16);
+		sortedOffset = buffer.getInt(20);
+		stringsOffset = buffer.getInt(24);
+	}
+	
+	public static ArbolSnapshot open(Path path) throws IOException {
+		return new ArbolSnapshot(FileChannel.open(path, StandardOpenOption.READ));
+	}
+	
+	public static void write(Arbol<String> arbol, Path path) throws IOException {
+		
+		arbol.readLock().lock();
+		try {
+			new Writer(arbol.getRaiz(), null).write(path);
+		} finally {
+			arbol.readLock().unlock();
+		}
+	}
+	
+	//sin el lock del arbol: los escritores siguen mientras se escribe el estado de la version
+	public static void write(ArbolVersion version, Path path) throws IOException {
+		new Writer(version.getRaiz(), version).write(path);
+	}
+	
+	@Override
+	public int getRaiz() {
+		return 0;
+	}
+	
+	public int getNodeCount() {
+		return nodeCount;
+	}
+	
+	public int getFileCount() {
+		return fileCount;
+	}
+	
+	@Override
+	public String getName(int node) {
+		return readString(field(node, NAME));
+	}
+	
+	@Override
+	public int getPadre(int node) {
+		return field(node, PADRE);
+	}
+	
+	public int getChildCount(int node) {
+		return field(node, CHILD_COUNT);
+	}
+	
+	public int getChild(int node, int position) {
+		return field(node, FIRST_CHILD) + position;
+	}
+	
+	public int getFileCount(int node) {
+		return field(node, FILE_COUNT);
+	}
+	
+	public String getFile(int node, int position) {
+		return getFileName(field(node, FIRST_FILE) + position);
+	}
+	
+	@Override
+	public String getFullPath(int node) {
+		
+		List<String> names = new ArrayList<String>();
+		
+		for (int current = node; current != NO_NODE; current = getPadre(current)) {
+			names.add(getName(current));
+		}
+		
+		StringBuilder fullPath = new StringBuilder(names.get(names.size() - 1));
+		
+		for (int i = names.size() - 2; i >= 0; i--) {
+			fullPath.append('\\').append(names.get(i));
+		}
+		
+		return fullPath.toString();
+	}
+	
+	@Override
+	public int getFirstChild(int node) {
+		return getChildCount(node) == 0 ? NO_NODE : field(node, FIRST_CHILD);
+	}
+	
+	@Override
+	public int getNextSibling(int node) {
+		
+		int padre = getPadre(node);
+		
+		if (padre == NO_NODE || node + 1 >= field(padre, FIRST_CHILD) + getChildCount(padre)) {
+			return NO_NODE;
+		}
+		
+		return node + 1;
+	}
+	
+	//los archivos se identifican por su posicion en la tabla de archivos
+	@Override
+	public int getFirstFile(int node) {
+		return getFileCount(node) == 0 ? NO_NODE : field(node, FIRST_FILE);
+	}
+	
+	@Override
+	public int getNextFile(int node, int file) {
+		return file + 1 < field(node, FIRST_FILE) + getFileCount(node) ? file + 1 : NO_NODE;
+	}
+	
+	@Override
+	public String getFileName(int file) {
+		return readString(buffer.getInt(filesOffset + file * 4));
+	}
+	
+	@Override
+	public boolean containsFile(int node, String name) {
+		
+		for (int file = getFirstFile(node); file != NO_NODE; file = getNextFile(node, file)) {
+			if (getFileName(file).equals(name)) {
+				return true;
+			}
+		}
+		
+		return false;
+	}
+	
+	@Override
+	public boolean isReadOnly() {
+		return true;
+	}
+	
+	@Override
+	public int addDirectory(int node, String name) {
+		throw new UnsupportedOperationException("Read only snapshot");
+	}
+	
+	@Override
+	public void addFile(int node, String name) {
+		throw new UnsupportedOperationException("Read only snapshot");
+	}
+	
+	//mismo criterio que Nodo.getDirectory: si hay nombres repetidos gana el primero que se creo
+	@Override
+	public int getDirectory(int node, String name) {
+		
+		byte[] key = name.getBytes(StandardCharsets.UTF_8);
+		
+		int firstChild = field(node, FIRST_CHILD);
+		int low = 0;
+		int high = field(node, CHILD_COUNT) - 1;
+		int found = NO_NODE;
+		
+		while (low <= high) {
+			
+			int middle = (low + high) >>> 1;
+			int child = buffer.getInt(sortedOffset + (firstChild + middle) * 4);
+			int comparison = compareName(field(child, NAME), key);
+			
+			if (comparison < 0) {
+				low = middle + 1;
+			} else {
+				if (comparison == 0) {
+					found = child;
+				}
+				high = middle - 1;
+			}
+		}
+		
+		return found;
+	}
+	
+	//reconstruye el arbol en memoria, se usa al recuperar desde un checkpoint
+	public Arbol<String> toArbol() {
+		
+		Arbol<String> arbol = new Arbol<String>(getName(getRaiz()));
+		
+		ArrayDeque<Nodo<String>> pending = new ArrayDeque<Nodo<String>>();
+		pending.add(arbol.getRaiz());
+		
+		//los nodos del snapshot estan numerados a lo ancho, en el mismo orden en que se recorre la cola
+		for (int node = 0; node < nodeCount; node++) {
+			
+			Nodo<String> nodo = pending.poll();
+			
+			for (int i = 0; i < getFileCount(node); i++) {
+				nodo.addFile(arbol.intern(getFile(node, i)));
+			}
+			
+			for (int i = 0; i < getChildCount(node); i++) {
+				pending.add(nodo.addDirectory(arbol.intern(getName(getChild(node, i))), nodo));
+			}
+			
+			arbol.afterChange(nodo);
+		}
+		
+		return arbol;
+	}
+	
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+	
+	private int field(int node, int field) {
+		return buffer.getInt(HEADER_SIZE + node * NODE_SIZE + field);
+	}
+	
+	private String readString(int offset) {
+		
+		int position = stringsOffset + offset;
+		byte[] bytes = new byte[buffer.getInt(position)];
+		
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = buffer.get(position + 4 + i);
+		}
+		
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+	
+	private int compareName(int offset, byte[] key) {
+		
+		int position = stringsOffset + offset;
+		int length = buffer.getInt(position);
+		int common = Math.min(length, key.length);
+		
+		for (int i = 0; i < common; i++) {
+			int comparison = (buffer.get(position + 4 + i) & 0xff) - (key[i] & 0xff);
+			if (comparison != 0) {
+				return comparison;
+			}
+		}
+		
+		return length - key.length;
+	}
+	
+	private static int compareBytes(byte[] first, byte[] second) {
+		
+		int common = Math.min(first.length, second.length);
+		
+		for (int i = 0; i < common; i++) {
+			int comparison = (first[i] & 0xff) - (second[i] & 0xff);
+			if (comparison != 0) {
+				return comparison;
+			}
+		}
+		
+		return first.length - second.length;
+	}
+	
+	private static class Writer {
+		
+		private final Nodo<String> raiz;
+		
+		//null para escribir el arbol vivo
+		private final ArbolVersion version;
+		
+		private final Map<String, Integer> strings = new HashMap<String, Integer>();
+		
+		private final List<byte[]> stringBytes = new ArrayList<byte[]>();
+		
+		private int stringsSize;
+		
+		private int nodeCount;
+		
+		private int fileCount;
+		
+		Writer(Nodo<String> raiz, ArbolVersion version) {
+			this.raiz = raiz;
+			this.version = version;
+		}
+		
+		private List<Nodo<String>> directorios(Nodo<String> nodo) {
+			return version == null ? nodo.getDirectorios() : version.getDirectorios(nodo);
+		}
+		
+		private List<String> files(Nodo<String> nodo) {
+			return version == null ? nodo.getFiles() : version.getFiles(nodo);
+		}
+		
+		private String name(Nodo<String> nodo) {
+			return version == null ? nodo.getNodeValue() : version.getName(nodo);
+		}
+		
+		void write(Path path) throws IOException {
+			
+			//primera pasada: cuenta nodos y arma la tabla de strings
+			ArrayDeque<Nodo<String>> pending = new ArrayDeque<Nodo<String>>();
+			pending.add(raiz);
+			
+			while (!pending.isEmpty()) {
+				
+				Nodo<String> nodo = pending.poll();
+				
+				nodeCount++;
+				fileCount += files(nodo).size();
+				intern(name(nodo));
+				
+				for (String file : files(nodo)) {
+					intern(file);
+				}
+				
+				pending.addAll(directorios(nodo));
+			}
+			
+			int filesOffset = HEADER_SIZE + nodeCount * NODE_SIZE;
+			int sortedOffset = filesOffset + fileCount * 4;
+			int stringsOffset = sortedOffset + nodeCount * 4;
+			
+			if ((long) stringsOffset + stringsSize > Integer.MAX_VALUE) {
+				throw new IOException("Tree too large for a snapshot");
+			}
+			
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 64 * 1024))) {
+				
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeInt(nodeCount);
+				out.writeInt(fileCount);
+				out.writeInt(filesOffset);
+				out.writeInt(sortedOffset);
+				out.writeInt(stringsOffset);
+				
+				writeNodes(out);
+				writeFiles(out);
+				writeSortedChildren(out);
+				
+				for (byte[] bytes : stringBytes) {
+					out.writeInt(bytes.length);
+					out.write(bytes);
+				}
+			}
+		}
+		
+		private void writeNodes(DataOutputStream out) throws IOException {
+			
+			ArrayDeque<Nodo<String>> pending = new ArrayDeque<Nodo<String>>();
+			ArrayDeque<Integer> padres = new ArrayDeque<Integer>();
+			pending.add(raiz);
+			padres.add(NO_NODE);
+			
+			int index = 0;
+			int nextChild = 1;
+			int nextFile = 0;
+			
+			while (!pending.isEmpty()) {
+				
+				Nodo<String> nodo = pending.poll();
+				int childCount = directorios(nodo).size();
+				int nodeFileCount = files(nodo).size();
+				
+				out.writeInt(strings.get(name(nodo)));
+				out.writeInt(padres.poll());
+				out.writeInt(nextChild);
+				out.writeInt(childCount);
+				out.writeInt(nextFile);
+				out.writeInt(nodeFileCount);
+				
+				for (Nodo<String> child : directorios(nodo)) {
+					pending.add(child);
+					padres.add(index);
+				}
+				
+				nextChild += childCount;
+				nextFile += nodeFileCount;
+				index++;
+			}
+		}
+		
+		private void writeFiles(DataOutputStream out) throws IOException {
+			
+			ArrayDeque<Nodo<String>> pending = new ArrayDeque<Nodo<String>>();
+			pending.add(raiz);
+			
+			while (!pending.isEmpty()) {
+				
+				Nodo<String> nodo = pending.poll();
+				
+				for (String file : files(nodo)) {
+					out.writeInt(strings.get(file));
+				}
+				
+				pending.addAll(directorios(nodo));
+			}
+		}
+		
+		//la raiz no es hija de nadie, ocupa el lugar 0 de la tabla para que los indices coincidan con los nodos
+		private void writeSortedChildren(DataOutputStream out) throws IOException {
+			
+			ArrayDeque<Nodo<String>> pending = new ArrayDeque<Nodo<String>>();
+			pending.add(raiz);
+			out.writeInt(0);
+			
+			int nextChild = 1;
+			
+			while (!pending.isEmpty()) {
+				
+				Nodo<String> nodo = pending.poll();
+				List<Nodo<String>> directorios = directorios(nodo);
+				
+				Integer[] order = new Integer[directorios.size()];
+				final byte[][] names = new byte[directorios.size()][];
+				
+				for (int i = 0; i < order.length; i++) {
+					order[i] = i;
+					names[i] = name(directorios.get(i)).getBytes(StandardCharsets.UTF_8);
+				}
+				
+				//el sort es estable, los nombres repetidos quedan en orden de creacion
+				Arrays.sort(order, new Comparator<Integer>() {
+					@Override
+					public int compare(Integer first, Integer second) {
+						return compareBytes(names[first], names[second]);
+					}
+				});
+				
+				for (Integer position : order) {
+					out.writeInt(nextChild + position);
+				}
+				
+				pending.addAll(directorios);
+				nextChild += order.length;
+			}
+		}
+		
+		private void intern(String name) {
+			
+			if (!strings.containsKey(name)) {
+				
+				byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+				
+				strings.put(name, stringsSize);
+				stringBytes.add(bytes);
+				stringsSize += 4 + bytes.length;
+			}
+		}
+	}
+}
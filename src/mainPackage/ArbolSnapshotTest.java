@@ -0,0 +1,85 @@
+package mainPackage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import mainPackage.CommandProcessTest.MemoryOutputSink;
+
+class ArbolSnapshotTest {
+	
+	@TempDir
+	Path folder;
+	
+	@Test
+	void mappedSnapshotAnswersLikeTheLiveTree() throws Exception {
+		
+		CommandProcess process = new CommandProcess(new MemoryOutputSink());
+		process.execute(new String[] { "mkdir", "New Folder", "mkdir", "Other", "touch", "Root File", "cd", "New Folder",
+				"mkdir", "Special Folder", "touch", "Work File", "cd", "Special Folder", "touch", "Deep File", "cd", "..", "cd", ".." });
+		
+		Path file = folder.resolve("arbol.snapshot");
+		ArbolSnapshot.write(process.getArbol(), file);
+		
+		String[] commands = new String[] { "ls", "-r", "cd", "\\New Folder\\Special Folder", "pwd", "ls", "cd", "..",
+				"cd", "Missing", "ls", "\\New Folder", "cd", "..", "cd", "..", "pwd", "quit" };
+		
+		MemoryOutputSink liveOutput = new MemoryOutputSink();
+		new CommandProcess(process.getArbol(), liveOutput).execute(commands);
+		
+		MemoryOutputSink mappedOutput = new MemoryOutputSink();
+		
+		try (ArbolSnapshot snapshot = ArbolSnapshot.open(file)) {
+			
+			new IndexedSession(snapshot, mappedOutput).execute(commands);
+			
+			assertEquals(4, snapshot.getNodeCount());
+			assertEquals(3, snapshot.getFileCount());
+		}
+		
+		assertEquals(liveOutput.getContent(), mappedOutput.getContent());
+	}
+	
+	@Test
+	void lookupInWideDirectoriesKeepsTheFirstDuplicate() throws Exception {
+		
+		CommandProcess process = new CommandProcess(new MemoryOutputSink());
+		
+		for (int i = 500; i > 0; i--) {
+			process.execute(new String[] { "mkdir", "folder " + i });
+		}
+		process.execute(new String[] { "mkdir", "folder 7", "cd", "folder 7", "touch", "first" });
+		
+		Path file = folder.resolve("wide.snapshot");
+		ArbolSnapshot.write(process.getArbol(), file);
+		
+		try (ArbolSnapshot snapshot = ArbolSnapshot.open(file)) {
+			
+			int raiz = snapshot.getRaiz();
+			
+			assertEquals(501, snapshot.getChildCount(raiz));
+			assertEquals("folder 500", snapshot.getName(snapshot.getChild(raiz, 0)));
+			assertEquals("root\\folder 7", snapshot.getFullPath(snapshot.getDirectory(raiz, "folder 7")));
+			assertEquals(1, snapshot.getFileCount(snapshot.getDirectory(raiz, "folder 7")));
+			assertEquals(ArbolIndexado.NO_NODE, snapshot.getDirectory(raiz, "folder 0"));
+		}
+	}
+	
+	@Test
+	void snapshotIsReadOnly() throws Exception {
+		
+		Path file = folder.resolve("empty.snapshot");
+		ArbolSnapshot.write(new CommandProcess.Arbol<String>("root"), file);
+		
+		MemoryOutputSink output = new MemoryOutputSink();
+		
+		try (ArbolSnapshot snapshot = ArbolSnapshot.open(file)) {
+			new IndexedSession(snapshot, output).execute(new String[] { "mkdir", "New Folder", "ls", "pwd" });
+		}
+		
+		assertEquals("Read only snapshot\nCurrent directory: root\n", output.getContent());
+	}
+}
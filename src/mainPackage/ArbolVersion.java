@@ -0,0 +1,156 @@
+package mainPackage;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.List;
+
+import mainPackage.CommandProcess.Arbol;
+import mainPackage.CommandProcess.Nodo;
+import mainPackage.CommandProcess.Nodo.Version;
+
+//Vista de solo lectura del Arbol tal como estaba al tomarla, que se recorre sin el lock del arbol y sin frenar
+//a los escritores (para ls -r largos, exportar o escribir un ArbolSnapshot mientras siguen los mkdir y touch).
+//
+//No se copia nada al tomarla. Como los directorios y archivos solo se agregan al final de las listas de cada Nodo,
+//y rm y mv reemplazan la lista en vez de cambiarla, el estado de un nodo en cualquier momento es un prefijo de
+//alguna de sus listas: alcanza con guardar la lista, cuantos hijos y archivos tenia y su nombre. Tomar una version
+//avanza la epoca del arbol, y antes de la primera modificacion de un nodo en cada epoca el escritor le guarda ese
+//estado (Nodo.recordVersion), solo mientras haya versiones abiertas. Al cerrar la ultima, esas entradas se sueltan
+//en la siguiente modificacion de cada nodo.
+//
+//Hay que cerrarla: mientras este abierta los nodos modificados conservan su historial, y con el los subarboles que
+//se quitaron despues de tomarla.
+public final class ArbolVersion implements Closeable {
+
+	private final Arbol<String> arbol;
+
+	private final long epoch;
+
+	private boolean closed;
+
+	private ArbolVersion(Arbol<String> arbol, long epoch) {
+		this.arbol = arbol;
+		this.epoch = epoch;
+	}
+
+	//espera a que termine el comando que este modificando el arbol, asi la version queda entre dos comandos
+	public static ArbolVersion take(Arbol<String> arbol) {
+		return new ArbolVersion(arbol, arbol.openVersion());
+	}
+
+	public long getEpoch() {
+		return epoch;
+	}
+
+	public Nodo<String> getRaiz() {
+		return arbol.getRaiz();
+	}
+
+	//El tamano de la lista se lee antes que el historial: si el escritor cambia el nodo en el medio, ya dejo
+	//guardado el estado anterior. El registro mas viejo posterior a la epoca de la version tiene el estado que
+	//habia al tomarla; si no hay ninguno, el nodo no se modifico desde entonces.
+	public List<Nodo<String>> getDirectorios(Nodo<String> nodo) {
+
+		List<Nodo<String>> directorios = nodo.getDirectorios();
+		int count = directorios.size();
+		Version<String> version = visible(nodo);
+
+		return version == null ? directorios.subList(0, count) : version.listaDirectorios.subList(0, version.directorios);
+	}
+
+	public List<String> getFiles(Nodo<String> nodo) {
+
+		List<String> files = nodo.getFiles();
+		int count = files.size();
+		Version<String> version = visible(nodo);
+
+		return version == null ? files.subList(0, count) : version.listaFiles.subList(0, version.files);
+	}
+
+	//el nombre que tenia el directorio, aunque despues se haya renombrado con mv
+	public String getName(Nodo<String> nodo) {
+
+		String name = nodo.getNodeValue();
+		Version<String> version = visible(nodo);
+
+		return version == null ? name : version.nombre;
+	}
+
+	//mismo criterio que Nodo.getDirectory: si hay nombres repetidos gana el primero que se creo
+	public Nodo<String> getDirectory(Nodo<String> nodo, String name) {
+
+		for (Nodo<String> directorio : getDirectorios(nodo)) {
+			if (name.equals(getName(directorio))) {
+				return directorio;
+			}
+		}
+
+		return null;
+	}
+
+	//misma salida que ls -r sobre el arbol vivo
+	public void listRecursive(Nodo<String> start, OutputSink output) {
+
+		ArrayDeque<Nodo<String>> nodos = new ArrayDeque<Nodo<String>>();
+		ArrayDeque<String> paths = new ArrayDeque<String>();
+
+		nodos.push(start);
+		paths.push(start.getFullPath());
+
+		while (!nodos.isEmpty()) {
+
+			Nodo<String> actual = nodos.pop();
+			String path = paths.pop();
+
+			output.println(path);
+
+			//se recorren las listas por indice, sin armar las sublistas, y el historial se mira una sola vez por nodo
+			List<Nodo<String>> hijos = actual.getDirectorios();
+			int count = hijos.size();
+			List<String> files = actual.getFiles();
+			int fileCount = files.size();
+			Version<String> version = visible(actual);
+
+			if (version != null) {
+				hijos = version.listaDirectorios;
+				count = version.directorios;
+				files = version.listaFiles;
+				fileCount = version.files;
+			}
+
+			for (int i = 0; i < count; i++) {
+				output.println(getName(hijos.get(i)));
+			}
+
+			for (int i = 0; i < fileCount; i++) {
+				output.println(files.get(i));
+			}
+
+			for (int i = count - 1; i >= 0; i--) {
+				Nodo<String> hijo = hijos.get(i);
+				nodos.push(hijo);
+				paths.push(path.concat("\\").concat(getName(hijo)));
+			}
+		}
+	}
+
+	@Override
+	public synchronized void close() {
+
+		if (!closed) {
+			closed = true;
+			arbol.closeVersion(epoch);
+		}
+	}
+
+	private Version<String> visible(Nodo<String> nodo) {
+
+		Version<String> visible = null;
+
+		for (Version<String> version = nodo.getHistorial(); version != null && version.epoch > epoch; version = version.anterior) {
+			visible = version;
+		}
+
+		return visible;
+	}
+}
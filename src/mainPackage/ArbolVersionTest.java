@@ -0,0 +1,164 @@
+package mainPackage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import mainPackage.CommandProcess.Arbol;
+import mainPackage.CommandProcessTest.MemoryOutputSink;
+
+class ArbolVersionTest {
+
+	@TempDir
+	Path folder;
+
+	@Test
+	void versionKeepsTheTreeAsItWasTaken() {
+
+		CommandProcess process = new CommandProcess(new MemoryOutputSink());
+		process.execute(new String[] { "mkdir", "a", "b", "touch", "f", "cd", "a", "mkdir", "c", "cd", ".." });
+
+		Arbol<String> arbol = process.getArbol();
+		String before = liveListing(arbol);
+
+		try (ArbolVersion version = ArbolVersion.take(arbol)) {
+
+			process.execute(new String[] { "mkdir", "d", "touch", "g", "cd", "a", "touch", "h", "mkdir", "-p", "c\\e\\f",
+					"cd", "..", "touch", "-p", "b\\x\\y" });
+
+			assertEquals(before, listing(version));
+			assertNotEquals(before, liveListing(arbol));
+
+			assertNull(version.getDirectory(arbol.getRaiz(), "d"));
+			assertEquals(0, version.getFiles(version.getDirectory(arbol.getRaiz(), "a")).size());
+		}
+
+		try (ArbolVersion version = ArbolVersion.take(arbol)) {
+			assertEquals(liveListing(arbol), listing(version));
+		}
+	}
+
+	@Test
+	void versionIgnoresLaterRemovalsAndMoves() {
+
+		CommandProcess process = new CommandProcess(new MemoryOutputSink());
+		process.execute(new String[] { "mkdir", "-p", "a\\b\\c", "d", "touch", "-p", "a\\b\\f", "a\\g", "h" });
+
+		Arbol<String> arbol = process.getArbol();
+		String before = liveListing(arbol);
+
+		try (ArbolVersion version = ArbolVersion.take(arbol)) {
+
+			process.execute(new String[] { "mv", "a\\b", "d\\renamed", "rm", "a\\g", "mv", "h", "d", "rm", "-r", "a",
+					"cd", "d", "cd", "renamed", "touch", "late" });
+
+			assertEquals(before, listing(version));
+			assertNull(version.getDirectory(arbol.getRaiz().getDirectory("d"), "renamed"));
+			assertEquals("b", version.getName(arbol.getRaiz().getDirectory("d").getDirectory("renamed")));
+		}
+
+		try (ArbolVersion version = ArbolVersion.take(arbol)) {
+			assertEquals(liveListing(arbol), listing(version));
+		}
+	}
+
+	@Test
+	void readersSeeAStableTreeWhileTheWriterRuns() throws Exception {
+
+		final CommandProcess process = new CommandProcess(new MemoryOutputSink());
+		final AtomicBoolean running = new AtomicBoolean(true);
+
+		Thread writer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				for (int i = 0; running.get() && i < 20000; i++) {
+					process.execute(new String[] { "mkdir", "-p", "d" + (i % 50) + "\\e" + (i % 7), "touch", "f" + i,
+							"cd", "d" + (i % 50), "touch", "g" + i, "cd", ".." });
+				}
+			}
+		});
+		writer.start();
+
+		try {
+			for (int i = 0; i < 50; i++) {
+				try (ArbolVersion version = ArbolVersion.take(process.getArbol())) {
+					assertEquals(listing(version), listing(version));
+				}
+			}
+		} finally {
+			running.set(false);
+			writer.join();
+		}
+	}
+
+	@Test
+	void historyIsReleasedAfterTheLastVersionCloses() {
+
+		CommandProcess process = new CommandProcess(new MemoryOutputSink());
+		Arbol<String> arbol = process.getArbol();
+
+		process.execute(new String[] { "mkdir", "a" });
+		assertNull(arbol.getRaiz().getHistorial());
+
+		ArbolVersion first = ArbolVersion.take(arbol);
+		process.execute(new String[] { "mkdir", "b" });
+		ArbolVersion second = ArbolVersion.take(arbol);
+		process.execute(new String[] { "mkdir", "c" });
+
+		assertNotNull(arbol.getRaiz().getHistorial().anterior);
+		assertEquals(1, first.getDirectorios(arbol.getRaiz()).size());
+		assertEquals(2, second.getDirectorios(arbol.getRaiz()).size());
+
+		//con la primera cerrada, la siguiente modificacion suelta lo que solo ella necesitaba
+		first.close();
+		process.execute(new String[] { "mkdir", "d" });
+		assertNull(arbol.getRaiz().getHistorial().anterior.anterior);
+		assertEquals(2, second.getDirectorios(arbol.getRaiz()).size());
+
+		second.close();
+		process.execute(new String[] { "mkdir", "e" });
+		assertNull(arbol.getRaiz().getHistorial());
+	}
+
+	@Test
+	void snapshotIsWrittenFromTheVersion() throws Exception {
+
+		CommandProcess process = new CommandProcess(new MemoryOutputSink());
+		process.execute(new String[] { "mkdir", "a", "touch", "f", "cd", "a", "touch", "g", "cd", ".." });
+
+		Path file = folder.resolve("version.snapshot");
+
+		try (ArbolVersion version = ArbolVersion.take(process.getArbol())) {
+
+			process.execute(new String[] { "mkdir", "b", "touch", "h", "cd", "a", "mkdir", "c" });
+			ArbolSnapshot.write(version, file);
+		}
+
+		try (ArbolSnapshot snapshot = ArbolSnapshot.open(file)) {
+			assertEquals(2, snapshot.getNodeCount());
+			assertEquals(2, snapshot.getFileCount());
+		}
+	}
+
+	private static String listing(ArbolVersion version) {
+
+		MemoryOutputSink output = new MemoryOutputSink();
+		version.listRecursive(version.getRaiz(), output);
+		output.flush();
+		return output.getContent();
+	}
+
+	private static String liveListing(Arbol<String> arbol) {
+
+		MemoryOutputSink output = new MemoryOutputSink();
+		new CommandProcess(arbol, output).execute(new String[] { "cd", "\\", "ls", "-r" });
+		return output.getContent();
+	}
+}
@@ -0,0 +1,37 @@
+package mainPackage;
+
+import java.util.NoSuchElementException;
+
+public class ArrayTokenSource implements TokenSource {
+	
+	private final String[] args;
+	
+	private int position;
+	
+	public ArrayTokenSource(String[] args) {
+		this.args = args;
+	}
+	
+	@Override
+	public boolean hasNext() {
+		return position < args.length;
+	}
+	
+	@Override
+	public String next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		return args[position++];
+	}
+	
+	@Override
+	public String peek() {
+		return hasNext() ? args[position] : null;
+	}
+	
+	@Override
+	public boolean ready() {
+		return true;
+	}
+}
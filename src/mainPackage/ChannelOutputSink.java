@@ -0,0 +1,83 @@
+package mainPackage;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+public class ChannelOutputSink implements OutputSink {
+	
+	public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+	
+	private final WritableByteChannel channel;
+	
+	private final ByteBuffer buffer;
+	
+	private final CharsetEncoder encoder;
+	
+	private final CharBuffer lineSeparator;
+	
+	public ChannelOutputSink(WritableByteChannel channel) {
+		this(channel, DEFAULT_BUFFER_SIZE, Charset.defaultCharset());
+	}
+	
+	public ChannelOutputSink(WritableByteChannel channel, int bufferSize, Charset charset) {
+		this.channel = channel;
+		this.buffer = ByteBuffer.allocate(bufferSize);
+		this.encoder = charset.newEncoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		this.lineSeparator = CharBuffer.wrap(System.lineSeparator());
+	}
+	
+	//salida estandar del proceso, sin pasar por el lock de System.out
+	public static ChannelOutputSink standardOutput() {
+		return new ChannelOutputSink(new FileOutputStream(FileDescriptor.out).getChannel());
+	}
+	
+	//escribe sobre el System.out actual, respeta los System.setOut
+	public static ChannelOutputSink systemOut() {
+		return new ChannelOutputSink(Channels.newChannel(System.out));
+	}
+	
+	@Override
+	public void println(String line) {
+		encode(CharBuffer.wrap(line));
+		lineSeparator.rewind();
+		encode(lineSeparator);
+	}
+	
+	@Override
+	public void flush() {
+		buffer.flip();
+		try {
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		} finally {
+			buffer.clear();
+		}
+	}
+	
+	private void encode(CharBuffer chars) {
+		
+		CoderResult result = encoder.encode(chars, buffer, true);
+		
+		while (result.isOverflow()) {
+			flush();
+			result = encoder.encode(chars, buffer, true);
+		}
+		
+		encoder.reset();
+	}
+}
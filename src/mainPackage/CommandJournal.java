@@ -0,0 +1,717 @@
+package mainPackage;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import mainPackage.CommandProcess.Arbol;
+import mainPackage.CommandProcess.Nodo;
+
+//Journal de mkdir, touch, rm y mv con group commit: los registros se acumulan en memoria y se escriben con un
+//unico fsync cuando se junta batchSize registros o cada syncIntervalMillis, lo que ocurra primero.
+//Con batchSize 1 cada comando se sincroniza por separado.
+//
+//En el directorio conviven arbol.snapshot.N (checkpoint) y arbol.journal.N (mutaciones posteriores al
+//checkpoint N). Al recuperar se carga el snapshot mas nuevo y se reaplican solo los journals desde ese numero.
+//Un checkpoint se hace a mano o solo, en segundo plano, cuando el journal actual pasa de checkpointBytes.
+//
+//Los registros de un commit van entre un BEGIN y un COMMIT. El group commit puede sincronizar solo una parte del
+//lote antes de una caida; al recuperar, un lote sin su COMMIT al final del journal se descarta entero.
+public class CommandJournal implements Closeable {
+	
+	public static final int DEFAULT_BATCH_SIZE = 256;
+	
+	public static final long DEFAULT_SYNC_INTERVAL_MILLIS = 10;
+	
+	public static final long DEFAULT_CHECKPOINT_BYTES = 64L * 1024 * 1024;
+	
+	private static final String SNAPSHOT_PREFIX = "arbol.snapshot.";
+	
+	private static final String JOURNAL_PREFIX = "arbol.journal.";
+	
+	private static final String TEMPORARY_SUFFIX = ".tmp";
+	
+	private static final byte DIRECTORY = 1;
+	
+	private static final byte FILE = 2;
+	
+	//rm y rm -r: el primero con ese nombre, igual que al ejecutarlos
+	private static final byte REMOVE_DIRECTORY = 3;
+	
+	private static final byte REMOVE_FILE = 4;
+	
+	//mv: origen (padre y nombre) y despues destino (padre y nombre nuevo)
+	private static final byte MOVE_DIRECTORY = 5;
+	
+	private static final byte MOVE_FILE = 6;
+	
+	//sin datos, alrededor de los registros de un commit
+	private static final byte BEGIN = 7;
+	
+	private static final byte COMMIT = 8;
+	
+	private final Path directory;
+	
+	private final Arbol<String> arbol;
+	
+	private final int batchSize;
+	
+	private final ScheduledExecutorService flusher;
+	
+	//null si checkpointBytes es 0: solo hay checkpoints a mano
+	private final ExecutorService checkpointer;
+	
+	private final long checkpointBytes;
+	
+	//un checkpoint a la vez, el manual o el del checkpointer; close tambien lo espera
+	private final Object checkpointLock = new Object();
+	
+	private final RecordBuffer record = new RecordBuffer();
+	
+	private final DataOutputStream recordOutput = new DataOutputStream(record);
+	
+	private final RecordBuffer pending = new RecordBuffer();
+	
+	private final DataOutputStream pendingOutput = new DataOutputStream(pending);
+	
+	private final CRC32 crc = new CRC32();
+	
+	private FileChannel channel;
+	
+	private long generation;
+	
+	private int pendingRecords;
+	
+	//lo escrito en el journal de esta generacion
+	private long journalBytes;
+	
+	private boolean checkpointScheduled;
+	
+	private boolean closed;
+	
+	//entre beginGroup y endGroup; el BEGIN se escribe con el primer registro, un lote que no cambio nada no deja marcas
+	private boolean grouping;
+	
+	private boolean groupWritten;
+	
+	private long syncCount;
+	
+	private IOException failure;
+	
+	private CommandJournal(Path directory, Arbol<String> arbol, long generation, FileChannel channel, int batchSize,
+			long syncIntervalMillis, long checkpointBytes) throws IOException {
+		
+		this.directory = directory;
+		this.arbol = arbol;
+		this.generation = generation;
+		this.channel = channel;
+		this.batchSize = batchSize;
+		this.checkpointBytes = checkpointBytes;
+		this.journalBytes = channel.position();
+		
+		if (syncIntervalMillis > 0) {
+			flusher = Executors.newSingleThreadScheduledExecutor(new JournalThreadFactory("command-journal-sync"));
+			flusher.scheduleWithFixedDelay(new Runnable() {
+				@Override
+				public void run() {
+					syncQuietly();
+				}
+			}, syncIntervalMillis, syncIntervalMillis, TimeUnit.MILLISECONDS);
+		} else {
+			flusher = null;
+		}
+		
+		checkpointer = checkpointBytes > 0 ? Executors.newSingleThreadExecutor(new JournalThreadFactory("command-journal-checkpoint")) : null;
+		
+		arbol.setJournal(this);
+	}
+	
+	public static CommandJournal open(Path directory) throws IOException {
+		return open(directory, DEFAULT_BATCH_SIZE, DEFAULT_SYNC_INTERVAL_MILLIS);
+	}
+	
+	public static CommandJournal open(Path directory, int batchSize, long syncIntervalMillis) throws IOException {
+		return open(directory, batchSize, syncIntervalMillis, DEFAULT_CHECKPOINT_BYTES);
+	}
+	
+	//Recupera el arbol del directorio (checkpoint + cola del journal) y deja el journal listo para seguir escribiendo.
+	//Con checkpointBytes 0 no hay checkpoints en segundo plano.
+	public static CommandJournal open(Path directory, int batchSize, long syncIntervalMillis, long checkpointBytes) throws IOException {
+		
+		Files.createDirectories(directory);
+		
+		List<Long> snapshots = generations(directory, SNAPSHOT_PREFIX);
+		List<Long> journals = generations(directory, JOURNAL_PREFIX);
+		
+		long checkpoint = snapshots.isEmpty() ? 0 : snapshots.get(snapshots.size() - 1);
+		
+		Arbol<String> arbol;
+		
+		if (snapshots.isEmpty()) {
+			arbol = new Arbol<String>("root");
+		} else {
+			try (ArbolSnapshot snapshot = ArbolSnapshot.open(snapshotPath(directory, checkpoint))) {
+				arbol = snapshot.toArbol();
+			}
+		}
+		
+		long generation = checkpoint;
+		long validLength = 0;
+		
+		for (long journal : journals) {
+			if (journal >= checkpoint) {
+				validLength = replay(journalPath(directory, journal), arbol);
+				generation = journal;
+			}
+		}
+		
+		FileChannel channel = FileChannel.open(journalPath(directory, generation),
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		
+		//descarta un registro que haya quedado a medio escribir
+		channel.truncate(validLength);
+		channel.position(validLength);
+		
+		return new CommandJournal(directory, arbol, generation, channel, batchSize, syncIntervalMillis, checkpointBytes);
+	}
+	
+	public Arbol<String> getArbol() {
+		return arbol;
+	}
+	
+	public synchronized long getSyncCount() {
+		return syncCount;
+	}
+	
+	synchronized void logDirectory(Nodo<String> padre, String name) {
+		append(DIRECTORY, padre, name);
+	}
+	
+	synchronized void logFile(Nodo<String> padre, String name) {
+		append(FILE, padre, name);
+	}
+	
+	synchronized void logRemoveDirectory(Nodo<String> padre, String name) {
+		append(REMOVE_DIRECTORY, padre, name, null, null);
+	}
+	
+	synchronized void logRemoveFile(Nodo<String> padre, String name) {
+		append(REMOVE_FILE, padre, name, null, null);
+	}
+	
+	synchronized void logMoveDirectory(Nodo<String> padre, String name, Nodo<String> destino, String newName) {
+		append(MOVE_DIRECTORY, padre, name, destino, newName);
+	}
+	
+	synchronized void logMoveFile(Nodo<String> padre, String name, Nodo<String> destino, String newName) {
+		append(MOVE_FILE, padre, name, destino, newName);
+	}
+	
+	//Los registros que siguen, hasta endGroup, se recuperan todos o ninguno. Se llama con el lock de escritura
+	//tomado, asi no se mezclan con los de otra sesion.
+	synchronized void beginGroup() {
+		grouping = true;
+		groupWritten = false;
+	}
+	
+	synchronized void endGroup() {
+		
+		boolean written = groupWritten;
+		
+		grouping = false;
+		groupWritten = false;
+		
+		//con el journal roto el lote no se recupera, que es lo que corresponde: no llego a escribirse entero
+		if (written && failure == null) {
+			try {
+				record.reset();
+				recordOutput.writeByte(COMMIT);
+				appendRecord();
+			} catch (IOException ex) {
+				throw new UncheckedIOException(ex);
+			}
+		}
+	}
+	
+	public synchronized void sync() throws IOException {
+		
+		if (failure != null) {
+			throw failure;
+		}
+		
+		if (pendingRecords == 0) {
+			return;
+		}
+		
+		ByteBuffer bytes = ByteBuffer.wrap(pending.getBuffer(), 0, pending.size());
+		
+		while (bytes.hasRemaining()) {
+			channel.write(bytes);
+		}
+		channel.force(false);
+		
+		journalBytes += pending.size();
+		pending.reset();
+		pendingRecords = 0;
+		syncCount++;
+		
+		if (checkpointer != null && journalBytes >= checkpointBytes && !checkpointScheduled && !closed) {
+			checkpointScheduled = true;
+			checkpointer.execute(new Runnable() {
+				@Override
+				public void run() {
+					checkpointQuietly();
+				}
+			});
+		}
+	}
+	
+	//Escribe un snapshot del arbol y arranca un journal nuevo; los archivos anteriores se borran.
+	//El lock de escritura se toma solo para pasar a la generacion nueva y abrir una ArbolVersion en ese mismo
+	//punto: el snapshot se escribe (y se sincroniza) desde la version, mientras los comandos siguen y van al
+	//journal nuevo. Si se corta antes de terminar, quedan el snapshot y los journals anteriores, que recuperan lo mismo.
+	public void checkpoint() throws IOException {
+		
+		synchronized (checkpointLock) {
+			
+			long next;
+			ArbolVersion version;
+			
+			arbol.writeLock().lock();
+			try {
+				synchronized (this) {
+					
+					if (closed) {
+						throw new IOException("Journal closed");
+					}
+					
+					sync();
+					
+					next = generation + 1;
+					
+					FileChannel nextChannel = FileChannel.open(journalPath(directory, next),
+							StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+					
+					channel.close();
+					channel = nextChannel;
+					generation = next;
+					journalBytes = 0;
+				}
+				
+				version = ArbolVersion.take(arbol);
+			} finally {
+				arbol.writeLock().unlock();
+			}
+			
+			Path temporary = directory.resolve(SNAPSHOT_PREFIX + next + TEMPORARY_SUFFIX);
+			
+			try {
+				ArbolSnapshot.write(version, temporary);
+			} finally {
+				version.close();
+			}
+			
+			try (FileChannel snapshotChannel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+				snapshotChannel.force(true);
+			}
+			
+			Files.move(temporary, snapshotPath(directory, next), StandardCopyOption.ATOMIC_MOVE);
+			
+			for (long older : generations(directory, SNAPSHOT_PREFIX)) {
+				if (older < next) {
+					Files.deleteIfExists(snapshotPath(directory, older));
+				}
+			}
+			
+			for (long older : generations(directory, JOURNAL_PREFIX)) {
+				if (older < next) {
+					Files.deleteIfExists(journalPath(directory, older));
+				}
+			}
+		}
+	}
+	
+	@Override
+	public void close() throws IOException {
+		
+		if (flusher != null) {
+			flusher.shutdown();
+		}
+		
+		if (checkpointer != null) {
+			checkpointer.shutdown();
+		}
+		
+		synchronized (checkpointLock) {
+			
+			arbol.writeLock().lock();
+			try {
+				synchronized (this) {
+					try {
+						sync();
+					} finally {
+						closed = true;
+						channel.close();
+						arbol.setJournal(null);
+					}
+				}
+			} finally {
+				arbol.writeLock().unlock();
+			}
+		}
+	}
+	
+	//el del checkpointer; si falla, el journal sigue valido y se vuelve a intentar al pasar otra vez de checkpointBytes
+	private void checkpointQuietly() {
+		
+		try {
+			checkpoint();
+		} catch (IOException ex) {
+			//el journal y el snapshot anterior siguen recuperando todo
+		} finally {
+			synchronized (this) {
+				checkpointScheduled = false;
+			}
+		}
+	}
+	
+	private void append(byte operation, Nodo<String> padre, String name) {
+		append(operation, padre, name, null, null);
+	}
+	
+	//destino es null salvo en mv
+	private void append(byte operation, Nodo<String> padre, String name, Nodo<String> destino, String newName) {
+		
+		if (failure != null) {
+			throw new UncheckedIOException(failure);
+		}
+		
+		try {
+			if (grouping && !groupWritten) {
+				groupWritten = true;
+				record.reset();
+				recordOutput.writeByte(BEGIN);
+				appendRecord();
+			}
+			
+			record.reset();
+			recordOutput.writeByte(operation);
+			
+			writeEntry(padre, name);
+			
+			if (destino != null) {
+				writeEntry(destino, newName);
+			}
+			
+			appendRecord();
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+	}
+	
+	//pasa lo que hay en record a pending, con su largo y su CRC
+	private void appendRecord() throws IOException {
+		
+		crc.reset();
+		crc.update(record.getBuffer(), 0, record.size());
+		
+		pendingOutput.writeInt(record.size());
+		pendingOutput.writeInt((int) crc.getValue());
+		pendingOutput.write(record.getBuffer(), 0, record.size());
+		
+		pendingRecords++;
+		
+		if (pendingRecords >= batchSize) {
+			sync();
+		}
+	}
+	
+	private void writeEntry(Nodo<String> padre, String name) throws IOException {
+		
+		List<String> segments = segments(padre);
+		recordOutput.writeInt(segments.size());
+		for (String segment : segments) {
+			writeString(recordOutput, segment);
+		}
+		writeString(recordOutput, name);
+	}
+	
+	private synchronized void syncQuietly() {
+		try {
+			sync();
+		} catch (IOException ex) {
+			//se informa en el proximo comando que escriba en el journal
+			failure = ex;
+		}
+	}
+	
+	//nombres desde la raiz (sin incluirla) hasta el directorio
+	private static List<String> segments(Nodo<String> nodo) {
+		
+		List<String> segments = new ArrayList<String>();
+		
+		for (Nodo<String> current = nodo; current.getPadre() != null; current = current.getPadre()) {
+			segments.add(current.getNodeValue());
+		}
+		
+		Collections.reverse(segments);
+		return segments;
+	}
+	
+	//Devuelve el largo de la parte valida del journal. Los registros de un lote se guardan hasta su COMMIT: si el
+	//journal termina antes, el lote no se aplica y la parte valida termina en su BEGIN.
+	private static long replay(Path journal, Arbol<String> arbol) throws IOException {
+		
+		long validLength = 0;
+		CRC32 crc = new CRC32();
+		List<byte[]> group = null;
+		long groupLength = 0;
+		
+		try (InputStream stream = Files.newInputStream(journal);
+				DataInputStream input = new DataInputStream(new BufferedInputStream(stream, 64 * 1024))) {
+			
+			while (true) {
+				
+				byte[] payload;
+				
+				try {
+					int length = input.readInt();
+					int checksum = input.readInt();
+					
+					if (length <= 0) {
+						break;
+					}
+					
+					payload = new byte[length];
+					input.readFully(payload);
+					
+					crc.reset();
+					crc.update(payload, 0, payload.length);
+					
+					if ((int) crc.getValue() != checksum) {
+						break;
+					}
+				} catch (EOFException ex) {
+					break;
+				}
+				
+				if (payload[0] == BEGIN) {
+					group = new ArrayList<byte[]>();
+					groupLength = 8 + payload.length;
+					
+				} else if (group != null && payload[0] != COMMIT) {
+					group.add(payload);
+					groupLength += 8 + payload.length;
+					
+				} else if (group != null) {
+					
+					for (byte[] grouped : group) {
+						apply(grouped, arbol);
+					}
+					
+					validLength += groupLength + 8 + payload.length;
+					group = null;
+					
+				} else {
+					apply(payload, arbol);
+					validLength += 8 + payload.length;
+				}
+			}
+		}
+		
+		return validLength;
+	}
+	
+	private static void apply(byte[] payload, Arbol<String> arbol) throws IOException {
+		
+		DataInputStream input = new DataInputStream(new ByteArrayInputStream(payload));
+		
+		byte operation = input.readByte();
+		
+		Nodo<String> padre = readDirectory(input, arbol);
+		
+		if (padre == null) {
+			return;
+		}
+		
+		String name = arbol.intern(readString(input));
+		
+		switch (operation) {
+			
+			case DIRECTORY:
+				padre.addDirectory(name, padre);
+				break;
+				
+			case FILE:
+				padre.addFile(name);
+				break;
+				
+			case REMOVE_DIRECTORY:
+				
+				Nodo<String> removed = padre.getDirectory(name);
+				
+				if (removed != null) {
+					padre.removeDirectory(removed);
+					arbol.afterRemoval(padre);
+				}
+				return;
+				
+			case REMOVE_FILE:
+				
+				if (padre.removeFile(name)) {
+					arbol.afterRemoval(padre);
+				}
+				return;
+				
+			case MOVE_DIRECTORY:
+			case MOVE_FILE:
+				
+				Nodo<String> destino = readDirectory(input, arbol);
+				
+				if (destino == null) {
+					return;
+				}
+				
+				String newName = arbol.intern(readString(input));
+				
+				if (operation == MOVE_FILE) {
+					
+					if (!padre.removeFile(name)) {
+						return;
+					}
+					destino.addFile(newName);
+					
+				} else {
+					
+					Nodo<String> moved = padre.getDirectory(name);
+					
+					if (moved == null) {
+						return;
+					}
+					padre.moveDirectory(moved, destino, newName);
+				}
+				
+				arbol.afterRemoval(padre);
+				arbol.afterChange(destino);
+				return;
+				
+			default:
+				return;
+		}
+		
+		arbol.afterChange(padre);
+	}
+	
+	//recorre los segmentos de un registro desde la raiz; null si falta alguno
+	private static Nodo<String> readDirectory(DataInputStream input, Arbol<String> arbol) throws IOException {
+		
+		int segmentCount = input.readInt();
+		Nodo<String> directory = arbol.getRaiz();
+		
+		for (int i = 0; i < segmentCount; i++) {
+			
+			String segment = readString(input);
+			
+			if (directory != null) {
+				directory = directory.getDirectory(segment);
+			}
+		}
+		
+		return directory;
+	}
+	
+	private static void writeString(DataOutputStream output, String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		output.writeInt(bytes.length);
+		output.write(bytes);
+	}
+	
+	private static String readString(DataInputStream input) throws IOException {
+		byte[] bytes = new byte[input.readInt()];
+		input.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+	
+	private static List<Long> generations(Path directory, String prefix) throws IOException {
+		
+		List<Long> generations = new ArrayList<Long>();
+		
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, prefix + "*")) {
+			for (Path file : files) {
+				
+				String suffix = file.getFileName().toString().substring(prefix.length());
+				
+				if (suffix.endsWith(TEMPORARY_SUFFIX)) {
+					//checkpoint interrumpido
+					Files.deleteIfExists(file);
+					continue;
+				}
+				
+				try {
+					generations.add(Long.parseLong(suffix));
+				} catch (NumberFormatException ex) {
+					//no es un archivo nuestro
+				}
+			}
+		}
+		
+		Collections.sort(generations);
+		return generations;
+	}
+	
+	private static Path snapshotPath(Path directory, long generation) {
+		return directory.resolve(SNAPSHOT_PREFIX + generation);
+	}
+	
+	private static Path journalPath(Path directory, long generation) {
+		return directory.resolve(JOURNAL_PREFIX + generation);
+	}
+	
+	//ByteArrayOutputStream que deja leer su buffer sin copiarlo
+	private static class RecordBuffer extends ByteArrayOutputStream {
+		
+		byte[] getBuffer() {
+			return buf;
+		}
+	}
+	
+	private static class JournalThreadFactory implements ThreadFactory {
+		
+		private final String name;
+		
+		JournalThreadFactory(String name) {
+			this.name = name;
+		}
+		
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, name);
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
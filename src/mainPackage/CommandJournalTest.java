@@ -0,0 +1,192 @@
+package mainPackage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import mainPackage.CommandProcessTest.MemoryOutputSink;
+
+class CommandJournalTest {
+	
+	@TempDir
+	Path folder;
+	
+	@Test
+	void recoversMutationsFromTheJournal() throws Exception {
+		
+		try (CommandJournal journal = CommandJournal.open(folder, 1, 0)) {
+			
+			new CommandProcess(journal.getArbol(), new MemoryOutputSink()).execute(new String[] { "mkdir", "New Folder",
+					"cd", "New Folder", "mkdir", "Special Folder", "cd", "Special Folder", "touch", "Work File", "cd", "..", "touch", "Other File" });
+			
+			assertEquals(4, journal.getSyncCount());
+		}
+		
+		try (CommandJournal journal = CommandJournal.open(folder)) {
+			assertEquals(expectedTree(), listRecursive(journal.getArbol()));
+		}
+	}
+	
+	@Test
+	void groupCommitSyncsOncePerBatch() throws Exception {
+		
+		try (CommandJournal journal = CommandJournal.open(folder, 100, 0)) {
+			
+			CommandProcess session = new CommandProcess(journal.getArbol(), new MemoryOutputSink());
+			
+			for (int i = 0; i < 250; i++) {
+				session.execute(new String[] { "touch", "file " + i });
+			}
+			
+			assertEquals(2, journal.getSyncCount());
+		}
+		
+		try (CommandJournal journal = CommandJournal.open(folder)) {
+			assertEquals(250, journal.getArbol().getRaiz().getFiles().size());
+		}
+	}
+	
+	@Test
+	void checkpointKeepsOnlyTheTail() throws Exception {
+		
+		try (CommandJournal journal = CommandJournal.open(folder, 1, 0)) {
+			
+			CommandProcess session = new CommandProcess(journal.getArbol(), new MemoryOutputSink());
+			session.execute(new String[] { "mkdir", "New Folder", "cd", "New Folder", "mkdir", "Special Folder" });
+			
+			journal.checkpoint();
+			
+			session.execute(new String[] { "cd", "Special Folder", "touch", "Work File", "cd", "..", "touch", "Other File" });
+		}
+		
+		assertTrue(Files.exists(folder.resolve("arbol.snapshot.1")));
+		assertTrue(Files.notExists(folder.resolve("arbol.journal.0")));
+		
+		try (CommandJournal journal = CommandJournal.open(folder)) {
+			assertEquals(expectedTree(), listRecursive(journal.getArbol()));
+		}
+	}
+	
+	@Test
+	void largeJournalIsCheckpointedInTheBackground() throws Exception {
+		
+		String expected;
+		
+		try (CommandJournal journal = CommandJournal.open(folder, 1, 0, 4096)) {
+			
+			CommandProcess session = new CommandProcess(journal.getArbol(), new MemoryOutputSink());
+			
+			for (int i = 0; i < 200; i++) {
+				session.execute(new String[] { "mkdir", "-p", "a\\b" + (i % 10), "touch", "-p", "a\\b" + (i % 10) + "\\file " + i });
+			}
+			
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+			
+			while (Files.exists(folder.resolve("arbol.journal.0")) && System.nanoTime() < deadline) {
+				Thread.sleep(10);
+			}
+			
+			expected = listRecursive(journal.getArbol());
+		}
+		
+		assertTrue(Files.notExists(folder.resolve("arbol.journal.0")));
+		assertTrue(Files.notExists(folder.resolve("arbol.snapshot.0")));
+		
+		try (CommandJournal journal = CommandJournal.open(folder)) {
+			assertEquals(expected, listRecursive(journal.getArbol()));
+			assertEquals(211, journal.getArbol().getRaiz().getTotalDirectorios() + journal.getArbol().getRaiz().getTotalFiles());
+		}
+	}
+	
+	@Test
+	void tornRecordAtTheEndIsDiscarded() throws Exception {
+		
+		try (CommandJournal journal = CommandJournal.open(folder, 1, 0)) {
+			new CommandProcess(journal.getArbol(), new MemoryOutputSink()).execute(new String[] { "touch", "Work File" });
+		}
+		
+		Files.write(folder.resolve("arbol.journal.0"), new byte[] { 0, 0, 0, 40, 1, 2 }, StandardOpenOption.APPEND);
+		
+		try (CommandJournal journal = CommandJournal.open(folder, 1, 0)) {
+			new CommandProcess(journal.getArbol(), new MemoryOutputSink()).execute(new String[] { "touch", "Other File" });
+		}
+		
+		try (CommandJournal journal = CommandJournal.open(folder)) {
+			assertEquals(2, journal.getArbol().getRaiz().getFiles().size());
+		}
+	}
+	
+	@Test
+	void transactionCutBeforeItsCommitIsDiscarded() throws Exception {
+		
+		Path file = folder.resolve("arbol.journal.0");
+		long beforeBatch;
+		long complete;
+		
+		try (CommandJournal journal = CommandJournal.open(folder, 1, 0)) {
+			
+			CommandProcess session = new CommandProcess(journal.getArbol(), new MemoryOutputSink());
+			session.execute(new String[] { "mkdir", "before" });
+			beforeBatch = Files.size(file);
+			
+			session.execute(new String[] { "begin", "mkdir", "a", "touch", "f", "mkdir", "-p", "a\\b", "commit" });
+			complete = Files.size(file);
+		}
+		
+		//con batchSize 1 cada registro del lote ya estaba en el disco; se corta justo antes del COMMIT (9 bytes)
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+			channel.truncate(complete - 9);
+		}
+		
+		try (CommandJournal journal = CommandJournal.open(folder, 1, 0)) {
+			
+			assertEquals("root\nbefore\nroot\\before\n", listRecursive(journal.getArbol()));
+			assertEquals(beforeBatch, Files.size(file));
+			
+			new CommandProcess(journal.getArbol(), new MemoryOutputSink()).execute(new String[] { "begin", "touch", "after",
+					"commit" });
+		}
+		
+		try (CommandJournal journal = CommandJournal.open(folder)) {
+			assertEquals("root\nbefore\nafter\nroot\\before\n", listRecursive(journal.getArbol()));
+		}
+	}
+	
+	@Test
+	void replaysRemovalsAndMoves() throws Exception {
+		
+		String expected;
+		
+		try (CommandJournal journal = CommandJournal.open(folder, 1, 0)) {
+			
+			new CommandProcess(journal.getArbol(), new MemoryOutputSink()).execute(new String[] { "mkdir", "-p", "a\\b\\c", "d",
+					"touch", "-p", "a\\b\\f", "a\\g", "h", "mv", "a\\b", "d\\e", "mv", "h", "d\\e\\i", "rm", "a\\g", "rm", "-r", "a",
+					"mkdir", "a" });
+			
+			expected = listRecursive(journal.getArbol());
+		}
+		
+		try (CommandJournal journal = CommandJournal.open(folder)) {
+			assertEquals("root\nd\na\nroot\\d\ne\nroot\\d\\e\nc\nf\ni\nroot\\d\\e\\c\nroot\\a\n", expected);
+			assertEquals(expected, listRecursive(journal.getArbol()));
+		}
+	}
+	
+	private String expectedTree() {
+		return "root\nNew Folder\nroot\\New Folder\nSpecial Folder\nOther File\nroot\\New Folder\\Special Folder\nWork File\n";
+	}
+	
+	private String listRecursive(CommandProcess.Arbol<String> arbol) {
+		MemoryOutputSink output = new MemoryOutputSink();
+		new CommandProcess(arbol, output).execute(new String[] { "ls", "-r" });
+		return output.getContent();
+	}
+}
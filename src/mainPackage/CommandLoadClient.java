@@ -0,0 +1,176 @@
+package mainPackage;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+//Generador de carga para CommandServer: abre varias conexiones y reporta p50/p99 y comandos por segundo.
+//Uso: CommandLoadClient [port] [connections] [commandsPerConnection]
+public class CommandLoadClient {
+	
+	public static void main(String[] args) throws Exception {
+		
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : CommandServer.DEFAULT_PORT;
+		int connections = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+		int commands = args.length > 2 ? Integer.parseInt(args[2]) : 10000;
+		
+		System.out.println(run(port, connections, commands));
+	}
+	
+	public static Result run(final int port, int connections, final int commandsPerConnection) throws Exception {
+		
+		ExecutorService executor = Executors.newFixedThreadPool(connections);
+		List<Future<long[]>> futures = new ArrayList<Future<long[]>>();
+		
+		long start = System.nanoTime();
+		
+		for (int c = 0; c < connections; c++) {
+			
+			final String directory = "load " + c;
+			
+			futures.add(executor.submit(new Callable<long[]>() {
+				@Override
+				public long[] call() throws Exception {
+					return runConnection(port, directory, commandsPerConnection);
+				}
+			}));
+		}
+		
+		long[] latencies = new long[connections * commandsPerConnection];
+		int position = 0;
+		
+		try {
+			for (Future<long[]> future : futures) {
+				long[] connectionLatencies = future.get();
+				System.arraycopy(connectionLatencies, 0, latencies, position, connectionLatencies.length);
+				position += connectionLatencies.length;
+			}
+		} finally {
+			executor.shutdown();
+		}
+		
+		long elapsed = System.nanoTime() - start;
+		
+		Arrays.sort(latencies, 0, position);
+		
+		return new Result(position, elapsed, percentile(latencies, position, 0.50), percentile(latencies, position, 0.99));
+	}
+	
+	//cada conexion crea su directorio, entra y mezcla escrituras con lecturas
+	private static long[] runConnection(int port, String directory, int commands) throws IOException {
+		
+		long[] latencies = new long[commands];
+		
+		try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+			
+			socket.setTcpNoDelay(true);
+			
+			BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+			Writer writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+			
+			request(writer, reader, "mkdir \"" + directory + "\"");
+			request(writer, reader, "cd \"" + directory + "\"");
+			
+			for (int i = 0; i < commands; i++) {
+				
+				String command;
+				
+				switch (i % 5) {
+					case 0:
+						command = "touch \"file " + i + "\"";
+						break;
+					case 1:
+						command = "mkdir \"folder " + i + "\"";
+						break;
+					case 2:
+						command = "cd \"folder " + (i - 1) + "\"";
+						break;
+					case 3:
+						command = "pwd";
+						break;
+					default:
+						command = "cd ..";
+				}
+				
+				long begin = System.nanoTime();
+				request(writer, reader, command);
+				latencies[i] = System.nanoTime() - begin;
+			}
+			
+			writer.write("quit\n");
+			writer.flush();
+		}
+		
+		return latencies;
+	}
+	
+	private static void request(Writer writer, BufferedReader reader, String command) throws IOException {
+		
+		writer.write(command);
+		writer.write('\n');
+		writer.flush();
+		
+		String line;
+		do {
+			line = reader.readLine();
+		} while (line != null && !line.isEmpty());
+	}
+	
+	private static long percentile(long[] sorted, int size, double percentile) {
+		
+		if (size == 0) {
+			return 0;
+		}
+		
+		int index = (int) Math.ceil(percentile * size) - 1;
+		return sorted[Math.max(0, index)];
+	}
+	
+	public static class Result {
+		
+		private final int commands;
+		
+		private final long elapsedNanos;
+		
+		private final long p50Nanos;
+		
+		private final long p99Nanos;
+		
+		Result(int commands, long elapsedNanos, long p50Nanos, long p99Nanos) {
+			this.commands = commands;
+			this.elapsedNanos = elapsedNanos;
+			this.p50Nanos = p50Nanos;
+			this.p99Nanos = p99Nanos;
+		}
+		
+		public double getCommandsPerSecond() {
+			return elapsedNanos == 0 ? 0 : commands * 1_000_000_000.0 / elapsedNanos;
+		}
+		
+		public long getP50Nanos() {
+			return p50Nanos;
+		}
+		
+		public long getP99Nanos() {
+			return p99Nanos;
+		}
+		
+		@Override
+		public String toString() {
+			return String.format("%d commands, %.0f commands/s, p50 %.1f us, p99 %.1f us",
+					commands, getCommandsPerSecond(), p50Nanos / 1000.0, p99Nanos / 1000.0);
+		}
+	}
+}
@@ -0,0 +1,370 @@
+package mainPackage;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import mainPackage.CommandPlan.Operation;
+import mainPackage.CommandProcess.Nodo;
+
+//Metricas de un Arbol, compartidas por todas sus sesiones: cantidad y latencia de cada operacion (ver
+//LatencyHistogram), los totales del arbol y el directorio con mas entradas. La cantidad y la latencia se registran
+//solo despues de setEnabled(true) (o Enabled por JMX): medir un comando son dos System.nanoTime y los incrementos
+//atomicos del histograma, y en cd o pwd eso es mas que el comando (ver MetricsBenchmark). Apagadas cuestan una
+//lectura volatil por comando. Se mide la ejecucion de cada comando, no el parseo: leer el script o esperar a stdin
+//no cuenta.
+//Los bytes asignados por operacion se cuentan solo si se pide con setAllocationTracking, porque preguntarle
+//a la JVM por los bytes del hilo cuesta mas que la mayoria de los comandos.
+//Se consultan con el comando stats o por JMX despues de register.
+public final class CommandMetrics implements CommandMetricsMXBean {
+
+	private static final Operation[] OPERATIONS = Operation.values();
+
+	//null si la JVM no cuenta los bytes asignados por hilo
+	private static final com.sun.management.ThreadMXBean THREADS = allocationCounter();
+
+	private final LatencyHistogram[] latencies = new LatencyHistogram[OPERATIONS.length];
+
+	private final LongAdder[] allocated = new LongAdder[OPERATIONS.length];
+
+	private volatile boolean enabled;
+
+	private volatile boolean allocationTracking;
+
+	//recorrer el arbol para recalcular el directorio mas grande no se hace mas de una vez por este intervalo
+	static final long LARGEST_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+	private final Nodo<?> raiz;
+
+	//lock de lectura del arbol, para recorrerlo sin escritores
+	private final Lock treeLock;
+
+	//los actualiza el escritor con el lock de escritura tomado; se leen sin lock
+	private volatile Nodo<?> largestDirectory;
+
+	private volatile int largestDirectorySize;
+
+	//un rm o mv achico o quito el mas grande: hasta el proximo recorrido los valores son una cota inferior
+	private volatile boolean largestStale;
+
+	private volatile long lastRefresh;
+
+	CommandMetrics(Nodo<?> raiz, Lock treeLock) {
+
+		this.raiz = raiz;
+		this.treeLock = treeLock;
+		this.largestDirectory = raiz;
+		this.lastRefresh = System.nanoTime() - LARGEST_REFRESH_NANOS;
+
+		for (int i = 0; i < OPERATIONS.length; i++) {
+			latencies[i] = new LatencyHistogram();
+			allocated[i] = new LongAdder();
+		}
+	}
+
+	public ObjectName register(String name) throws JMException {
+
+		ObjectName objectName = new ObjectName("mainPackage:type=CommandMetrics,name=" + ObjectName.quote(name));
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+
+		return objectName;
+	}
+
+	public LatencyHistogram getLatency(Operation operation) {
+		return latencies[operation.ordinal()];
+	}
+
+	public long getAllocatedBytes(Operation operation) {
+		return allocated[operation.ordinal()].sum();
+	}
+
+	//momento en que empieza a ejecutarse un comando, 0 si las metricas estan apagadas
+	long start() {
+		return enabled ? System.nanoTime() : 0;
+	}
+
+	//registra la operacion que termino ahora; start es lo que devolvio start antes de ejecutarla
+	void record(Operation operation, long start) {
+
+		//si se prendieron mientras se ejecutaba, el comando no tiene desde donde medirse
+		if (enabled && start != 0) {
+			latencies[operation.ordinal()].record(System.nanoTime() - start);
+		}
+	}
+
+	//bytes asignados hasta ahora por el hilo actual, -1 si no se estan contando
+	long allocatedBytes() {
+		return allocationTracking ? THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) : -1;
+	}
+
+	//allocatedBefore es lo que devolvio allocatedBytes antes de ejecutar la operacion
+	void recordAllocation(Operation operation, long allocatedBefore) {
+
+		long allocatedAfter = allocatedBytes();
+
+		if (allocatedAfter >= 0) {
+			allocated[operation.ordinal()].add(allocatedAfter - allocatedBefore);
+		}
+	}
+
+	//se llama con el lock de escritura tomado, despues de agregar directorios o archivos a nodo
+	void noteEntries(Nodo<?> nodo) {
+
+		int entries = nodo.getDirectorios().size() + nodo.getFiles().size();
+
+		if (entries > largestDirectorySize) {
+			largestDirectory = nodo;
+			largestDirectorySize = entries;
+		}
+	}
+
+	//Se llama con el lock de escritura tomado, despues de quitar o mover directorios o archivos de nodo. Solo hay que
+	//recalcular si nodo era el mas grande o si el mas grande quedo dentro de lo que se quito; en ese caso el Nodo
+	//guardado se cambia por nodo enseguida, para no retener un subarbol quitado.
+	void noteRemoval(Nodo<?> nodo) {
+
+		Nodo<?> largest = largestDirectory;
+
+		if (largest == nodo || largest.isRemoved()) {
+			largestDirectory = nodo;
+			largestDirectorySize = nodo.getDirectorios().size() + nodo.getFiles().size();
+			largestStale = true;
+		}
+	}
+
+	//Recorre el arbol con el lock de lectura, a lo sumo una vez cada LARGEST_REFRESH_NANOS; mientras tanto quedan
+	//los valores de noteRemoval y noteEntries.
+	private void refreshLargest() {
+
+		if (!largestStale || System.nanoTime() - lastRefresh < LARGEST_REFRESH_NANOS) {
+			return;
+		}
+
+		treeLock.lock();
+		try {
+			synchronized (this) {
+
+				if (!largestStale) {
+					return;
+				}
+
+				Nodo<?> largest = raiz;
+				int largestSize = -1;
+
+				ArrayDeque<Nodo<?>> pending = new ArrayDeque<Nodo<?>>();
+				pending.push(raiz);
+
+				while (!pending.isEmpty()) {
+
+					Nodo<?> nodo = pending.pop();
+					int entries = nodo.getDirectorios().size() + nodo.getFiles().size();
+
+					if (entries > largestSize) {
+						largest = nodo;
+						largestSize = entries;
+					}
+
+					pending.addAll(nodo.getDirectorios());
+				}
+
+				largestDirectory = largest;
+				largestDirectorySize = largestSize;
+				largestStale = false;
+				lastRefresh = System.nanoTime();
+			}
+		} finally {
+			treeLock.unlock();
+		}
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	@Override
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	@Override
+	public boolean isAllocationTracking() {
+		return allocationTracking;
+	}
+
+	//se ignora si la JVM no cuenta los bytes asignados por hilo
+	@Override
+	public void setAllocationTracking(boolean tracking) {
+		this.allocationTracking = tracking && THREADS != null;
+	}
+
+	//los totales se leen sin el lock del arbol: con escritores activos pueden venir de momentos un poco distintos
+	@Override
+	public long getNodeCount() {
+		return raiz.getTotalDirectorios() + 1L;
+	}
+
+	@Override
+	public long getFileCount() {
+		return raiz.getTotalFiles();
+	}
+
+	@Override
+	public int getMaxDepth() {
+		return raiz.getAltura();
+	}
+
+	//si un rm o mv achico el mas grande, recorre el arbol (ver refreshLargest)
+	@Override
+	public String getLargestDirectory() {
+		refreshLargest();
+		return largestDirectory.getFullPath();
+	}
+
+	@Override
+	public int getLargestDirectorySize() {
+		refreshLargest();
+		return largestDirectorySize;
+	}
+
+	@Override
+	public Map<String, Long> getCommandCounts() {
+
+		Map<String, Long> counts = new LinkedHashMap<String, Long>();
+
+		for (Operation operation : OPERATIONS) {
+			long count = getLatency(operation).getCount();
+			if (count > 0) {
+				counts.put(operation.name(), count);
+			}
+		}
+
+		return counts;
+	}
+
+	@Override
+	public Map<String, Long> getMedianNanos() {
+		return percentiles(50);
+	}
+
+	@Override
+	public Map<String, Long> getP99Nanos() {
+		return percentiles(99);
+	}
+
+	@Override
+	public Map<String, Long> getMaxNanos() {
+
+		Map<String, Long> values = new LinkedHashMap<String, Long>();
+
+		for (Operation operation : OPERATIONS) {
+			LatencyHistogram latency = getLatency(operation);
+			if (latency.getCount() > 0) {
+				values.put(operation.name(), latency.getMax());
+			}
+		}
+
+		return values;
+	}
+
+	@Override
+	public Map<String, Long> getAllocatedBytes() {
+
+		Map<String, Long> values = new LinkedHashMap<String, Long>();
+
+		for (Operation operation : OPERATIONS) {
+			if (getLatency(operation).getCount() > 0) {
+				values.put(operation.name(), getAllocatedBytes(operation));
+			}
+		}
+
+		return values;
+	}
+
+	@Override
+	public String dump() {
+
+		StringBuilder dump = new StringBuilder();
+
+		for (String line : lines()) {
+			dump.append(line).append('\n');
+		}
+
+		return dump.toString();
+	}
+
+	//una linea con los totales del arbol y una por cada operacion que se ejecuto
+	List<String> lines() {
+
+		List<String> lines = new ArrayList<String>();
+
+		lines.add("nodes " + getNodeCount() + ", files " + getFileCount() + ", depth " + getMaxDepth()
+				+ ", largest directory " + getLargestDirectory() + " (" + getLargestDirectorySize() + " entries)");
+
+		//lo registrado antes de apagarlas se sigue mostrando
+		if (!enabled) {
+			lines.add("Command metrics not enabled");
+		}
+
+		for (Operation operation : OPERATIONS) {
+
+			LatencyHistogram latency = getLatency(operation);
+			long count = latency.getCount();
+
+			if (count == 0) {
+				continue;
+			}
+
+			String line = String.format(Locale.ROOT, "%s: count %d, mean %.1f us, p50 %.1f us, p99 %.1f us, max %.1f us",
+					operation.name(), count, latency.getMean() / 1000, latency.getValueAtPercentile(50) / 1000.0,
+					latency.getValueAtPercentile(99) / 1000.0, latency.getMax() / 1000.0);
+
+			long bytes = getAllocatedBytes(operation);
+
+			lines.add(bytes > 0 ? line + ", allocated " + bytes / count + " bytes/op" : line);
+		}
+
+		return lines;
+	}
+
+	private Map<String, Long> percentiles(double percentile) {
+
+		Map<String, Long> values = new LinkedHashMap<String, Long>();
+
+		for (Operation operation : OPERATIONS) {
+			LatencyHistogram latency = getLatency(operation);
+			if (latency.getCount() > 0) {
+				values.put(operation.name(), latency.getValueAtPercentile(percentile));
+			}
+		}
+
+		return values;
+	}
+
+	private static com.sun.management.ThreadMXBean allocationCounter() {
+
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+		if (threads instanceof com.sun.management.ThreadMXBean) {
+
+			com.sun.management.ThreadMXBean counter = (com.sun.management.ThreadMXBean) threads;
+
+			if (counter.isThreadAllocatedMemorySupported() && counter.isThreadAllocatedMemoryEnabled()) {
+				return counter;
+			}
+		}
+
+		return null;
+	}
+}
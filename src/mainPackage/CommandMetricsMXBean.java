@@ -0,0 +1,39 @@
+package mainPackage;
+
+import java.util.Map;
+
+//Lo que CommandMetrics publica por JMX; los mapas van por nombre de CommandPlan.Operation y solo traen
+//las operaciones que se ejecutaron alguna vez.
+public interface CommandMetricsMXBean {
+	
+	boolean isEnabled();
+	
+	void setEnabled(boolean enabled);
+	
+	boolean isAllocationTracking();
+	
+	void setAllocationTracking(boolean tracking);
+	
+	long getNodeCount();
+	
+	long getFileCount();
+	
+	int getMaxDepth();
+	
+	String getLargestDirectory();
+	
+	int getLargestDirectorySize();
+	
+	Map<String, Long> getCommandCounts();
+	
+	Map<String, Long> getMedianNanos();
+	
+	Map<String, Long> getP99Nanos();
+	
+	Map<String, Long> getMaxNanos();
+	
+	Map<String, Long> getAllocatedBytes();
+	
+	//el mismo texto que imprime el comando stats
+	String dump();
+}
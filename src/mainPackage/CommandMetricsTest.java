@@ -0,0 +1,170 @@
+package mainPackage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import javax.management.Attribute;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+
+import org.junit.jupiter.api.Test;
+
+import mainPackage.CommandPlan.Operation;
+import mainPackage.CommandProcessTest.MemoryOutputSink;
+
+class CommandMetricsTest {
+	
+	@Test
+	void statsPrintsTheTreeTotalsAndEachOperation() {
+		
+		MemoryOutputSink output = new MemoryOutputSink();
+		CommandProcess process = new CommandProcess(output);
+		
+		process.getArbol().getMetrics().setEnabled(true);
+		process.execute(new String[] { "mkdir", "a", "b", "cd", "a", "touch", "f", "g", "h", "cd", "..", "stats" });
+		
+		String[] lines = output.getContent().split("\n");
+		
+		assertEquals("nodes 3, files 3, depth 1, largest directory root\\a (3 entries)", lines[0]);
+		assertTrue(lines[1].startsWith("MKDIR: count 1, mean "), lines[1]);
+		assertTrue(lines[2].startsWith("CD: count 2, mean "), lines[2]);
+		assertTrue(lines[3].startsWith("TOUCH: count 1, mean "), lines[3]);
+		assertEquals(4, lines.length);
+		
+		CommandMetrics metrics = process.getArbol().getMetrics();
+		assertEquals(1, metrics.getLatency(Operation.STATS).getCount());
+		
+		//apagadas no se registra nada mas
+		metrics.setEnabled(false);
+		process.execute(new String[] { "pwd", "cd", "a" });
+		assertEquals(0, metrics.getLatency(Operation.PWD).getCount());
+		assertEquals(2, metrics.getLatency(Operation.CD).getCount());
+	}
+	
+	@Test
+	void commandsAreNotMeasuredUntilEnabled() {
+		
+		MemoryOutputSink output = new MemoryOutputSink();
+		CommandProcess process = new CommandProcess(output);
+		
+		process.execute(new String[] { "mkdir", "a", "cd", "a", "pwd", "stats" });
+		
+		assertEquals("Current directory: root\\a\nnodes 2, files 0, depth 1, largest directory root (1 entries)\n"
+				+ "Command metrics not enabled\n", output.getContent());
+		assertEquals(0, process.getArbol().getMetrics().getLatency(Operation.MKDIR).getCount());
+	}
+	
+	@Test
+	void largestDirectoryFollowsRemovals() {
+		
+		CommandProcess process = new CommandProcess(new MemoryOutputSink());
+		CommandMetrics metrics = process.getArbol().getMetrics();
+		
+		process.execute(new String[] { "mkdir", "a", "b", "touch", "-p", "a\\f", "a\\g", "a\\h", "a\\i", "b\\x", "b\\y", "b\\z" });
+		assertEquals("root\\a", metrics.getLargestDirectory());
+		
+		//quitar en otro directorio no obliga a recorrer el arbol
+		process.execute(new String[] { "rm", "b\\x" });
+		assertEquals("root\\a", metrics.getLargestDirectory());
+		assertEquals(4, metrics.getLargestDirectorySize());
+		
+		process.execute(new String[] { "touch", "-p", "b\\x", "rm", "a\\f", "a\\g", "a\\h" });
+		assertEquals("root\\b", metrics.getLargestDirectory());
+		assertEquals(3, metrics.getLargestDirectorySize());
+	}
+	
+	@Test
+	void waitingForTheNextTokenIsNotMeasured() {
+		
+		CommandProcess process = new CommandProcess(new MemoryOutputSink());
+		process.getArbol().getMetrics().setEnabled(true);
+		
+		//cada comando llega 50 ms despues del anterior, como alguien escribiendo en stdin
+		process.execute(new TokenSource() {
+			
+			private final TokenSource tokens = new ArrayTokenSource(new String[] { "pwd", "pwd", "pwd" });
+			
+			@Override
+			public boolean hasNext() {
+				return tokens.hasNext();
+			}
+			
+			@Override
+			public String next() {
+				try {
+					Thread.sleep(50);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return tokens.next();
+			}
+			
+			@Override
+			public String peek() {
+				return tokens.peek();
+			}
+			
+			@Override
+			public boolean ready() {
+				return false;
+			}
+		});
+		
+		LatencyHistogram pwd = process.getArbol().getMetrics().getLatency(Operation.PWD);
+		
+		assertEquals(3, pwd.getCount());
+		assertTrue(pwd.getMax() < 40_000_000L, Long.toString(pwd.getMax()));
+	}
+	
+	@Test
+	void allocationsAreCountedOnlyWhenRequested() {
+		
+		CommandProcess process = new CommandProcess(new MemoryOutputSink());
+		CommandMetrics metrics = process.getArbol().getMetrics();
+		
+		process.execute(new String[] { "mkdir", "a", "b", "c" });
+		assertEquals(0, metrics.getAllocatedBytes(Operation.MKDIR));
+		
+		metrics.setAllocationTracking(true);
+		
+		if (metrics.isAllocationTracking()) {
+			process.execute(new String[] { "mkdir", "d", "e", "f" });
+			assertTrue(metrics.getAllocatedBytes(Operation.MKDIR) > 0);
+		}
+	}
+	
+	@Test
+	void metricsArePublishedThroughJmx() throws Exception {
+		
+		CommandProcess process = new CommandProcess(new MemoryOutputSink());
+		
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = process.getArbol().getMetrics().register("jmx test");
+		
+		try {
+			//apagadas por defecto; se prenden desde la consola de JMX
+			server.setAttribute(name, new Attribute("Enabled", true));
+			process.execute(new String[] { "mkdir", "a", "cd", "a", "mkdir", "b", "touch", "f" });
+			
+			assertEquals(3L, server.getAttribute(name, "NodeCount"));
+			assertEquals(2, server.getAttribute(name, "MaxDepth"));
+			
+			TabularData counts = (TabularData) server.getAttribute(name, "CommandCounts");
+			CompositeData mkdir = counts.get(new Object[] { "MKDIR" });
+			assertEquals(2L, mkdir.get("value"));
+			
+			String dump = (String) server.invoke(name, "dump", new Object[0], new String[0]);
+			assertTrue(dump.startsWith("nodes 3, files 1, depth 2"), dump);
+			
+			Map<String, Long> p99 = process.getArbol().getMetrics().getP99Nanos();
+			assertEquals(counts.size(), p99.size());
+		} finally {
+			server.unregisterMBean(name);
+		}
+	}
+}
@@ -0,0 +1,503 @@
+package mainPackage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.PatternSyntaxException;
+
+import mainPackage.CommandProcess.CommandInput;
+
+//Script de comandos compilado: los tokens se validan y se resuelven una sola vez, y el plan se puede ejecutar
+//muchas veces con CommandProcess.execute(CommandPlan) sin volver a parsear ni buscar palabras reservadas.
+//El plan es inmutable, asi que se puede compartir entre sesiones.
+public final class CommandPlan {
+
+	public enum Operation {
+
+		QUIT,
+		PWD,
+		LIST,
+		LIST_RECURSIVE,
+		LIST_PATH,
+		MKDIR,
+		//mkdir -p: crea lo que falte de cada ruta, sin avisar de los directorios que ya existen
+		MKDIR_PARENTS,
+		CD,
+		TOUCH,
+		//touch -p: crea los directorios que falten y el archivo al final de cada ruta
+		TOUCH_PARENTS,
+		//find [ruta] -name|-path|-regex patron; el patron ya viene compilado en getSearch
+		FIND,
+		//where nombre: directorios y archivos con ese nombre, usando el indice de nombres del arbol
+		WHERE,
+		//du [ruta]: totales del subarbol que mantiene cada Nodo
+		DU,
+		//stats: cantidad y latencia de cada operacion y totales del arbol, ver CommandMetrics
+		STATS,
+		//import rutaEnDisco: copia el contenido de un directorio real dentro del directorio actual
+		IMPORT,
+		//export rutaEnDisco: crea en el disco los directorios y archivos (vacios) del directorio actual
+		EXPORT,
+		//begin, commit y abort: los comandos que siguen a begin se guardan y se ejecutan juntos en el commit
+		//(ver Transaction)
+		BEGIN,
+		COMMIT,
+		ABORT,
+		//rm ruta...: quita archivos; rm -r ruta...: quita directorios con todo lo que tienen (o archivos si no hay
+		//un directorio con ese nombre). Las rutas son desde el directorio actual, como en touch -p
+		RM,
+		RM_RECURSIVE,
+		//mv origen destino: si destino es un directorio que existe, origen pasa adentro con el mismo nombre;
+		//si no, pasa al padre de destino con el ultimo nombre de destino
+		MV,
+		//diff [origen] destino: script de rm, mkdir -p y touch -p que convierte origen (o el directorio actual) en una
+		//copia de destino si se ejecuta parado en origen, ver TreeDiff
+		DIFF,
+		//token que no es un comando: se imprime "Unrecognized command" y se corta sin quit
+		UNRECOGNIZED,
+		//argumento faltante, reservado o demasiado largo: se imprime "Unrecognized command" y se termina como quit
+		INVALID_ARGUMENT;
+
+		//despues de esta operacion no se ejecuta nada mas
+		public boolean stops() {
+			return this == QUIT || this == UNRECOGNIZED || this == INVALID_ARGUMENT;
+		}
+
+		//valor que devuelve execute cuando el plan termina en esta operacion
+		public boolean quits() {
+			return this == QUIT || this == INVALID_ARGUMENT;
+		}
+
+		//agrega, quita o mueve algo del arbol, ver TreeCommands
+		public boolean changesTree() {
+
+			switch (this) {
+				case MKDIR:
+				case MKDIR_PARENTS:
+				case TOUCH:
+				case TOUCH_PARENTS:
+				case IMPORT:
+				case RM:
+				case RM_RECURSIVE:
+				case MV:
+					return true;
+				default:
+					return false;
+			}
+		}
+	}
+
+	static final int MAX_NAME_LENGTH = 100;
+
+	private final Operation[] operations;
+
+	private final List<List<String>> arguments;
+
+	//TreeSearch de un find, ListPage de un ls con opciones, null para el resto
+	private final List<Object> details;
+
+	private final String error;
+
+	private CommandPlan(Operation[] operations, List<List<String>> arguments, List<Object> details, String error) {
+		this.operations = operations;
+		this.arguments = arguments;
+		this.details = details;
+		this.error = error;
+	}
+
+	public static CommandPlan compile(String[] args) {
+		return compile(new ArrayTokenSource(args));
+	}
+
+	//lee hasta el primer comando que corta la ejecucion (quit o un error); lo que sigue nunca se ejecutaria
+	public static CommandPlan compile(TokenSource tokens) {
+
+		List<Operation> operations = new ArrayList<Operation>();
+		List<List<String>> arguments = new ArrayList<List<String>>();
+		List<Object> details = new ArrayList<Object>();
+		String error = null;
+
+		Step step = new Step();
+
+		try {
+			while (parseNext(tokens, step)) {
+
+				operations.add(step.operation);
+				arguments.add(step.arguments.isEmpty() ? Collections.<String>emptyList()
+						: Collections.unmodifiableList(Arrays.asList(step.arguments.toArray(new String[step.arguments.size()]))));
+				details.add(step.detail);
+
+				if (step.operation == Operation.UNRECOGNIZED) {
+					error = "Unrecognized command '" + step.command + "' (command " + operations.size() + ")";
+				} else if (step.operation == Operation.INVALID_ARGUMENT) {
+					error = "Missing or invalid argument for " + step.command + " (command " + operations.size() + ")";
+				}
+
+				if (step.operation.stops()) {
+					break;
+				}
+			}
+		} catch (CommandTokenizer.MalformedTokenException ex) {
+			//el comando que se estaba leyendo queda afuera del plan
+			error = ex.getMessage() + " (command " + (operations.size() + 1) + ")";
+		}
+
+		return new CommandPlan(operations.toArray(new Operation[operations.size()]), arguments, details, error);
+	}
+
+	//operaciones ya parseadas y validas, ver Transaction
+	static CommandPlan of(List<Operation> operations, List<List<String>> arguments, List<Object> details) {
+		return new CommandPlan(operations.toArray(new Operation[operations.size()]), arguments, details, null);
+	}
+
+	public int size() {
+		return operations.length;
+	}
+
+	public Operation getOperation(int index) {
+		return operations[index];
+	}
+
+	//primer nombre o ruta de la operacion, null si no lleva argumentos
+	public String getArgument(int index) {
+		List<String> list = arguments.get(index);
+		return list.isEmpty() ? null : list.get(0);
+	}
+
+	//mkdir y touch pueden llevar varios nombres; la lista no se puede modificar
+	public List<String> getArguments(int index) {
+		return arguments.get(index);
+	}
+
+	//patron compilado de un find, null para el resto de las operaciones
+	public TreeSearch getSearch(int index) {
+		Object detail = details.get(index);
+		return detail instanceof TreeSearch ? (TreeSearch) detail : null;
+	}
+
+	//opciones de un ls con -sort, -offset, -limit o -count; null si el ls no tiene opciones
+	public ListPage getPage(int index) {
+		Object detail = details.get(index);
+		return detail instanceof ListPage ? (ListPage) detail : null;
+	}
+
+	Object getDetail(int index) {
+		return details.get(index);
+	}
+
+	public boolean isValid() {
+		return error == null;
+	}
+
+	//descripcion del primer error encontrado al compilar, null si el plan es valido
+	public String getError() {
+		return error;
+	}
+
+	//un comando ya parseado; se reutiliza en cada llamada a parseNext para no crear objetos por comando
+	static final class Step {
+
+		Operation operation;
+
+		final List<String> arguments = new ArrayList<String>();
+
+		//TreeSearch o ListPage, segun la operacion
+		Object detail;
+
+		String command;
+	}
+
+	//Consume el siguiente comando con sus argumentos, con las mismas reglas que aplicaba el interprete.
+	//Devuelve false si no quedan tokens.
+	static boolean parseNext(TokenSource tokens, Step step) {
+
+		if (!tokens.hasNext()) {
+			return false;
+		}
+
+		String command = tokens.next();
+		CommandInput input = CommandInput.fromToken(command);
+
+		step.command = command;
+		step.arguments.clear();
+		step.detail = null;
+
+		if (input == null) {
+			step.operation = Operation.UNRECOGNIZED;
+			return true;
+		}
+
+		switch (input) {
+
+			case quit:
+				step.operation = Operation.QUIT;
+				break;
+
+			case pwd:
+				step.operation = Operation.PWD;
+				break;
+
+			case ls:
+
+				if ("-r".equals(tokens.peek())) {
+					tokens.next();
+					step.operation = Operation.LIST_RECURSIVE;
+				} else {
+
+					if (tokens.hasNext() && !CommandProcess.isAReservedValue(tokens.peek())) {
+						step.operation = Operation.LIST_PATH;
+						step.arguments.add(tokens.next());
+					} else {
+						step.operation = Operation.LIST;
+					}
+
+					if (!parseListOptions(tokens, step)) {
+						step.operation = Operation.INVALID_ARGUMENT;
+					}
+				}
+				break;
+
+			case cd:
+
+				if (!tokens.hasNext() || CommandProcess.isAReservedValue(tokens.peek())) {
+					step.operation = Operation.INVALID_ARGUMENT;
+				} else {
+					step.operation = Operation.CD;
+					step.arguments.add(tokens.next());
+				}
+				break;
+
+			case mkdir:
+			case touch:
+
+				boolean parents = "-p".equals(tokens.peek());
+
+				if (parents) {
+					tokens.next();
+				}
+
+				boolean file = input == CommandInput.touch;
+
+				if (!collectNames(tokens, step, parents, file)) {
+					step.operation = Operation.INVALID_ARGUMENT;
+				} else if (file) {
+					step.operation = parents ? Operation.TOUCH_PARENTS : Operation.TOUCH;
+				} else {
+					step.operation = parents ? Operation.MKDIR_PARENTS : Operation.MKDIR;
+				}
+				break;
+
+			case where:
+
+				if (!tokens.hasNext() || CommandProcess.isAReservedValue(tokens.peek())) {
+					step.operation = Operation.INVALID_ARGUMENT;
+				} else {
+					step.operation = Operation.WHERE;
+					step.arguments.add(tokens.next());
+				}
+				break;
+
+			case du:
+
+				step.operation = Operation.DU;
+
+				if (tokens.hasNext() && !CommandProcess.isAReservedValue(tokens.peek())) {
+					step.arguments.add(tokens.next());
+				}
+				break;
+
+			case stats:
+				step.operation = Operation.STATS;
+				break;
+
+			case rm:
+
+				boolean recursive = "-r".equals(tokens.peek());
+
+				if (recursive) {
+					tokens.next();
+				}
+
+				step.operation = !collectNames(tokens, step, true, true) ? Operation.INVALID_ARGUMENT
+						: recursive ? Operation.RM_RECURSIVE : Operation.RM;
+				break;
+
+			case mv:
+
+				boolean valid = collectNames(tokens, step, true, true);
+				step.operation = valid && step.arguments.size() == 2 ? Operation.MV : Operation.INVALID_ARGUMENT;
+				break;
+
+			case diff:
+
+				boolean compared = collectNames(tokens, step, true, false);
+				step.operation = compared && step.arguments.size() <= 2 ? Operation.DIFF : Operation.INVALID_ARGUMENT;
+				break;
+
+			case begin:
+				step.operation = Operation.BEGIN;
+				break;
+
+			case commit:
+				step.operation = Operation.COMMIT;
+				break;
+
+			case abort:
+				step.operation = Operation.ABORT;
+				break;
+
+			//la ruta es del disco: no se valida como las del arbol
+			case import_:
+			case export:
+
+				if (!tokens.hasNext() || CommandProcess.isAReservedValue(tokens.peek())) {
+					step.operation = Operation.INVALID_ARGUMENT;
+				} else {
+					step.operation = input == CommandInput.import_ ? Operation.IMPORT : Operation.EXPORT;
+					step.arguments.add(tokens.next());
+				}
+				break;
+
+			case find:
+
+				if (tokens.hasNext() && !CommandProcess.isAReservedValue(tokens.peek())) {
+					step.arguments.add(tokens.next());
+				}
+
+				step.detail = compileSearch(tokens);
+				step.operation = step.detail != null ? Operation.FIND : Operation.INVALID_ARGUMENT;
+				break;
+
+			default:
+				step.operation = Operation.UNRECOGNIZED;
+		}
+
+		return true;
+	}
+
+	//consume nombres hasta la proxima palabra reservada; false si no hay ninguno o si alguno no es valido
+	private static boolean collectNames(TokenSource tokens, Step step, boolean paths, boolean file) {
+
+		boolean valid = true;
+
+		while (tokens.hasNext() && !CommandProcess.isAReservedValue(tokens.peek())) {
+
+			String name = tokens.next();
+
+			valid &= paths ? isValidPath(name, file) : name.length() <= MAX_NAME_LENGTH;
+
+			step.arguments.add(name);
+		}
+
+		return valid && !step.arguments.isEmpty();
+	}
+
+	//-sort, -count, -offset N y -limit N en cualquier orden; false si a -offset o -limit les falta el numero
+	private static boolean parseListOptions(TokenSource tokens, Step step) {
+
+		boolean sorted = false;
+		boolean countOnly = false;
+		boolean present = false;
+		int offset = 0;
+		int limit = ListPage.NO_LIMIT;
+
+		while (tokens.hasNext()) {
+
+			String option = tokens.peek();
+
+			if ("-sort".equals(option)) {
+				sorted = true;
+
+			} else if ("-count".equals(option)) {
+				countOnly = true;
+
+			} else if ("-offset".equals(option) || "-limit".equals(option)) {
+
+				tokens.next();
+
+				int value = tokens.hasNext() ? parseCount(tokens.peek()) : -1;
+
+				if (value < 0) {
+					return false;
+				}
+
+				if ("-offset".equals(option)) {
+					offset = value;
+				} else {
+					limit = value;
+				}
+
+			} else {
+				break;
+			}
+
+			tokens.next();
+			present = true;
+		}
+
+		if (present) {
+			step.detail = new ListPage(sorted, countOnly, offset, limit);
+		}
+
+		return true;
+	}
+
+	//entero no negativo de hasta 9 digitos, -1 si no lo es
+	private static int parseCount(String value) {
+
+		if (value.isEmpty() || value.length() > 9) {
+			return -1;
+		}
+
+		for (int i = 0; i < value.length(); i++) {
+			if (value.charAt(i) < '0' || value.charAt(i) > '9') {
+				return -1;
+			}
+		}
+
+		return Integer.parseInt(value);
+	}
+
+	//opcion y patron de find; null si falta alguno o la expresion no compila
+	private static TreeSearch compileSearch(TokenSource tokens) {
+
+		String option = tokens.peek();
+
+		if (!"-name".equals(option) && !"-path".equals(option) && !"-regex".equals(option)) {
+			return null;
+		}
+
+		tokens.next();
+
+		if (!tokens.hasNext() || CommandProcess.isAReservedValue(tokens.peek())) {
+			return null;
+		}
+
+		try {
+			return TreeSearch.compile(option, tokens.next());
+		} catch (PatternSyntaxException ex) {
+			return null;
+		}
+	}
+
+	//cada segmento respeta el largo maximo de un nombre; la ruta de un archivo no puede terminar en separador
+	private static boolean isValidPath(String path, boolean file) {
+
+		int segment = 0;
+		boolean hasName = false;
+
+		for (int i = 0; i < path.length(); i++) {
+
+			if (path.charAt(i) == '\\') {
+				segment = 0;
+			} else if (++segment > MAX_NAME_LENGTH) {
+				return false;
+			} else {
+				hasName = true;
+			}
+		}
+
+		return hasName && (!file || segment > 0);
+	}
+}
@@ -0,0 +1,70 @@
+package mainPackage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import mainPackage.CommandPlan.Operation;
+import mainPackage.CommandProcessTest.MemoryOutputSink;
+
+class CommandPlanTest {
+	
+	private static final String[] SCRIPT = { "mkdir", "src", "cd", "src", "touch", "index", "mkdir", "lib", "pwd",
+			"ls", "-r", "cd", "..", "ls", "\\src", "ls", "touch", "index", "touch", "index", "quit", "ls" };
+	
+	@Test
+	void compiledPlanPrintsLikeTheInterpreter() {
+		
+		MemoryOutputSink interpreted = new MemoryOutputSink();
+		MemoryOutputSink compiled = new MemoryOutputSink();
+		
+		boolean interpretedQuit = new CommandProcess(interpreted).execute(SCRIPT);
+		boolean compiledQuit = new CommandProcess(compiled).execute(CommandPlan.compile(SCRIPT));
+		
+		assertEquals(interpreted.getContent(), compiled.getContent());
+		assertEquals(interpretedQuit, compiledQuit);
+		assertTrue(compiledQuit);
+	}
+	
+	@Test
+	void compilationStopsAtTheFirstError() {
+		
+		CommandPlan unknown = CommandPlan.compile(new String[] { "pwd", "dir", "pwd" });
+		
+		assertFalse(unknown.isValid());
+		assertEquals(2, unknown.size());
+		assertEquals(Operation.UNRECOGNIZED, unknown.getOperation(1));
+		assertEquals("Unrecognized command 'dir' (command 2)", unknown.getError());
+		
+		CommandPlan missing = CommandPlan.compile(new String[] { "mkdir", "a", "cd", "ls" });
+		
+		assertEquals(Operation.INVALID_ARGUMENT, missing.getOperation(1));
+		assertEquals("Missing or invalid argument for cd (command 2)", missing.getError());
+		
+		MemoryOutputSink sink = new MemoryOutputSink();
+		assertTrue(new CommandProcess(sink).execute(missing));
+		assertFalse(new CommandProcess(new MemoryOutputSink()).execute(unknown));
+		assertEquals("Unrecognized command\n", sink.getContent());
+	}
+	
+	@Test
+	void onePlanRunsInManySessions() {
+		
+		CommandPlan plan = CommandPlan.compile(new String[] { "mkdir", "a", "cd", "a", "touch", "f", "pwd" });
+		
+		assertTrue(plan.isValid());
+		assertNull(plan.getError());
+		assertEquals("a", plan.getArgument(0));
+		assertNull(CommandPlan.compile(new String[] { "ls" }).getArgument(0));
+		
+		for (int i = 0; i < 3; i++) {
+			
+			MemoryOutputSink sink = new MemoryOutputSink();
+			assertFalse(new CommandProcess(sink).execute(plan));
+			assertEquals("Current directory: root\\a\n", sink.getContent());
+		}
+	}
+}
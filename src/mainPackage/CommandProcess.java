@@ -1,9 +1,25 @@
 package mainPackage;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.regex.Pattern;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 public class CommandProcess {
 	
@@ -14,375 +30,1520 @@ public class CommandProcess {
 	    ls    	(3),
 	    mkdir	(4),
 	    cd		(5),
-	    touch	(6);   
+	    touch	(6),
+	    find	(7),
+	    where	(8),
+	    du		(9),
+	    stats	(10),
+	    //import es palabra reservada de Java, el token va aparte
+	    import_	(11, "import"),
+	    export	(12),
+	    begin	(13),
+	    commit	(14),
+	    abort	(15),
+	    rm		(16),
+	    mv		(17),
+	    diff	(18);
 
 	    private final int commandCode;
+	    
+	    private final String token;
 
 	    private CommandInput(int levelCode) {
 	        this.commandCode = levelCode;
+	        this.token = name();
+	    }
+	    
+	    private CommandInput(int levelCode, String token) {
+	    	this.commandCode = levelCode;
+	    	this.token = token;
 	    }
 	    
 	    public int getCommandCode() {
 	    	return this.commandCode;
 	    }
+	    
+	    //lo que se escribe en el script para este comando
+	    public String getToken() {
+	    	return token;
+	    }
+	    
+	    private static final Map<String, CommandInput> BY_TOKEN = new HashMap<String, CommandInput>();
+	    
+	    static {
+	    	for (CommandInput input : values()) {
+	    		BY_TOKEN.put(input.token, input);
+	    	}
+	    }
+	    
+	    //igual que valueOf pero devuelve null en vez de lanzar una excepcion
+	    public static CommandInput fromToken(String token) {
+	    	return BY_TOKEN.get(token);
+	    }
+	}
+	
+	//palabras que no pueden usarse como argumento de un comando
+	private static final Set<String> RESERVED_VALUES = new HashSet<String>();
+	
+	static {
+		for (CommandInput input : CommandInput.values()) {
+			RESERVED_VALUES.add(input.getToken());
+		}
+		RESERVED_VALUES.add("-r");
+		RESERVED_VALUES.add("-p");
+		RESERVED_VALUES.add("-name");
+		RESERVED_VALUES.add("-path");
+		RESERVED_VALUES.add("-regex");
+		RESERVED_VALUES.add("-sort");
+		RESERVED_VALUES.add("-count");
+		RESERVED_VALUES.add("-offset");
+		RESERVED_VALUES.add("-limit");
 	}
 	
 	static class Arbol<T> {
 		
 		private Nodo<T> raiz;
 		
+		//mkdir, touch, rm y mv toman el lock de escritura, el resto de los comandos el de lectura
+		private final ReadWriteLock lock = new ReentrantReadWriteLock();
+		
+		//si esta asignado, cada mkdir, touch, rm y mv se registra antes de liberar el lock de escritura
+		private CommandJournal journal;
+		
+		//un solo String por nombre distinto, los arboles grandes repiten mucho los mismos nombres
+		private final Map<T, T> nombres = new HashMap<T, T>();
+		
+		//rutas de varios segmentos ya resueltas, compartida por todas las sesiones del arbol
+		private final PathCache<T> pathCache;
+		
+		//opcional, ver enableNameIndex
+		private NameIndex<T> nameIndex;
+		
+		//epoca de las modificaciones actuales; cada ArbolVersion que se toma la avanza
+		private long epoch;
+		
+		//epocas de las ArbolVersion abiertas
+		private final TreeSet<Long> versionesAbiertas = new TreeSet<Long>();
+		
+		//la mas vieja de versionesAbiertas, Long.MAX_VALUE si no hay ninguna; el escritor la lee sin sincronizar
+		private volatile long oldestOpenVersion = Long.MAX_VALUE;
+		
+		//latencias por operacion y totales del arbol, para stats y JMX
+		private final CommandMetrics metrics;
+		
+		//cada alta se avisa despues de registrarla en el journal, con el lock de escritura tomado
+		private final TreeWatchers watchers = new TreeWatchers();
+		
 		public Arbol(T nuevaRaiz) {
+			this(nuevaRaiz, PathCache.DEFAULT_CAPACITY);
+		}
+		
+		//con pathCacheCapacity 0 cada ruta se vuelve a recorrer segmento por segmento
+		public Arbol(T nuevaRaiz, int pathCacheCapacity) {
 			raiz = new Nodo<T>(nuevaRaiz, null);
+			pathCache = new PathCache<T>(pathCacheCapacity);
+			metrics = new CommandMetrics(raiz, lock.readLock());
 		}
 
 		public Nodo<T> getRaiz(){
 			return raiz;
 		}
+		
+		public Lock readLock() {
+			return lock.readLock();
+		}
+		
+		public Lock writeLock() {
+			return lock.writeLock();
+		}
+		
+		//se llama con el lock de escritura tomado
+		public T intern(T nombre) {
+			
+			T existente = nombres.putIfAbsent(nombre, nombre);
+			
+			return existente == null ? nombre : existente;
+		}
+		
+		//arma el indice de nombres la primera vez; desde entonces lo mantienen mkdir y touch
+		public NameIndex<T> enableNameIndex() {
+			
+			lock.writeLock().lock();
+			try {
+				if (nameIndex == null) {
+					NameIndex<T> index = new NameIndex<T>();
+					index.build(raiz);
+					nameIndex = index;
+				}
+				return nameIndex;
+			} finally {
+				lock.writeLock().unlock();
+			}
+		}
+		
+		//Con el lock de lectura alcanza: excluye a los escritores, asi la version cae entre dos comandos,
+		//pero no espera a los demas lectores.
+		long openVersion() {
+			
+			lock.readLock().lock();
+			try {
+				synchronized (versionesAbiertas) {
+					long taken = epoch++;
+					versionesAbiertas.add(taken);
+					oldestOpenVersion = versionesAbiertas.first();
+					return taken;
+				}
+			} finally {
+				lock.readLock().unlock();
+			}
+		}
+		
+		void closeVersion(long taken) {
+			
+			synchronized (versionesAbiertas) {
+				versionesAbiertas.remove(taken);
+				oldestOpenVersion = versionesAbiertas.isEmpty() ? Long.MAX_VALUE : versionesAbiertas.first();
+			}
+		}
+		
+		//se llama con el lock de escritura tomado, antes de agregar directorios o archivos a nodo
+		void beforeChange(Nodo<T> nodo) {
+			nodo.recordVersion(epoch, oldestOpenVersion);
+		}
+		
+		//se llama con el lock de escritura tomado, despues de agregar directorios o archivos a nodo
+		void afterChange(Nodo<T> nodo) {
+			metrics.noteEntries(nodo);
+		}
+		
+		//se llama con el lock de escritura tomado, despues de quitar o mover directorios o archivos de nodo: las
+		//rutas guardadas pueden llevar a otro lado o retener un subarbol quitado
+		void afterRemoval(Nodo<T> nodo) {
+			pathCache.invalidate();
+			metrics.noteRemoval(nodo);
+		}
+		
+		public CommandMetrics getMetrics() {
+			return metrics;
+		}
+		
+		//Eventos de lo que se cree en prefix o debajo (prefix es una ruta completa, como root\a, y no hace falta
+		//que exista todavia). Con el buffer lleno los eventos nuevos se descartan, ver TreeWatcher.
+		//Lo que ya tenian los arboles cargados de un snapshot o un journal no se avisa.
+		public TreeWatcher watch(String prefix, int capacity) {
+			return watchers.add(prefix, capacity);
+		}
+		
+		//null si no se habilito
+		public NameIndex<T> getNameIndex() {
+			return nameIndex;
+		}
+		
+		public PathCache<T> getPathCache() {
+			return pathCache;
+		}
+		
+		public CommandJournal getJournal() {
+			return journal;
+		}
+		
+		void setJournal(CommandJournal journal) {
+			this.journal = journal;
+		}
 	}
 	
 	static class Nodo<T> {
 		
-		private T nodeValue;
+		static final int INDEX_THRESHOLD = 8;
+		
+		private static final int INITIAL_CAPACITY = 4;
+		
+		private static final long FILE_SEED = 0x9e3779b97f4a7c15L;
+		
+		private static final long DIRECTORY_SEED = 0x632be59bd9b4e019L;
+		
+		//mv lo cambia; es volatile para que ArbolVersion lo lea antes que el historial, como el tamano de las listas
+		private volatile T nodeValue;
 		
 		private Nodo<T> padre;
 		
-		private List<Nodo<T>> directorios; 
+		//rm -r lo marca solo en el directorio que quita, ver isRemoved
+		private boolean eliminado;
 		
-		private List<String> files;
+		private AppendOnlyList<Nodo<T>> directorios; 
 		
-		private String fullPath;
+		private AppendOnlyList<String> files;
 		
+		//indices por nombre, se crean recien cuando la lista supera INDEX_THRESHOLD
+		private Map<T, Nodo<T>> indiceDirectorios;
+		
+		private Set<String> indiceFiles;
+		
+		//orden por nombre para ls -sort, se arma la primera vez que se pide y despues cada alta y baja lo mantiene
+		//(ver SortedOrder)
+		private SortedOrder orden;
+		
+		//totales del subarbol para du: directorios y archivos debajo de este nodo (los propios incluidos)
+		//y cuantos niveles de directorios tiene debajo. Cada alta los actualiza subiendo por padre.
+		private int totalDirectorios;
+		
+		private int totalFiles;
+		
+		private int altura;
+		
+		//Huella del contenido del subarbol: suma de la huella de cada archivo y de cada directorio hijo (su nombre
+		//mezclado con su propia huella). La suma no depende del orden, asi cada alta o baja la ajusta restando o sumando
+		//una entrada y llevando la diferencia hacia arriba por padre, como los totales. El nombre del nodo no entra:
+		//dos directorios con el mismo contenido tienen la misma huella aunque se llamen distinto (ver TreeDiff).
+		private long huella;
+		
+		//estado anterior a cada epoca en que se modifico el nodo, la mas nueva primero (ver ArbolVersion)
+		private volatile Version<T> historial;
+		
+		//las listas se crean con el primer hijo y el path completo se arma recorriendo los padres,
+		//asi una hoja solo ocupa su nombre y la referencia al padre
 		public Nodo(T value, Nodo<T> unPadre) {
 			nodeValue = value;
 			padre = unPadre;
-			directorios = new ArrayList<Nodo<T>>();
-			files = new ArrayList<String>();
-			fullPath = padre == null ? value.toString() : padre.getFullPath().concat("\\").concat(nodeValue.toString()); 
 		}
 		
-		public void addDirectory(T directory, Nodo<T> unPadre) {
+		public Nodo<T> addDirectory(T directory, Nodo<T> unPadre) {
 			 Nodo<T> nodo = new Nodo<T>(directory, unPadre);
-			 directorios.add(nodo);
+			 attachDirectory(nodo);
+			 return nodo;
+		}
+		
+		//agrega nodo al final de los hijos y suma su subarbol (vacio si es nuevo) a los totales de los ancestros
+		private void attachDirectory(Nodo<T> nodo) {
+			
+			if (directorios == null) {
+				directorios = new AppendOnlyList<Nodo<T>>(INITIAL_CAPACITY);
+			}
+			directorios.add(nodo);
+			
+			if (orden != null) {
+				orden.addDirectory(nodo);
+			}
+			
+			int moreDirectories = nodo.totalDirectorios + 1;
+			int moreFiles = nodo.totalFiles;
+			
+			for (Nodo<T> ancestro = this, hijo = nodo; ancestro != null; hijo = ancestro, ancestro = ancestro.padre) {
+				ancestro.totalDirectorios += moreDirectories;
+				ancestro.totalFiles += moreFiles;
+				ancestro.altura = Math.max(ancestro.altura, hijo.altura + 1);
+			}
+			
+			updateHuella(directoryHash(nodo.nodeValue, nodo.huella));
+			
+			if (indiceDirectorios != null) {
+				indiceDirectorios.putIfAbsent(nodo.nodeValue, nodo);
+			} else if (directorios.size() > INDEX_THRESHOLD) {
+				indiceDirectorios = new HashMap<T, Nodo<T>>(directorios.size() * 2);
+				for (Nodo<T> directorio : directorios) {
+					indiceDirectorios.putIfAbsent(directorio.nodeValue, directorio);
+				}
+			}
+		}
+		
+		//rm -r: quita ese hijo (aunque haya otros con el mismo nombre) con todo su subarbol. No se recorre el subarbol:
+		//queda sin referencias desde el arbol y lo junta el GC (salvo que una sesion lo tenga de directorio actual).
+		void removeDirectory(Nodo<T> hijo) {
+			detachDirectory(hijo);
+			hijo.eliminado = true;
+		}
+		
+		//mv: pasa hijo al final de los hijos de destino con otro nombre; el subarbol viaja entero, y las rutas
+		//de lo que tiene debajo cambian solas porque se arman recorriendo los padres
+		void moveDirectory(Nodo<T> hijo, Nodo<T> destino, T nombre) {
+			detachDirectory(hijo);
+			hijo.nodeValue = nombre;
+			hijo.padre = destino;
+			destino.attachDirectory(hijo);
+		}
+		
+		//Cuesta lo que la lista de hijos de este nodo: la lista se copia sin hijo (ver AppendOnlyList.without) y los
+		//totales de los ancestros se descuentan de una vez. La altura se recalcula solo en los ancestros donde cambia.
+		private void detachDirectory(Nodo<T> hijo) {
+			
+			int index = -1;
+			for (int i = 0; i < directorios.size() && index < 0; i++) {
+				if (directorios.get(i) == hijo) {
+					index = i;
+				}
+			}
+			
+			directorios = directorios.without(index);
+			
+			if (orden != null) {
+				orden.removeDirectory(hijo);
+			}
+			
+			T name = hijo.nodeValue;
+			
+			//con nombres repetidos el indice pasa al siguiente que queda
+			if (indiceDirectorios != null && indiceDirectorios.get(name) == hijo) {
+				
+				indiceDirectorios.remove(name);
+				
+				for (Nodo<T> directorio : directorios) {
+					if (name.equals(directorio.nodeValue)) {
+						indiceDirectorios.put(name, directorio);
+						break;
+					}
+				}
+			}
+			
+			int lessDirectories = hijo.totalDirectorios + 1;
+			int lessFiles = hijo.totalFiles;
+			
+			for (Nodo<T> ancestro = this; ancestro != null; ancestro = ancestro.padre) {
+				ancestro.totalDirectorios -= lessDirectories;
+				ancestro.totalFiles -= lessFiles;
+			}
+			
+			//con el nombre de antes: moveDirectory lo cambia despues
+			updateHuella(-directoryHash(name, hijo.huella));
+			
+			for (Nodo<T> ancestro = this; ancestro != null; ancestro = ancestro.padre) {
+				
+				int alturaNueva = 0;
+				for (Nodo<T> directorio : ancestro.getDirectorios()) {
+					alturaNueva = Math.max(alturaNueva, directorio.altura + 1);
+				}
+				
+				if (alturaNueva == ancestro.altura) {
+					break;
+				}
+				ancestro.altura = alturaNueva;
+			}
+		}
+		
+		//quita la primera aparicion de file; false si no estaba
+		boolean removeFile(String file) {
+			
+			int index = getFiles().indexOf(file);
+			
+			if (index < 0) {
+				return false;
+			}
+			
+			files = files.without(index);
+			
+			if (orden != null) {
+				orden.removeFile(file);
+			}
+			
+			if (indiceFiles != null && !files.contains(file)) {
+				indiceFiles.remove(file);
+			}
+			
+			for (Nodo<T> ancestro = this; ancestro != null; ancestro = ancestro.padre) {
+				ancestro.totalFiles--;
+			}
+			
+			updateHuella(-fileHash(file));
+			
+			return true;
+		}
+		
+		//Suma cambio a la huella de este nodo; la entrada del nodo en su padre cambia por eso, y asi hasta la raiz.
+		//Cuesta la profundidad del nodo, lo mismo que actualizar los totales.
+		private void updateHuella(long cambio) {
+			
+			for (Nodo<T> nodo = this; nodo != null && cambio != 0; nodo = nodo.padre) {
+				
+				long antes = directoryHash(nodo.nodeValue, nodo.huella);
+				nodo.huella += cambio;
+				cambio = directoryHash(nodo.nodeValue, nodo.huella) - antes;
+			}
+		}
+		
+		//Entradas de la huella. Se calculan sobre los caracteres del nombre, no con hashCode, asi dos arboles en
+		//procesos distintos dan la misma huella para el mismo contenido.
+		static long fileHash(String file) {
+			return mix(nameHash(file) + FILE_SEED);
+		}
+		
+		static long directoryHash(Object directory, long huella) {
+			return mix(mix(huella + DIRECTORY_SEED) ^ nameHash(directory.toString()));
+		}
+		
+		//FNV-1a de 64 bits
+		private static long nameHash(String name) {
+			
+			long hash = 0xcbf29ce484222325L;
+			
+			for (int i = 0; i < name.length(); i++) {
+				hash = (hash ^ name.charAt(i)) * 0x100000001b3L;
+			}
+			
+			return hash;
+		}
+		
+		//el paso final de MurmurHash3: biyectivo, y cada bit de entrada cambia la mitad de los de salida
+		private static long mix(long value) {
+			
+			long mixed = value;
+			
+			mixed = (mixed ^ (mixed >>> 33)) * 0xff51afd7ed558ccdL;
+			mixed = (mixed ^ (mixed >>> 33)) * 0xc4ceb9fe1a85ec53L;
+			
+			return mixed ^ (mixed >>> 33);
+		}
+		
+		//true si rm -r quito este directorio o alguno de sus ancestros
+		boolean isRemoved() {
+			
+			for (Nodo<T> nodo = this; nodo != null; nodo = nodo.padre) {
+				if (nodo.eliminado) {
+					return true;
+				}
+			}
+			
+			return false;
 		}
 		
 		public void addFile(String file) {
+			
+			if (files == null) {
+				files = new AppendOnlyList<String>(INITIAL_CAPACITY);
+			}
 			files.add(file);
+			
+			if (orden != null) {
+				orden.addFile(file);
+			}
+			
+			for (Nodo<T> ancestro = this; ancestro != null; ancestro = ancestro.padre) {
+				ancestro.totalFiles++;
+			}
+			
+			updateHuella(fileHash(file));
+			
+			if (indiceFiles != null) {
+				indiceFiles.add(file);
+			} else if (files.size() > INDEX_THRESHOLD) {
+				indiceFiles = new HashSet<String>(files);
+			}
+		}
+		
+		//reserva lugar antes de agregar muchos hijos de una vez, para no copiar las listas varias veces
+		public void ensureCapacity(int moreDirectories, int moreFiles) {
+			
+			if (moreDirectories > 0) {
+				if (directorios == null) {
+					directorios = new AppendOnlyList<Nodo<T>>(Math.max(INITIAL_CAPACITY, moreDirectories));
+				} else {
+					directorios.ensureCapacity(directorios.size() + moreDirectories);
+				}
+			}
+			
+			if (moreFiles > 0) {
+				if (files == null) {
+					files = new AppendOnlyList<String>(Math.max(INITIAL_CAPACITY, moreFiles));
+				} else {
+					files.ensureCapacity(files.size() + moreFiles);
+				}
+			}
+		}
+		
+		public Nodo<T> getDirectory(Object directoryName) {
+			
+			if (indiceDirectorios != null) {
+				return indiceDirectorios.get(directoryName);
+			}
+			
+			//con pocos hijos la busqueda lineal es mas rapida que el hash
+			for (Nodo<T> directorio : getDirectorios()) {
+				if (directoryName.equals(directorio.nodeValue)) {
+					return directorio;
+				}
+			}
+			
+			return null;
+		}
+		
+		public boolean containsFile(String file) {
+			return indiceFiles != null ? indiceFiles.contains(file) : getFiles().contains(file);
+		}
+		
+		//directorios en todo el subarbol, sin contar este
+		public int getTotalDirectorios() {
+			return totalDirectorios;
+		}
+		
+		//archivos en este directorio y en todo su subarbol
+		public int getTotalFiles() {
+			return totalFiles;
+		}
+		
+		//niveles de directorios debajo de este; 0 si no tiene subdirectorios
+		public int getAltura() {
+			return altura;
+		}
+		
+		//igual en dos nodos con los mismos nombres de archivos y subdirectorios en todo el subarbol, sin importar
+		//el orden en que se crearon
+		public long getHuella() {
+			return huella;
+		}
+		
+		SortedOrder getSortedOrder() {
+			return orden;
+		}
+		
+		void setSortedOrder(SortedOrder orden) {
+			this.orden = orden;
 		}
 		
 		public T getNodeValue() {
 			return nodeValue;
 		}
 		
+		public Nodo<T> getPadre() {
+			return padre;
+		}
+		
+		//el campo se lee una sola vez: un lector de ArbolVersion puede estar leyendo mientras se crea la lista
 		public List<Nodo<T>> getDirectorios() {
-			return directorios;
+			List<Nodo<T>> lista = directorios;
+			return lista == null ? Collections.<Nodo<T>>emptyList() : lista;
 		}
 		
 		public List<String> getFiles() {
-			return files;
+			List<String> lista = files;
+			return lista == null ? Collections.<String>emptyList() : lista;
+		}
+		
+		//Guarda las listas del nodo, cuantos hijos y archivos tienen y su nombre antes de su primera modificacion en
+		//esta epoca, si hay alguna ArbolVersion abierta que lo necesite. Se llama con el lock de escritura tomado y
+		//antes de agregar, quitar o renombrar. Sin versiones abiertas no guarda nada y suelta el historial que quedara.
+		void recordVersion(long epoch, long oldestOpen) {
+			
+			Version<T> head = historial;
+			
+			if (oldestOpen == Long.MAX_VALUE) {
+				if (head != null) {
+					historial = null;
+				}
+				return;
+			}
+			
+			if (head != null && head.epoch == epoch) {
+				return;
+			}
+			
+			//las entradas de epocas que no son posteriores a la version abierta mas vieja ya no las lee nadie
+			Version<T> kept = null;
+			for (Version<T> v = head; v != null && v.epoch > oldestOpen; v = v.anterior) {
+				kept = v;
+			}
+			if (kept != null) {
+				kept.anterior = null;
+			}
+			
+			historial = new Version<T>(epoch, nodeValue, getDirectorios(), getFiles(), kept != null ? head : null);
+		}
+		
+		Version<T> getHistorial() {
+			return historial;
+		}
+		
+		//Estado de un nodo antes de la primera modificacion de una epoca. Alcanza con guardar las listas y sus
+		//tamanos: las listas solo crecen al final, y quitar arma una lista nueva sin tocar la guardada.
+		static final class Version<T> {
+			
+			final long epoch;
+			
+			final T nombre;
+			
+			final List<Nodo<T>> listaDirectorios;
+			
+			final int directorios;
+			
+			final List<String> listaFiles;
+			
+			final int files;
+			
+			volatile Version<T> anterior;
+			
+			Version(long epoch, T nombre, List<Nodo<T>> listaDirectorios, List<String> listaFiles, Version<T> anterior) {
+				this.epoch = epoch;
+				this.nombre = nombre;
+				this.listaDirectorios = listaDirectorios;
+				this.directorios = listaDirectorios.size();
+				this.listaFiles = listaFiles;
+				this.files = listaFiles.size();
+				this.anterior = anterior;
+			}
 		}
 		
 		public String getFullPath() {
-			return fullPath;
+			
+			if (padre == null) {
+				return nodeValue.toString();
+			}
+			
+			StringBuilder fullPath = new StringBuilder();
+			appendPath(fullPath);
+			return fullPath.toString();
+		}
+		
+		private void appendPath(StringBuilder fullPath) {
+			
+			if (padre != null) {
+				padre.appendPath(fullPath);
+				fullPath.append(BACK_SLASH);
+			}
+			
+			fullPath.append(nodeValue);
 		}
 	}
 	
-	private static Arbol<String> arbol;
+	private final Arbol<String> arbol;
 	
-    private static Nodo<String> workingDirectory;
+    private Nodo<String> workingDirectory;
+    
+    private final OutputSink output;
+    
+    //si esta asignado, ls -r y find recorren los subarboles en paralelo con este pool
+    private ForkJoinPool parallelListing;
+    
+    //reutilizados en cada resolucion de ruta: una sesion se usa desde un solo hilo
+    private final PathScanner scanner = new PathScanner();
+    
+    private final PathCache.Key pathKey = new PathCache.Key();
+    
+    //abierta con begin; sigue abierta entre llamadas a execute hasta commit o abort
+    private Transaction transaction;
+    
+    //cd, mkdir, touch, rm, mv e import, sobre el arbol a traves de Tree
+    private final TreeCommands<Nodo<String>> commands;
     
     private static final String BACK_SLASH = "\\";
+    
+    public CommandProcess(OutputSink output) {
+    	this(new Arbol<String>("root"), output);
+    }
+    
+    //varias sesiones pueden compartir el mismo arbol, cada una con su directorio de trabajo
+    public CommandProcess(Arbol<String> arbol, OutputSink output) {
+    	this.arbol = arbol;
+    	this.workingDirectory = arbol.raiz;
+    	this.output = output;
+    	this.commands = new TreeCommands<Nodo<String>>(new Tree(), output);
+    }
         
     public static void processInputs(String args[]) {
+    	processInputs(args, ChannelOutputSink.systemOut());
+    }
+    
+    public static void processInputs(String args[], OutputSink sink) {
+    	new CommandProcess(sink).execute(args);
+    }
+    
+    //para scripts grandes, los comandos se leen a medida que se ejecutan
+    public static void processInputs(InputStream input, OutputSink sink) {
+    	new CommandProcess(sink).execute(new CommandTokenizer(input));
+    }
+    
+    public static void processInputs(ReadableByteChannel channel, OutputSink sink) {
+    	new CommandProcess(sink).execute(new CommandTokenizer(channel, StandardCharsets.UTF_8));
+    }
     
-    	arbol = new Arbol<String>("root");
-    	workingDirectory = arbol.raiz;
+    public boolean execute(String args[]) {
+    	return execute(new ArrayTokenSource(args));
+    }
+    
+    //devuelve true si se ejecuto quit
+    public boolean execute(TokenSource tokens) {
+    	
+    	try {
+    		return processCommands(tokens);
+    	} catch (CommandTokenizer.MalformedTokenException ex) {
+    		return malformedInput(ex.getMessage());
+    	} finally {
+    		output.flush();
+    	}
+    }
+    
+    public Arbol<String> getArbol() {
+    	return arbol;
+    }
+    
+    public void setParallelListing(ForkJoinPool pool) {
+    	this.parallelListing = pool;
+    }
+    
+    public Nodo<String> getWorkingDirectory() {
+    	return workingDirectory;
+    }
+    
+    private boolean processCommands(TokenSource tokens) {
+    	
+    	CommandPlan.Step step = new CommandPlan.Step();
+    	CommandMetrics metrics = arbol.metrics;
+    	
+    	//se mide solo la ejecucion: el parseo puede estar esperando tokens de stdin o de un script que se lee del disco
+    	while (CommandPlan.parseNext(tokens, step)) {
+    		
+    		long start = metrics.start();
+    		run(step.operation, step.arguments, step.detail);
+    		metrics.record(step.operation, start);
+    		
+    		if (step.operation.stops()) {
+    			return step.operation.quits();
+    		}
+    		
+    		//se vuelca antes de esperar mas entrada (stdin, un pipe), no recien al final del script
+    		if (!tokens.ready()) {
+    			output.flush();
+    		}
+    	}
+    	
+    	return false;
+    }
+    
+    //ejecuta un plan ya compilado; devuelve true si termino en quit
+    public boolean execute(CommandPlan plan) {
+    	
+    	CommandMetrics metrics = arbol.metrics;
+    	
+    	try {
+    		for (int i = 0; i < plan.size(); i++) {
+    			
+    			CommandPlan.Operation operation = plan.getOperation(i);
+    			long start = metrics.start();
+    			run(operation, plan.getArguments(i), plan.getDetail(i));
+    			metrics.record(operation, start);
+    			
+    			if (operation.stops()) {
+    				return operation.quits();
+    			}
+    		}
+    		return false;
+    	} finally {
+    		output.flush();
+    	}
+    }
+    
+    //detail es el TreeSearch de find o el ListPage de ls, ver CommandPlan
+    private void run(CommandPlan.Operation operation, List<String> arguments, Object detail) {
+    	
+    	if (transaction != null && !stage(operation, arguments, detail)) {
+    		return;
+    	}
     	
-    	int arraySize = args.length;	
+    	CommandMetrics metrics = arbol.metrics;
+    	long allocated = metrics.allocatedBytes();
     	
-    	boolean quit = false;
+    	dispatch(operation, arguments, detail);
     	
-    	for (int i = 0; !quit &&  i < arraySize; i++) {
-
-    		String input = args[i];
+    	if (allocated >= 0) {
+    		metrics.recordAllocation(operation, allocated);
+    	}
+    }
+    
+    private void dispatch(CommandPlan.Operation operation, List<String> arguments, Object detail) {
+    	
+    	switch (operation) {
+    		
+    		case QUIT:
+    			output.println("Exit application");
+    			break;
     		
-    		CommandInput enumInput = null; 
+    		case PWD:
+    			printCurrentDirectory();
+    			break;
     		
-    		try {
-    			enumInput = CommandInput.valueOf(input);
-    		}
-    		catch (IllegalArgumentException ex) {
+    		case LIST:
+    		case LIST_RECURSIVE:
+    		case LIST_PATH:
     			
-    			printUnrecognized();
+    			arbol.readLock().lock();
+    			try {
+    				processListContent(operation, arguments, (ListPage) detail);
+    			} finally {
+    				arbol.readLock().unlock();
+    			}
     			break;
-    		}
     		
-    		switch (enumInput) {
+    		case FIND:
     			
-    			case quit:
-    				
-    				System.out.println("Exit application");
-    				quit = true;
-    				break;
+    			arbol.readLock().lock();
+    			try {
+    				find(arguments, (TreeSearch) detail);
+    			} finally {
+    				arbol.readLock().unlock();
+    			}
+    			break;
+    		
+    		case DU:
     			
-    			case pwd:
+    			arbol.readLock().lock();
+    			try {
+    				//con una ruta que no existe no se muestran los totales del ultimo directorio encontrado
+    				Nodo<String> nodo = arguments.isEmpty() ? workingDirectory : findNode(arguments.get(0), arbol.raiz);
     				
-    				printCurrentDirectory();
-    				break;
+    				if (nodo == null) {
+    					output.println("Directory not found");
+    				} else {
+    					printTotals(nodo.getFullPath(), nodo.getTotalDirectorios(), nodo.getTotalFiles(), nodo.getAltura(), output);
+    				}
+    			} finally {
+    				arbol.readLock().unlock();
+    			}
+    			break;
+    		
+    		case WHERE:
     			
-    			case ls:
-    				
-    				int nextPosition = processListContent(args, i);
-    				
-    				i = nextPosition;
-    				
-         			break;
+    			arbol.readLock().lock();
+    			try {
+    				where(arguments.get(0));
+    			} finally {
+    				arbol.readLock().unlock();
+    			}
+    			break;
+    		
+    		case STATS:
     			
-    			case mkdir:
-    				
-    				if(!existsNextElement(i, args) || isAReservedValue(args[i + 1]) || args[i + 1].length() > 100) {
-        				printUnrecognized();
-        				quit = true;
-        				break;
-        			}
-        			mkdir(args[i + 1]);
-        			
-        			i++;
-        			
-        			break;
-        			
-    			case cd:
-        			
-    				if(!existsNextElement(i, args) || isAReservedValue(args[i + 1])) {
-        				printUnrecognized();
-        				quit = true;
-        				break;
-        			}
-        			
-        			changeDirectory(args[i + 1]);
-        			
-        			i++;
-        			
-        			break;
-        			
-    			case touch:
-    				
-    				if(!existsNextElement(i, args) || isAReservedValue(args[i + 1]) || args[ i + 1].length() > 100) {
-        				printUnrecognized();
-        				quit = true;
-        				break;
-        			}
-        			
-        			createFile(args[i + 1]);
-        			
-        			i++;
-        			
-        			break;
-    			default:
-    				printUnrecognized();
-    		}
+    			arbol.readLock().lock();
+    			try {
+    				for (String line : arbol.metrics.lines()) {
+    					output.println(line);
+    				}
+    			} finally {
+    				arbol.readLock().unlock();
+    			}
+    			break;
+    		
+    		case BEGIN:
+    			
+    			if (transaction != null) {
+    				output.println("Transaction already open");
+    			} else {
+    				transaction = new Transaction();
+    			}
+    			break;
+    		
+    		case COMMIT:
+    			commit();
+    			break;
+    		
+    		case ABORT:
+    			
+    			if (transaction == null) {
+    				output.println("No transaction open");
+    			} else {
+    				transaction = null;
+    				output.println("Transaction aborted");
+    			}
+    			break;
+    		
+    		case IMPORT:
+    			importDirectory(arguments, (FileSystemMirror.Scanned) detail);
+    			break;
+    		
+    		case EXPORT:
+    			exportDirectory(arguments.get(0));
+    			break;
+    		
+    		case CD:
+    			
+    			arbol.readLock().lock();
+    			try {
+    				commands.run(operation, arguments, null);
+    			} finally {
+    				arbol.readLock().unlock();
+    			}
+    			break;
+    		
+    		case MKDIR:
+    		case MKDIR_PARENTS:
+    		case TOUCH:
+    		case TOUCH_PARENTS:
+    		case RM:
+    		case RM_RECURSIVE:
+    		case MV:
+    			
+    			arbol.writeLock().lock();
+    			try {
+    				commands.run(operation, arguments, null);
+    			} finally {
+    				arbol.writeLock().unlock();
+    			}
+    			break;
+    		
+    		case DIFF:
+    			
+    			arbol.readLock().lock();
+    			try {
+    				diff(arguments);
+    			} finally {
+    				arbol.readLock().unlock();
+    			}
+    			break;
+    		
+    		default:
+    			printUnrecognized();
     	}
     }
 
-	private static int processListContent(String[] args, int i) {
+	private void processListContent(CommandPlan.Operation operation, List<String> arguments, ListPage page) {
 		
-		//el ls puede tener un segundo parmetro
-		if(existsNextElement(i, args)){
+		if (operation == CommandPlan.Operation.LIST_RECURSIVE) {
 			
-			if(nextParameterIsEqualsTo(args, i, "-r")) {
-				
-				//recorrer arbol e imprimir hijos.
-				inOrden(workingDirectory, workingDirectory.nodeValue);
-				
-				i++; 
-				
-			} else if (!isAReservedValue(args[i+1])) {
-				Nodo<String> node = getASpecificNode(args[i + 1], arbol.raiz);
-				listContent(node);
-				
-				i++;
+			//recorrer arbol e imprimir hijos.
+			if (parallelListing != null) {
+				ParallelListing.inOrden(workingDirectory, workingDirectory.getFullPath(), output, parallelListing);
+			} else {
+				inOrden(workingDirectory, workingDirectory.getFullPath(), output);
 			}
 			
-			else {
-				//Si no tiene parmetro extra, imprimimos todo el contenido del directorio actual 	
-				listContent(workingDirectory);
-			}
+		} else if (page != null) {
+			page.print(operation == CommandPlan.Operation.LIST_PATH ? getASpecificNode(arguments.get(0), arbol.raiz) : workingDirectory, output);
+			
+		} else if (operation == CommandPlan.Operation.LIST_PATH) {
+			listContent(getASpecificNode(arguments.get(0), arbol.raiz), output);
 			
 		} else {
 			//Si no tiene parmetro extra, imprimimos todo el contenido del directorio actual 	
-			listContent(workingDirectory);
-		}	
-		
-		return i;
+			listContent(workingDirectory, output);
+		}
 	}
     
-    private static void createFile(String fileName) {
-  
-    	if (workingDirectory.files.contains(fileName)) {
-    		System.out.println("File already exists");
+    //sin ruta busca desde el directorio actual; la ruta se resuelve desde la raiz como en ls
+    private void find(List<String> arguments, TreeSearch search) {
+    	
+    	Nodo<String> start = arguments.isEmpty() ? workingDirectory : getASpecificNode(arguments.get(0), arbol.raiz);
+    	
+    	if (parallelListing != null) {
+    		search.search(start, output, parallelListing);
+    	} else {
+    		search.search(start, output);
+    	}
+    }
+    
+    //responde con el indice de nombres, sin recorrer el arbol: primero los directorios y despues los archivos
+    private void where(String name) {
+    	
+    	NameIndex<String> index = arbol.nameIndex;
+    	
+    	if (index == null) {
+    		output.println("Name index not enabled");
+    		return;
+    	}
+    	
+    	for (Nodo<String> owner : index.getDirectoryOwners(name)) {
+    		output.println(owner.getFullPath() + BACK_SLASH + name);
     	}
     	
-    	workingDirectory.addFile(fileName);
+    	for (Nodo<String> owner : index.getFileOwners(name)) {
+    		output.println(owner.getFullPath() + BACK_SLASH + name);
+    	}
     }
     
-    private static void changeDirectory(String directory) {
-		
-    	if (("..").equals(directory) && workingDirectory.padre != null) {
-    		workingDirectory = workingDirectory.padre;
-    	}else {
+    //Con una transaccion abierta guarda la operacion en vez de ejecutarla; devuelve true si igual hay que ejecutarla.
+    //begin, commit y abort se ejecutan siempre. Un error o quit descartan la transaccion y despues se ejecutan.
+    private boolean stage(CommandPlan.Operation operation, List<String> arguments, Object detail) {
+    	
+    	switch (operation) {
     		
-    		if (directory.contains(BACK_SLASH)) {
-    			processMultiplePaths(directory);
-    			
-    		}else {
-
-    			Nodo<String> existingNode = getNodeByName(directory, workingDirectory);
+    		case BEGIN:
+    		case COMMIT:
+    		case ABORT:
+    			return true;
+    		
+    		default:
     			
-    			if(existingNode == null) {
-    				System.out.println("Directory not found");
-    			}else {
-    				workingDirectory = existingNode;	
+    			if (operation.stops()) {
+    				transaction = null;
+    				output.println("Transaction aborted");
+    				return true;
     			}
-    		}
-    	}    	
-     }
-    
-    private static void processMultiplePaths(String multiplePaths) {
-    	
-    	Nodo<String> nodo = getASpecificNode(multiplePaths, workingDirectory);
-    	
-    	if (nodo != null) {
-    		workingDirectory = nodo;
-    	} else {
-    		System.out.println("Directory not found");
+    			
+    			transaction.add(operation, arguments, detail);
+    			return false;
     	}
     }
     
-    private static Nodo<String> getASpecificNode(String multiplePaths, Nodo<String> initialDirectory){
+    //Los import se leen del disco antes de tomar el lock, como fuera de una transaccion. El lock de escritura se
+    //toma una vez para todo el lote y, antes de aplicar nada, se chequea el lote entero (ver TransactionCheck): si
+    //algun comando fallaria se imprime su error y no se aplica ninguno. Los comandos vuelven a tomar el lock (o
+    //toman el de lectura) sin esperar, porque el lock es reentrante. En el journal el lote queda como una unidad:
+    //despues de una caida se recupera entero o nada.
+    private void commit() {
     	
-    	String pattern = Pattern.quote(BACK_SLASH);
-		String[] paths = multiplePaths.substring(1).split(pattern);
-		
-		boolean existsNode = true;
-    	int iterator = 0;
-    	int partsSize = paths.length;
-    	   	
-    	Nodo<String> directory = initialDirectory;
+    	if (transaction == null) {
+    		output.println("No transaction open");
+    		return;
+    	}
+    	
+    	CommandPlan plan = transaction.toPlan();
+    	transaction = null;
     	
-    	while (existsNode && iterator < partsSize) {
+    	FileSystemMirror.Scanned[] scanned = new FileSystemMirror.Scanned[plan.size()];
+    	
+    	for (int i = 0; i < plan.size(); i++) {
+    		if (plan.getOperation(i) == CommandPlan.Operation.IMPORT) {
+    			
+    			scanned[i] = scan(plan.getArguments(i).get(0));
+    			
+    			if (scanned[i] == null) {
+    				output.println("Transaction aborted");
+    				return;
+    			}
+    		}
+    	}
     	
-    		String node = paths[iterator];
+    	arbol.writeLock().lock();
+    	try {
+    		String error = commands.check(plan, scanned);
     		
-    		Nodo<String> existingNode = getNodeByName(node, directory);
+    		if (error != null) {
+    			output.println(error);
+    			output.println("Transaction aborted");
+    			return;
+    		}
     		
-    		if(existingNode == null) {
-    			existsNode = false;
-    			
-    		}else {
-    			directory = existingNode;	
+    		CommandJournal journal = arbol.journal;
+    		
+    		if (journal != null) {
+    			journal.beginGroup();
     		}
     		
-    		iterator ++;
+    		try {
+    			for (int i = 0; i < plan.size(); i++) {
+    				run(plan.getOperation(i), plan.getArguments(i), scanned[i] != null ? scanned[i] : plan.getDetail(i));
+    			}
+    		} finally {
+    			if (journal != null) {
+    				journal.endGroup();
+    			}
+    		}
+    	} finally {
+    		arbol.writeLock().unlock();
+    	}
+    }
+    
+    //Copia el contenido del directorio del disco dentro del directorio actual. El disco se lee antes de
+    //tomar el lock de escritura (ver FileSystemMirror); lo que ya existe con el mismo nombre se junta en vez de repetirse.
+    //En un commit scanned ya viene leido y el tiempo es solo el de agregarlo al arbol.
+    private void importDirectory(List<String> arguments, FileSystemMirror.Scanned scanned) {
+    	
+    	long start = System.nanoTime();
+    	
+    	if (scanned == null) {
+    		scanned = scan(arguments.get(0));
     	}
     	
-    	if (existsNode = false) {
-    		directory = null;
+    	if (scanned == null) {
+    		return;
+    	}
+    	
+    	arbol.writeLock().lock();
+    	try {
+    		if (commands.run(CommandPlan.Operation.IMPORT, arguments, scanned) != null) {
+    			return;
+    		}
+    	} finally {
+    		arbol.writeLock().unlock();
     	}
     	
-    	return directory;
+    	printTransfer("Imported", scanned.directoryCount, scanned.fileCount, scanned.skipped, System.nanoTime() - start, output);
     }
     
-    private static void inOrden(Nodo<String> nodo, String currentPath) {
+    //null si no se pudo leer
+    private FileSystemMirror.Scanned scan(String source) {
+    	
+    	try {
+    		return FileSystemMirror.scan(Paths.get(source), transferPool());
+    	} catch (IOException | InvalidPathException e) {
+    		output.println("Cannot read " + source);
+    		return null;
+    	}
+    }
     
-    	System.out.println(nodo.fullPath);
-    	    	
-    	listContent(nodo);    	
+    //Crea en target los directorios y archivos del directorio actual. Se escribe desde una ArbolVersion,
+    //asi los escritores siguen mientras tanto y lo exportado es el arbol del momento en que empezo.
+    private void exportDirectory(String target) {
+    	
+    	long start = System.nanoTime();
+    	FileSystemMirror.Exported exported;
     	
-    	if(nodo.directorios.isEmpty()) {
+    	try (ArbolVersion version = ArbolVersion.take(arbol)) {
+    		exported = FileSystemMirror.export(version, workingDirectory, Paths.get(target), transferPool());
+    	} catch (IOException | InvalidPathException e) {
+    		output.println("Cannot write " + target);
     		return;
     	}
     	
-    	for(Nodo<String> child : nodo.getDirectorios()) {
-    		inOrden(child, currentPath.concat(child.nodeValue));
-    	}	
+    	printTransfer("Exported", exported.directories.sum(), exported.files.sum(), exported.skipped.sum(),
+    			System.nanoTime() - start, output);
     }
     
-    private static void mkdir(String directory) {
-    	if(existsDirectory(directory, workingDirectory)) {
-    		System.out.println("Directory already exists");
-    	}
+    private ForkJoinPool transferPool() {
+    	return parallelListing != null ? parallelListing : ForkJoinPool.commonPool();
+    }
+    
+    static void printTransfer(String action, long directories, long files, long skipped, long nanos, OutputSink output) {
     	
-    	workingDirectory.addDirectory(directory, workingDirectory);
+    	long entries = directories + files;
+    	long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+    	long perSecond = (long) (entries * 1e9 / Math.max(1, nanos));
     	
+    	output.println(action + " " + directories + " directories, " + files + " files, " + skipped + " skipped in "
+    			+ millis + " ms (" + perSecond + " entries/s)");
     }
     
-    private static boolean existsDirectory(String directoryName, Nodo<String> directory) {
-
-    	Nodo<String> existingDirectory = getNodeByName(directoryName, workingDirectory);
-    	
-    	return existingDirectory != null;
+    //avanza por los segmentos que existen y se queda en el ultimo encontrado; las rutas completas se guardan en la cache del arbol
+    private Nodo<String> getASpecificNode(String multiplePaths, Nodo<String> initialDirectory){
+    	return resolve(multiplePaths, initialDirectory, false);
+    }
+    
+    //como getASpecificNode, pero null si falta algun segmento
+    private Nodo<String> findNode(String multiplePaths, Nodo<String> initialDirectory){
+    	return resolve(multiplePaths, initialDirectory, true);
     }
     
-    private static Nodo<String> getNodeByName(String directoryName, Nodo<String> actualNode) {
+    private Nodo<String> resolve(String multiplePaths, Nodo<String> initialDirectory, boolean strict){
+    	
+    	PathCache<String> cache = arbol.pathCache;
+    	long startTime = System.nanoTime();
+    	
+    	Nodo<String> cached = cache.get(pathKey.set(initialDirectory, multiplePaths));
+    	
+    	if (cached != null) {
+    		cache.recordHit(System.nanoTime() - startTime);
+    		return cached;
+    	}
+    	
+    	boolean existsNode = true;
+    	Nodo<String> directory = initialDirectory;
+    	
+    	scanner.reset(multiplePaths);
+    	
+    	while (existsNode && scanner.next()) {
+    		
+    		Nodo<String> existingNode = getNodeByName(scanner, directory);
+    		
+    		if(existingNode == null) {
+    			existsNode = false;
+    			
+    		}else {
+    			directory = existingNode;	
+    		}
+    	}
     	
-    	Nodo<String> expectedNode = null;
-    	boolean find = false;
+    	if (existsNode) {
+    		cache.put(initialDirectory, multiplePaths, directory);
+    	}
+    	
+    	cache.recordMiss(System.nanoTime() - startTime);
+    	
+    	return existsNode || !strict ? directory : null;
+    }
+    
+    //recorrido con pila propia: los arboles profundos no agotan el stack de Java
+    static void inOrden(Nodo<String> nodo, String currentPath, OutputSink output) {
+    
+    	ArrayDeque<Nodo<String>> nodos = new ArrayDeque<Nodo<String>>();
+    	ArrayDeque<String> paths = new ArrayDeque<String>();
     	
-    	Iterator<Nodo<String>> iter = actualNode.getDirectorios().iterator();
+    	nodos.push(nodo);
+    	paths.push(currentPath);
     	
-    	while(!find && iter.hasNext()) {
+    	while (!nodos.isEmpty()) {
+    		
+    		Nodo<String> actual = nodos.pop();
+    		String path = paths.pop();
+    		
+    		output.println(path);
     		
-    		Nodo<String> node = iter.next();
+    		listContent(actual, output);
     		
-    		if(node.nodeValue.equals(directoryName)) {
-    			find = true;
-    			expectedNode = node;
+    		List<Nodo<String>> hijos = actual.getDirectorios();
+    		
+    		//se apilan al reves para visitarlos en orden de creacion
+    		for (int i = hijos.size() - 1; i >= 0; i--) {
+    			Nodo<String> child = hijos.get(i);
+    			nodos.push(child);
+    			paths.push(path.concat(BACK_SLASH).concat(child.nodeValue));
     		}
     	}
+    }
+    
+    //las rutas son desde el directorio actual, como en mv; con una sola se compara el directorio actual
+    private void diff(List<String> paths) {
+    	
+    	Nodo<String> from = paths.size() == 1 ? workingDirectory : commands.findDirectory(paths.get(0));
+    	Nodo<String> to = commands.findDirectory(paths.get(paths.size() - 1));
+    	
+    	if (from == null || to == null) {
+    		output.println("Directory not found");
+    		return;
+    	}
+    	
+    	TreeDiff.Result result = TreeDiff.diff(from, to, output);
     	
-    	return expectedNode;
+    	//despues de los comandos: el script sigue siendo valido hasta esa linea
+    	if (result.getSkipped() > 0) {
+    		output.println("Skipped " + result.getSkipped() + " entries");
+    	}
+    }
+    
+    private static Nodo<String> getNodeByName(Object directoryName, Nodo<String> actualNode) {
+    	return actualNode.getDirectory(directoryName);
     }
     
-    private static void listContent(Nodo<String> workingDirectory) {
+    static void listContent(Nodo<String> workingDirectory, OutputSink output) {
     	
-    	if(!workingDirectory.directorios.isEmpty()) {
-    		printFolders(workingDirectory.directorios);
+    	if(!workingDirectory.getDirectorios().isEmpty()) {
+    		printFolders(workingDirectory.getDirectorios(), output);
     	}
     	
-    	if(!workingDirectory.files.isEmpty()) {
-    		printFiles(workingDirectory.files);
+    	if(!workingDirectory.getFiles().isEmpty()) {
+    		printFiles(workingDirectory.getFiles(), output);
     	}
 	}
 
-    private static void printFiles(List<String> files) {
+    private static void printFiles(List<String> files, OutputSink output) {
     	for(String file : files) {
-    		System.out.println(file);
+    		output.println(file);
     	}
     }
     
-    private static void printFolders(List<Nodo<String>> nodos) {
+    private static void printFolders(List<Nodo<String>> nodos, OutputSink output) {
     	for(Nodo<String> nodo : nodos) {
-    		System.out.println(nodo.nodeValue);
+    		output.println(nodo.nodeValue);
     	}
     }
     
-	private static boolean nextParameterIsEqualsTo(String[] args, int actualPosition, String comparingValue) {
-    	return comparingValue.equals(args[actualPosition + 1]);
-    }
-	
-	private static boolean existsNextElement(int actualPosition, String[] args) {
-		return (actualPosition + 1) < args.length;
+	static void printTotals(String path, int directories, int files, int depth, OutputSink output) {
+		output.println(path + ": " + directories + " directories, " + files + " files, depth " + depth);
 	}
 	
-	private static boolean isAReservedValue(String value) {
-		return "touch".equals(value) || "mkdir".equals(value) || "cd".equals(value)
-				|| "quit".equals(value) || "pwd".equals(value) || "ls".equals(value) || "-r".equals(value);
+	static boolean isAReservedValue(String value) {
+		return RESERVED_VALUES.contains(value);
 	}
 	
-    private static void printUnrecognized() {
-    	System.out.println("Unrecognized command");
+    //Una comilla sin cerrar o un token demasiado largo: como un argumento invalido, corta el script y descarta la
+    //transaccion abierta. El comando que se estaba leyendo no se ejecuta.
+    private boolean malformedInput(String error) {
+    	
+    	if (transaction != null) {
+    		transaction = null;
+    		output.println("Transaction aborted");
+    	}
+    	
+    	output.println(error);
+    	return true;
     }
     
-    private static void printCurrentDirectory() {
-    	System.out.println("Current directory: " + workingDirectory.fullPath);
+    private void printUnrecognized() {
+    	output.println("Unrecognized command");
+    }
+    
+    private void printCurrentDirectory() {
+    	output.println("Current directory: " + workingDirectory.getFullPath());
+    }
+    
+    //El arbol de la sesion para TreeCommands. Cada cambio lleva con el la version para las ArbolVersion abiertas,
+    //las metricas, el indice de nombres, el journal y los watchers; se llama con el lock de escritura tomado (o
+    //el de lectura, en cd).
+    private final class Tree implements TreeModel<Nodo<String>> {
+    	
+    	@Override
+    	public Nodo<String> getWorkingDirectory() {
+    		return workingDirectory;
+    	}
+    	
+    	@Override
+    	public void setWorkingDirectory(Nodo<String> directory) {
+    		workingDirectory = directory;
+    	}
+    	
+    	@Override
+    	public Nodo<String> getPadre(Nodo<String> directory) {
+    		return directory.padre;
+    	}
+    	
+    	@Override
+    	public String getName(Nodo<String> directory) {
+    		return directory.nodeValue;
+    	}
+    	
+    	@Override
+    	public Nodo<String> getDirectory(Nodo<String> directory, String name) {
+    		return getNodeByName(name, directory);
+    	}
+    	
+    	@Override
+    	public Iterable<Nodo<String>> getDirectorios(Nodo<String> directory) {
+    		return directory.getDirectorios();
+    	}
+    	
+    	@Override
+    	public boolean containsFile(Nodo<String> directory, String name) {
+    		return directory.containsFile(name);
+    	}
+    	
+    	@Override
+    	public int countFiles(Nodo<String> directory, String name) {
+    		return directory.containsFile(name) ? Collections.frequency(directory.getFiles(), name) : 0;
+    	}
+    	
+    	@Override
+    	public boolean isRemoved(Nodo<String> directory) {
+    		return directory.isRemoved();
+    	}
+    	
+    	//con la cache de rutas del arbol
+    	@Override
+    	public Nodo<String> walk(Nodo<String> start, String path) {
+    		return getASpecificNode(path, start);
+    	}
+    	
+    	@Override
+    	public void ensureCapacity(Nodo<String> directory, int moreDirectories, int moreFiles) {
+    		arbol.beforeChange(directory);
+    		directory.ensureCapacity(moreDirectories, moreFiles);
+    	}
+    	
+    	//el indice de nombres guarda cada nombre una vez por directorio
+    	@Override
+    	public Nodo<String> addDirectory(Nodo<String> directory, String directoryName) {
+    		
+    		boolean indexed = arbol.nameIndex != null && directory.getDirectory(directoryName) == null;
+    		String name = arbol.intern(directoryName);
+    		
+    		arbol.beforeChange(directory);
+    		Nodo<String> nodo = directory.addDirectory(name, directory);
+    		arbol.afterChange(directory);
+    		
+    		if (indexed) {
+    			arbol.nameIndex.addDirectory(directory, name);
+    		}
+    		
+    		if (arbol.journal != null) {
+    			arbol.journal.logDirectory(directory, name);
+    		}
+    		
+    		arbol.watchers.directoryCreated(directory, name);
+    		
+    		return nodo;
+    	}
+    	
+    	@Override
+    	public void addFile(Nodo<String> directory, String fileName) {
+    		
+    		boolean indexed = arbol.nameIndex != null && !directory.containsFile(fileName);
+    		String name = arbol.intern(fileName);
+    		
+    		arbol.beforeChange(directory);
+    		directory.addFile(name);
+    		arbol.afterChange(directory);
+    		
+    		if (indexed) {
+    			arbol.nameIndex.addFile(directory, name);
+    		}
+    		
+    		if (arbol.journal != null) {
+    			arbol.journal.logFile(directory, name);
+    		}
+    		
+    		arbol.watchers.fileCreated(directory, name);
+    	}
+    	
+    	//Solo se desengancha el directorio: cuesta lo que la lista de hijos del padre, no lo que tiene debajo.
+    	//Con el indice de nombres habilitado si hay que recorrer el subarbol para sacarlo del indice.
+    	@Override
+    	public void removeDirectory(Nodo<String> directory, Nodo<String> removed) {
+    		
+    		String name = removed.nodeValue;
+    		
+    		arbol.beforeChange(directory);
+    		directory.removeDirectory(removed);
+    		arbol.afterRemoval(directory);
+    		
+    		if (arbol.nameIndex != null) {
+    			arbol.nameIndex.removeDirectory(directory, name);
+    			arbol.nameIndex.removeSubtree(removed);
+    		}
+    		
+    		if (arbol.journal != null) {
+    			arbol.journal.logRemoveDirectory(directory, name);
+    		}
+    		
+    		arbol.watchers.directoryRemoved(directory, name);
+    	}
+    	
+    	@Override
+    	public void removeFile(Nodo<String> directory, String name) {
+    		
+    		arbol.beforeChange(directory);
+    		directory.removeFile(name);
+    		arbol.metrics.noteRemoval(directory);
+    		
+    		if (arbol.nameIndex != null) {
+    			arbol.nameIndex.removeFile(directory, name);
+    		}
+    		
+    		if (arbol.journal != null) {
+    			arbol.journal.logRemoveFile(directory, name);
+    		}
+    		
+    		arbol.watchers.fileRemoved(directory, name);
+    	}
+    	
+    	@Override
+    	public void moveDirectory(Nodo<String> directory, Nodo<String> moved, Nodo<String> destination, String newName) {
+    		
+    		String name = moved.nodeValue;
+    		String interned = arbol.intern(newName);
+    		
+    		arbol.beforeChange(directory);
+    		arbol.beforeChange(destination);
+    		arbol.beforeChange(moved);
+    		directory.moveDirectory(moved, destination, interned);
+    		arbol.afterRemoval(directory);
+    		arbol.afterChange(destination);
+    		
+    		if (arbol.nameIndex != null) {
+    			arbol.nameIndex.removeDirectory(directory, name);
+    			arbol.nameIndex.addDirectory(destination, interned);
+    		}
+    		
+    		if (arbol.journal != null) {
+    			arbol.journal.logMoveDirectory(directory, name, destination, interned);
+    		}
+    		
+    		arbol.watchers.directoryMoved(directory, name, destination, interned);
+    	}
+    	
+    	@Override
+    	public void moveFile(Nodo<String> directory, String name, Nodo<String> destination, String newName) {
+    		
+    		String interned = arbol.intern(newName);
+    		
+    		arbol.beforeChange(directory);
+    		arbol.beforeChange(destination);
+    		directory.removeFile(name);
+    		destination.addFile(interned);
+    		arbol.metrics.noteRemoval(directory);
+    		arbol.afterChange(destination);
+    		
+    		if (arbol.nameIndex != null) {
+    			arbol.nameIndex.removeFile(directory, name);
+    			arbol.nameIndex.addFile(destination, interned);
+    		}
+    		
+    		if (arbol.journal != null) {
+    			arbol.journal.logMoveFile(directory, name, destination, interned);
+    		}
+    		
+    		arbol.watchers.fileMoved(directory, name, destination, interned);
+    	}
     }
 }
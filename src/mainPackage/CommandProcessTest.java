@@ -1,17 +1,40 @@
 package mainPackage;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.FileDescriptor;
 import java.io.FileOutputStream;
 import java.io.PrintStream;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.jupiter.api.Test;
 
 class CommandProcessTest {
 
-	private static final String UNRECOGNIZED = "Unrecognized command\r\n";
+	private static final String NEW_LINE = System.lineSeparator();
+	
+	private static final String UNRECOGNIZED = "Unrecognized command" + NEW_LINE;
 	
 	class TestHelper {
 
@@ -33,6 +56,28 @@ class CommandProcessTest {
 	abstract class CaptureTest {
 	    public abstract void test( ByteArrayOutputStream outContent, ByteArrayOutputStream errContent ) throws Exception;
 	}
+	
+	static class MemoryOutputSink implements OutputSink {
+		
+		private final StringBuilder pending = new StringBuilder();
+		
+		private final StringBuilder flushed = new StringBuilder();
+		
+		@Override
+		public void println(String line) {
+			pending.append(line).append('\n');
+		}
+		
+		@Override
+		public void flush() {
+			flushed.append(pending);
+			pending.setLength(0);
+		}
+		
+		public String getContent() {
+			return flushed.toString();
+		}
+	}
 
 	
 	@Test
@@ -109,7 +154,7 @@ class CommandProcessTest {
     			
     			CommandProcess.processInputs(arguments);
     			
-                assertEquals("New Folder\r\n", outContent.toString());
+                assertEquals("New Folder" + NEW_LINE, outContent.toString());
             }
         });	
 	}
@@ -132,7 +177,7 @@ class CommandProcessTest {
     			
     			CommandProcess.processInputs(arguments);
     			
-                assertEquals("Directory already exists\r\n", outContent.toString());
+                assertEquals("Directory already exists" + NEW_LINE, outContent.toString());
             }
         });	
 	}
@@ -158,7 +203,7 @@ class CommandProcessTest {
     			
     			CommandProcess.processInputs(arguments);
     			
-                assertEquals("a beautiful file\r\n", outContent.toString());
+                assertEquals("a beautiful file" + NEW_LINE, outContent.toString());
             }
         });	
 	}
@@ -183,7 +228,7 @@ class CommandProcessTest {
     			
     			CommandProcess.processInputs(arguments);
     			
-                assertEquals("File already exists\r\n", outContent.toString());
+                assertEquals("File already exists" + NEW_LINE, outContent.toString());
             }
         });	
 	}
@@ -209,7 +254,7 @@ class CommandProcessTest {
     			
     			CommandProcess.processInputs(arguments);
     			
-                assertEquals("Special Folder\r\n", outContent.toString());
+                assertEquals("Special Folder" + NEW_LINE, outContent.toString());
             }
         });	
 	}
@@ -239,7 +284,7 @@ class CommandProcessTest {
     			
     			CommandProcess.processInputs(arguments);
     			
-                assertEquals("Work File\r\n", outContent.toString());
+                assertEquals("Work File" + NEW_LINE, outContent.toString());
             }
         });	
 	}
@@ -274,12 +319,12 @@ class CommandProcessTest {
     			
     			CommandProcess.processInputs(arguments);
     			
-    			String expectedOutput = "root\r\n";
-    			expectedOutput += "New Folder\r\n";
-    			expectedOutput += "root\\New Folder\r\n";
-    			expectedOutput += "Special Folder\r\n";
-    			expectedOutput += "root\\New Folder\\Special Folder\r\n";
-    			expectedOutput += "Work File\r\n";
+    			String expectedOutput = "root" + NEW_LINE;
+    			expectedOutput += "New Folder" + NEW_LINE;
+    			expectedOutput += "root\\New Folder" + NEW_LINE;
+    			expectedOutput += "Special Folder" + NEW_LINE;
+    			expectedOutput += "root\\New Folder\\Special Folder" + NEW_LINE;
+    			expectedOutput += "Work File" + NEW_LINE;
     			
                 assertEquals(expectedOutput, outContent.toString());
             }
@@ -316,7 +361,7 @@ class CommandProcessTest {
     			
     			CommandProcess.processInputs(arguments);
     			
-    			String expectedOutput = "Work File\r\n";
+    			String expectedOutput = "Work File" + NEW_LINE;
     			
                 assertEquals(expectedOutput, outContent.toString());
             }
@@ -383,7 +428,7 @@ class CommandProcessTest {
     			
     			CommandProcess.processInputs(arguments);
     			
-    			String expectedOutput = "Work File\r\n";
+    			String expectedOutput = "Work File" + NEW_LINE;
     			
                 assertEquals(expectedOutput, outContent.toString());
             }
@@ -438,6 +483,299 @@ class CommandProcessTest {
         });	
 	}
 	
+	@Test
+	void wideDirectoryKeepsInsertionOrder() throws Exception {
+		
+		TestHelper helper = new TestHelper();
+		
+		helper.captureOutput( new CaptureTest() {
+			
+            @Override
+            public void test(ByteArrayOutputStream outContent, ByteArrayOutputStream errContent) throws Exception {
+            	
+            	int folders = CommandProcess.Nodo.INDEX_THRESHOLD * 3;
+            	
+            	String[] arguments = new String[folders * 4 + 5];
+            	String expectedOutput = "";
+            	int position = 0;
+            	
+            	for (int i = folders; i > 0; i--) {
+            		arguments[position++] = "mkdir";
+            		arguments[position++] = "Folder " + i;
+            		arguments[position++] = "touch";
+            		arguments[position++] = "File " + i;
+            		expectedOutput += "Folder " + i + NEW_LINE;
+            	}
+            	for (int i = folders; i > 0; i--) {
+            		expectedOutput += "File " + i + NEW_LINE;
+            	}
+            	
+            	arguments[position++] = "ls";
+            	arguments[position++] = "cd";
+            	arguments[position++] = "Folder 1";
+            	arguments[position++] = "touch";
+            	arguments[position++] = "Folder 1 File";
+            	
+            	CommandProcess.processInputs(arguments);
+            	
+                assertEquals(expectedOutput, outContent.toString());
+            }
+        });	
+	}
+	
+	@Test
+	void outputGoesToPluggedSink() throws Exception {
+		
+		MemoryOutputSink sink = new MemoryOutputSink();
+		
+		String[] arguments = new String[] { "mkdir", "New Folder", "cd", "New Folder", "touch", "Work File", "pwd", "ls", "quit" };
+		
+		CommandProcess.processInputs(arguments, sink);
+		
+		String expectedOutput = "Current directory: root\\New Folder\n";
+		expectedOutput += "Work File\n";
+		expectedOutput += "Exit application\n";
+		
+		assertEquals(expectedOutput, sink.getContent());
+	}
+	
+	@Test
+	void channelSinkFlushesWhenBufferIsFull() throws Exception {
+		
+		ByteArrayOutputStream outContent = new ByteArrayOutputStream();
+		
+		ChannelOutputSink sink = new ChannelOutputSink(Channels.newChannel(outContent), 16, StandardCharsets.UTF_8);
+		
+		sink.println("a line longer than the buffer");
+		
+		assertEquals("a line longer th", outContent.toString("UTF-8"));
+		
+		sink.println("second");
+		
+		sink.flush();
+		
+		assertEquals("a line longer than the buffer" + System.lineSeparator() + "second" + System.lineSeparator(), outContent.toString("UTF-8"));
+	}
+	
+	@Test
+	void sessionsKeepTheirOwnWorkingDirectory() throws Exception {
+		
+		MemoryOutputSink firstSink = new MemoryOutputSink();
+		MemoryOutputSink secondSink = new MemoryOutputSink();
+		
+		CommandProcess first = new CommandProcess(firstSink);
+		CommandProcess second = new CommandProcess(first.getArbol(), secondSink);
+		
+		first.execute(new String[] { "mkdir", "New Folder", "cd", "New Folder" });
+		second.execute(new String[] { "touch", "Work File", "pwd" });
+		first.execute(new String[] { "pwd", "cd", "..", "ls" });
+		
+		assertEquals("Current directory: root\\New Folder\nNew Folder\nWork File\n", firstSink.getContent());
+		assertEquals("Current directory: root\n", secondSink.getContent());
+	}
+	
+	@Test
+	void concurrentSessionsDoNotLoseUpdates() throws Exception {
+		
+		final int threads = 8;
+		final int commandsPerThread = 2000;
+		
+		final CommandProcess.Arbol<String> arbol = new CommandProcess.Arbol<String>("root");
+		final CountDownLatch start = new CountDownLatch(1);
+		
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<Future<?>> results = new ArrayList<Future<?>>();
+		
+		for (int t = 0; t < threads; t++) {
+			
+			final String prefix = "thread " + t + " ";
+			
+			results.add(executor.submit(new Callable<Void>() {
+				
+				@Override
+				public Void call() throws Exception {
+					
+					CommandProcess session = new CommandProcess(arbol, new MemoryOutputSink());
+					start.await();
+					
+					for (int i = 0; i < commandsPerThread; i++) {
+						session.execute(new String[] { "mkdir", prefix + i, "touch", prefix + i, "cd", prefix + i, "touch", "inner", "cd", ".." });
+					}
+					return null;
+				}
+			}));
+		}
+		
+		start.countDown();
+		for (Future<?> result : results) {
+			result.get();
+		}
+		executor.shutdown();
+		
+		CommandProcess.Nodo<String> raiz = arbol.getRaiz();
+		
+		assertEquals(threads * commandsPerThread, raiz.getDirectorios().size());
+		assertEquals(threads * commandsPerThread, raiz.getFiles().size());
+		
+		for (CommandProcess.Nodo<String> directorio : raiz.getDirectorios()) {
+			assertEquals(1, directorio.getFiles().size());
+		}
+	}
+	
+	@Test
+	void streamedScriptRunsLikeTheArrayVersion() throws Exception {
+		
+		MemoryOutputSink sink = new MemoryOutputSink();
+		
+		String script = "mkdir \"New Folder\"\ncd \"New Folder\"\nmkdir \"Special Folder\"\n"
+				+ "cd \"Special Folder\"\ntouch \"Work File\"\ncd ..\ncd ..\nls \"\\New Folder\\Special Folder\"\nquit\nls\n";
+		
+		CommandProcess.processInputs(new ByteArrayInputStream(script.getBytes(StandardCharsets.UTF_8)), sink);
+		
+		assertEquals("Work File\nExit application\n", sink.getContent());
+	}
+	
+	@Test
+	void unterminatedQuoteStopsTheScript() throws Exception {
+		
+		MemoryOutputSink sink = new MemoryOutputSink();
+		String script = "mkdir a\nbegin\nmkdir b\nmkdir \"New Folder\nls\n";
+		
+		CommandProcess process = new CommandProcess(sink);
+		
+		assertTrue(process.execute(new CommandTokenizer(new ByteArrayInputStream(script.getBytes(StandardCharsets.UTF_8)))));
+		
+		assertEquals("Transaction aborted\nUnterminated quote\n", sink.getContent());
+		assertEquals(1, process.getArbol().getRaiz().getDirectorios().size());
+	}
+	
+	@Test
+	void streamedOutputIsFlushedBeforeWaitingForInput() throws Exception {
+		
+		final MemoryOutputSink sink = new MemoryOutputSink();
+		final String[] lines = { "mkdir a\npwd\n", "cd a\npwd\n", "quit\n" };
+		final List<String> seen = new ArrayList<String>();
+		
+		//entrega una linea por lectura y nunca esta listo, como un usuario escribiendo en stdin
+		Reader input = new Reader() {
+			
+			private int line;
+			
+			@Override
+			public int read(char[] buffer, int offset, int length) {
+				
+				seen.add(sink.getContent());
+				
+				if (line == lines.length) {
+					return -1;
+				}
+				
+				String next = lines[line++];
+				next.getChars(0, next.length(), buffer, offset);
+				return next.length();
+			}
+			
+			@Override
+			public void close() {
+			}
+		};
+		
+		assertTrue(new CommandProcess(sink).execute(new CommandTokenizer(input)));
+		
+		assertEquals(3, seen.size());
+		assertEquals("", seen.get(0));
+		assertEquals("Current directory: root\n", seen.get(1));
+		assertEquals("Current directory: root\nCurrent directory: root\\a\n", seen.get(2));
+	}
+	
+	@Test
+	void repeatedNamesShareOneString() throws Exception {
+		
+		CommandProcess process = new CommandProcess(new MemoryOutputSink());
+		
+		process.execute(new String[] { "mkdir", new String("src"), "cd", "src", "touch", new String("index"), "mkdir", new String("src"),
+				"cd", "src", "touch", new String("index"), "pwd" });
+		
+		CommandProcess.Nodo<String> outer = process.getArbol().getRaiz().getDirectory("src");
+		CommandProcess.Nodo<String> inner = outer.getDirectory("src");
+		
+		assertSame(outer.getNodeValue(), inner.getNodeValue());
+		assertSame(outer.getFiles().get(0), inner.getFiles().get(0));
+		assertEquals("root\\src\\src", inner.getFullPath());
+		assertTrue(inner.getDirectorios().isEmpty());
+	}
+	
+	@Test
+	void recursiveListingHandlesVeryDeepTrees() throws Exception {
+		
+		final int depth = 20000;
+		
+		CommandProcess.Arbol<String> arbol = new CommandProcess.Arbol<String>("root");
+		CommandProcess.Nodo<String> nodo = arbol.getRaiz();
+		
+		for (int i = 0; i < depth; i++) {
+			nodo = nodo.addDirectory("d", nodo);
+		}
+		nodo.addFile("bottom");
+		
+		final List<String> lastLines = new ArrayList<String>();
+		final int[] lines = new int[1];
+		
+		new CommandProcess(arbol, new OutputSink() {
+			
+			@Override
+			public void println(String line) {
+				lines[0]++;
+				if (line.length() < 10) {
+					lastLines.add(line);
+				}
+			}
+			
+			@Override
+			public void flush() {
+			}
+		}).execute(new String[] { "ls", "-r" });
+		
+		assertEquals(depth * 2 + 2, lines[0]);
+		assertEquals("bottom", lastLines.get(lastLines.size() - 1));
+	}
+	
+	@Test
+	void parallelRecursiveListingKeepsTheSequentialOrder() throws Exception {
+		
+		CommandProcess.Arbol<String> arbol = new CommandProcess.Arbol<String>("root");
+		fill(arbol.getRaiz(), 5, 4);
+		
+		MemoryOutputSink sequential = new MemoryOutputSink();
+		new CommandProcess(arbol, sequential).execute(new String[] { "cd", "folder 1", "ls", "-r", "cd", "..", "ls", "-r" });
+		
+		ForkJoinPool pool = new ForkJoinPool(4);
+		
+		try {
+			MemoryOutputSink parallel = new MemoryOutputSink();
+			CommandProcess process = new CommandProcess(arbol, parallel);
+			process.setParallelListing(pool);
+			process.execute(new String[] { "cd", "folder 1", "ls", "-r", "cd", "..", "ls", "-r" });
+			
+			assertEquals(sequential.getContent(), parallel.getContent());
+		} finally {
+			pool.shutdown();
+		}
+	}
+	
+	private void fill(CommandProcess.Nodo<String> nodo, int depth, int width) {
+		
+		nodo.addFile("file of " + nodo.getNodeValue());
+		
+		if (depth == 0) {
+			return;
+		}
+		
+		for (int i = 0; i < width; i++) {
+			fill(nodo.addDirectory("folder " + i, nodo), depth - 1, width);
+		}
+	}
+	
 	 private String getMoreThanOneHundrerChars() {
      	String result = "";
      	
@@ -447,4 +785,354 @@ class CommandProcessTest {
      	
      	return result;
      }
+	
+	@Test
+	void repeatedPathsAreResolvedFromTheCache() throws Exception {
+		
+		MemoryOutputSink sink = new MemoryOutputSink();
+		CommandProcess process = new CommandProcess(sink);
+		
+		process.execute(new String[] { "mkdir", "a", "cd", "a", "mkdir", "b", "cd", "b", "touch", "f", "cd", "..", "cd", ".." });
+		for (int i = 0; i < 20; i++) {
+			process.execute(new String[] { "mkdir", "wide" + i });
+		}
+		process.execute(new String[] { "cd", "wide19", "mkdir", "deep", "cd", ".." });
+		
+		PathCache<String> cache = process.getArbol().getPathCache();
+		
+		process.execute(new String[] { "ls", "\\a\\b", "ls", "\\a\\b", "ls", "\\wide19\\deep" });
+		
+		assertEquals(1, cache.getHitCount());
+		assertEquals(2, cache.getMissCount());
+		assertEquals(2, cache.size());
+		
+		//una ruta que se resuelve solo en parte no se guarda
+		process.execute(new String[] { "cd", "\\a\\missing", "pwd", "cd", "..", "cd", "\\a\\missing", "pwd" });
+		
+		assertEquals(2, cache.size());
+		assertEquals(4, cache.getMissCount());
+		assertEquals("f\nf\nCurrent directory: root\\a\nCurrent directory: root\\a\n", sink.getContent());
+	}
+	
+	@Test
+	void pathCacheKeepsTheMostRecentlyUsedEntries() {
+		
+		PathCache<String> cache = new PathCache<String>(2);
+		CommandProcess.Nodo<String> raiz = new CommandProcess.Nodo<String>("root", null);
+		
+		cache.put(raiz, "\\a", raiz);
+		cache.put(raiz, "\\b", raiz);
+		cache.get(new PathCache.Key().set(raiz, "\\a"));
+		cache.put(raiz, "\\c", raiz);
+		
+		assertEquals(1, cache.getEvictionCount());
+		assertEquals(raiz, cache.get(new PathCache.Key().set(raiz, "\\a")));
+		assertEquals(null, cache.get(new PathCache.Key().set(raiz, "\\b")));
+		
+		cache.invalidate();
+		
+		assertEquals(0, cache.size());
+		assertEquals(null, cache.get(new PathCache.Key().set(raiz, "\\a")));
+		
+		cache.put(raiz, "\\a", raiz);
+		
+		assertEquals(raiz, cache.get(new PathCache.Key().set(raiz, "\\a")));
+		assertEquals(1, cache.size());
+	}
+	
+	@Test
+	void mkdirAndTouchTakeSeveralNames() throws Exception {
+		
+		MemoryOutputSink sink = new MemoryOutputSink();
+		CommandProcess process = new CommandProcess(sink);
+		
+		process.execute(new String[] { "mkdir", "a", "b", "c", "a", "touch", "f1", "f2", "ls" });
+		
+		assertEquals("Directory already exists\na\nb\nc\na\nf1\nf2\n", sink.getContent());
+		
+		//un nombre invalido anula el comando entero
+		StringBuilder tooLong = new StringBuilder();
+		for (int i = 0; i <= 100; i++) {
+			tooLong.append('x');
+		}
+		
+		assertTrue(process.execute(new String[] { "mkdir", "d", tooLong.toString(), "pwd" }));
+		assertNull(process.getArbol().getRaiz().getDirectory("d"));
+	}
+	
+	@Test
+	void mkdirParentsCreatesOnlyTheMissingSegments() throws Exception {
+		
+		MemoryOutputSink sink = new MemoryOutputSink();
+		CommandProcess process = new CommandProcess(sink);
+		
+		process.execute(new String[] { "mkdir", "a", "cd", "a", "mkdir", "-p", "\\b\\c", "b\\d\\", "cd", "..",
+				"mkdir", "-p", "\\a\\b\\c\\e", "touch", "-p", "\\a\\b\\file", "\\z\\y\\other", "ls", "-r" });
+		
+		assertEquals("root\na\nz\nroot\\a\nb\nroot\\a\\b\nc\nd\nfile\nroot\\a\\b\\c\ne\nroot\\a\\b\\c\\e\n"
+				+ "root\\a\\b\\d\nroot\\z\ny\nroot\\z\\y\nother\n", sink.getContent());
+		
+		assertTrue(CommandPlan.compile(new String[] { "mkdir", "-p" }).getOperation(0) == CommandPlan.Operation.INVALID_ARGUMENT);
+		assertTrue(CommandPlan.compile(new String[] { "touch", "-p", "\\a\\" }).getOperation(0) == CommandPlan.Operation.INVALID_ARGUMENT);
+	}
+	
+	@Test
+	void subtreeTotalsFollowEveryAddition() throws Exception {
+		
+		CommandProcess process = new CommandProcess(new MemoryOutputSink());
+		Random random = new Random(3);
+		
+		for (int i = 0; i < 500; i++) {
+			String path = "\\d" + random.nextInt(5) + "\\d" + random.nextInt(5) + "\\d" + random.nextInt(5);
+			process.execute(random.nextBoolean() ? new String[] { "mkdir", "-p", path } : new String[] { "touch", "-p", path + "\\f" + i });
+		}
+		
+		ArrayDeque<CommandProcess.Nodo<String>> pending = new ArrayDeque<CommandProcess.Nodo<String>>();
+		pending.push(process.getArbol().getRaiz());
+		
+		while (!pending.isEmpty()) {
+			
+			CommandProcess.Nodo<String> nodo = pending.pop();
+			int[] totals = count(nodo, 0);
+			
+			assertEquals(totals[0], nodo.getTotalDirectorios());
+			assertEquals(totals[1], nodo.getTotalFiles());
+			assertEquals(totals[2], nodo.getAltura());
+			
+			for (CommandProcess.Nodo<String> child : nodo.getDirectorios()) {
+				pending.push(child);
+			}
+		}
+	}
+	
+	private static int[] count(CommandProcess.Nodo<String> nodo, int level) {
+		
+		int[] totals = { 0, nodo.getFiles().size(), 0 };
+		
+		for (CommandProcess.Nodo<String> child : nodo.getDirectorios()) {
+			int[] childTotals = count(child, level + 1);
+			totals[0] += 1 + childTotals[0];
+			totals[1] += childTotals[1];
+			totals[2] = Math.max(totals[2], childTotals[2] + 1);
+		}
+		
+		return totals;
+	}
+	
+	@Test
+	void duPrintsTheSubtreeTotals() throws Exception {
+		
+		String[] script = { "mkdir", "-p", "\\a\\b\\c", "\\a\\d", "touch", "-p", "\\a\\b\\f", "\\g", "du", "cd", "a", "du", "du", "\\a\\b", "du", "\\a\\b\\c", "du", "\\a\\missing" };
+		
+		MemoryOutputSink objects = new MemoryOutputSink();
+		MemoryOutputSink compact = new MemoryOutputSink();
+		
+		new CommandProcess(objects).execute(script);
+		new IndexedSession(new ArbolCompacto("root"), compact).execute(script);
+		
+		assertEquals("root: 4 directories, 2 files, depth 3\n"
+				+ "root\\a: 3 directories, 1 files, depth 2\n"
+				+ "root\\a\\b: 1 directories, 1 files, depth 1\n"
+				+ "root\\a\\b\\c: 0 directories, 0 files, depth 0\n"
+				+ "Directory not found\n", objects.getContent());
+		assertEquals(objects.getContent(), compact.getContent());
+	}
+	
+	@Test
+	void rmAndMvRearrangeTheTree() throws Exception {
+		
+		MemoryOutputSink output = new MemoryOutputSink();
+		
+		new CommandProcess(output).execute(new String[] { "mkdir", "-p", "a\\b\\c", "a\\d", "touch", "-p", "a\\b\\f", "g", "h",
+				"rm", "a", "rm", "missing", "rm", "x\\y", "mv", "a\\b", "e", "mv", "e", "e\\c\\x", "mv", "h", "a", "mv", "g", "a\\h",
+				"rm", "-r", "a\\d", "g", "ls", "-r", "du", "mv", "e\\c", "a\\z", "du", "\\e", "du",
+				"mkdir", "y", "x", "ls", "-sort", "rm", "-r", "x", "ls", "-sort" });
+		
+		assertEquals("Cannot remove a directory without -r\n"
+				+ "File not found\n"
+				+ "Directory not found\n"
+				+ "Cannot move a directory into itself\n"
+				+ "File already exists\n"
+				+ "root\na\ne\nroot\\a\nh\nroot\\e\nc\nf\nroot\\e\\c\n"
+				+ "root: 3 directories, 2 files, depth 2\n"
+				+ "root\\e: 0 directories, 1 files, depth 0\n"
+				+ "root: 3 directories, 2 files, depth 2\n"
+				+ "a\ne\nx\ny\n"
+				+ "a\ne\ny\n", output.getContent());
+	}
+	
+	@Test
+	void subtreeTotalsFollowRemovalsAndMoves() throws Exception {
+		
+		CommandProcess process = new CommandProcess(new MemoryOutputSink());
+		Random random = new Random(5);
+		
+		for (int i = 0; i < 2000; i++) {
+			
+			String path = "d" + random.nextInt(4) + "\\d" + random.nextInt(4) + "\\d" + random.nextInt(4);
+			
+			switch (random.nextInt(5)) {
+				case 0:
+					process.execute(new String[] { "mkdir", "-p", path });
+					break;
+				case 1:
+					process.execute(new String[] { "touch", "-p", path + "\\f" + random.nextInt(3) });
+					break;
+				case 2:
+					process.execute(new String[] { "rm", "-r", path.substring(0, 2 + 3 * random.nextInt(3)) });
+					break;
+				case 3:
+					process.execute(new String[] { "mv", path, "d" + random.nextInt(4) });
+					break;
+				default:
+					process.execute(new String[] { "mv", path + "\\f" + random.nextInt(3), "d" + random.nextInt(4) });
+			}
+		}
+		
+		ArrayDeque<CommandProcess.Nodo<String>> pending = new ArrayDeque<CommandProcess.Nodo<String>>();
+		pending.push(process.getArbol().getRaiz());
+		
+		while (!pending.isEmpty()) {
+			
+			CommandProcess.Nodo<String> nodo = pending.pop();
+			int[] totals = count(nodo, 0);
+			
+			assertEquals(totals[0], nodo.getTotalDirectorios());
+			assertEquals(totals[1], nodo.getTotalFiles());
+			assertEquals(totals[2], nodo.getAltura());
+			
+			for (CommandProcess.Nodo<String> child : nodo.getDirectorios()) {
+				assertSame(nodo, child.getPadre());
+				assertSame(child, nodo.getDirectory(child.getNodeValue()));
+				pending.push(child);
+			}
+		}
+	}
+	
+	@Test
+	void sessionInARemovedDirectoryCannotWriteThere() throws Exception {
+		
+		CommandProcess.Arbol<String> arbol = new CommandProcess.Arbol<String>("root");
+		MemoryOutputSink output = new MemoryOutputSink();
+		CommandProcess inside = new CommandProcess(arbol, output);
+		
+		inside.execute(new String[] { "mkdir", "-p", "a\\b", "cd", "a", "cd", "b", "touch", "f" });
+		new CommandProcess(arbol, new MemoryOutputSink()).execute(new String[] { "rm", "-r", "a" });
+		inside.execute(new String[] { "touch", "g", "mkdir", "c", "ls", "cd", "..", "cd", "..", "touch", "g", "ls" });
+		
+		assertEquals("Working directory was removed\nWorking directory was removed\nf\ng\n", output.getContent());
+	}
+	
+	@Test
+	void transactionRunsTheBatchOnlyOnCommit() throws Exception {
+		
+		MemoryOutputSink output = new MemoryOutputSink();
+		CommandProcess process = new CommandProcess(output);
+		
+		process.execute(new String[] { "begin", "mkdir", "a", "cd", "a", "touch", "f", "pwd" });
+		
+		assertEquals("", output.getContent());
+		assertTrue(process.getArbol().getRaiz().getDirectorios().isEmpty());
+		
+		//la transaccion sigue abierta en la siguiente llamada
+		process.execute(new String[] { "ls", "commit", "commit", "ls", "-r" });
+		
+		assertEquals("Current directory: root\\a\n"
+				+ "f\n"
+				+ "No transaction open\n"
+				+ "root\\a\n"
+				+ "f\n", output.getContent());
+	}
+	
+	@Test
+	void errorInsideTransactionDiscardsTheBatch() throws Exception {
+		
+		MemoryOutputSink output = new MemoryOutputSink();
+		CommandProcess process = new CommandProcess(output);
+		
+		assertFalse(process.execute(new String[] { "begin", "mkdir", "a", "touch", "f", "pwd", "bogus", "mkdir", "b" }));
+		assertTrue(process.execute(new String[] { "begin", "begin", "mkdir", "c", "abort", "commit", "abort", "cd" }));
+		
+		assertEquals("Transaction aborted\n"
+				+ "Unrecognized command\n"
+				+ "Transaction already open\n"
+				+ "Transaction aborted\n"
+				+ "No transaction open\n"
+				+ "No transaction open\n"
+				+ "Unrecognized command\n", output.getContent());
+		assertTrue(process.getArbol().getRaiz().getDirectorios().isEmpty());
+		assertTrue(process.getArbol().getRaiz().getFiles().isEmpty());
+	}
+	
+	@Test
+	void failingStepLeavesTheTreeAsItWas() throws Exception {
+		
+		MemoryOutputSink output = new MemoryOutputSink();
+		CommandProcess process = new CommandProcess(output);
+		
+		process.execute(new String[] { "mkdir", "-p", "a\\b", "touch", "-p", "a\\f", "cd", "a" });
+		long huella = process.getArbol().getRaiz().getHuella();
+		
+		//cd y rm a lo que el lote acaba de crear o quitar, y uno que falla recien al final
+		process.execute(new String[] { "begin", "mkdir", "x", "touch", "-p", "x\\y\\g", "rm", "f", "mv", "b", "x\\y", "cd", "x",
+				"rm", "y\\g", "cd", "y", "cd", "b", "cd", "..", "cd", "..", "cd", "..", "rm", "-r", "x", "cd", "x", "commit" });
+		process.execute(new String[] { "begin", "touch", "g", "rm", "g", "rm", "g", "commit" });
+		process.execute(new String[] { "begin", "mkdir", "c", "mv", "c", "b", "mv", "b", "b\\c", "commit" });
+		process.execute(new String[] { "begin", "mkdir", "c", "import", "missing" + File.separator + "directory", "commit" });
+		
+		assertEquals("Directory not found\nTransaction aborted\n"
+				+ "File not found\nTransaction aborted\n"
+				+ "Cannot move a directory into itself\nTransaction aborted\n"
+				+ "Cannot read missing" + File.separator + "directory\nTransaction aborted\n", output.getContent());
+		assertEquals(huella, process.getArbol().getRaiz().getHuella());
+		
+		process.execute(new String[] { "pwd", "ls", "-r" });
+		assertEquals("Current directory: root\\a\nroot\\a\nb\nf\nroot\\a\\b\n",
+				output.getContent().substring(output.getContent().indexOf("Current")));
+		
+		//sin el ultimo cd el mismo lote se aplica entero
+		process.execute(new String[] { "begin", "mkdir", "x", "touch", "-p", "x\\y\\g", "rm", "f", "mv", "b", "x\\y", "cd", "x",
+				"rm", "y\\g", "cd", "y", "cd", "b", "cd", "..", "cd", "..", "cd", "..", "rm", "-r", "x", "commit", "pwd", "ls" });
+		assertTrue(output.getContent().endsWith("Current directory: root\\a\n"));
+		assertEquals(0, process.getArbol().getRaiz().getDirectory("a").getTotalDirectorios());
+	}
+	
+	@Test
+	void readersNeverSeeHalfACommit() throws Exception {
+		
+		final CommandProcess writer = new CommandProcess(new MemoryOutputSink());
+		final CommandProcess.Arbol<String> arbol = writer.getArbol();
+		final AtomicBoolean running = new AtomicBoolean(true);
+		final AtomicInteger partial = new AtomicInteger();
+		
+		Thread reader = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				while (running.get()) {
+					arbol.readLock().lock();
+					try {
+						if (arbol.getRaiz().getTotalDirectorios() % 10 != 0) {
+							partial.incrementAndGet();
+						}
+					} finally {
+						arbol.readLock().unlock();
+					}
+				}
+			}
+		});
+		reader.start();
+		
+		try {
+			for (int i = 0; i < 200; i++) {
+				writer.execute(new String[] { "begin", "mkdir", "d" + i, "cd", "d" + i, "mkdir", "a", "b", "c", "w", "mkdir", "-p", "x\\y\\z",
+						"touch", "-p", "p\\q\\f", "cd", "..", "commit" });
+			}
+		} finally {
+			running.set(false);
+			reader.join();
+		}
+		
+		assertEquals(2000, arbol.getRaiz().getTotalDirectorios());
+		assertEquals(0, partial.get());
+	}
 }
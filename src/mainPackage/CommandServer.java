@@ -0,0 +1,198 @@
+package mainPackage;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//Protocolo: cada linea son uno o mas comandos con sus argumentos, separados como en un script (ver CommandTokenizer):
+//"mkdir -p a\b", "mv x a", "mkdir \"New Folder\"".
+//Cambio incompatible con la version anterior del protocolo, donde todo lo que seguia al primer espacio era un solo
+//argumento ("mkdir New Folder" creaba "New Folder"): ahora eso crea "New" y "Folder". Un nombre con espacios va
+//entre comillas dobles, y una comilla dentro de un nombre se escribe doble (""), como en un script.
+//Una linea con una comilla sin cerrar no se ejecuta: la respuesta es "Unterminated quote".
+//La respuesta son las lineas que imprime el comando seguidas de una linea vacia.
+//Todas las conexiones comparten el mismo arbol y cada una tiene su propio directorio de trabajo.
+public class CommandServer implements Closeable {
+	
+	public static final int DEFAULT_PORT = 4590;
+	
+	private static final int SOCKET_BUFFER_SIZE = 8 * 1024;
+	
+	private final CommandProcess.Arbol<String> arbol;
+	
+	private final ServerSocket serverSocket;
+	
+	private final ExecutorService executor;
+	
+	public CommandServer(int port) throws IOException {
+		this(new CommandProcess.Arbol<String>("root"), port);
+	}
+	
+	public CommandServer(CommandProcess.Arbol<String> arbol, int port) throws IOException {
+		this.arbol = arbol;
+		this.serverSocket = new ServerSocket();
+		this.serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+		this.executor = Executors.newCachedThreadPool(new SessionThreadFactory());
+	}
+	
+	public static void main(String[] args) throws IOException {
+		
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+		
+		CommandServer server = new CommandServer(port);
+		System.out.println("Listening on " + server.getPort());
+		server.acceptConnections();
+	}
+	
+	public void start() {
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				acceptConnections();
+			}
+		});
+	}
+	
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+	
+	public CommandProcess.Arbol<String> getArbol() {
+		return arbol;
+	}
+	
+	@Override
+	public void close() throws IOException {
+		serverSocket.close();
+		executor.shutdownNow();
+	}
+	
+	private void acceptConnections() {
+		
+		while (!serverSocket.isClosed()) {
+			
+			final Socket socket;
+			
+			try {
+				socket = serverSocket.accept();
+			} catch (SocketException ex) {
+				//el server se cerro
+				return;
+			} catch (IOException ex) {
+				continue;
+			}
+			
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					serve(socket);
+				}
+			});
+		}
+	}
+	
+	//Atiende una conexion hasta quit o hasta que el cliente la corte. Si la corta en medio de una respuesta, o el
+	//server se cierra (close interrumpe las sesiones), la escritura falla dentro de ChannelOutputSink con una
+	//UncheckedIOException: termina solo esta sesion, igual que un IOException al leer.
+	void serve(Socket socket) {
+		
+		try {
+			socket.setTcpNoDelay(true);
+			
+			BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+			
+			ChannelOutputSink channelSink = new ChannelOutputSink(Channels.newChannel(socket.getOutputStream()), SOCKET_BUFFER_SIZE, StandardCharsets.UTF_8);
+			ResponseSink response = new ResponseSink(channelSink);
+			CommandProcess session = new CommandProcess(arbol, response);
+			
+			boolean quit = false;
+			String line;
+			
+			while (!quit && (line = reader.readLine()) != null) {
+				
+				String[] arguments;
+				
+				try {
+					arguments = toArguments(line);
+				} catch (CommandTokenizer.MalformedTokenException ex) {
+					//no se ejecuta nada de la linea, pero la sesion sigue
+					response.println(ex.getMessage());
+					response.flush();
+					continue;
+				}
+				
+				quit = session.execute(arguments);
+			}
+		} catch (IOException | UncheckedIOException ex) {
+			//el cliente corto la conexion
+		} finally {
+			try {
+				socket.close();
+			} catch (IOException ex) {
+				//nada que hacer
+			}
+		}
+	}
+	
+	//los tokens de la linea, con las mismas comillas que un script
+	static String[] toArguments(String line) {
+		
+		CommandTokenizer tokens = new CommandTokenizer(new StringReader(line));
+		List<String> arguments = new ArrayList<String>();
+		
+		while (tokens.hasNext()) {
+			arguments.add(tokens.next());
+		}
+		
+		return arguments.toArray(new String[arguments.size()]);
+	}
+	
+	//agrega la linea vacia que marca el fin de cada respuesta
+	private static class ResponseSink implements OutputSink {
+		
+		private final OutputSink delegate;
+		
+		ResponseSink(OutputSink delegate) {
+			this.delegate = delegate;
+		}
+		
+		@Override
+		public void println(String line) {
+			delegate.println(line);
+		}
+		
+		@Override
+		public void flush() {
+			delegate.println("");
+			delegate.flush();
+		}
+	}
+	
+	private static class SessionThreadFactory implements ThreadFactory {
+		
+		private final AtomicInteger sessions = new AtomicInteger();
+		
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "command-session-" + sessions.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
@@ -0,0 +1,150 @@
+package mainPackage;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+class CommandServerTest {
+	
+	@Test
+	void splitsLinesLikeAScript() throws Exception {
+		assertArrayEquals(new String[] { "mkdir", "New Folder" }, CommandServer.toArguments("mkdir \"New Folder\""));
+		assertArrayEquals(new String[] { "mkdir", "-p", "a\\b", "c" }, CommandServer.toArguments("mkdir -p a\\b c"));
+		assertArrayEquals(new String[] { "ls" }, CommandServer.toArguments(" ls "));
+		assertArrayEquals(new String[0], CommandServer.toArguments(""));
+	}
+	
+	@Test
+	void connectionsShareTheTreeButNotTheWorkingDirectory() throws Exception {
+		
+		try (CommandServer server = new CommandServer(0)) {
+			
+			server.start();
+			
+			try (Socket first = connect(server); Socket second = connect(server)) {
+				
+				assertEquals("", request(first, "mkdir \"New Folder\""));
+				assertEquals("", request(first, "cd \"New Folder\""));
+				assertEquals("", request(second, "touch \"Work File\""));
+				assertEquals("Current directory: root\\New Folder\n", request(first, "pwd"));
+				assertEquals("New Folder\nWork File\n", request(second, "ls"));
+				assertEquals("Exit application\n", request(second, "quit"));
+				
+				assertNull(new BufferedReader(new InputStreamReader(second.getInputStream())).readLine());
+			}
+		}
+	}
+	
+	@Test
+	void linesCarrySeveralTokensAndCommands() throws Exception {
+		
+		try (CommandServer server = new CommandServer(0)) {
+			
+			server.start();
+			
+			try (Socket socket = connect(server)) {
+				
+				assertEquals("", request(socket, "mkdir -p a\\b x"));
+				assertEquals("", request(socket, "mv x a touch -p a\\b\\f"));
+				assertEquals("b\nx\n", request(socket, "ls \\a -sort"));
+				assertEquals("root\\a\\b\\f\n", request(socket, "find -name f"));
+				assertEquals("touch -p f\nrm -r b\nrm -r x\n", request(socket, "diff a a\\b"));
+			}
+		}
+	}
+	
+	@Test
+	void clientLeavingMidResponseEndsOnlyItsSession() throws Exception {
+		
+		try (CommandServer server = new CommandServer(0);
+				ServerSocket listener = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+			
+			//unos 8 MB de respuesta a ls, mas de lo que entra en los buffers de los dos sockets
+			String[] touch = new String[200001];
+			touch[0] = "touch";
+			for (int i = 1; i < touch.length; i++) {
+				touch[i] = "a file with a fairly long name " + i;
+			}
+			new CommandProcess(server.getArbol(), new CommandProcessTest.MemoryOutputSink()).execute(touch);
+			
+			final Socket client = new Socket();
+			client.setReceiveBufferSize(4096);
+			client.connect(listener.getLocalSocketAddress());
+			
+			Socket accepted = listener.accept();
+			
+			Thread leaving = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						Writer writer = new OutputStreamWriter(client.getOutputStream(), StandardCharsets.UTF_8);
+						writer.write("ls\n");
+						writer.flush();
+						
+						new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8)).readLine();
+						
+						//corta con un reset, sin leer el resto
+						client.setSoLinger(true, 0);
+						client.close();
+					} catch (Exception ex) {
+						throw new IllegalStateException(ex);
+					}
+				}
+			});
+			leaving.start();
+			
+			server.serve(accepted);
+			leaving.join();
+			
+			assertTrue(accepted.isClosed());
+		}
+	}
+	
+	@Test
+	void loadClientReportsLatencies() throws Exception {
+		
+		try (CommandServer server = new CommandServer(0)) {
+			
+			server.start();
+			
+			CommandLoadClient.Result result = CommandLoadClient.run(server.getPort(), 4, 200);
+			
+			assertTrue(result.getCommandsPerSecond() > 0);
+			assertTrue(result.getP50Nanos() <= result.getP99Nanos());
+			assertEquals(4, server.getArbol().getRaiz().getDirectorios().size());
+		}
+	}
+	
+	private Socket connect(CommandServer server) throws Exception {
+		return new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+	}
+	
+	private String request(Socket socket, String command) throws Exception {
+		
+		Writer writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+		writer.write(command + "\n");
+		writer.flush();
+		
+		BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+		StringBuilder response = new StringBuilder();
+		
+		String line;
+		while ((line = reader.readLine()) != null && !line.isEmpty()) {
+			response.append(line).append('\n');
+		}
+		
+		return response.toString();
+	}
+}
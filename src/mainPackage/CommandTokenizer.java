@@ -0,0 +1,204 @@
+package mainPackage;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.NoSuchElementException;
+
+//Lee los comandos de a uno desde un stream, sin cargar el script entero en memoria.
+//Los tokens se separan por espacios o saltos de linea; los nombres con espacios van entre
+//comillas dobles ("New Folder") y una comilla dentro de un nombre se escribe doble ("").
+//Un token mas largo que MAX_TOKEN_LENGTH o una comilla sin cerrar al final son un error (MalformedTokenException):
+//no se sigue leyendo, para no juntar en un token el resto del stream.
+public class CommandTokenizer implements TokenSource {
+	
+	//sobra para cualquier ruta valida (nombres de hasta 100 caracteres) y acota la memoria de un token
+	static final int MAX_TOKEN_LENGTH = 64 * 1024;
+	
+	private static final int BUFFER_SIZE = 64 * 1024;
+	
+	private static final int END_OF_STREAM = -1;
+	
+	private final Reader reader;
+	
+	private final StringBuilder token = new StringBuilder();
+	
+	private String lookahead;
+	
+	private boolean endOfStream;
+	
+	public static final class MalformedTokenException extends RuntimeException {
+		
+		private static final long serialVersionUID = 1L;
+		
+		MalformedTokenException(String message) {
+			super(message);
+		}
+	}
+	
+	public CommandTokenizer(Reader reader) {
+		this.reader = reader instanceof BufferedReader ? reader : new BufferedReader(reader, BUFFER_SIZE);
+	}
+	
+	public CommandTokenizer(InputStream input) {
+		this(new InputStreamReader(input, StandardCharsets.UTF_8));
+	}
+	
+	public CommandTokenizer(ReadableByteChannel channel, Charset charset) {
+		this(Channels.newReader(channel, charset.newDecoder(), BUFFER_SIZE));
+	}
+	
+	@Override
+	public boolean hasNext() {
+		return peek() != null;
+	}
+	
+	@Override
+	public String next() {
+		
+		String current = peek();
+		
+		if (current == null) {
+			throw new NoSuchElementException();
+		}
+		
+		lookahead = null;
+		return current;
+	}
+	
+	@Override
+	public String peek() {
+		
+		if (lookahead == null && !endOfStream) {
+			lookahead = readToken();
+		}
+		
+		return lookahead;
+	}
+	
+	//Sin bloquear: mira si lo que queda en el buffer (o lo que el reader tiene listo) llega al proximo token. Los
+	//espacios que ya estan se saltean; el token se deja para readToken.
+	@Override
+	public boolean ready() {
+		
+		if (lookahead != null || endOfStream) {
+			return true;
+		}
+		
+		try {
+			while (reader.ready()) {
+				
+				reader.mark(1);
+				int character = reader.read();
+				
+				if (character == END_OF_STREAM) {
+					endOfStream = true;
+					return true;
+				}
+				
+				if (!Character.isWhitespace(character)) {
+					reader.reset();
+					return true;
+				}
+			}
+			
+			return false;
+			
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+	}
+	
+	private String readToken() {
+		
+		try {
+			int character = skipWhitespace();
+			
+			if (character == END_OF_STREAM) {
+				endOfStream = true;
+				return null;
+			}
+			
+			token.setLength(0);
+			
+			if (character == '"') {
+				readQuoted();
+			} else {
+				readPlain(character);
+			}
+			
+			return token.toString();
+			
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+	}
+	
+	private int skipWhitespace() throws IOException {
+		
+		int character = reader.read();
+		
+		while (character != END_OF_STREAM && Character.isWhitespace(character)) {
+			character = reader.read();
+		}
+		
+		return character;
+	}
+	
+	private void readPlain(int first) throws IOException {
+		
+		int character = first;
+		
+		while (character != END_OF_STREAM && !Character.isWhitespace(character)) {
+			append(character);
+			character = reader.read();
+		}
+	}
+	
+	private void readQuoted() throws IOException {
+		
+		while (true) {
+			
+			int character = reader.read();
+			
+			if (character == END_OF_STREAM) {
+				throw malformed("Unterminated quote");
+			}
+			
+			if (character == '"') {
+				
+				reader.mark(1);
+				
+				if (reader.read() != '"') {
+					reader.reset();
+					return;
+				}
+			}
+			
+			append(character);
+		}
+	}
+	
+	private void append(int character) {
+		
+		if (token.length() == MAX_TOKEN_LENGTH) {
+			throw malformed("Token too long");
+		}
+		
+		token.append((char) character);
+	}
+	
+	//el stream se da por terminado: lo que sigue puede ser el resto del token
+	private MalformedTokenException malformed(String message) {
+		endOfStream = true;
+		token.setLength(0);
+		return new MalformedTokenException(message);
+	}
+}
@@ -0,0 +1,86 @@
+package mainPackage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.StringReader;
+
+import org.junit.jupiter.api.Test;
+
+class CommandTokenizerTest {
+	
+	@Test
+	void splitsOnWhitespaceAndNewLines() throws Exception {
+		
+		CommandTokenizer tokens = new CommandTokenizer(new StringReader("  mkdir folder\n\tls   -r\r\n"));
+		
+		assertEquals("mkdir", tokens.next());
+		assertEquals("folder", tokens.peek());
+		assertEquals("folder", tokens.next());
+		assertEquals("ls", tokens.next());
+		assertEquals("-r", tokens.next());
+		assertFalse(tokens.hasNext());
+		assertNull(tokens.peek());
+	}
+	
+	@Test
+	void quotedNamesKeepSpacesAndEscapedQuotes() throws Exception {
+		
+		CommandTokenizer tokens = new CommandTokenizer(new StringReader("touch \"a \"\"quoted\"\" file\" cd \"\\New Folder\\Special Folder\""));
+		
+		assertEquals("touch", tokens.next());
+		assertEquals("a \"quoted\" file", tokens.next());
+		assertEquals("cd", tokens.next());
+		assertEquals("\\New Folder\\Special Folder", tokens.next());
+		assertFalse(tokens.hasNext());
+	}
+	
+	@Test
+	void unterminatedQuoteIsAnError() throws Exception {
+		
+		CommandTokenizer tokens = new CommandTokenizer(new StringReader("mkdir \"New Folder\ncd x\n"));
+		
+		assertEquals("mkdir", tokens.next());
+		
+		try {
+			tokens.next();
+			fail();
+		} catch (CommandTokenizer.MalformedTokenException ex) {
+			assertEquals("Unterminated quote", ex.getMessage());
+		}
+		
+		assertFalse(tokens.hasNext());
+	}
+	
+	@Test
+	void tokenLongerThanTheLimitIsAnError() throws Exception {
+		
+		StringBuilder name = new StringBuilder();
+		
+		for (int i = 0; i < CommandTokenizer.MAX_TOKEN_LENGTH; i++) {
+			name.append('a');
+		}
+		
+		CommandTokenizer longest = new CommandTokenizer(new StringReader("mkdir " + name + " pwd"));
+		
+		longest.next();
+		assertEquals(CommandTokenizer.MAX_TOKEN_LENGTH, longest.next().length());
+		assertEquals("pwd", longest.next());
+		
+		//entre comillas se corta en el limite, sin buscar la comilla que cierra
+		CommandTokenizer quoted = new CommandTokenizer(new StringReader("mkdir \"" + name + "a\" pwd"));
+		
+		quoted.next();
+		
+		try {
+			quoted.peek();
+			fail();
+		} catch (CommandTokenizer.MalformedTokenException ex) {
+			assertEquals("Token too long", ex.getMessage());
+		}
+		
+		assertFalse(quoted.hasNext());
+	}
+}
@@ -0,0 +1,274 @@
+package mainPackage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+
+import mainPackage.CommandProcess.Nodo;
+
+//Copia entre un directorio real y un Arbol, para import y export.
+//
+//import lee el disco con DirectoryStream en un ForkJoinPool, una tarea por directorio, y arma un Scanned
+//sin tocar el arbol; despues la sesion agrega todo de una vez con el lock de escritura. Asi los escritores
+//solo esperan la insercion, no la lectura del disco.
+//export crea los directorios y archivos (vacios) de un subarbol, tambien con una tarea por directorio, leyendo
+//de una ArbolVersion para no frenar a los escritores mientras tanto.
+//
+//Los links simbolicos no se siguen. Lo que no se puede copiar (links, archivos especiales, nombres con '\' o de
+//mas de MAX_NAME_LENGTH al importar, nombres que el disco no acepta al exportar, directorios que no se pueden
+//leer) se saltea y se cuenta.
+public final class FileSystemMirror {
+
+	private FileSystemMirror() {
+	}
+
+	//un directorio leido del disco, con los nombres ordenados: importar el mismo directorio da siempre el mismo arbol
+	static final class Scanned {
+
+		final String name;
+
+		final List<String> files = new ArrayList<String>();
+
+		final List<Scanned> directories = new ArrayList<Scanned>();
+
+		//totales de este subarbol, sin contarse a si mismo
+		int directoryCount;
+
+		int fileCount;
+
+		int skipped;
+
+		Scanned(String name) {
+			this.name = name;
+		}
+	}
+
+	//resultado de export
+	static final class Exported {
+
+		final LongAdder directories = new LongAdder();
+
+		final LongAdder files = new LongAdder();
+
+		final LongAdder skipped = new LongAdder();
+	}
+
+	//falla solo si no se puede leer source; los subdirectorios que no se pueden leer quedan vacios
+	static Scanned scan(Path source, ForkJoinPool pool) throws IOException {
+
+		if (!Files.isDirectory(source, LinkOption.NOFOLLOW_LINKS)) {
+			throw new IOException("Not a directory: " + source);
+		}
+
+		try {
+			return pool.invoke(new ScanTask(source, String.valueOf(source.getFileName()), true));
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	static Exported export(ArbolVersion version, Nodo<String> nodo, Path target, ForkJoinPool pool) throws IOException {
+
+		Files.createDirectories(target);
+
+		Exported exported = new Exported();
+
+		try {
+			pool.invoke(new ExportTask(version, nodo, target, exported));
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+
+		return exported;
+	}
+
+	//crea un archivo vacio; si ya existe lo deja como esta
+	static void createEmptyFile(Path file) throws IOException {
+
+		try {
+			FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE).close();
+		} catch (FileAlreadyExistsException e) {
+			//export sobre un directorio que ya tenia el archivo
+		}
+	}
+
+	//false si ya hay un archivo con ese nombre (en el Arbol un archivo y un directorio pueden llamarse igual)
+	static boolean createDirectory(Path directory) throws IOException {
+
+		try {
+			Files.createDirectories(directory);
+			return true;
+		} catch (FileAlreadyExistsException e) {
+			return false;
+		}
+	}
+
+	//nombre que el disco puede usar como un solo segmento; null si no
+	static Path child(Path directory, String name) {
+
+		if (name.isEmpty() || ".".equals(name) || "..".equals(name)) {
+			return null;
+		}
+
+		try {
+			Path child = directory.resolve(name);
+			return directory.equals(child.getParent()) ? child : null;
+		} catch (InvalidPathException e) {
+			return null;
+		}
+	}
+
+	static boolean isImportable(String name) {
+		return name.length() <= CommandPlan.MAX_NAME_LENGTH && name.indexOf('\\') < 0;
+	}
+
+	private static class ScanTask extends RecursiveTask<Scanned> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Path directory;
+
+		private final String name;
+
+		//el directorio de partida tiene que poder leerse; los de abajo se saltean si fallan
+		private final boolean root;
+
+		ScanTask(Path directory, String name, boolean root) {
+			this.directory = directory;
+			this.name = name;
+			this.root = root;
+		}
+
+		@Override
+		protected Scanned compute() {
+
+			Scanned scanned = new Scanned(name);
+			List<ScanTask> subdirectories = new ArrayList<ScanTask>();
+
+			try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+
+				for (Path entry : entries) {
+
+					String entryName = entry.getFileName().toString();
+					BasicFileAttributes attributes = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+
+					if (!isImportable(entryName)) {
+						scanned.skipped++;
+					} else if (attributes.isDirectory()) {
+						subdirectories.add(new ScanTask(entry, entryName, false));
+					} else if (attributes.isRegularFile()) {
+						scanned.files.add(entryName);
+					} else {
+						scanned.skipped++;
+					}
+				}
+			} catch (IOException e) {
+
+				if (root) {
+					throw new UncheckedIOException(e);
+				}
+
+				scanned.skipped++;
+				return scanned;
+			}
+
+			Collections.sort(scanned.files);
+			scanned.fileCount = scanned.files.size();
+
+			//las tareas quedan en el orden de la lista, asi los directorios tambien salen ordenados
+			Collections.sort(subdirectories, new Comparator<ScanTask>() {
+				@Override
+				public int compare(ScanTask first, ScanTask second) {
+					return first.name.compareTo(second.name);
+				}
+			});
+
+			invokeAll(subdirectories);
+
+			for (ScanTask task : subdirectories) {
+
+				Scanned child = task.join();
+
+				scanned.directories.add(child);
+				scanned.directoryCount += 1 + child.directoryCount;
+				scanned.fileCount += child.fileCount;
+				scanned.skipped += child.skipped;
+			}
+
+			return scanned;
+		}
+	}
+
+	private static class ExportTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final ArbolVersion version;
+
+		private final Nodo<String> nodo;
+
+		private final Path directory;
+
+		private final Exported exported;
+
+		ExportTask(ArbolVersion version, Nodo<String> nodo, Path directory, Exported exported) {
+			this.version = version;
+			this.nodo = nodo;
+			this.directory = directory;
+			this.exported = exported;
+		}
+
+		@Override
+		protected void compute() {
+
+			List<ExportTask> subdirectories = new ArrayList<ExportTask>();
+
+			try {
+				for (String file : version.getFiles(nodo)) {
+
+					Path target = child(directory, file);
+
+					if (target == null) {
+						exported.skipped.increment();
+					} else {
+						createEmptyFile(target);
+						exported.files.increment();
+					}
+				}
+
+				//con nombres repetidos el segundo va a parar al mismo directorio del disco
+				for (Nodo<String> hijo : version.getDirectorios(nodo)) {
+
+					Path target = child(directory, version.getName(hijo));
+
+					if (target == null || !createDirectory(target)) {
+						exported.skipped.increment();
+					} else {
+						exported.directories.increment();
+						subdirectories.add(new ExportTask(version, hijo, target, exported));
+					}
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+
+			invokeAll(subdirectories);
+		}
+	}
+}
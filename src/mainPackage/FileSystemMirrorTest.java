@@ -0,0 +1,101 @@
+package mainPackage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import mainPackage.CommandProcessTest.MemoryOutputSink;
+
+class FileSystemMirrorTest {
+
+	@TempDir
+	Path folder;
+
+	@Test
+	void importMirrorsTheDiskAndMergesOnRepeat() throws Exception {
+
+		Path source = Files.createDirectories(folder.resolve("source"));
+		Files.createDirectories(source.resolve("b").resolve("deep"));
+		Files.createDirectories(source.resolve("a"));
+		Files.createFile(source.resolve("z.txt"));
+		Files.createFile(source.resolve("a").resolve("inside"));
+		Files.createFile(source.resolve("b").resolve("deep").resolve("bottom"));
+		Files.createFile(source.resolve("back\\slash"));
+		Files.createSymbolicLink(source.resolve("link"), source.resolve("a"));
+
+		MemoryOutputSink output = new MemoryOutputSink();
+		CommandProcess process = new CommandProcess(output);
+
+		process.execute(new String[] { "import", source.toString() });
+		process.execute(new String[] { "import", source.toString() });
+		process.execute(new String[] { "ls", "-r", "import", folder.resolve("missing").toString() });
+
+		String[] lines = output.getContent().split("\n");
+
+		assertTrue(lines[0].startsWith("Imported 3 directories, 3 files, 2 skipped in "), lines[0]);
+		assertTrue(lines[1].startsWith("Imported 3 directories, 3 files, 2 skipped in "), lines[1]);
+
+		StringBuilder listing = new StringBuilder();
+		for (int i = 2; i < lines.length - 1; i++) {
+			listing.append(lines[i]).append('\n');
+		}
+
+		assertEquals("root\na\nb\nz.txt\nroot\\a\ninside\nroot\\b\ndeep\nroot\\b\\deep\nbottom\n", listing.toString());
+		assertEquals("Cannot read " + folder.resolve("missing"), lines[lines.length - 1]);
+	}
+
+	@Test
+	void exportedTreeImportsBackTheSame() throws Exception {
+
+		CommandProcess process = new CommandProcess(new MemoryOutputSink());
+		process.execute(new String[] { "mkdir", "a", "b", "touch", "f", "cd", "a", "touch", "g", "h", "mkdir", "c",
+				"cd", "c", "touch", "-p", "d\\e\\leaf", "cd", "\\" });
+
+		Path target = folder.resolve("export");
+
+		MemoryOutputSink exportOutput = new MemoryOutputSink();
+		new CommandProcess(process.getArbol(), exportOutput).execute(new String[] { "export", target.toString() });
+		assertTrue(exportOutput.getContent().startsWith("Exported 5 directories, 4 files, 0 skipped in "), exportOutput.getContent());
+		assertTrue(Files.isRegularFile(target.resolve("a").resolve("c").resolve("d").resolve("e").resolve("leaf")));
+
+		CommandProcess copy = new CommandProcess(new MemoryOutputSink());
+		copy.execute(new String[] { "import", target.toString() });
+
+		assertEquals(listing(process), listing(copy));
+	}
+
+	@Test
+	void indexedTreesImportAndExportToo() throws Exception {
+
+		Path source = Files.createDirectories(folder.resolve("source").resolve("a"));
+		Files.createFile(source.resolve("f"));
+
+		MemoryOutputSink output = new MemoryOutputSink();
+		IndexedSession session = new IndexedSession(new ArbolCompacto("root"), output);
+
+		Path target = folder.resolve("copy");
+		session.execute(new String[] { "import", folder.resolve("source").toString(), "export", target.toString(), "ls", "-r" });
+
+		String[] lines = output.getContent().split("\n");
+
+		assertTrue(lines[0].startsWith("Imported 1 directories, 1 files, 0 skipped in "), lines[0]);
+		assertTrue(lines[1].startsWith("Exported 1 directories, 1 files, 0 skipped in "), lines[1]);
+		assertEquals("root", lines[2]);
+		assertEquals("a", lines[3]);
+		assertEquals("root\\a", lines[4]);
+		assertEquals("f", lines[5]);
+		assertTrue(Files.isRegularFile(target.resolve("a").resolve("f")));
+	}
+
+	private static String listing(CommandProcess process) {
+
+		MemoryOutputSink output = new MemoryOutputSink();
+		new CommandProcess(process.getArbol(), output).execute(new String[] { "ls", "-r" });
+		return output.getContent();
+	}
+}
@@ -0,0 +1,586 @@
+package mainPackage;
+
+import java.io.IOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+//Ejecuta los mismos comandos que CommandProcess sobre un ArbolIndexado (snapshot mapeado o ArbolCompacto).
+//Sobre un arbol de solo lectura mkdir y touch responden "Read only snapshot".
+//rm y mv no estan: las columnas de ArbolCompacto no tienen como soltar un subarbol (ver CommandProcess).
+//cd, mkdir, touch e import se ejecutan con TreeCommands, con las mismas reglas y mensajes que CommandProcess.
+public class IndexedSession {
+	
+	private static final String BACK_SLASH = "\\";
+	
+	private final ArbolIndexado arbol;
+	
+	private final OutputSink output;
+	
+	private int workingDirectory;
+	
+	private final PathScanner scanner = new PathScanner();
+	
+	//abierta con begin, como en CommandProcess
+	private Transaction transaction;
+	
+	private final TreeCommands<Integer> commands;
+	
+	public IndexedSession(ArbolIndexado arbol, OutputSink output) {
+		this.arbol = arbol;
+		this.output = output;
+		this.workingDirectory = arbol.getRaiz();
+		this.commands = new TreeCommands<Integer>(new Tree(), output);
+	}
+	
+	public boolean execute(String[] args) {
+		return execute(new ArrayTokenSource(args));
+	}
+	
+	//devuelve true si se ejecuto quit
+	public boolean execute(TokenSource tokens) {
+		
+		try {
+			return processCommands(tokens);
+		} catch (CommandTokenizer.MalformedTokenException ex) {
+			return malformedInput(ex.getMessage());
+		} finally {
+			output.flush();
+		}
+	}
+	
+	private boolean processCommands(TokenSource tokens) {
+		
+		CommandPlan.Step step = new CommandPlan.Step();
+		
+		while (CommandPlan.parseNext(tokens, step)) {
+			
+			run(step.operation, step.arguments, step.detail);
+			
+			if (step.operation.stops()) {
+				return step.operation.quits();
+			}
+			
+			if (!tokens.ready()) {
+				output.flush();
+			}
+		}
+		
+		return false;
+	}
+	
+	private void run(CommandPlan.Operation operation, List<String> arguments, Object detail) {
+		
+		//mismas reglas que CommandProcess.stage
+		if (transaction != null && operation != CommandPlan.Operation.BEGIN && operation != CommandPlan.Operation.COMMIT
+				&& operation != CommandPlan.Operation.ABORT) {
+			
+			if (!operation.stops()) {
+				transaction.add(operation, arguments, detail);
+				return;
+			}
+			
+			transaction = null;
+			output.println("Transaction aborted");
+		}
+		
+		switch (operation) {
+			
+			case QUIT:
+				output.println("Exit application");
+				break;
+				
+			case PWD:
+				output.println("Current directory: " + arbol.getFullPath(workingDirectory));
+				break;
+				
+			case LIST:
+				listContent(workingDirectory, (ListPage) detail);
+				break;
+				
+			case LIST_RECURSIVE:
+				listRecursive(workingDirectory);
+				break;
+				
+			case LIST_PATH:
+				listContent(getASpecificNode(arguments.get(0), arbol.getRaiz()), (ListPage) detail);
+				break;
+				
+			case CD:
+				commands.run(operation, arguments, null);
+				break;
+				
+			case DU:
+				du(arguments.isEmpty() ? workingDirectory : findNode(arguments.get(0), arbol.getRaiz()));
+				break;
+				
+			case WHERE:
+				output.println("Name index not enabled");
+				break;
+				
+			case STATS:
+				output.println("Metrics not enabled");
+				break;
+				
+			case BEGIN:
+				
+				if (transaction != null) {
+					output.println("Transaction already open");
+				} else {
+					transaction = new Transaction();
+				}
+				break;
+				
+			case COMMIT:
+				commit();
+				break;
+				
+			case ABORT:
+				
+				if (transaction == null) {
+					output.println("No transaction open");
+				} else {
+					transaction = null;
+					output.println("Transaction aborted");
+				}
+				break;
+				
+			case EXPORT:
+				exportDirectory(arguments.get(0));
+				break;
+				
+			case FIND:
+				((TreeSearch) detail).search(arbol, arguments.isEmpty() ? workingDirectory : getASpecificNode(arguments.get(0), arbol.getRaiz()), output);
+				break;
+				
+			case MKDIR:
+			case MKDIR_PARENTS:
+			case TOUCH:
+			case TOUCH_PARENTS:
+			case IMPORT:
+			case RM:
+			case RM_RECURSIVE:
+			case MV:
+				
+				String unsupported = unsupported(operation);
+				
+				if (unsupported != null) {
+					output.println(unsupported);
+				} else if (operation == CommandPlan.Operation.IMPORT) {
+					importDirectory(arguments, (FileSystemMirror.Scanned) detail);
+				} else {
+					commands.run(operation, arguments, null);
+				}
+				break;
+				
+			//sin huellas habria que recorrer los dos subarboles enteros
+			case DIFF:
+				output.println("Not supported by indexed trees");
+				break;
+				
+			default:
+				printUnrecognized();
+		}
+	}
+	
+	//Como el commit de CommandProcess: el lote entero se chequea sobre un borrador antes de aplicar el primer
+	//comando, y si alguno fallaria (o no se puede en este arbol) no se aplica ninguno. Un ArbolIndexado lo usa una
+	//sola sesion, asi que no hace falta lock.
+	private void commit() {
+		
+		if (transaction == null) {
+			output.println("No transaction open");
+			return;
+		}
+		
+		CommandPlan plan = transaction.toPlan();
+		transaction = null;
+		
+		FileSystemMirror.Scanned[] scanned = new FileSystemMirror.Scanned[plan.size()];
+		
+		for (int i = 0; i < plan.size(); i++) {
+			
+			String unsupported = unsupported(plan.getOperation(i));
+			
+			if (unsupported != null) {
+				output.println(unsupported);
+				output.println("Transaction aborted");
+				return;
+			}
+			
+			if (plan.getOperation(i) == CommandPlan.Operation.IMPORT) {
+				
+				scanned[i] = scan(plan.getArguments(i).get(0));
+				
+				if (scanned[i] == null) {
+					output.println("Transaction aborted");
+					return;
+				}
+			}
+		}
+		
+		String error = commands.check(plan, scanned);
+		
+		if (error != null) {
+			output.println(error);
+			output.println("Transaction aborted");
+			return;
+		}
+		
+		for (int i = 0; i < plan.size(); i++) {
+			run(plan.getOperation(i), plan.getArguments(i), scanned[i] != null ? scanned[i] : plan.getDetail(i));
+		}
+	}
+	
+	//el error de un cambio que este arbol no admite, null si se puede
+	private String unsupported(CommandPlan.Operation operation) {
+		
+		if (!operation.changesTree()) {
+			return null;
+		}
+		
+		if (arbol.isReadOnly()) {
+			return "Read only snapshot";
+		}
+		
+		switch (operation) {
+			
+			case RM:
+			case RM_RECURSIVE:
+			case MV:
+				return "Not supported by indexed trees";
+				
+			default:
+				return null;
+		}
+	}
+	
+	//misma lectura en paralelo que CommandProcess; la insercion no toma locks porque un ArbolIndexado no se comparte.
+	//En un commit scanned ya viene leido.
+	private void importDirectory(List<String> arguments, FileSystemMirror.Scanned scanned) {
+		
+		long start = System.nanoTime();
+		
+		if (scanned == null) {
+			scanned = scan(arguments.get(0));
+		}
+		
+		if (scanned == null || commands.run(CommandPlan.Operation.IMPORT, arguments, scanned) != null) {
+			return;
+		}
+		
+		CommandProcess.printTransfer("Imported", scanned.directoryCount, scanned.fileCount, scanned.skipped,
+				System.nanoTime() - start, output);
+	}
+	
+	//null si no se pudo leer
+	private FileSystemMirror.Scanned scan(String source) {
+		
+		try {
+			return FileSystemMirror.scan(Paths.get(source), ForkJoinPool.commonPool());
+		} catch (IOException | InvalidPathException e) {
+			output.println("Cannot read " + source);
+			return null;
+		}
+	}
+	
+	//secuencial: los ArbolIndexado no se pueden leer desde varios hilos a la vez
+	private void exportDirectory(String target) {
+		
+		long start = System.nanoTime();
+		long directories = 0;
+		long files = 0;
+		long skipped = 0;
+		
+		ArrayDeque<Integer> nodes = new ArrayDeque<Integer>();
+		ArrayDeque<Path> paths = new ArrayDeque<Path>();
+		
+		try {
+			Path root = Paths.get(target);
+			
+			if (!FileSystemMirror.createDirectory(root)) {
+				throw new IOException("Not a directory: " + root);
+			}
+			
+			nodes.push(workingDirectory);
+			paths.push(root);
+			
+			while (!nodes.isEmpty()) {
+				
+				int node = nodes.pop();
+				Path directory = paths.pop();
+				
+				for (int file = arbol.getFirstFile(node); file != ArbolIndexado.NO_NODE; file = arbol.getNextFile(node, file)) {
+					
+					Path path = FileSystemMirror.child(directory, arbol.getFileName(file));
+					
+					if (path == null) {
+						skipped++;
+					} else {
+						FileSystemMirror.createEmptyFile(path);
+						files++;
+					}
+				}
+				
+				for (int child = arbol.getFirstChild(node); child != ArbolIndexado.NO_NODE; child = arbol.getNextSibling(child)) {
+					
+					Path path = FileSystemMirror.child(directory, arbol.getName(child));
+					
+					if (path == null || !FileSystemMirror.createDirectory(path)) {
+						skipped++;
+					} else {
+						directories++;
+						nodes.push(child);
+						paths.push(path);
+					}
+				}
+			}
+		} catch (IOException | InvalidPathException e) {
+			output.println("Cannot write " + target);
+			return;
+		}
+		
+		CommandProcess.printTransfer("Exported", directories, files, skipped, System.nanoTime() - start, output);
+	}
+	
+	//igual que CommandProcess: avanza por los segmentos que existen y se queda en el ultimo encontrado
+	private int getASpecificNode(String multiplePaths, int initialDirectory) {
+		return resolve(multiplePaths, initialDirectory, false);
+	}
+	
+	//como getASpecificNode, pero NO_NODE si falta algun segmento
+	private int findNode(String multiplePaths, int initialDirectory) {
+		return resolve(multiplePaths, initialDirectory, true);
+	}
+	
+	private int resolve(String multiplePaths, int initialDirectory, boolean strict) {
+		
+		int directory = initialDirectory;
+		
+		scanner.reset(multiplePaths);
+		
+		while (scanner.next()) {
+			
+			int existingNode = arbol.getDirectory(directory, scanner.segment());
+			
+			if (existingNode == ArbolIndexado.NO_NODE) {
+				return strict ? ArbolIndexado.NO_NODE : directory;
+			}
+			
+			directory = existingNode;
+		}
+		
+		return directory;
+	}
+	
+	private void listRecursive(int node) {
+		
+		ArrayDeque<Integer> pending = new ArrayDeque<Integer>();
+		ArrayDeque<Integer> children = new ArrayDeque<Integer>();
+		pending.push(node);
+		
+		while (!pending.isEmpty()) {
+			
+			int current = pending.pop();
+			
+			output.println(arbol.getFullPath(current));
+			listContent(current);
+			
+			//se apilan al reves para recorrerlos en orden de creacion
+			for (int child = arbol.getFirstChild(current); child != ArbolIndexado.NO_NODE; child = arbol.getNextSibling(child)) {
+				children.push(child);
+			}
+			while (!children.isEmpty()) {
+				pending.push(children.pop());
+			}
+		}
+	}
+	
+	private void listContent(int node) {
+		
+		for (int child = arbol.getFirstChild(node); child != ArbolIndexado.NO_NODE; child = arbol.getNextSibling(child)) {
+			output.println(arbol.getName(child));
+		}
+		
+		for (int file = arbol.getFirstFile(node); file != ArbolIndexado.NO_NODE; file = arbol.getNextFile(node, file)) {
+			output.println(arbol.getFileName(file));
+		}
+	}
+	
+	private void listContent(int node, ListPage page) {
+		
+		if (page != null) {
+			page.print(arbol, node, output);
+		} else {
+			listContent(node);
+		}
+	}
+	
+	//un ArbolIndexado no guarda totales: se recorre el subarbol
+	private void du(int node) {
+		
+		if (node == ArbolIndexado.NO_NODE) {
+			output.println("Directory not found");
+			return;
+		}
+		
+		int directories = 0;
+		int files = 0;
+		int depth = 0;
+		
+		ArrayDeque<Integer> pending = new ArrayDeque<Integer>();
+		ArrayDeque<Integer> levels = new ArrayDeque<Integer>();
+		pending.push(node);
+		levels.push(0);
+		
+		while (!pending.isEmpty()) {
+			
+			int current = pending.pop();
+			int level = levels.pop();
+			
+			depth = Math.max(depth, level);
+			
+			for (int file = arbol.getFirstFile(current); file != ArbolIndexado.NO_NODE; file = arbol.getNextFile(current, file)) {
+				files++;
+			}
+			
+			for (int child = arbol.getFirstChild(current); child != ArbolIndexado.NO_NODE; child = arbol.getNextSibling(child)) {
+				directories++;
+				pending.push(child);
+				levels.push(level + 1);
+			}
+		}
+		
+		CommandProcess.printTotals(arbol.getFullPath(node), directories, files, depth, output);
+	}
+	
+	//como en CommandProcess: corta el script y descarta la transaccion abierta
+	private boolean malformedInput(String error) {
+		
+		if (transaction != null) {
+			transaction = null;
+			output.println("Transaction aborted");
+		}
+		
+		output.println(error);
+		return true;
+	}
+	
+	private void printUnrecognized() {
+		output.println("Unrecognized command");
+	}
+	
+	//El ArbolIndexado para TreeCommands. Los nodos van como Integer; NO_NODE se vuelve null. rm y mv no llegan
+	//aca (ver unsupported).
+	private final class Tree implements TreeModel<Integer> {
+		
+		@Override
+		public Integer getWorkingDirectory() {
+			return workingDirectory;
+		}
+		
+		@Override
+		public void setWorkingDirectory(Integer directory) {
+			workingDirectory = directory;
+		}
+		
+		@Override
+		public Integer getPadre(Integer directory) {
+			return node(arbol.getPadre(directory));
+		}
+		
+		@Override
+		public String getName(Integer directory) {
+			return arbol.getName(directory);
+		}
+		
+		@Override
+		public Integer getDirectory(Integer directory, String name) {
+			return node(arbol.getDirectory(directory, name));
+		}
+		
+		@Override
+		public Iterable<Integer> getDirectorios(Integer directory) {
+			
+			List<Integer> directorios = new ArrayList<Integer>();
+			
+			for (int child = arbol.getFirstChild(directory); child != ArbolIndexado.NO_NODE; child = arbol.getNextSibling(child)) {
+				directorios.add(child);
+			}
+			
+			return directorios;
+		}
+		
+		@Override
+		public boolean containsFile(Integer directory, String name) {
+			return arbol.containsFile(directory, name);
+		}
+		
+		@Override
+		public int countFiles(Integer directory, String name) {
+			
+			int count = 0;
+			
+			for (int file = arbol.getFirstFile(directory); file != ArbolIndexado.NO_NODE; file = arbol.getNextFile(directory, file)) {
+				if (name.equals(arbol.getFileName(file))) {
+					count++;
+				}
+			}
+			
+			return count;
+		}
+		
+		//no hay rm
+		@Override
+		public boolean isRemoved(Integer directory) {
+			return false;
+		}
+		
+		@Override
+		public Integer walk(Integer start, String path) {
+			return getASpecificNode(path, start);
+		}
+		
+		@Override
+		public void ensureCapacity(Integer directory, int moreDirectories, int moreFiles) {
+		}
+		
+		@Override
+		public Integer addDirectory(Integer directory, String name) {
+			return arbol.addDirectory(directory, name);
+		}
+		
+		@Override
+		public void addFile(Integer directory, String name) {
+			arbol.addFile(directory, name);
+		}
+		
+		@Override
+		public void removeDirectory(Integer directory, Integer removed) {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public void removeFile(Integer directory, String name) {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public void moveDirectory(Integer directory, Integer moved, Integer destination, String newName) {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public void moveFile(Integer directory, String name, Integer destination, String newName) {
+			throw new UnsupportedOperationException();
+		}
+		
+		private Integer node(int node) {
+			return node != ArbolIndexado.NO_NODE ? node : null;
+		}
+	}
+}
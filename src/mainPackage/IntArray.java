@@ -0,0 +1,70 @@
+package mainPackage;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+//Arreglo de int que crece solo. Fuera del heap usa un ByteBuffer directo, que el GC no recorre.
+public class IntArray {
+	
+	private static final int INITIAL_CAPACITY = 16;
+	
+	private final boolean offHeap;
+	
+	private int[] values;
+	
+	private IntBuffer buffer;
+	
+	private int capacity;
+	
+	public IntArray(boolean offHeap) {
+		this.offHeap = offHeap;
+		allocate(INITIAL_CAPACITY);
+	}
+	
+	public int get(int index) {
+		return offHeap ? buffer.get(index) : values[index];
+	}
+	
+	public void set(int index, int value) {
+		
+		if (index >= capacity) {
+			allocate(Math.max(index + 1, capacity + (capacity >> 1)));
+		}
+		
+		if (offHeap) {
+			buffer.put(index, value);
+		} else {
+			values[index] = value;
+		}
+	}
+	
+	public long sizeInBytes() {
+		return 4L * capacity;
+	}
+	
+	private void allocate(int newCapacity) {
+		
+		if (offHeap) {
+			
+			IntBuffer grown = ByteBuffer.allocateDirect(newCapacity * 4).asIntBuffer();
+			
+			if (buffer != null) {
+				buffer.rewind();
+				grown.put(buffer);
+			}
+			
+			buffer = grown;
+		} else {
+			
+			int[] grown = new int[newCapacity];
+			
+			if (values != null) {
+				System.arraycopy(values, 0, grown, 0, capacity);
+			}
+			
+			values = grown;
+		}
+		
+		capacity = newCapacity;
+	}
+}
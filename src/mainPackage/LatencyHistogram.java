@@ -0,0 +1,122 @@
+package mainPackage;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+//Histograma de latencias en nanosegundos con buckets log-lineales, como HdrHistogram: hasta 16 ns un bucket por
+//valor, y despues cada potencia de 2 dividida en 8 buckets iguales, asi el error relativo queda por debajo del 12.5%.
+//Registrar es un incremento atomico en un arreglo fijo, sin locks ni objetos nuevos. Lo que pase de 2^41 ns
+//(unos 36 minutos) cae en el ultimo bucket.
+public final class LatencyHistogram {
+
+	private static final int LINEAR = 16;
+
+	private static final int SUB_BITS = 3;
+
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+	private static final int FIRST_EXPONENT = 4;
+
+	private static final int LAST_EXPONENT = 40;
+
+	static final int BUCKETS = LINEAR + (LAST_EXPONENT - FIRST_EXPONENT + 1) * SUB_BUCKETS;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+	private final LongAdder total = new LongAdder();
+
+	private final AtomicLong max = new AtomicLong();
+
+	public void record(long nanos) {
+
+		long value = Math.max(0, nanos);
+
+		buckets.incrementAndGet(bucket(value));
+		total.add(value);
+
+		long current = max.get();
+		while (value > current && !max.compareAndSet(current, value)) {
+			current = max.get();
+		}
+	}
+
+	//suma los buckets: registrar es mas frecuente que consultar
+	public long getCount() {
+
+		long count = 0;
+
+		for (int i = 0; i < BUCKETS; i++) {
+			count += buckets.get(i);
+		}
+
+		return count;
+	}
+
+	public long getMax() {
+		return max.get();
+	}
+
+	public double getMean() {
+		long samples = getCount();
+		return samples == 0 ? 0 : (double) total.sum() / samples;
+	}
+
+	//el valor mas alto del bucket donde cae el percentil, sin pasarse del maximo registrado; 0 si esta vacio
+	public long getValueAtPercentile(double percentile) {
+
+		long[] snapshot = new long[BUCKETS];
+		long samples = 0;
+
+		for (int i = 0; i < BUCKETS; i++) {
+			snapshot[i] = buckets.get(i);
+			samples += snapshot[i];
+		}
+
+		if (samples == 0) {
+			return 0;
+		}
+
+		long target = Math.max(1, (long) Math.ceil(percentile / 100 * samples));
+		long seen = 0;
+
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += snapshot[i];
+			if (seen >= target) {
+				return Math.min(highestValue(i), max.get());
+			}
+		}
+
+		return max.get();
+	}
+
+	static int bucket(long value) {
+
+		if (value < LINEAR) {
+			return (int) value;
+		}
+
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+
+		if (exponent > LAST_EXPONENT) {
+			return BUCKETS - 1;
+		}
+
+		int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+
+		return LINEAR + (exponent - FIRST_EXPONENT) * SUB_BUCKETS + sub;
+	}
+
+	static long highestValue(int bucket) {
+
+		if (bucket < LINEAR) {
+			return bucket;
+		}
+
+		int exponent = FIRST_EXPONENT + (bucket - LINEAR) / SUB_BUCKETS;
+		int sub = (bucket - LINEAR) % SUB_BUCKETS;
+		long width = 1L << (exponent - SUB_BITS);
+
+		return (SUB_BUCKETS + sub) * width + width - 1;
+	}
+}
@@ -0,0 +1,47 @@
+package mainPackage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+	
+	@Test
+	void bucketsCoverEveryValueWithoutGaps() {
+		
+		for (int bucket = 0; bucket < LatencyHistogram.BUCKETS - 1; bucket++) {
+			
+			long highest = LatencyHistogram.highestValue(bucket);
+			
+			assertEquals(bucket, LatencyHistogram.bucket(highest));
+			assertEquals(bucket + 1, LatencyHistogram.bucket(highest + 1));
+		}
+		
+		assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucket(Long.MAX_VALUE));
+	}
+	
+	@Test
+	void percentilesStayWithinTheBucketError() {
+		
+		LatencyHistogram histogram = new LatencyHistogram();
+		
+		assertEquals(0, histogram.getValueAtPercentile(99));
+		
+		for (long value = 1; value <= 100000; value++) {
+			histogram.record(value);
+		}
+		
+		assertEquals(100000, histogram.getCount());
+		assertEquals(100000, histogram.getMax());
+		assertEquals(50000.5, histogram.getMean(), 0.001);
+		
+		assertWithin(50000, histogram.getValueAtPercentile(50));
+		assertWithin(99000, histogram.getValueAtPercentile(99));
+		assertEquals(100000, histogram.getValueAtPercentile(100));
+	}
+	
+	private static void assertWithin(long expected, long actual) {
+		assertTrue(actual >= expected && actual <= expected * 1.125, expected + " vs " + actual);
+	}
+}
@@ -0,0 +1,113 @@
+package mainPackage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import mainPackage.CommandProcess.Nodo;
+
+//Opciones de ls para directorios grandes: -sort, -offset N, -limit N y -count.
+//Las entradas siguen siendo primero los directorios y despues los archivos; offset y limit se aplican sobre esa
+//secuencia, asi cada pagina cuesta lo que mide la pagina (y -sort usa el orden guardado en SortedOrder).
+//-count solo imprime cuantos directorios y archivos hay.
+public final class ListPage {
+
+	public static final int NO_LIMIT = -1;
+
+	private final boolean sorted;
+
+	private final boolean countOnly;
+
+	private final int offset;
+
+	private final int limit;
+
+	public ListPage(boolean sorted, boolean countOnly, int offset, int limit) {
+		this.sorted = sorted;
+		this.countOnly = countOnly;
+		this.offset = offset;
+		this.limit = limit;
+	}
+
+	public boolean isSorted() {
+		return sorted;
+	}
+
+	public boolean isCountOnly() {
+		return countOnly;
+	}
+
+	public int getOffset() {
+		return offset;
+	}
+
+	public int getLimit() {
+		return limit;
+	}
+
+	//se llama con el lock de lectura del arbol tomado
+	void print(Nodo<String> nodo, OutputSink output) {
+
+		List<Nodo<String>> directorios = nodo.getDirectorios();
+		List<String> files = nodo.getFiles();
+
+		if (countOnly) {
+			printCount(directorios.size(), files.size(), output);
+			return;
+		}
+
+		SortedOrder order = sorted ? SortedOrder.of(nodo) : null;
+
+		int total = directorios.size() + files.size();
+		int end = end(total);
+
+		for (int i = Math.min(offset, total); i < end; i++) {
+
+			if (i < directorios.size()) {
+				output.println((order != null ? order.directory(i) : directorios.get(i)).getNodeValue());
+			} else {
+				int file = i - directorios.size();
+				output.println(order != null ? order.file(file) : files.get(file));
+			}
+		}
+	}
+
+	//IndexedSession: los hijos de un ArbolIndexado estan encadenados, asi que se juntan y se ordenan en cada llamada
+	void print(ArbolIndexado arbol, int node, OutputSink output) {
+
+		List<String> directories = new ArrayList<String>();
+		List<String> files = new ArrayList<String>();
+
+		for (int child = arbol.getFirstChild(node); child != ArbolIndexado.NO_NODE; child = arbol.getNextSibling(child)) {
+			directories.add(arbol.getName(child));
+		}
+		for (int file = arbol.getFirstFile(node); file != ArbolIndexado.NO_NODE; file = arbol.getNextFile(node, file)) {
+			files.add(arbol.getFileName(file));
+		}
+
+		if (countOnly) {
+			printCount(directories.size(), files.size(), output);
+			return;
+		}
+
+		if (sorted) {
+			Collections.sort(directories);
+			Collections.sort(files);
+		}
+
+		int total = directories.size() + files.size();
+		int end = end(total);
+
+		for (int i = Math.min(offset, total); i < end; i++) {
+			output.println(i < directories.size() ? directories.get(i) : files.get(i - directories.size()));
+		}
+	}
+
+	private int end(int total) {
+		return limit == NO_LIMIT ? total : (int) Math.min(total, (long) offset + limit);
+	}
+
+	private static void printCount(int directories, int files, OutputSink output) {
+		output.println(directories + " directories, " + files + " files");
+	}
+}
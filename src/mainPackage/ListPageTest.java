@@ -0,0 +1,108 @@
+package mainPackage;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import mainPackage.CommandProcessTest.MemoryOutputSink;
+
+class ListPageTest {
+	
+	private static final String[] TREE = { "mkdir", "c", "a", "b", "touch", "z", "x", "y" };
+	
+	@Test
+	void sortsAndPagesDirectoriesThenFiles() {
+		
+		assertEquals("a\nb\nc\nx\ny\nz\n", run("ls", "-sort"));
+		assertEquals("b\nc\nx\n", run("ls", "-sort", "-offset", "1", "-limit", "3"));
+		assertEquals("z\nx\n", run("ls", "-limit", "2", "-offset", "3"));
+		assertEquals("", run("ls", "-offset", "10"));
+		assertEquals("3 directories, 3 files\n", run("ls", "-count"));
+		assertEquals("1 directories, 0 files\n", run("mkdir", "-p", "\\c\\d", "ls", "\\c", "-count"));
+	}
+	
+	@Test
+	void optionsNeedANumber() {
+		
+		assertEquals("Unrecognized command\n", run("ls", "-limit", "pwd"));
+		assertEquals("Unrecognized command\n", run("ls", "-offset", "-1"));
+		assertEquals("Unrecognized command\n", run("ls", "-offset"));
+	}
+	
+	@Test
+	void savedOrderFollowsAddsAndRemovals() {
+		
+		CommandProcess process = new CommandProcess(new MemoryOutputSink());
+		CommandProcess.Nodo<String> raiz = process.getArbol().getRaiz();
+		Random random = new Random(7);
+		
+		for (int i = 0; i < 50; i++) {
+			raiz.addFile("f" + random.nextInt(150));
+		}
+		
+		SortedOrder order = SortedOrder.of(raiz);
+		
+		for (int round = 0; round < 5; round++) {
+			
+			for (int i = 0; i < 200; i++) {
+				raiz.addFile("f" + random.nextInt(150));
+			}
+			for (int i = 0; i < 100; i++) {
+				raiz.removeFile("f" + random.nextInt(150));
+			}
+			
+			assertSame(order, SortedOrder.of(raiz));
+			
+			String[] expected = raiz.getFiles().toArray(new String[0]);
+			Arrays.sort(expected);
+			
+			String[] sorted = new String[expected.length];
+			for (int i = 0; i < sorted.length; i++) {
+				sorted[i] = order.file(i);
+			}
+			
+			assertArrayEquals(expected, sorted);
+		}
+	}
+	
+	@Test
+	void sortedListingAfterRemovalsAndMoves() {
+		
+		String before = "a\nb\nc\nx\ny\nz\n";
+		
+		assertEquals(before + "a\nc\nw\nx\nz\n", run("ls", "-sort", "rm", "y", "rm", "-r", "b", "touch", "w", "ls", "-sort"));
+		assertEquals(before + "a\nd\nx\nz\n", run("ls", "-sort", "rm", "y", "rm", "-r", "b", "mv", "c", "d", "ls", "-sort"));
+		assertEquals(before + "b\nc\nd\n", run("ls", "-sort", "mv", "a", "d", "ls", "-sort", "-limit", "3"));
+		assertEquals(before + "bb\nc\nx\n", run("ls", "-sort", "rm", "x", "touch", "x", "mkdir", "-p", "a\\q", "mv", "a\\q", "bb",
+				"rm", "-r", "b", "ls", "-sort", "-offset", "1", "-limit", "3"));
+	}
+	
+	@Test
+	void compactStoreListsTheSame() {
+		
+		String[] script = { "mkdir", "c", "a", "b", "touch", "z", "x", "y", "ls", "-sort", "-offset", "2", "ls", "-count", "ls", "-limit", "1" };
+		
+		MemoryOutputSink objects = new MemoryOutputSink();
+		MemoryOutputSink compact = new MemoryOutputSink();
+		
+		new CommandProcess(objects).execute(script);
+		new IndexedSession(new ArbolCompacto("root"), compact).execute(script);
+		
+		assertEquals(objects.getContent(), compact.getContent());
+	}
+	
+	private static String run(String... commands) {
+		
+		String[] script = Arrays.copyOf(TREE, TREE.length + commands.length);
+		System.arraycopy(commands, 0, script, TREE.length, commands.length);
+		
+		MemoryOutputSink output = new MemoryOutputSink();
+		new CommandProcess(output).execute(script);
+		return output.getContent();
+	}
+}
@@ -0,0 +1,204 @@
+package mainPackage;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import mainPackage.CommandProcess.Nodo;
+
+//Indice invertido opcional de un Arbol: nombre -> directorios que tienen un subdirectorio o un archivo con ese nombre.
+//Se habilita con Arbol.enableNameIndex, que lo arma recorriendo el arbol una vez; despues lo mantienen mkdir, touch,
+//rm y mv con el lock de escritura tomado y se consulta con el de lectura. mv solo cambia la entrada del directorio
+//movido (los duenos de lo que tiene debajo son los mismos Nodos), pero rm -r tiene que recorrer el subarbol quitado.
+//Con nombres repetidos en un mismo directorio el dueno se guarda una sola vez.
+//Las claves son los mismos Strings internados del arbol. Un nombre con un solo dueno (el caso comun) guarda el Nodo
+//directamente, sin lista; uno con muchos duenos usa un LinkedHashSet, asi rm -r cuesta lo que el subarbol quitado
+//aunque tenga nombres que se repiten en todo el arbol.
+public final class NameIndex<T> {
+
+	private final Map<T, Object> directories = new HashMap<T, Object>();
+
+	private final Map<String, Object> files = new HashMap<String, Object>();
+
+	private long entries;
+
+	void addDirectory(Nodo<T> owner, T name) {
+		add(directories, owner, name);
+	}
+
+	void addFile(Nodo<T> owner, String name) {
+		add(files, owner, name);
+	}
+
+	//despues de quitar o mover un subdirectorio de owner; si le queda otro con ese nombre sigue siendo dueno
+	void removeDirectory(Nodo<T> owner, T name) {
+		if (owner.getDirectory(name) == null) {
+			remove(directories, owner, name);
+		}
+	}
+
+	void removeFile(Nodo<T> owner, String name) {
+		if (!owner.containsFile(name)) {
+			remove(files, owner, name);
+		}
+	}
+
+	//saca a todos los directorios de un subarbol quitado con rm -r: una baja por cada entrada del subarbol,
+	//sin recorrer las listas de duenos de los nombres comunes
+	void removeSubtree(Nodo<T> removed) {
+
+		ArrayDeque<Nodo<T>> pending = new ArrayDeque<Nodo<T>>();
+		pending.push(removed);
+
+		while (!pending.isEmpty()) {
+
+			Nodo<T> nodo = pending.pop();
+
+			for (Nodo<T> child : nodo.getDirectorios()) {
+				remove(directories, nodo, child.getNodeValue());
+				pending.push(child);
+			}
+
+			for (String file : nodo.getFiles()) {
+				remove(files, nodo, file);
+			}
+		}
+	}
+
+	//directorios que tienen un subdirectorio con ese nombre: los que ya estaban al habilitar el indice en el orden
+	//de ls -r, y despues los nuevos en orden de creacion
+	public List<Nodo<T>> getDirectoryOwners(Object name) {
+		return owners(directories.get(name));
+	}
+
+	//directorios que tienen un archivo con ese nombre, en el mismo orden que getDirectoryOwners
+	public List<Nodo<T>> getFileOwners(String name) {
+		return owners(files.get(name));
+	}
+
+	//pares (dueno, nombre) indexados
+	public long getEntryCount() {
+		return entries;
+	}
+
+	public int getNameCount() {
+		return directories.size() + files.size();
+	}
+
+	//recorre el arbol con pila propia; los hijos de cada directorio se agregan seguidos,
+	//asi el control del ultimo dueno en add alcanza para no repetir nombres duplicados
+	void build(Nodo<T> raiz) {
+
+		ArrayDeque<Nodo<T>> pending = new ArrayDeque<Nodo<T>>();
+		pending.push(raiz);
+
+		while (!pending.isEmpty()) {
+
+			Nodo<T> nodo = pending.pop();
+
+			List<Nodo<T>> hijos = nodo.getDirectorios();
+
+			for (Nodo<T> child : hijos) {
+				addDirectory(nodo, child.getNodeValue());
+			}
+
+			for (String file : nodo.getFiles()) {
+				addFile(nodo, file);
+			}
+
+			//se apilan al reves para recorrer el arbol en el mismo orden que ls -r
+			for (int i = hijos.size() - 1; i >= 0; i--) {
+				pending.push(hijos.get(i));
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private <K> void add(Map<K, Object> index, Nodo<T> owner, K name) {
+
+		Object existing = index.get(name);
+
+		if (existing == null) {
+			index.put(name, owner);
+
+		} else if (existing instanceof Nodo) {
+
+			if (existing == owner) {
+				return;
+			}
+
+			List<Nodo<T>> owners = new ArrayList<Nodo<T>>(4);
+			owners.add((Nodo<T>) existing);
+			owners.add(owner);
+			index.put(name, owners);
+
+		} else if (existing instanceof List) {
+
+			List<Nodo<T>> owners = (List<Nodo<T>>) existing;
+
+			if (owners.get(owners.size() - 1) == owner) {
+				return;
+			}
+			owners.add(owner);
+
+			if (owners.size() > Nodo.INDEX_THRESHOLD) {
+				index.put(name, new LinkedHashSet<Nodo<T>>(owners));
+			}
+
+		} else if (!((Set<Nodo<T>>) existing).add(owner)) {
+			return;
+		}
+
+		entries++;
+	}
+
+	//Con pocos duenos se busca en la lista, como los hijos de un Nodo; pasado INDEX_THRESHOLD la lista se cambia por
+	//un LinkedHashSet (los Nodos se comparan por identidad) y quitar no depende de cuantos duenos tenga el nombre.
+	@SuppressWarnings("unchecked")
+	private <K> void remove(Map<K, Object> index, Nodo<T> owner, K name) {
+
+		Object existing = index.get(name);
+		Collection<Nodo<T>> owners;
+
+		if (existing == owner) {
+			index.remove(name);
+			entries--;
+			return;
+		} else if (existing instanceof Collection) {
+			owners = (Collection<Nodo<T>>) existing;
+		} else {
+			return;
+		}
+
+		if (!owners.remove(owner)) {
+			return;
+		}
+
+		entries--;
+
+		if (owners.size() == 1) {
+			index.put(name, owners.iterator().next());
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private List<Nodo<T>> owners(Object value) {
+
+		if (value == null) {
+			return Collections.emptyList();
+		}
+		if (value instanceof Nodo) {
+			return Collections.singletonList((Nodo<T>) value);
+		}
+		if (value instanceof Set) {
+			return Collections.unmodifiableList(new ArrayList<Nodo<T>>((Set<Nodo<T>>) value));
+		}
+		return Collections.unmodifiableList((List<Nodo<T>>) value);
+	}
+}
@@ -0,0 +1,103 @@
+package mainPackage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+import mainPackage.CommandProcessTest.MemoryOutputSink;
+
+class NameIndexTest {
+	
+	@Test
+	void answersWhereFromTheIndex() {
+		
+		MemoryOutputSink output = new MemoryOutputSink();
+		CommandProcess process = new CommandProcess(output);
+		
+		process.execute(new String[] { "mkdir", "-p", "\\a\\pom", "\\b", "touch", "-p", "\\b\\pom", "\\c\\d\\pom", "where", "pom" });
+		
+		assertNull(process.getArbol().getNameIndex());
+		
+		//habilitado despues de crear el arbol: se arma recorriendolo
+		NameIndex<String> index = process.getArbol().enableNameIndex();
+		
+		process.execute(new String[] { "where", "pom", "cd", "a", "touch", "pom", "pom", "mkdir", "x", "x", "where", "pom", "where", "x", "where", "missing" });
+		
+		assertEquals("Name index not enabled\n"
+				+ "root\\a\\pom\nroot\\b\\pom\nroot\\c\\d\\pom\n"
+				+ "File already exists\nDirectory already exists\n"
+				+ "root\\a\\pom\nroot\\b\\pom\nroot\\c\\d\\pom\nroot\\a\\pom\n"
+				+ "root\\a\\x\n", output.getContent());
+		
+		assertEquals(1, index.getDirectoryOwners("pom").size());
+		assertEquals(3, index.getFileOwners("pom").size());
+		assertEquals(9, index.getEntryCount());
+	}
+	
+	@Test
+	void followsRemovalsAndMoves() {
+		
+		MemoryOutputSink output = new MemoryOutputSink();
+		CommandProcess process = new CommandProcess(output);
+		NameIndex<String> index = process.getArbol().enableNameIndex();
+		
+		process.execute(new String[] { "mkdir", "-p", "a\\pom\\deep", "b", "c", "touch", "-p", "a\\f", "a\\pom\\f", "b\\f",
+				"mv", "a\\pom", "b\\moved", "mv", "b\\f", "c\\g", "rm", "a\\f", "where", "f", "where", "g", "where", "deep",
+				"rm", "-r", "b", "where", "f", "where", "deep" });
+		
+		assertEquals("root\\b\\moved\\f\n"
+				+ "root\\c\\g\n"
+				+ "root\\b\\moved\\deep\n", output.getContent());
+		assertEquals(0, index.getDirectoryOwners("pom").size());
+		assertEquals(3, index.getEntryCount());
+	}
+	
+	@Test
+	void commonNamesKeepTheirOrderThroughRemovals() {
+		
+		CommandProcess process = new CommandProcess(new MemoryOutputSink());
+		NameIndex<String> index = process.getArbol().enableNameIndex();
+		
+		//mas duenos que Nodo.INDEX_THRESHOLD: el nombre pasa de lista a conjunto
+		for (int i = 0; i < 20; i++) {
+			process.execute(new String[] { "touch", "-p", "d" + i + "\\file" });
+		}
+		
+		process.execute(new String[] { "rm", "-r", "d3", "rm", "d7\\file", "touch", "-p", "d3\\file" });
+		
+		StringBuilder owners = new StringBuilder();
+		for (CommandProcess.Nodo<String> owner : index.getFileOwners("file")) {
+			owners.append(owner.getNodeValue()).append(' ');
+		}
+		
+		assertEquals("d0 d1 d2 d4 d5 d6 d8 d9 d10 d11 d12 d13 d14 d15 d16 d17 d18 d19 d3 ", owners.toString());
+		assertEquals(19 + 20, index.getEntryCount());
+		
+		for (int i = 0; i < 20; i++) {
+			process.execute(new String[] { "rm", "-r", "d" + i });
+		}
+		
+		assertEquals(0, index.getFileOwners("file").size());
+		assertEquals(0, index.getEntryCount());
+	}
+	
+	@Test
+	void duplicatesInOneDirectoryAreIndexedOnce() {
+		
+		CommandProcess.Arbol<String> arbol = new CommandProcess.Arbol<String>("root");
+		CommandProcess.Nodo<String> raiz = arbol.getRaiz();
+		
+		raiz.addDirectory("a", raiz);
+		raiz.addDirectory("a", raiz);
+		raiz.addFile("f");
+		raiz.addFile("f");
+		
+		NameIndex<String> index = arbol.enableNameIndex();
+		
+		assertEquals(1, index.getDirectoryOwners("a").size());
+		assertEquals(1, index.getFileOwners("f").size());
+		assertEquals(2, index.getEntryCount());
+		assertEquals(2, index.getNameCount());
+	}
+}
@@ -0,0 +1,146 @@
+package mainPackage;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+//Nombres guardados una sola vez como UTF-8 en un unico byte[]; cada nombre distinto tiene un id.
+public class NamePool {
+	
+	private static final int EMPTY = -1;
+	
+	private byte[] bytes = new byte[1024];
+	
+	private int bytesUsed;
+	
+	private final IntArray offsets = new IntArray(false);
+	
+	private int size;
+	
+	//hash abierto de ids con sondeo lineal
+	private int[] table = newTable(64);
+	
+	public int size() {
+		return size;
+	}
+	
+	public long sizeInBytes() {
+		return bytes.length + offsets.sizeInBytes() + 4L * table.length;
+	}
+	
+	public int intern(String name) {
+		
+		byte[] key = name.getBytes(StandardCharsets.UTF_8);
+		int mask = table.length - 1;
+		int slot = hash(key) & mask;
+		
+		while (table[slot] != EMPTY) {
+			if (equalsName(table[slot], key)) {
+				return table[slot];
+			}
+			slot = (slot + 1) & mask;
+		}
+		
+		int id = add(key);
+		table[slot] = id;
+		
+		if (size * 2 > table.length) {
+			rehash();
+		}
+		
+		return id;
+	}
+	
+	//devuelve EMPTY si el nombre nunca se agrego
+	public int find(String name) {
+		
+		byte[] key = name.getBytes(StandardCharsets.UTF_8);
+		int mask = table.length - 1;
+		int slot = hash(key) & mask;
+		
+		while (table[slot] != EMPTY) {
+			if (equalsName(table[slot], key)) {
+				return table[slot];
+			}
+			slot = (slot + 1) & mask;
+		}
+		
+		return EMPTY;
+	}
+	
+	public String get(int id) {
+		int start = offsets.get(id);
+		return new String(bytes, start, offsets.get(id + 1) - start, StandardCharsets.UTF_8);
+	}
+	
+	private int add(byte[] key) {
+		
+		if (bytesUsed + key.length > bytes.length) {
+			bytes = Arrays.copyOf(bytes, Math.max(bytesUsed + key.length, bytes.length * 2));
+		}
+		
+		System.arraycopy(key, 0, bytes, bytesUsed, key.length);
+		
+		offsets.set(size, bytesUsed);
+		bytesUsed += key.length;
+		offsets.set(size + 1, bytesUsed);
+		
+		return size++;
+	}
+	
+	private boolean equalsName(int id, byte[] key) {
+		
+		int start = offsets.get(id);
+		
+		if (offsets.get(id + 1) - start != key.length) {
+			return false;
+		}
+		
+		for (int i = 0; i < key.length; i++) {
+			if (bytes[start + i] != key[i]) {
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	private void rehash() {
+		
+		int[] grown = newTable(table.length * 2);
+		int mask = grown.length - 1;
+		
+		for (int id = 0; id < size; id++) {
+			
+			int start = offsets.get(id);
+			int slot = hash(bytes, start, offsets.get(id + 1) - start) & mask;
+			
+			while (grown[slot] != EMPTY) {
+				slot = (slot + 1) & mask;
+			}
+			grown[slot] = id;
+		}
+		
+		table = grown;
+	}
+	
+	private static int[] newTable(int capacity) {
+		int[] table = new int[capacity];
+		Arrays.fill(table, EMPTY);
+		return table;
+	}
+	
+	private static int hash(byte[] key) {
+		return hash(key, 0, key.length);
+	}
+	
+	private static int hash(byte[] data, int start, int length) {
+		
+		int hash = 0;
+		
+		for (int i = start; i < start + length; i++) {
+			hash = 31 * hash + data[i];
+		}
+		
+		return hash ^ (hash >>> 16);
+	}
+}
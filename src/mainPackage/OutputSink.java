@@ -0,0 +1,9 @@
+package mainPackage;
+
+public interface OutputSink {
+	
+	void println(String line);
+	
+	//vuelca lo acumulado, se llama al terminar cada procesamiento de comandos y antes de esperar mas comandos
+	void flush();
+}
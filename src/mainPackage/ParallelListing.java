@@ -0,0 +1,114 @@
+package mainPackage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import mainPackage.CommandProcess.Nodo;
+
+//ls -r en paralelo: cada subarbol se arma en su propio buffer dentro de un ForkJoinPool y despues los buffers
+//se escriben en el mismo orden que el recorrido secuencial de CommandProcess.inOrden.
+//Se llama con el lock de lectura del arbol tomado, asi nadie lo modifica mientras trabajan las tareas.
+public class ParallelListing {
+	
+	//debajo de esta profundidad cada tarea recorre su subarbol de forma secuencial
+	private static final int MAX_FORK_DEPTH = 6;
+	
+	private ParallelListing() {
+	}
+	
+	static void inOrden(Nodo<String> nodo, String currentPath, OutputSink output, ForkJoinPool pool) {
+		
+		output.println(currentPath);
+		CommandProcess.listContent(nodo, output);
+		
+		List<SubtreeTask> tasks = new ArrayList<SubtreeTask>();
+		
+		for (Nodo<String> child : nodo.getDirectorios()) {
+			tasks.add(new SubtreeTask(child, childPath(currentPath, child), 1));
+		}
+		
+		for (SubtreeTask task : tasks) {
+			pool.execute(task);
+		}
+		
+		//se escribe cada subarbol apenas termina el anterior, sin esperar a todo el listado
+		for (SubtreeTask task : tasks) {
+			for (List<String> lines : task.join()) {
+				for (String line : lines) {
+					output.println(line);
+				}
+			}
+		}
+	}
+	
+	private static String childPath(String currentPath, Nodo<String> child) {
+		return currentPath.concat("\\").concat(child.getNodeValue());
+	}
+	
+	//el resultado es una lista de bloques de lineas, asi al juntar subarboles no se copian las lineas
+	private static class SubtreeTask extends RecursiveTask<List<List<String>>> {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final Nodo<String> nodo;
+		
+		private final String path;
+		
+		private final int depth;
+		
+		SubtreeTask(Nodo<String> nodo, String path, int depth) {
+			this.nodo = nodo;
+			this.path = path;
+			this.depth = depth;
+		}
+		
+		@Override
+		protected List<List<String>> compute() {
+			
+			List<List<String>> blocks = new ArrayList<List<String>>();
+			LinesSink lines = new LinesSink();
+			blocks.add(lines.lines);
+			
+			List<Nodo<String>> hijos = nodo.getDirectorios();
+			
+			if (depth >= MAX_FORK_DEPTH || hijos.size() < 2) {
+				CommandProcess.inOrden(nodo, path, lines);
+				return blocks;
+			}
+			
+			lines.println(path);
+			CommandProcess.listContent(nodo, lines);
+			
+			List<SubtreeTask> tasks = new ArrayList<SubtreeTask>(hijos.size());
+			
+			for (Nodo<String> child : hijos) {
+				tasks.add(new SubtreeTask(child, childPath(path, child), depth + 1));
+			}
+			
+			ForkJoinTask.invokeAll(tasks);
+			
+			for (SubtreeTask task : tasks) {
+				blocks.addAll(task.join());
+			}
+			
+			return blocks;
+		}
+	}
+	
+	private static class LinesSink implements OutputSink {
+		
+		private final List<String> lines = new ArrayList<String>();
+		
+		@Override
+		public void println(String line) {
+			lines.add(line);
+		}
+		
+		@Override
+		public void flush() {
+		}
+	}
+}
@@ -0,0 +1,234 @@
+package mainPackage;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import mainPackage.CommandProcess.Nodo;
+
+//Cache acotada de rutas de varios segmentos ya resueltas, por nodo de partida y ruta.
+//Solo guarda rutas que se resolvieron completas: mkdir y touch nunca cambian a que nodo lleva una ruta
+//completa (con nombres repetidos gana el primero), asi que agregar no invalida nada. Lo que quite o mueva
+//directorios tiene que llamar a invalidate con el lock de escritura tomado.
+//
+//Las sesiones la leen a la vez con el lock de lectura del arbol, asi que un acierto no toma ningun lock ni escribe
+//nada compartido: el mapa es concurrente y, en vez de un orden LRU que se reordena en cada lectura, cada entrada
+//tiene el bit de uso de un reloj (CLOCK), que el acierto prende solo si estaba apagado. Al pasarse de la capacidad
+//la aguja recorre las entradas, apaga los bits prendidos y saca la primera que encuentra apagada.
+//invalidate no vacia el mapa: sube la generacion y las entradas de generaciones anteriores dejan de valer; se sacan
+//cuando se las vuelve a pedir o cuando pasa la aguja, asi que lo que retienen de un subarbol quitado esta acotado
+//por la capacidad.
+public final class PathCache<T> {
+
+	public static final int DEFAULT_CAPACITY = 4096;
+
+	//clave de busqueda; cada sesion reutiliza la suya para que un acierto no cree objetos
+	static final class Key {
+
+		private Nodo<?> start;
+
+		private String path;
+
+		Key set(Nodo<?> start, String path) {
+			this.start = start;
+			this.path = path;
+			return this;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * System.identityHashCode(start) + path.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object other) {
+
+			if (!(other instanceof Key)) {
+				return false;
+			}
+
+			Key key = (Key) other;
+
+			return start == key.start && path.equals(key.path);
+		}
+	}
+
+	private static final class Entry<T> {
+
+		final Nodo<T> resolved;
+
+		final long generation;
+
+		//el bit del reloj; entra apagado y la aguja lo apaga al pasar
+		volatile boolean referenced;
+
+		Entry(Nodo<T> resolved, long generation) {
+			this.resolved = resolved;
+			this.generation = generation;
+		}
+	}
+
+	private final int capacity;
+
+	private final Map<Key, Entry<T>> entries = new ConcurrentHashMap<Key, Entry<T>>();
+
+	//solo cambia con el lock de escritura del arbol, mientras nadie busca ni guarda rutas
+	private volatile long generation;
+
+	//la aguja del reloj; la mueve un solo put a la vez
+	private Iterator<Map.Entry<Key, Entry<T>>> hand;
+
+	private final LongAdder hits = new LongAdder();
+
+	private final LongAdder misses = new LongAdder();
+
+	private final LongAdder evictions = new LongAdder();
+
+	private final LongAdder hitNanos = new LongAdder();
+
+	private final LongAdder missNanos = new LongAdder();
+
+	//con capacidad 0 la cache queda deshabilitada y solo se cuentan las resoluciones
+	public PathCache(int capacity) {
+		this.capacity = capacity;
+	}
+
+	Nodo<T> get(Key probe) {
+
+		if (capacity == 0) {
+			return null;
+		}
+
+		Entry<T> entry = entries.get(probe);
+
+		if (entry == null) {
+			return null;
+		}
+
+		if (entry.generation != generation) {
+			entries.remove(probe, entry);
+			return null;
+		}
+
+		if (!entry.referenced) {
+			entry.referenced = true;
+		}
+
+		return entry.resolved;
+	}
+
+	void put(Nodo<?> start, String path, Nodo<T> resolved) {
+
+		if (capacity == 0) {
+			return;
+		}
+
+		Key key = new Key().set(start, path);
+		entries.put(key, new Entry<T>(resolved, generation));
+
+		if (entries.size() > capacity) {
+			evict(key);
+		}
+	}
+
+	//Segunda oportunidad: la aguja apaga los bits prendidos y saca la primera entrada apagada (o de una generacion
+	//anterior). La que se acaba de guardar no se saca. Una vuelta entera apaga todos, asi que a lo sumo da dos.
+	private void evict(Key added) {
+
+		synchronized (entries) {
+
+			long current = generation;
+
+			while (entries.size() > capacity) {
+
+				if (hand == null || !hand.hasNext()) {
+					hand = entries.entrySet().iterator();
+
+					if (!hand.hasNext()) {
+						return;
+					}
+				}
+
+				Map.Entry<Key, Entry<T>> candidate = hand.next();
+				Entry<T> entry = candidate.getValue();
+
+				if (candidate.getKey() == added) {
+					continue;
+				}
+
+				if (entry.generation == current && entry.referenced) {
+					entry.referenced = false;
+				} else if (entries.remove(candidate.getKey(), entry)) {
+					evictions.increment();
+				}
+			}
+		}
+	}
+
+	void recordHit(long nanos) {
+		hits.increment();
+		hitNanos.add(nanos);
+	}
+
+	void recordMiss(long nanos) {
+		misses.increment();
+		missNanos.add(nanos);
+	}
+
+	//se llama con el lock de escritura tomado cuando un directorio se quita o se mueve; no recorre las entradas
+	public void invalidate() {
+		generation++;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	//las entradas que todavia valen
+	public int size() {
+
+		long current = generation;
+		int size = 0;
+
+		for (Entry<T> entry : entries.values()) {
+			if (entry.generation == current) {
+				size++;
+			}
+		}
+
+		return size;
+	}
+
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	public long getEvictionCount() {
+		return evictions.sum();
+	}
+
+	public double getHitRate() {
+
+		long hitCount = hits.sum();
+		long total = hitCount + misses.sum();
+
+		return total == 0 ? 0 : (double) hitCount / total;
+	}
+
+	//tiempo medio de una resolucion que salio de la cache
+	public double getAverageHitNanos() {
+		long count = hits.sum();
+		return count == 0 ? 0 : (double) hitNanos.sum() / count;
+	}
+
+	//tiempo medio de una resolucion que tuvo que recorrer los segmentos
+	public double getAverageMissNanos() {
+		long count = misses.sum();
+		return count == 0 ? 0 : (double) missNanos.sum() / count;
+	}
+}
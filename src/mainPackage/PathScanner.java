@@ -0,0 +1,120 @@
+package mainPackage;
+
+//Recorre los segmentos de una ruta "\a\b\c" sin crear Strings ni usar expresiones regulares.
+//Da los mismos segmentos que substring(1).split(Pattern.quote("\\")): se ignoran los separadores finales
+//y una ruta vacia despues del primer caracter es un unico segmento vacio.
+//
+//El segmento actual sirve directamente como clave de busqueda en Nodo.getDirectory: hashCode es el de
+//String y equals compara contra un String, asi que HashMap.get lo encuentra sin copiar el nombre.
+//Cada sesion usa su propia instancia.
+final class PathScanner {
+
+	private static final char SEPARATOR = '\\';
+
+	private String path;
+
+	//fin del ultimo segmento que se va a devolver
+	private int end;
+
+	private int segmentStart;
+
+	private int segmentEnd;
+
+	private int hash;
+
+	private boolean pendingEmpty;
+
+	private boolean skipEmpty;
+
+	PathScanner reset(String path) {
+
+		this.path = path;
+
+		int limit = path.length();
+		while (limit > 1 && path.charAt(limit - 1) == SEPARATOR) {
+			limit--;
+		}
+
+		end = limit;
+		segmentEnd = 0;
+		pendingEmpty = path.length() <= 1;
+		skipEmpty = false;
+
+		return this;
+	}
+
+	//para crear rutas (mkdir -p): el separador inicial es opcional y los segmentos vacios se saltean
+	PathScanner resetNames(String path) {
+
+		this.path = path;
+
+		end = path.length();
+		segmentEnd = -1;
+		pendingEmpty = false;
+		skipEmpty = true;
+
+		return this;
+	}
+
+	boolean next() {
+
+		if (pendingEmpty) {
+			pendingEmpty = false;
+			segmentStart = 0;
+			segmentEnd = 0;
+			hash = 0;
+			return true;
+		}
+
+		int start = segmentEnd + 1;
+
+		while (start < end) {
+
+			int h = 0;
+			int i = start;
+
+			while (i < end && path.charAt(i) != SEPARATOR) {
+				h = 31 * h + path.charAt(i);
+				i++;
+			}
+
+			segmentStart = start;
+			segmentEnd = i;
+			hash = h;
+
+			if (i > start || !skipEmpty) {
+				return true;
+			}
+
+			start = i + 1;
+		}
+
+		return false;
+	}
+
+	String segment() {
+		return path.substring(segmentStart, segmentEnd);
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+
+		if (!(other instanceof String)) {
+			return false;
+		}
+
+		String name = (String) other;
+
+		return name.length() == segmentEnd - segmentStart && path.regionMatches(segmentStart, name, 0, name.length());
+	}
+
+	@Override
+	public String toString() {
+		return segment();
+	}
+}
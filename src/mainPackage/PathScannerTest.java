@@ -0,0 +1,44 @@
+package mainPackage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+
+class PathScannerTest {
+	
+	@Test
+	void givesTheSameSegmentsAsSplit() {
+		
+		PathScanner scanner = new PathScanner();
+		
+		for (String path : new String[] { "\\a\\b\\c", "\\a\\", "\\a\\\\", "\\\\a", "a\\b", "\\", "\\\\", "x", "\\New Folder\\x y", "\\a\\\\b" }) {
+			
+			List<String> segments = new ArrayList<String>();
+			scanner.reset(path);
+			while (scanner.next()) {
+				segments.add(scanner.segment());
+			}
+			
+			assertEquals(Arrays.asList(path.substring(1).split(Pattern.quote("\\"))), segments, path);
+		}
+	}
+	
+	@Test
+	void currentSegmentMatchesStringsAsAKey() {
+		
+		PathScanner scanner = new PathScanner().reset("\\src\\main");
+		
+		assertTrue(scanner.next());
+		assertEquals("src".hashCode(), scanner.hashCode());
+		assertTrue(scanner.equals("src"));
+		assertFalse(scanner.equals("sr"));
+		assertFalse(scanner.equals("srcs"));
+	}
+}
@@ -0,0 +1,351 @@
+package mainPackage;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import mainPackage.CommandProcess.Nodo;
+
+//Directorios y archivos de un Nodo ordenados por nombre, para ls -sort.
+//Se arma la primera vez que se pide (ordenar todo una vez, O(n log n)) y queda guardado en el Nodo. Desde ahi el
+//Nodo lo mantiene en cada alta y baja (ver addDirectory, removeFile, etc.), asi ningun ls -sort vuelve a ordenar ni
+//a copiar la lista: cada uno es un treap con el tamano de cada subarbol, y alta, baja y buscar la entrada en una
+//posicion cuestan O(log n) esperado. Una pagina de m entradas cuesta O(m log n), cambie o no el directorio.
+//Ocupa unos 40 bytes por entrada, solo en los directorios que alguna vez se listaron con -sort.
+//Con nombres iguales queda primero el que se agrego antes, y rm quita el primero, como en la lista del Nodo.
+//Los cambios se hacen con el lock de escritura del arbol; los ls lo leen con el de lectura.
+final class SortedOrder {
+
+	private final Treap directories;
+
+	private final Treap files;
+
+	private SortedOrder(Treap directories, Treap files) {
+		this.directories = directories;
+		this.files = files;
+	}
+
+	//se llama con el lock de lectura tomado; el lock del Nodo ordena a los lectores que lo arman a la vez
+	static SortedOrder of(Nodo<String> nodo) {
+
+		synchronized (nodo) {
+
+			SortedOrder order = nodo.getSortedOrder();
+
+			if (order != null) {
+				return order;
+			}
+
+			List<Nodo<String>> directorios = nodo.getDirectorios();
+
+			String[] directoryNames = new String[directorios.size()];
+			for (int i = 0; i < directoryNames.length; i++) {
+				directoryNames[i] = directorios.get(i).getNodeValue();
+			}
+
+			String[] fileNames = nodo.getFiles().toArray(new String[0]);
+
+			order = new SortedOrder(Treap.build(directoryNames, directorios.toArray()), Treap.build(fileNames, fileNames));
+
+			nodo.setSortedOrder(order);
+
+			return order;
+		}
+	}
+
+	//el directorio en esa posicion del orden
+	@SuppressWarnings("unchecked")
+	Nodo<String> directory(int position) {
+		return (Nodo<String>) directories.get(position);
+	}
+
+	String file(int position) {
+		return (String) files.get(position);
+	}
+
+	//despues de los que ya tienen el mismo nombre
+	void addDirectory(Nodo<?> nodo) {
+		directories.add(String.valueOf(nodo.getNodeValue()), nodo);
+	}
+
+	//se llama antes de cambiarle el nombre (mv), con el que tenia al entrar
+	void removeDirectory(Nodo<?> nodo) {
+		directories.remove(String.valueOf(nodo.getNodeValue()), nodo);
+	}
+
+	void addFile(String file) {
+		files.add(file, file);
+	}
+
+	//la primera aparicion, la misma que quita Nodo.removeFile
+	void removeFile(String file) {
+		files.remove(file, null);
+	}
+
+	//Arbol binario de busqueda por nombre y heap por prioridad al azar, con el tamano de cada subarbol para llegar a
+	//una posicion. Las recursiones bajan la altura del treap, O(log n) esperado.
+	private static final class Treap {
+
+		private static final class Entry {
+
+			final String name;
+
+			final Object value;
+
+			final int priority;
+
+			int size = 1;
+
+			Entry left;
+
+			Entry right;
+
+			Entry(String name, Object value) {
+				this.name = name;
+				this.value = value;
+				this.priority = ThreadLocalRandom.current().nextInt();
+			}
+		}
+
+		private Entry root;
+
+		//Ordena posiciones (estable) y arma el treap de una pasada sobre el resultado, con una pila por el borde
+		//derecho como un arbol cartesiano. O(n log n) por el orden, O(n) el armado.
+		static Treap build(String[] names, Object[] values) {
+
+			int[] positions = new int[names.length];
+			for (int i = 0; i < positions.length; i++) {
+				positions[i] = i;
+			}
+			mergeSort(positions, new int[positions.length], 0, positions.length, names);
+
+			Entry[] stack = new Entry[64];
+			int top = 0;
+
+			for (int position : positions) {
+
+				Entry entry = new Entry(names[position], values[position]);
+				Entry last = null;
+
+				while (top > 0 && stack[top - 1].priority < entry.priority) {
+					last = stack[--top];
+				}
+
+				entry.left = last;
+
+				if (top > 0) {
+					stack[top - 1].right = entry;
+				}
+
+				if (top == stack.length) {
+					Entry[] larger = new Entry[stack.length * 2];
+					System.arraycopy(stack, 0, larger, 0, top);
+					stack = larger;
+				}
+				stack[top++] = entry;
+			}
+
+			Treap treap = new Treap();
+			treap.root = top > 0 ? stack[0] : null;
+			sizes(treap.root);
+			return treap;
+		}
+
+		private static int sizes(Entry entry) {
+
+			if (entry == null) {
+				return 0;
+			}
+
+			entry.size = 1 + sizes(entry.left) + sizes(entry.right);
+			return entry.size;
+		}
+
+		int size() {
+			return size(root);
+		}
+
+		Object get(int position) {
+
+			Entry entry = root;
+
+			while (true) {
+
+				int left = size(entry.left);
+
+				if (position < left) {
+					entry = entry.left;
+				} else if (position > left) {
+					position -= left + 1;
+					entry = entry.right;
+				} else {
+					return entry.value;
+				}
+			}
+		}
+
+		void add(String name, Object value) {
+			root = insert(root, countUpTo(name, true), new Entry(name, value));
+		}
+
+		//value null: el primero con ese nombre; si no, ese mismo (los directorios con el nombre repetido son pocos)
+		void remove(String name, Object value) {
+
+			int position = countUpTo(name, false);
+
+			if (value != null) {
+				while (position < size(root) && get(position) != value) {
+					position++;
+				}
+			}
+
+			if (position < size(root)) {
+				root = delete(root, position);
+			}
+		}
+
+		//cuantas entradas tienen un nombre menor (o menor o igual, con equal) que name
+		private int countUpTo(String name, boolean equal) {
+
+			int count = 0;
+			Entry entry = root;
+
+			while (entry != null) {
+
+				int comparison = name.compareTo(entry.name);
+
+				if (comparison > 0 || (equal && comparison == 0)) {
+					count += size(entry.left) + 1;
+					entry = entry.right;
+				} else {
+					entry = entry.left;
+				}
+			}
+
+			return count;
+		}
+
+		private static Entry insert(Entry entry, int position, Entry added) {
+
+			if (entry == null) {
+				return added;
+			}
+
+			if (added.priority > entry.priority) {
+				split(entry, position, added);
+				added.size = 1 + size(added.left) + size(added.right);
+				return added;
+			}
+
+			int left = size(entry.left);
+
+			if (position <= left) {
+				entry.left = insert(entry.left, position, added);
+			} else {
+				entry.right = insert(entry.right, position - left - 1, added);
+			}
+
+			entry.size++;
+			return entry;
+		}
+
+		//parte entry en las primeras position entradas y el resto, que quedan a izquierda y derecha de into
+		private static void split(Entry entry, int position, Entry into) {
+
+			if (entry == null) {
+				into.left = null;
+				into.right = null;
+				return;
+			}
+
+			int left = size(entry.left);
+
+			if (position <= left) {
+				split(entry.left, position, into);
+				entry.left = into.right;
+				into.right = entry;
+			} else {
+				split(entry.right, position - left - 1, into);
+				entry.right = into.left;
+				into.left = entry;
+			}
+
+			entry.size = 1 + size(entry.left) + size(entry.right);
+		}
+
+		private static Entry delete(Entry entry, int position) {
+
+			int left = size(entry.left);
+
+			if (position == left) {
+				return merge(entry.left, entry.right);
+			}
+
+			if (position < left) {
+				entry.left = delete(entry.left, position);
+			} else {
+				entry.right = delete(entry.right, position - left - 1);
+			}
+
+			entry.size--;
+			return entry;
+		}
+
+		//todo lo de first va antes que lo de second
+		private static Entry merge(Entry first, Entry second) {
+
+			if (first == null) {
+				return second;
+			}
+			if (second == null) {
+				return first;
+			}
+
+			if (first.priority >= second.priority) {
+				first.right = merge(first.right, second);
+				first.size = 1 + size(first.left) + size(first.right);
+				return first;
+			}
+
+			second.left = merge(first, second.left);
+			second.size = 1 + size(second.left) + size(second.right);
+			return second;
+		}
+
+		private static int size(Entry entry) {
+			return entry == null ? 0 : entry.size;
+		}
+	}
+
+	//estable, sobre posiciones int para no crear un Integer por entrada
+	private static void mergeSort(int[] positions, int[] buffer, int from, int to, String[] names) {
+
+		if (to - from < 2) {
+			return;
+		}
+
+		int middle = (from + to) >>> 1;
+
+		mergeSort(positions, buffer, from, middle, names);
+		mergeSort(positions, buffer, middle, to, names);
+
+		if (names[positions[middle - 1]].compareTo(names[positions[middle]]) <= 0) {
+			return;
+		}
+
+		System.arraycopy(positions, from, buffer, from, to - from);
+
+		int i = from;
+		int j = middle;
+		int k = from;
+
+		while (i < middle && j < to) {
+			positions[k++] = names[buffer[j]].compareTo(names[buffer[i]]) < 0 ? buffer[j++] : buffer[i++];
+		}
+		while (i < middle) {
+			positions[k++] = buffer[i++];
+		}
+		while (j < to) {
+			positions[k++] = buffer[j++];
+		}
+	}
+}
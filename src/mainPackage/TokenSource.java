@@ -0,0 +1,16 @@
+package mainPackage;
+
+//fuente de tokens con un elemento de anticipacion, como el args[i + 1] del array original
+public interface TokenSource {
+	
+	boolean hasNext();
+	
+	String next();
+	
+	//devuelve null si no quedan tokens
+	String peek();
+	
+	//true si el proximo token (o el fin) se puede leer sin esperar a la entrada; antes de que no lo sea se vuelca
+	//la salida, para que quien escribe los comandos de a poco vea las respuestas
+	boolean ready();
+}
@@ -0,0 +1,39 @@
+package mainPackage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import mainPackage.CommandPlan.Operation;
+
+//Comandos entre begin y commit. Se guardan ya parseados, sin tocar el arbol, y en el commit la sesion los ejecuta
+//todos con el lock de escritura tomado una sola vez: los lectores ven el arbol de antes o el de despues, nunca
+//la mitad. Los errores de un script se detectan al parsear, asi que una transaccion con un error (o con quit, o
+//sin commit) se descarta antes de aplicar nada; los que dependen del arbol (un cd o rm de algo que no esta) se
+//buscan en el commit antes de aplicar el primero, ver TransactionCheck.
+final class Transaction {
+
+	private final List<Operation> operations = new ArrayList<Operation>();
+
+	private final List<List<String>> arguments = new ArrayList<List<String>>();
+
+	private final List<Object> details = new ArrayList<Object>();
+
+	//los argumentos se copian: el Step del parser reutiliza su lista
+	void add(Operation operation, List<String> stepArguments, Object detail) {
+
+		operations.add(operation);
+		arguments.add(stepArguments.isEmpty() ? Collections.<String>emptyList()
+				: Collections.unmodifiableList(Arrays.asList(stepArguments.toArray(new String[stepArguments.size()]))));
+		details.add(detail);
+	}
+
+	int size() {
+		return operations.size();
+	}
+
+	CommandPlan toPlan() {
+		return CommandPlan.of(operations, arguments, details);
+	}
+}
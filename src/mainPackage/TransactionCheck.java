@@ -0,0 +1,329 @@
+package mainPackage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+//Recorre el lote de una transaccion antes del commit, sin tocar el arbol, y da el error del primer comando que
+//fallaria. Asi el commit no aplica nada si algo del lote falla, en vez de dejar el arbol a medio cambiar.
+//
+//Los comandos se ejecutan con TreeCommands, los mismos que despues aplica el commit, sobre un borrador: lo que el
+//lote agrega, quita, mueve o renombra se anota en un Draft por cada directorio que toca, encima del directorio
+//real (o sin el, si el lote lo crea); lo que no toca se lee del arbol. Cuesta lo que los comandos del lote, no lo
+//que el arbol. Se llama con el arbol quieto (el lock de escritura tomado, en CommandProcess). Los import llegan ya
+//leidos del disco; los export y los comandos que solo leen no cambian el arbol y no se chequean.
+final class TransactionCheck<D> implements TreeModel<TransactionCheck.Draft<D>> {
+
+	//un directorio durante el chequeo: el real con los cambios del lote, o solo los cambios si es nuevo
+	static final class Draft<D> {
+
+		final D real;
+
+		String name;
+
+		Draft<D> parent;
+
+		//false mientras el padre sea el del directorio real y todavia no se haya pedido
+		boolean parentKnown;
+
+		//el lote lo paso a otro directorio: sus ancestros reales ya no cuentan
+		boolean moved;
+
+		boolean removed;
+
+		//hijos reales que el lote saco de aca (rm -r o mv)
+		Set<D> detached;
+
+		//hijos que el lote puso aca, en el orden en que se agregan
+		List<Draft<D>> added;
+
+		//archivos agregados menos quitados, por nombre
+		Map<String, Integer> files;
+
+		Draft(D real, String name) {
+			this.real = real;
+			this.name = name;
+		}
+	}
+
+	private static final OutputSink DISCARD = new OutputSink() {
+
+		@Override
+		public void println(String line) {
+		}
+
+		@Override
+		public void flush() {
+		}
+	};
+
+	private final TreeModel<D> tree;
+
+	private final Map<D, Draft<D>> drafts = new HashMap<D, Draft<D>>();
+
+	private final PathScanner scanner = new PathScanner();
+
+	private Draft<D> workingDirectory;
+
+	private TransactionCheck(TreeModel<D> tree) {
+		this.tree = tree;
+		this.workingDirectory = wrap(tree.getWorkingDirectory());
+	}
+
+	//null si todo el plan se puede aplicar; scanned tiene el contenido leido de cada import, por posicion en el plan
+	static <D> String check(TreeModel<D> tree, CommandPlan plan, FileSystemMirror.Scanned[] scanned) {
+
+		TreeCommands<Draft<D>> commands = new TreeCommands<Draft<D>>(new TransactionCheck<D>(tree), DISCARD);
+
+		for (int i = 0; i < plan.size(); i++) {
+
+			String error = commands.run(plan.getOperation(i), plan.getArguments(i), scanned[i]);
+
+			if (error != null) {
+				return error;
+			}
+		}
+
+		return null;
+	}
+
+	@Override
+	public Draft<D> getWorkingDirectory() {
+		return workingDirectory;
+	}
+
+	@Override
+	public void setWorkingDirectory(Draft<D> directory) {
+		workingDirectory = directory;
+	}
+
+	@Override
+	public Draft<D> getPadre(Draft<D> directory) {
+
+		if (!directory.parentKnown) {
+			D padre = tree.getPadre(directory.real);
+			directory.parent = padre != null ? wrap(padre) : null;
+			directory.parentKnown = true;
+		}
+
+		return directory.parent;
+	}
+
+	@Override
+	public String getName(Draft<D> directory) {
+		return directory.name;
+	}
+
+	//el primero con ese nombre: los reales que quedan van antes que los agregados
+	@Override
+	public Draft<D> getDirectory(Draft<D> directory, String name) {
+
+		if (directory.real != null) {
+
+			D first = tree.getDirectory(directory.real, name);
+
+			if (first != null && (directory.detached == null || !directory.detached.contains(first))) {
+				return wrap(first);
+			}
+
+			//se saco el primero: con nombres repetidos pasa al siguiente real
+			if (first != null) {
+				for (D hijo : tree.getDirectorios(directory.real)) {
+					if (name.equals(tree.getName(hijo)) && !directory.detached.contains(hijo)) {
+						return wrap(hijo);
+					}
+				}
+			}
+		}
+
+		if (directory.added != null) {
+			for (Draft<D> hijo : directory.added) {
+				if (name.equals(hijo.name)) {
+					return hijo;
+				}
+			}
+		}
+
+		return null;
+	}
+
+	@Override
+	public Iterable<Draft<D>> getDirectorios(Draft<D> directory) {
+
+		List<Draft<D>> directorios = new ArrayList<Draft<D>>();
+
+		if (directory.real != null) {
+			for (D hijo : tree.getDirectorios(directory.real)) {
+				if (directory.detached == null || !directory.detached.contains(hijo)) {
+					directorios.add(wrap(hijo));
+				}
+			}
+		}
+
+		if (directory.added != null) {
+			directorios.addAll(directory.added);
+		}
+
+		return directorios;
+	}
+
+	//sin contar de mas: touch de uno que existe lo repite, pero con un solo archivo real alcanza para saber que esta
+	@Override
+	public boolean containsFile(Draft<D> directory, String name) {
+
+		int delta = delta(directory, name);
+
+		if (directory.real == null || delta > 0) {
+			return delta > 0;
+		}
+
+		return delta == 0 ? tree.containsFile(directory.real, name) : delta + tree.countFiles(directory.real, name) > 0;
+	}
+
+	@Override
+	public int countFiles(Draft<D> directory, String name) {
+		return delta(directory, name) + (directory.real != null ? tree.countFiles(directory.real, name) : 0);
+	}
+
+	//Quitado por el lote o, si no se movio, desde antes en el arbol real. Como el lote todavia no cambio nada, los
+	//ancestros reales de un directorio que no se movio siguen siendo los suyos.
+	@Override
+	public boolean isRemoved(Draft<D> directory) {
+
+		boolean realChecked = false;
+
+		for (Draft<D> ancestor = directory; ancestor != null; ancestor = getPadre(ancestor)) {
+
+			if (ancestor.removed) {
+				return true;
+			}
+
+			if (!realChecked && ancestor.real != null && !ancestor.moved) {
+
+				if (tree.isRemoved(ancestor.real)) {
+					return true;
+				}
+				realChecked = true;
+			}
+		}
+
+		return false;
+	}
+
+	@Override
+	public Draft<D> walk(Draft<D> start, String path) {
+
+		Draft<D> directory = start;
+
+		scanner.reset(path);
+
+		while (scanner.next()) {
+
+			Draft<D> next = getDirectory(directory, scanner.segment());
+
+			if (next == null) {
+				break;
+			}
+			directory = next;
+		}
+
+		return directory;
+	}
+
+	@Override
+	public void ensureCapacity(Draft<D> directory, int moreDirectories, int moreFiles) {
+	}
+
+	@Override
+	public Draft<D> addDirectory(Draft<D> directory, String name) {
+		return add(directory, new Draft<D>(null, name));
+	}
+
+	@Override
+	public void addFile(Draft<D> directory, String name) {
+		changeFile(directory, name, 1);
+	}
+
+	@Override
+	public void removeDirectory(Draft<D> directory, Draft<D> removed) {
+		detach(directory, removed);
+		removed.removed = true;
+	}
+
+	@Override
+	public void removeFile(Draft<D> directory, String name) {
+		changeFile(directory, name, -1);
+	}
+
+	@Override
+	public void moveDirectory(Draft<D> directory, Draft<D> moved, Draft<D> destination, String newName) {
+		detach(directory, moved);
+		moved.name = newName;
+		moved.moved = true;
+		add(destination, moved);
+	}
+
+	@Override
+	public void moveFile(Draft<D> directory, String name, Draft<D> destination, String newName) {
+		changeFile(directory, name, -1);
+		changeFile(destination, newName, 1);
+	}
+
+	private Draft<D> add(Draft<D> directory, Draft<D> hijo) {
+
+		if (directory.added == null) {
+			directory.added = new ArrayList<Draft<D>>();
+		}
+
+		directory.added.add(hijo);
+		hijo.parent = directory;
+		hijo.parentKnown = true;
+
+		return hijo;
+	}
+
+	private void detach(Draft<D> directory, Draft<D> hijo) {
+
+		if (directory.added != null && directory.added.remove(hijo)) {
+			return;
+		}
+
+		if (directory.detached == null) {
+			directory.detached = new HashSet<D>();
+		}
+
+		directory.detached.add(hijo.real);
+	}
+
+	private void changeFile(Draft<D> directory, String name, int change) {
+
+		if (directory.files == null) {
+			directory.files = new HashMap<String, Integer>();
+		}
+
+		Integer delta = directory.files.get(name);
+		directory.files.put(name, delta != null ? delta + change : change);
+	}
+
+	private int delta(Draft<D> directory, String name) {
+
+		Integer delta = directory.files != null ? directory.files.get(name) : null;
+
+		return delta != null ? delta : 0;
+	}
+
+	private Draft<D> wrap(D real) {
+
+		Draft<D> draft = drafts.get(real);
+
+		if (draft == null) {
+			draft = new Draft<D>(real, tree.getName(real));
+			drafts.put(real, draft);
+		}
+
+		return draft;
+	}
+}
@@ -0,0 +1,302 @@
+package mainPackage;
+
+import java.util.ArrayDeque;
+import java.util.List;
+
+import mainPackage.CommandPlan.Operation;
+
+//cd, mkdir, touch, rm, mv e import sobre un TreeModel: las reglas y los mensajes de esos comandos, una sola vez
+//para CommandProcess, IndexedSession y el chequeo de las transacciones (ver TransactionCheck).
+//No toma locks: CommandProcess lo llama con el de escritura tomado (o el de lectura, para cd).
+final class TreeCommands<D> {
+
+	private static final String BACK_SLASH = "\\";
+
+	private final TreeModel<D> tree;
+
+	private final OutputSink output;
+
+	private final PathScanner scanner = new PathScanner();
+
+	TreeCommands(TreeModel<D> tree, OutputSink output) {
+		this.tree = tree;
+		this.output = output;
+	}
+
+	//Devuelve el primer error que imprimio, null si no fallo ("Directory already exists" y "File already exists"
+	//de mkdir y touch son avisos: igual se agrega). rm sigue con las rutas que quedan despues de un error.
+	//scanned es el contenido ya leido del disco en import; el resto de los comandos no cambia nada aca.
+	String run(Operation operation, List<String> arguments, FileSystemMirror.Scanned scanned) {
+
+		if (operation == Operation.CD) {
+			return changeDirectory(arguments.get(0));
+		}
+
+		if (!operation.changesTree()) {
+			return null;
+		}
+
+		D workingDirectory = tree.getWorkingDirectory();
+
+		//Otra sesion puede quitar con rm -r el directorio actual de esta. Lo que ya tenia se puede seguir leyendo,
+		//pero no se escribe ahi: nadie lo veria y el journal lo registraria con la ruta de donde estaba.
+		if (tree.isRemoved(workingDirectory)) {
+			return fail("Working directory was removed");
+		}
+
+		switch (operation) {
+
+			case MKDIR:
+				tree.ensureCapacity(workingDirectory, arguments.size(), 0);
+				for (String directory : arguments) {
+					createDirectory(workingDirectory, directory);
+				}
+				return null;
+
+			case MKDIR_PARENTS:
+				for (String path : arguments) {
+					createDirectories(path);
+				}
+				return null;
+
+			case TOUCH:
+				tree.ensureCapacity(workingDirectory, 0, arguments.size());
+				for (String file : arguments) {
+					createFile(workingDirectory, file);
+				}
+				return null;
+
+			case TOUCH_PARENTS:
+				for (String path : arguments) {
+					int separator = path.lastIndexOf(BACK_SLASH);
+					createFile(separator < 0 ? workingDirectory : createDirectories(path.substring(0, separator)),
+							path.substring(separator + 1));
+				}
+				return null;
+
+			case RM:
+			case RM_RECURSIVE:
+				return remove(arguments, operation == Operation.RM_RECURSIVE);
+
+			case MV:
+				return move(arguments.get(0), arguments.get(1));
+
+			default:
+				insert(workingDirectory, scanned);
+				return null;
+		}
+	}
+
+	//Chequea el plan de una transaccion sobre un borrador del arbol, sin cambiarlo: el error del primer comando que
+	//fallaria, null si se puede aplicar entero. scanned tiene el contenido leido de cada import, por posicion.
+	String check(CommandPlan plan, FileSystemMirror.Scanned[] scanned) {
+		return TransactionCheck.check(tree, plan, scanned);
+	}
+
+	//directorio al que lleva path desde el directorio actual, null si falta algun segmento (cd en cambio se queda
+	//en el ultimo que encontro)
+	D findDirectory(String path) {
+
+		D directory = tree.getWorkingDirectory();
+
+		scanner.resetNames(path);
+
+		while (directory != null && scanner.next()) {
+			directory = tree.getDirectory(directory, scanner.segment());
+		}
+
+		return directory;
+	}
+
+	//una ruta con '\' avanza hasta donde puede y nunca falla
+	private String changeDirectory(String directory) {
+
+		D workingDirectory = tree.getWorkingDirectory();
+		D padre = "..".equals(directory) ? tree.getPadre(workingDirectory) : null;
+
+		if (padre != null) {
+			tree.setWorkingDirectory(padre);
+			return null;
+		}
+
+		if (directory.contains(BACK_SLASH)) {
+			tree.setWorkingDirectory(tree.walk(workingDirectory, directory));
+			return null;
+		}
+
+		D found = tree.getDirectory(workingDirectory, directory);
+
+		if (found == null) {
+			return fail("Directory not found");
+		}
+
+		tree.setWorkingDirectory(found);
+		return null;
+	}
+
+	private void createDirectory(D directory, String name) {
+
+		if (tree.getDirectory(directory, name) != null) {
+			output.println("Directory already exists");
+		}
+
+		tree.addDirectory(directory, name);
+	}
+
+	private void createFile(D directory, String name) {
+
+		if (tree.containsFile(directory, name)) {
+			output.println("File already exists");
+		}
+
+		tree.addFile(directory, name);
+	}
+
+	//recorre la ruta desde el directorio actual una sola vez, creando solo los segmentos que faltan
+	private D createDirectories(String path) {
+
+		D directory = tree.getWorkingDirectory();
+
+		scanner.resetNames(path);
+
+		while (scanner.next()) {
+
+			String segment = scanner.segment();
+			D existing = tree.getDirectory(directory, segment);
+
+			directory = existing != null ? existing : tree.addDirectory(directory, segment);
+		}
+
+		return directory;
+	}
+
+	//rm y rm -r: el directorio gana si tambien hay un archivo con el mismo nombre
+	private String remove(List<String> paths, boolean recursive) {
+
+		String error = null;
+
+		for (String path : paths) {
+
+			int separator = path.lastIndexOf(BACK_SLASH);
+			D directory = separator < 0 ? tree.getWorkingDirectory() : findDirectory(path.substring(0, separator));
+			String name = path.substring(separator + 1);
+			String failed = null;
+
+			if (directory == null) {
+				failed = fail("Directory not found");
+			} else {
+
+				D removed = tree.getDirectory(directory, name);
+
+				if (recursive && removed != null) {
+					tree.removeDirectory(directory, removed);
+				} else if (tree.containsFile(directory, name)) {
+					tree.removeFile(directory, name);
+				} else if (removed != null) {
+					failed = fail("Cannot remove a directory without -r");
+				} else {
+					failed = fail("File not found");
+				}
+			}
+
+			if (error == null) {
+				error = failed;
+			}
+		}
+
+		return error;
+	}
+
+	//Un directorio se mueve con todo su subarbol sin recorrerlo. No se pisa nada: si en el destino ya hay algo con
+	//ese nombre no se mueve.
+	private String move(String source, String target) {
+
+		int separator = source.lastIndexOf(BACK_SLASH);
+		D directory = separator < 0 ? tree.getWorkingDirectory() : findDirectory(source.substring(0, separator));
+		String name = source.substring(separator + 1);
+
+		if (directory == null) {
+			return fail("Directory not found");
+		}
+
+		D moved = tree.getDirectory(directory, name);
+
+		if (moved == null && !tree.containsFile(directory, name)) {
+			return fail("File not found");
+		}
+
+		D destination = findDirectory(target);
+		String newName = name;
+
+		if (destination == null) {
+
+			int targetSeparator = target.lastIndexOf(BACK_SLASH);
+			destination = targetSeparator < 0 ? tree.getWorkingDirectory() : findDirectory(target.substring(0, targetSeparator));
+			newName = target.substring(targetSeparator + 1);
+
+			if (destination == null) {
+				return fail("Directory not found");
+			}
+		}
+
+		if (moved == null) {
+
+			if (tree.containsFile(destination, newName)) {
+				return fail("File already exists");
+			}
+
+			tree.moveFile(directory, name, destination, newName);
+			return null;
+		}
+
+		for (D ancestor = destination; ancestor != null; ancestor = tree.getPadre(ancestor)) {
+			if (ancestor.equals(moved)) {
+				return fail("Cannot move a directory into itself");
+			}
+		}
+
+		if (tree.getDirectory(destination, newName) != null) {
+			return fail("Directory already exists");
+		}
+
+		tree.moveDirectory(directory, moved, destination, newName);
+		return null;
+	}
+
+	//lo que ya existe con el mismo nombre se junta; cada directorio reserva lugar para todos sus hijos de una vez
+	private void insert(D directory, FileSystemMirror.Scanned scanned) {
+
+		ArrayDeque<D> directories = new ArrayDeque<D>();
+		ArrayDeque<FileSystemMirror.Scanned> pending = new ArrayDeque<FileSystemMirror.Scanned>();
+
+		directories.push(directory);
+		pending.push(scanned);
+
+		while (!directories.isEmpty()) {
+
+			D actual = directories.pop();
+			FileSystemMirror.Scanned content = pending.pop();
+
+			tree.ensureCapacity(actual, content.directories.size(), content.files.size());
+
+			for (String file : content.files) {
+				if (!tree.containsFile(actual, file)) {
+					tree.addFile(actual, file);
+				}
+			}
+
+			for (FileSystemMirror.Scanned child : content.directories) {
+
+				D existing = tree.getDirectory(actual, child.name);
+
+				directories.push(existing != null ? existing : tree.addDirectory(actual, child.name));
+				pending.push(child);
+			}
+		}
+	}
+
+	private String fail(String error) {
+		output.println(error);
+		return error;
+	}
+}
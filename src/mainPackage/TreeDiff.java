@@ -0,0 +1,429 @@
+package mainPackage;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+
+import mainPackage.CommandProcess.Arbol;
+import mainPackage.CommandProcess.Nodo;
+
+//Diferencia entre dos subarboles escrita como script: ejecutado parado en el primero, lo deja con los mismos
+//directorios y archivos que el segundo. Primero van los rm de lo que sobra, despues los mkdir -p y touch -p de lo
+//que falta, directorio por directorio.
+//
+//Los directorios con la misma huella (ver Nodo.getHuella) se saltean sin entrar, asi el costo es el de los
+//directorios que cambiaron (sus entradas y las de sus ancestros), no el del arbol. Dos contenidos distintos con la
+//misma huella de 64 bits se tomarian por iguales.
+//
+//El orden de los hijos no cuenta, como en la huella. Lo que no se puede escribir como ruta de un comando (nombres
+//con '\', palabras reservadas, directorios repetidos en el destino) se saltea y se cuenta.
+public final class TreeDiff {
+
+	private static final String BACK_SLASH = "\\";
+
+	private TreeDiff() {
+	}
+
+	//cuantos comandos se escribieron y cuantos directorios se compararon
+	public static final class Result {
+
+		private int removedDirectories;
+
+		private int removedFiles;
+
+		private int addedDirectories;
+
+		private int addedFiles;
+
+		private int skipped;
+
+		private int compared;
+
+		public int getRemovedDirectories() {
+			return removedDirectories;
+		}
+
+		public int getRemovedFiles() {
+			return removedFiles;
+		}
+
+		//cada mkdir -p, incluidos los de lo que hay debajo de un directorio nuevo
+		public int getAddedDirectories() {
+			return addedDirectories;
+		}
+
+		public int getAddedFiles() {
+			return addedFiles;
+		}
+
+		public int getSkipped() {
+			return skipped;
+		}
+
+		//pares de directorios con distinta huella que hubo que abrir
+		public int getCompared() {
+			return compared;
+		}
+
+		public boolean isEmpty() {
+			return removedDirectories + removedFiles + addedDirectories + addedFiles + skipped == 0;
+		}
+	}
+
+	//Entre las raices de dos arboles, por ejemplo dos replicas, con el lock de lectura de los dos tomado.
+	//Los locks se toman siempre en el mismo orden, para que dos diff cruzados no se esperen entre si.
+	public static Result diff(Arbol<String> from, Arbol<String> to, OutputSink script) {
+
+		boolean fromFirst = System.identityHashCode(from) <= System.identityHashCode(to);
+		Lock first = (fromFirst ? from : to).readLock();
+		Lock second = (fromFirst ? to : from).readLock();
+
+		first.lock();
+		try {
+			second.lock();
+			try {
+				return diff(from.getRaiz(), to.getRaiz(), script);
+			} finally {
+				second.unlock();
+			}
+		} finally {
+			first.unlock();
+		}
+	}
+
+	//se llama con el lock de lectura de los dos arboles tomado; las rutas del script son desde from
+	static Result diff(Nodo<String> from, Nodo<String> to, OutputSink script) {
+
+		Result result = new Result();
+
+		ArrayDeque<Nodo<String>> froms = new ArrayDeque<Nodo<String>>();
+		ArrayDeque<Nodo<String>> tos = new ArrayDeque<Nodo<String>>();
+		ArrayDeque<String> prefixes = new ArrayDeque<String>();
+
+		if (from.getHuella() != to.getHuella()) {
+			froms.push(from);
+			tos.push(to);
+			prefixes.push("");
+		}
+
+		while (!froms.isEmpty()) {
+
+			Nodo<String> actualFrom = froms.pop();
+			Nodo<String> actualTo = tos.pop();
+			String prefix = prefixes.pop();
+
+			result.compared++;
+
+			compareFiles(actualFrom, actualTo, prefix, script, result);
+
+			//los nombres repetidos son raros: el resto se empareja con el indice de cada Nodo, sin armar nada
+			Set<String> repeated = repeated(actualFrom, actualTo);
+
+			for (Nodo<String> removed : actualFrom.getDirectorios()) {
+
+				String name = removed.getNodeValue();
+
+				if (repeated.contains(name)) {
+					continue;
+				}
+
+				Nodo<String> added = actualTo.getDirectory(name);
+				String path = path(prefix, name);
+
+				if (added == null) {
+					removeDirectories(prefix, name, 1, script, result);
+				} else if (added.getHuella() == removed.getHuella()) {
+					continue;
+				} else if (path == null) {
+					result.skipped++;
+				} else {
+					froms.push(removed);
+					tos.push(added);
+					prefixes.push(path);
+				}
+			}
+
+			for (Nodo<String> added : actualTo.getDirectorios()) {
+				if (!repeated.contains(added.getNodeValue()) && actualFrom.getDirectory(added.getNodeValue()) == null) {
+					addDirectory(prefix, added, script, result);
+				}
+			}
+
+			if (!repeated.isEmpty()) {
+				compareRepeated(actualFrom, actualTo, repeated, prefix, script, result);
+			}
+		}
+
+		return result;
+	}
+
+	//archivos como multiconjunto: los que sobran se quitan y los que faltan se agregan, cada copia repetida aparte
+	private static void compareFiles(Nodo<String> from, Nodo<String> to, String prefix, OutputSink script, Result result) {
+
+		Map<String, Integer> extra = new HashMap<String, Integer>();
+
+		for (String file : from.getFiles()) {
+			Integer count = extra.get(file);
+			extra.put(file, count == null ? 1 : count + 1);
+		}
+
+		List<String> missing = new ArrayList<String>();
+
+		for (String file : to.getFiles()) {
+
+			Integer count = extra.get(file);
+
+			if (count == null) {
+				missing.add(file);
+			} else if (count == 1) {
+				extra.remove(file);
+			} else {
+				extra.put(file, count - 1);
+			}
+		}
+
+		//en el orden de from, cada rm quita la primera aparicion que queda
+		for (String file : from.getFiles()) {
+
+			Integer count = extra.get(file);
+
+			if (count == null) {
+				continue;
+			}
+
+			if (count == 1) {
+				extra.remove(file);
+			} else {
+				extra.put(file, count - 1);
+			}
+
+			if (write(script, "rm", null, path(prefix, file))) {
+				result.removedFiles++;
+			} else {
+				result.skipped++;
+			}
+		}
+
+		for (String file : missing) {
+			addFile(path(prefix, file), script, result);
+		}
+	}
+
+	//nombres con mas de un directorio en alguno de los dos lados: getDirectory devuelve solo el primero
+	private static Set<String> repeated(Nodo<String> from, Nodo<String> to) {
+
+		Set<String> repeated = Collections.emptySet();
+
+		for (Nodo<String> nodo : Arrays.asList(from, to)) {
+			for (Nodo<String> hijo : nodo.getDirectorios()) {
+
+				if (nodo.getDirectory(hijo.getNodeValue()) != hijo) {
+
+					if (repeated.isEmpty()) {
+						repeated = new HashSet<String>();
+					}
+
+					repeated.add(hijo.getNodeValue());
+				}
+			}
+		}
+
+		return repeated;
+	}
+
+	//con repetidos no se sabe cual es cual: si no son los mismos se rehacen todos
+	private static void compareRepeated(Nodo<String> from, Nodo<String> to, Set<String> repeated, String prefix,
+			OutputSink script, Result result) {
+
+		Map<String, List<Nodo<String>>> removed = copies(from, repeated);
+		Map<String, List<Nodo<String>>> added = copies(to, repeated);
+
+		for (String name : repeated) {
+
+			List<Nodo<String>> removedCopies = removed.get(name);
+			List<Nodo<String>> addedCopies = added.get(name);
+
+			if (sameHuellas(removedCopies, addedCopies)) {
+				continue;
+			}
+
+			//mkdir -p no crea repetidos
+			if (addedCopies.size() > 1) {
+				result.skipped++;
+				continue;
+			}
+
+			removeDirectories(prefix, name, removedCopies.size(), script, result);
+
+			if (addedCopies.size() == 1) {
+				addDirectory(prefix, addedCopies.get(0), script, result);
+			}
+		}
+	}
+
+	//los directorios de nodo con cada uno de esos nombres, lista vacia si no tiene ninguno
+	private static Map<String, List<Nodo<String>>> copies(Nodo<String> nodo, Set<String> names) {
+
+		Map<String, List<Nodo<String>>> copies = new HashMap<String, List<Nodo<String>>>();
+
+		for (String name : names) {
+			copies.put(name, new ArrayList<Nodo<String>>());
+		}
+
+		for (Nodo<String> hijo : nodo.getDirectorios()) {
+
+			List<Nodo<String>> sameName = copies.get(hijo.getNodeValue());
+
+			if (sameName != null) {
+				sameName.add(hijo);
+			}
+		}
+
+		return copies;
+	}
+
+	//las mismas huellas en cualquier orden; las listas son de directorios con el mismo nombre, casi siempre cortas
+	private static boolean sameHuellas(List<Nodo<String>> first, List<Nodo<String>> second) {
+
+		if (first.size() != second.size()) {
+			return false;
+		}
+
+		long[] huellas = new long[first.size()];
+		boolean[] used = new boolean[first.size()];
+
+		for (int i = 0; i < huellas.length; i++) {
+			huellas[i] = first.get(i).getHuella();
+		}
+
+		for (Nodo<String> nodo : second) {
+
+			boolean found = false;
+
+			for (int i = 0; i < huellas.length && !found; i++) {
+				if (!used[i] && huellas[i] == nodo.getHuella()) {
+					used[i] = true;
+					found = true;
+				}
+			}
+
+			if (!found) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	//rm -r quita el primero con ese nombre que quede, asi que se repite una vez por copia
+	private static void removeDirectories(String prefix, String name, int copies, OutputSink script, Result result) {
+
+		for (int i = 0; i < copies; i++) {
+			if (write(script, "rm", "-r", path(prefix, name))) {
+				result.removedDirectories++;
+			} else {
+				result.skipped++;
+			}
+		}
+	}
+
+	//Escribe el directorio que falta con todo lo que tiene. mkdir -p no crea repetidos: de varios directorios
+	//con el mismo nombre adentro se escribe solo el primero.
+	private static void addDirectory(String prefix, Nodo<String> added, OutputSink script, Result result) {
+
+		ArrayDeque<Nodo<String>> nodos = new ArrayDeque<Nodo<String>>();
+		ArrayDeque<String> paths = new ArrayDeque<String>();
+
+		nodos.push(added);
+		paths.push(path(prefix, added.getNodeValue()));
+
+		while (!nodos.isEmpty()) {
+
+			Nodo<String> nodo = nodos.pop();
+			String path = paths.pop();
+
+			//lo de abajo tampoco se podria escribir
+			if (!write(script, "mkdir", "-p", path)) {
+				result.skipped++;
+				continue;
+			}
+
+			result.addedDirectories++;
+
+			for (String file : nodo.getFiles()) {
+				addFile(path(path, file), script, result);
+			}
+
+			List<Nodo<String>> hijos = nodo.getDirectorios();
+
+			//se apilan al reves para escribirlos en orden de creacion
+			for (int i = hijos.size() - 1; i >= 0; i--) {
+
+				Nodo<String> hijo = hijos.get(i);
+
+				if (nodo.getDirectory(hijo.getNodeValue()) != hijo) {
+					result.skipped++;
+				} else {
+					nodos.push(hijo);
+					paths.push(path(path, hijo.getNodeValue()));
+				}
+			}
+		}
+	}
+
+	private static void addFile(String path, OutputSink script, Result result) {
+
+		if (write(script, "touch", "-p", path)) {
+			result.addedFiles++;
+		} else {
+			result.skipped++;
+		}
+	}
+
+	//null si el nombre tiene un '\': partiria la ruta en otro lugar
+	private static String path(String prefix, String name) {
+
+		if (name.contains(BACK_SLASH)) {
+			return null;
+		}
+
+		return prefix.isEmpty() ? name : prefix + BACK_SLASH + name;
+	}
+
+	//false si la ruta no se puede escribir como argumento
+	private static boolean write(OutputSink script, String command, String option, String path) {
+
+		if (path == null || CommandProcess.isAReservedValue(path)) {
+			return false;
+		}
+
+		StringBuilder line = new StringBuilder(command);
+
+		if (option != null) {
+			line.append(' ').append(option);
+		}
+
+		script.println(line.append(' ').append(quote(path)).toString());
+
+		return true;
+	}
+
+	//como lo lee CommandTokenizer: entre comillas si tiene espacios o empieza con comilla, y las comillas dobladas
+	private static String quote(String path) {
+
+		boolean plain = !path.startsWith("\"");
+
+		for (int i = 0; i < path.length() && plain; i++) {
+			plain = !Character.isWhitespace(path.charAt(i));
+		}
+
+		return plain ? path : "\"" + path.replace("\"", "\"\"") + "\"";
+	}
+}
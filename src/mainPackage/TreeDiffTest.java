@@ -0,0 +1,135 @@
+package mainPackage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringReader;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import mainPackage.CommandProcess.Arbol;
+import mainPackage.CommandProcessTest.MemoryOutputSink;
+
+class TreeDiffTest {
+
+	@Test
+	void huellaDependsOnContentNotOnHistory() {
+
+		CommandProcess first = new CommandProcess(new MemoryOutputSink());
+		first.execute(new String[] { "mkdir", "-p", "a\\b", "c", "touch", "-p", "a\\b\\f", "g", "a\\h" });
+
+		CommandProcess second = new CommandProcess(new MemoryOutputSink());
+		second.execute(new String[] { "touch", "g", "mkdir", "c", "x", "touch", "-p", "a\\h", "x\\b\\f", "mv", "x\\b", "a",
+				"rm", "-r", "x" });
+
+		assertEquals(huella(first), huella(second));
+
+		second.execute(new String[] { "touch", "-p", "c\\new" });
+		assertNotEquals(huella(first), huella(second));
+
+		second.execute(new String[] { "rm", "c\\new" });
+		assertEquals(huella(first), huella(second));
+
+		//mismo contenido con otro nombre: cambia la raiz, no el directorio movido
+		long movedHuella = first.getArbol().getRaiz().getDirectory("a").getHuella();
+		second.execute(new String[] { "mv", "a", "renamed" });
+		assertNotEquals(huella(first), huella(second));
+		assertEquals(movedHuella, second.getArbol().getRaiz().getDirectory("renamed").getHuella());
+	}
+
+	@Test
+	void scriptTurnsOneReplicaIntoTheOther() {
+
+		Arbol<String> from = new Arbol<String>("root");
+		new CommandProcess(from, new MemoryOutputSink()).execute(new String[] { "mkdir", "-p", "same\\deep", "gone\\below",
+				"changed\\old", "touch", "-p", "same\\deep\\f", "gone\\below\\g", "changed\\kept", "changed\\dropped", "twice",
+				"twice", "top" });
+
+		Arbol<String> to = new Arbol<String>("replica");
+		new CommandProcess(to, new MemoryOutputSink()).execute(new String[] { "mkdir", "-p", "same\\deep", "changed\\new\\inner",
+				"New Folder", "touch", "-p", "same\\deep\\f", "changed\\kept", "changed\\new\\inner\\file", "twice", "top",
+				"New Folder\\\"quoted\"" });
+
+		MemoryOutputSink script = new MemoryOutputSink();
+		TreeDiff.Result result = TreeDiff.diff(from, to, script);
+		script.flush();
+
+		assertEquals("rm twice\nrm -r gone\nmkdir -p \"New Folder\"\ntouch -p \"New Folder\\\"\"quoted\"\"\"\nrm changed\\dropped\n"
+				+ "rm -r changed\\old\nmkdir -p changed\\new\nmkdir -p changed\\new\\inner\ntouch -p changed\\new\\inner\\file\n",
+				script.getContent());
+		assertEquals(2, result.getRemovedFiles());
+		assertEquals(2, result.getRemovedDirectories());
+		assertEquals(3, result.getAddedDirectories());
+		assertEquals(2, result.getAddedFiles());
+		assertEquals(0, result.getSkipped());
+		assertEquals(2, result.getCompared());
+
+		new CommandProcess(from, new MemoryOutputSink()).execute(new CommandTokenizer(new StringReader(script.getContent())));
+
+		assertEquals(to.getRaiz().getHuella(), from.getRaiz().getHuella());
+		assertTrue(TreeDiff.diff(from, to, new MemoryOutputSink()).isEmpty());
+	}
+
+	@Test
+	void unchangedSubtreesAreNotOpened() {
+
+		Arbol<String> from = new Arbol<String>("root");
+		Arbol<String> to = new Arbol<String>("root");
+
+		for (Arbol<String> arbol : Arrays.asList(from, to)) {
+
+			CommandProcess process = new CommandProcess(arbol, new MemoryOutputSink());
+
+			for (int i = 0; i < 50; i++) {
+				process.execute(new String[] { "mkdir", "-p", "d" + i + "\\x\\y", "touch", "-p", "d" + i + "\\x\\y\\f" });
+			}
+		}
+
+		new CommandProcess(to, new MemoryOutputSink()).execute(new String[] { "touch", "-p", "d7\\x\\y\\g" });
+
+		MemoryOutputSink script = new MemoryOutputSink();
+		TreeDiff.Result result = TreeDiff.diff(from, to, script);
+		script.flush();
+
+		assertEquals("touch -p d7\\x\\y\\g\n", script.getContent());
+		assertEquals(4, result.getCompared());
+	}
+
+	@Test
+	void repeatedDirectoriesAreRebuilt() {
+
+		Arbol<String> from = new Arbol<String>("root");
+		new CommandProcess(from, new MemoryOutputSink()).execute(new String[] { "mkdir", "twin", "twin", "kept", "kept",
+				"single" });
+
+		Arbol<String> to = new Arbol<String>("root");
+		new CommandProcess(to, new MemoryOutputSink()).execute(new String[] { "mkdir", "kept", "kept", "single", "single",
+				"touch", "-p", "twin\\f" });
+
+		MemoryOutputSink script = new MemoryOutputSink();
+		TreeDiff.Result result = TreeDiff.diff(from, to, script);
+		script.flush();
+
+		//dos single no se pueden escribir con mkdir -p
+		assertEquals("rm -r twin\nrm -r twin\nmkdir -p twin\ntouch -p twin\\f\n", script.getContent());
+		assertEquals(1, result.getSkipped());
+	}
+
+	@Test
+	void diffCommandComparesTwoDirectories() {
+
+		MemoryOutputSink output = new MemoryOutputSink();
+		CommandProcess process = new CommandProcess(output);
+
+		process.execute(new String[] { "mkdir", "-p", "a\\x", "b\\y", "touch", "-p", "b\\y\\f", "cd", "b", "touch", "back\\slash",
+				"cd", "..", "diff", "a", "b", "cd", "a", "diff", "x", "diff", "missing" });
+
+		assertEquals("rm -r x\nmkdir -p y\ntouch -p y\\f\nSkipped 1 entries\nrm -r x\nDirectory not found\n", output.getContent());
+	}
+
+	private static long huella(CommandProcess process) {
+		return process.getArbol().getRaiz().getHuella();
+	}
+}
@@ -0,0 +1,55 @@
+package mainPackage;
+
+//Un cambio en el arbol, tal como lo recibe un TreeWatcher.
+public final class TreeEvent {
+	
+	public enum Type {
+		DIRECTORY_CREATED,
+		FILE_CREATED,
+		//rm -r: un solo evento para el directorio, no uno por cada cosa que tenia debajo
+		DIRECTORY_REMOVED,
+		FILE_REMOVED,
+		//mv: getPath es la ruta nueva y getPreviousPath la anterior
+		DIRECTORY_MOVED,
+		FILE_MOVED
+	}
+	
+	private final Type type;
+	
+	private final String path;
+	
+	private final String previousPath;
+	
+	private final long sequence;
+	
+	TreeEvent(Type type, String path, String previousPath, long sequence) {
+		this.type = type;
+		this.path = path;
+		this.previousPath = previousPath;
+		this.sequence = sequence;
+	}
+	
+	public Type getType() {
+		return type;
+	}
+	
+	//ruta completa de lo que cambio, por ejemplo root\a\file
+	public String getPath() {
+		return path;
+	}
+	
+	//donde estaba antes de un mv, null para los demas eventos
+	public String getPreviousPath() {
+		return previousPath;
+	}
+	
+	//numeracion de todos los eventos del arbol, vayan o no a este watcher; sirve para ordenar eventos de varios watchers
+	public long getSequence() {
+		return sequence;
+	}
+	
+	@Override
+	public String toString() {
+		return previousPath == null ? type + " " + path : type + " " + previousPath + " -> " + path;
+	}
+}
@@ -0,0 +1,53 @@
+package mainPackage;
+
+//Lo que TreeCommands necesita de un arbol para ejecutar cd, mkdir, touch, rm, mv e import: el arbol de
+//CommandProcess (con el journal, el indice y los watchers), el de IndexedSession y el borrador de TransactionCheck.
+//Las reglas y los mensajes de esos comandos estan una sola vez, en TreeCommands; aca solo se lee y se cambia.
+//Un directorio es un D; los nombres repetidos valen, como en mkdir.
+interface TreeModel<D> {
+
+	//el de la sesion, que cd cambia
+	D getWorkingDirectory();
+
+	void setWorkingDirectory(D directory);
+
+	//null en la raiz
+	D getPadre(D directory);
+
+	String getName(D directory);
+
+	//el primero con ese nombre, null si no hay
+	D getDirectory(D directory, String name);
+
+	//hijos en orden de creacion
+	Iterable<D> getDirectorios(D directory);
+
+	boolean containsFile(D directory, String name);
+
+	//cuantas veces esta el archivo: touch de uno que existe lo agrega igual
+	int countFiles(D directory, String name);
+
+	//quitado con rm -r (por esta u otra sesion) o debajo de uno quitado
+	boolean isRemoved(D directory);
+
+	//Como cd con una ruta con '\': avanza por los segmentos que existen y se queda en el ultimo encontrado. Aparte
+	//de getDirectory para que el arbol de CommandProcess use su cache de rutas.
+	D walk(D start, String path);
+
+	//antes de agregar muchos hijos de una vez
+	void ensureCapacity(D directory, int moreDirectories, int moreFiles);
+
+	//siempre agrega, aunque ya haya uno con ese nombre
+	D addDirectory(D directory, String name);
+
+	void addFile(D directory, String name);
+
+	void removeDirectory(D directory, D removed);
+
+	//la primera aparicion
+	void removeFile(D directory, String name);
+
+	void moveDirectory(D directory, D moved, D destination, String newName);
+
+	void moveFile(D directory, String name, D destination, String newName);
+}
@@ -0,0 +1,361 @@
+package mainPackage;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import mainPackage.CommandProcess.Nodo;
+
+//find: busca directorios y archivos debajo de un nodo con un patron que se compila una sola vez.
+//  -name  glob contra el nombre
+//  -path  glob contra la ruta relativa al nodo de partida ("a\b\file")
+//  -regex expresion regular contra la ruta relativa
+//Con -path y -regex se descarta un subarbol entero cuando ninguna ruta que empiece con la suya puede coincidir
+//(el matcher falla sin llegar al final de la entrada). Las coincidencias se escriben a medida que aparecen,
+//en el mismo orden que ls -r: el directorio, sus archivos y despues sus subdirectorios.
+//La instancia es inmutable; cada busqueda usa su propio Matcher.
+public final class TreeSearch {
+
+	private static final char SEPARATOR = '\\';
+
+	//igual que ParallelListing: debajo de esta profundidad cada tarea recorre su subarbol de forma secuencial
+	private static final int MAX_FORK_DEPTH = 6;
+
+	private final Pattern pattern;
+
+	private final boolean matchPath;
+
+	private TreeSearch(Pattern pattern, boolean matchPath) {
+		this.pattern = pattern;
+		this.matchPath = matchPath;
+	}
+
+	//option es -name, -path o -regex; lanza PatternSyntaxException si la expresion no es valida
+	public static TreeSearch compile(String option, String expression) {
+
+		if ("-name".equals(option)) {
+			return new TreeSearch(Pattern.compile(globToRegex(expression)), false);
+		}
+		if ("-path".equals(option)) {
+			return new TreeSearch(Pattern.compile(globToRegex(expression)), true);
+		}
+		if ("-regex".equals(option)) {
+			return new TreeSearch(Pattern.compile(expression), true);
+		}
+		throw new IllegalArgumentException("Unknown find option " + option);
+	}
+
+	//* y ? no cruzan separadores, ** si; el resto de los caracteres es literal
+	static String globToRegex(String glob) {
+
+		StringBuilder regex = new StringBuilder(glob.length() + 16);
+
+		for (int i = 0; i < glob.length(); i++) {
+
+			char c = glob.charAt(i);
+
+			if (c == '*') {
+				if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+					regex.append(".*");
+					i++;
+				} else {
+					regex.append("[^\\\\]*");
+				}
+			} else if (c == '?') {
+				regex.append("[^\\\\]");
+			} else if ("\\.[]{}()+-^$|".indexOf(c) >= 0) {
+				regex.append('\\').append(c);
+			} else {
+				regex.append(c);
+			}
+		}
+
+		return regex.toString();
+	}
+
+	public Pattern getPattern() {
+		return pattern;
+	}
+
+	//se llama con el lock de lectura del arbol tomado
+	void search(Nodo<String> start, OutputSink output) {
+		new Walk(start.getFullPath(), output).run(start, "", false);
+	}
+
+	//los subarboles se buscan en paralelo y los resultados se escriben en el mismo orden que la busqueda secuencial
+	void search(Nodo<String> start, OutputSink output, ForkJoinPool pool) {
+
+		String base = start.getFullPath();
+
+		Walk walk = new Walk(base, output);
+		walk.visitFiles(start);
+
+		List<SubtreeTask> tasks = new ArrayList<SubtreeTask>();
+
+		for (Nodo<String> child : start.getDirectorios()) {
+			tasks.add(new SubtreeTask(child, child.getNodeValue(), base, 1));
+		}
+
+		for (SubtreeTask task : tasks) {
+			pool.execute(task);
+		}
+
+		for (SubtreeTask task : tasks) {
+			for (List<String> lines : task.join()) {
+				for (String line : lines) {
+					output.println(line);
+				}
+			}
+		}
+	}
+
+	//misma busqueda sobre un ArbolIndexado, para IndexedSession
+	void search(ArbolIndexado arbol, int start, OutputSink output) {
+
+		Matcher matcher = pattern.matcher("");
+		String base = arbol.getFullPath(start);
+		StringBuilder relative = new StringBuilder();
+
+		ArrayDeque<Integer> nodes = new ArrayDeque<Integer>();
+		ArrayDeque<Integer> lengths = new ArrayDeque<Integer>();
+		ArrayDeque<Integer> children = new ArrayDeque<Integer>();
+
+		nodes.push(start);
+		lengths.push(-1);
+
+		while (!nodes.isEmpty()) {
+
+			int node = nodes.pop();
+			int parentLength = lengths.pop();
+
+			if (parentLength >= 0) {
+
+				appendName(relative, parentLength, arbol.getName(node));
+
+				if (matches(matcher, arbol.getName(node), relative)) {
+					output.println(base + SEPARATOR + relative);
+				}
+				if (pruned(matcher, relative)) {
+					continue;
+				}
+			}
+
+			int length = relative.length();
+
+			for (int file = arbol.getFirstFile(node); file != ArbolIndexado.NO_NODE; file = arbol.getNextFile(node, file)) {
+
+				String name = arbol.getFileName(file);
+				appendName(relative, length, name);
+
+				if (matches(matcher, name, relative)) {
+					output.println(base + SEPARATOR + relative);
+				}
+				relative.setLength(length);
+			}
+
+			for (int child = arbol.getFirstChild(node); child != ArbolIndexado.NO_NODE; child = arbol.getNextSibling(child)) {
+				children.push(child);
+			}
+			while (!children.isEmpty()) {
+				nodes.push(children.pop());
+				lengths.push(length);
+			}
+		}
+	}
+
+	private static void appendName(StringBuilder relative, int parentLength, String name) {
+
+		relative.setLength(parentLength);
+
+		if (parentLength > 0) {
+			relative.append(SEPARATOR);
+		}
+		relative.append(name);
+	}
+
+	private boolean matches(Matcher matcher, String name, CharSequence relative) {
+		return matcher.reset(matchPath ? relative : name).matches();
+	}
+
+	//prueba la ruta del directorio seguida de un separador: si el matcher falla sin leerla entera,
+	//ninguna ruta de su subarbol puede coincidir
+	private boolean pruned(Matcher matcher, StringBuilder relative) {
+
+		if (!matchPath) {
+			return false;
+		}
+
+		int length = relative.length();
+		relative.append(SEPARATOR);
+
+		boolean pruned = !matcher.reset(relative).matches() && !matcher.hitEnd();
+
+		relative.setLength(length);
+
+		return pruned;
+	}
+
+	//recorrido secuencial con pila propia y una sola ruta relativa que se recorta al volver de cada subarbol
+	private class Walk {
+
+		private final Matcher matcher = pattern.matcher("");
+
+		private final StringBuilder relative = new StringBuilder();
+
+		private final String base;
+
+		private final OutputSink output;
+
+		Walk(String base, OutputSink output) {
+			this.base = base;
+			this.output = output;
+		}
+
+		//includeRoot indica si el nodo de partida tambien se compara, como cualquier subdirectorio
+		void run(Nodo<String> root, String rootRelative, boolean includeRoot) {
+
+			ArrayDeque<Nodo<String>> nodos = new ArrayDeque<Nodo<String>>();
+			ArrayDeque<Integer> lengths = new ArrayDeque<Integer>();
+
+			relative.setLength(0);
+			relative.append(rootRelative);
+
+			if (includeRoot) {
+				if (!visitDirectory(root)) {
+					return;
+				}
+			} else {
+				visitFiles(root);
+			}
+
+			pushChildren(nodos, lengths, root);
+
+			while (!nodos.isEmpty()) {
+
+				Nodo<String> actual = nodos.pop();
+				appendName(relative, lengths.pop(), actual.getNodeValue());
+
+				if (visitDirectory(actual)) {
+					pushChildren(nodos, lengths, actual);
+				}
+			}
+		}
+
+		//compara el directorio y sus archivos; devuelve false si su subarbol se descarta
+		boolean visitDirectory(Nodo<String> nodo) {
+
+			if (matches(matcher, nodo.getNodeValue(), relative)) {
+				output.println(base + SEPARATOR + relative);
+			}
+
+			if (pruned(matcher, relative)) {
+				return false;
+			}
+
+			visitFiles(nodo);
+			return true;
+		}
+
+		void visitFiles(Nodo<String> nodo) {
+
+			int length = relative.length();
+
+			for (String file : nodo.getFiles()) {
+
+				appendName(relative, length, file);
+
+				if (matches(matcher, file, relative)) {
+					output.println(base + SEPARATOR + relative);
+				}
+			}
+
+			relative.setLength(length);
+		}
+
+		//se apilan al reves para visitarlos en orden de creacion
+		private void pushChildren(ArrayDeque<Nodo<String>> nodos, ArrayDeque<Integer> lengths, Nodo<String> nodo) {
+
+			List<Nodo<String>> hijos = nodo.getDirectorios();
+
+			for (int i = hijos.size() - 1; i >= 0; i--) {
+				nodos.push(hijos.get(i));
+				lengths.push(relative.length());
+			}
+		}
+	}
+
+	private class SubtreeTask extends RecursiveTask<List<List<String>>> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Nodo<String> nodo;
+
+		private final String relativePath;
+
+		private final String base;
+
+		private final int depth;
+
+		SubtreeTask(Nodo<String> nodo, String relativePath, String base, int depth) {
+			this.nodo = nodo;
+			this.relativePath = relativePath;
+			this.base = base;
+			this.depth = depth;
+		}
+
+		@Override
+		protected List<List<String>> compute() {
+
+			List<List<String>> blocks = new ArrayList<List<String>>();
+			LinesSink lines = new LinesSink();
+			blocks.add(lines.lines);
+
+			Walk walk = new Walk(base, lines);
+			List<Nodo<String>> hijos = nodo.getDirectorios();
+
+			if (depth >= MAX_FORK_DEPTH || hijos.size() < 2) {
+				walk.run(nodo, relativePath, true);
+				return blocks;
+			}
+
+			walk.relative.append(relativePath);
+
+			if (!walk.visitDirectory(nodo)) {
+				return blocks;
+			}
+
+			List<SubtreeTask> tasks = new ArrayList<SubtreeTask>(hijos.size());
+
+			for (Nodo<String> child : hijos) {
+				tasks.add(new SubtreeTask(child, relativePath + SEPARATOR + child.getNodeValue(), base, depth + 1));
+			}
+
+			ForkJoinTask.invokeAll(tasks);
+
+			for (SubtreeTask task : tasks) {
+				blocks.addAll(task.join());
+			}
+
+			return blocks;
+		}
+	}
+
+	private static class LinesSink implements OutputSink {
+
+		private final List<String> lines = new ArrayList<String>();
+
+		@Override
+		public void println(String line) {
+			lines.add(line);
+		}
+
+		@Override
+		public void flush() {
+		}
+	}
+}
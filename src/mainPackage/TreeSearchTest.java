@@ -0,0 +1,123 @@
+package mainPackage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.regex.Matcher;
+
+import org.junit.jupiter.api.Test;
+
+import mainPackage.CommandProcessTest.MemoryOutputSink;
+
+class TreeSearchTest {
+	
+	private static final String[] TREE = { "mkdir", "-p", "\\src\\main\\java", "\\src\\test\\java", "\\docs",
+			"touch", "-p", "\\src\\main\\java\\App.java", "\\src\\main\\java\\App.class", "\\src\\test\\java\\AppTest.java",
+			"\\docs\\readme.txt", "\\build.xml" };
+	
+	@Test
+	void matchesNamesPathsAndRegularExpressions() {
+		
+		assertEquals("root\\src\\main\\java\\App.java\nroot\\src\\test\\java\\AppTest.java\n",
+				run("find", "-name", "*.java"));
+		
+		assertEquals("root\\src\\main\\java\nroot\\src\\test\\java\n", run("find", "-name", "java"));
+		
+		assertEquals("root\\src\\main\\java\\App.java\nroot\\src\\main\\java\\App.class\n",
+				run("find", "-path", "src\\main\\**\\App.*"));
+		
+		assertEquals("root\\src\\test\nroot\\src\\test\\java\\AppTest.java\n", run("find", "-regex", "src\\\\test(\\\\.*Test\\.java)?"));
+		
+		assertEquals("root\\build.xml\n", run("find", "-path", "*.xml"));
+	}
+	
+	@Test
+	void startsFromAPathOrTheWorkingDirectory() {
+		
+		assertEquals("root\\src\\test\\java\\AppTest.java\n", run("find", "\\src\\test", "-name", "App*"));
+		assertEquals("root\\docs\\readme.txt\n", run("cd", "docs", "find", "-path", "*.txt"));
+	}
+	
+	@Test
+	void missingOrInvalidPatternsAreRejected() {
+		
+		assertEquals("Unrecognized command\n", run("find", "-name"));
+		assertEquals("Unrecognized command\n", run("find", "\\src", "*.java"));
+		assertEquals("Unrecognized command\n", run("find", "-regex", "src(", "pwd"));
+	}
+	
+	@Test
+	void prunesSubtreesThatCannotMatch() {
+		
+		TreeSearch search = TreeSearch.compile("-path", "src\\main\\*");
+		
+		Matcher docs = search.getPattern().matcher("docs\\");
+		Matcher src = search.getPattern().matcher("src\\");
+		
+		//el matcher falla antes del final: nada debajo de docs puede coincidir
+		assertFalse(docs.matches());
+		assertFalse(docs.hitEnd());
+		
+		assertFalse(src.matches());
+		assertTrue(src.hitEnd());
+	}
+	
+	@Test
+	void parallelSearchKeepsTheSequentialOrder() {
+		
+		CommandProcess sequential = new CommandProcess(new MemoryOutputSink());
+		
+		for (int i = 0; i < 30; i++) {
+			sequential.execute(new String[] { "mkdir", "-p", "\\d" + i + "\\x\\y", "\\d" + i + "\\z", "touch", "-p", "\\d" + i + "\\x\\f" + i });
+		}
+		
+		MemoryOutputSink expected = new MemoryOutputSink();
+		MemoryOutputSink actual = new MemoryOutputSink();
+		String[] find = { "find", "-regex", "d1.*" };
+		
+		new CommandProcess(sequential.getArbol(), expected).execute(find);
+		
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			CommandProcess parallel = new CommandProcess(sequential.getArbol(), actual);
+			parallel.setParallelListing(pool);
+			parallel.execute(find);
+		} finally {
+			pool.shutdown();
+		}
+		
+		assertEquals(expected.getContent(), actual.getContent());
+		assertTrue(expected.getContent().startsWith("root\\d1\nroot\\d1\\x\nroot\\d1\\x\\f1\nroot\\d1\\x\\y\nroot\\d1\\z\nroot\\d10\n"));
+	}
+	
+	@Test
+	void compactStoreFindsTheSame() {
+		
+		String[] script = concat(TREE, "find", "-name", "App*", "find", "-path", "src\\**", "find", "\\docs", "-regex", ".*");
+		
+		MemoryOutputSink objects = new MemoryOutputSink();
+		MemoryOutputSink compact = new MemoryOutputSink();
+		
+		new CommandProcess(objects).execute(script);
+		new IndexedSession(new ArbolCompacto("root"), compact).execute(script);
+		
+		assertEquals(objects.getContent(), compact.getContent());
+	}
+	
+	private static String run(String... commands) {
+		
+		MemoryOutputSink output = new MemoryOutputSink();
+		new CommandProcess(output).execute(concat(TREE, commands));
+		return output.getContent();
+	}
+	
+	private static String[] concat(String[] first, String... second) {
+		
+		String[] all = new String[first.length + second.length];
+		System.arraycopy(first, 0, all, 0, first.length);
+		System.arraycopy(second, 0, all, first.length, second.length);
+		return all;
+	}
+}
@@ -0,0 +1,101 @@
+package mainPackage;
+
+import java.io.Closeable;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+
+//Recibe los eventos de un prefijo de rutas del arbol (el directorio y todo lo que tiene debajo), ver Arbol.watch.
+//
+//Los eventos se guardan en un buffer circular de tamano fijo sin locks: escribe un solo productor a la vez (el
+//hilo que tiene el lock de escritura del arbol) y lee un solo consumidor. Si el consumidor se atrasa y el buffer
+//esta lleno, el evento se descarta y se cuenta en getDropped, asi los comandos nunca esperan a un consumidor lento;
+//el consumidor que ve descartes tiene que volver a leer el arbol para ponerse al dia.
+public final class TreeWatcher implements Closeable {
+	
+	private final TreeWatchers owner;
+	
+	private final String prefix;
+	
+	private final TreeEvent[] buffer;
+	
+	private final int mask;
+	
+	//proximo evento a leer; solo lo avanza el consumidor
+	private final AtomicLong head = new AtomicLong();
+	
+	//proximo lugar a escribir; solo lo avanza el productor
+	private final AtomicLong tail = new AtomicLong();
+	
+	private final AtomicLong dropped = new AtomicLong();
+	
+	//capacity se redondea a la siguiente potencia de 2
+	TreeWatcher(TreeWatchers owner, String prefix, int capacity) {
+		
+		this.owner = owner;
+		this.prefix = prefix;
+		
+		int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+		
+		this.buffer = new TreeEvent[size];
+		this.mask = size - 1;
+	}
+	
+	public String getPrefix() {
+		return prefix;
+	}
+	
+	public int getCapacity() {
+		return buffer.length;
+	}
+	
+	//eventos descartados porque el buffer estaba lleno
+	public long getDropped() {
+		return dropped.get();
+	}
+	
+	//eventos esperando a ser leidos
+	public int size() {
+		return (int) (tail.get() - head.get());
+	}
+	
+	//pasa a events hasta max eventos, en orden, y devuelve cuantos paso; 0 si no habia ninguno
+	public int drain(Collection<? super TreeEvent> events, int max) {
+		
+		long first = head.get();
+		int count = (int) Math.min(max, tail.get() - first);
+		
+		for (int i = 0; i < count; i++) {
+			
+			int slot = (int) (first + i) & mask;
+			
+			events.add(buffer[slot]);
+			buffer[slot] = null;
+		}
+		
+		if (count > 0) {
+			head.lazySet(first + count);
+		}
+		
+		return count;
+	}
+	
+	//deja de recibir eventos; lo que ya estaba en el buffer se puede seguir leyendo
+	@Override
+	public void close() {
+		owner.remove(this);
+	}
+	
+	//lo llama TreeWatchers con el lock de escritura del arbol tomado
+	void offer(TreeEvent event) {
+		
+		long position = tail.get();
+		
+		if (position - head.get() == buffer.length) {
+			dropped.incrementAndGet();
+			return;
+		}
+		
+		buffer[(int) position & mask] = event;
+		tail.lazySet(position + 1);
+	}
+}
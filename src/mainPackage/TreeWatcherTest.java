@@ -0,0 +1,140 @@
+package mainPackage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+import mainPackage.CommandProcess.Arbol;
+import mainPackage.CommandProcessTest.MemoryOutputSink;
+
+class TreeWatcherTest {
+
+	@Test
+	void watchersOnlySeeTheirPrefix() {
+
+		Arbol<String> arbol = new Arbol<String>("root");
+		TreeWatcher all = arbol.watch("root", 16);
+		TreeWatcher a = arbol.watch("root\\a", 16);
+		TreeWatcher ab = arbol.watch("root\\ab", 16);
+
+		CommandProcess process = new CommandProcess(arbol, new MemoryOutputSink());
+		process.execute(new String[] { "mkdir", "a", "ab", "touch", "f", "cd", "a", "touch", "g", "mkdir", "-p", "x\\y",
+				"touch", "-p", "x\\y\\z" });
+
+		assertEquals("[DIRECTORY_CREATED root\\a, DIRECTORY_CREATED root\\ab, FILE_CREATED root\\f, FILE_CREATED root\\a\\g, "
+				+ "DIRECTORY_CREATED root\\a\\x, DIRECTORY_CREATED root\\a\\x\\y, FILE_CREATED root\\a\\x\\y\\z]", drain(all).toString());
+		assertEquals("[DIRECTORY_CREATED root\\a, FILE_CREATED root\\a\\g, DIRECTORY_CREATED root\\a\\x, "
+				+ "DIRECTORY_CREATED root\\a\\x\\y, FILE_CREATED root\\a\\x\\y\\z]", drain(a).toString());
+		assertEquals("[DIRECTORY_CREATED root\\ab]", drain(ab).toString());
+
+		a.close();
+		process.execute(new String[] { "touch", "h" });
+
+		assertEquals(0, a.size());
+		assertEquals("[FILE_CREATED root\\a\\h]", drain(all).toString());
+	}
+
+	@Test
+	void fullBufferDropsInsteadOfWaiting() {
+
+		Arbol<String> arbol = new Arbol<String>("root");
+		TreeWatcher watcher = arbol.watch("root", 4);
+		CommandProcess process = new CommandProcess(arbol, new MemoryOutputSink());
+
+		for (int i = 0; i < 10; i++) {
+			process.execute(new String[] { "touch", "f" + i });
+		}
+
+		List<TreeEvent> events = drain(watcher);
+
+		assertEquals(4, events.size());
+		assertEquals(6, watcher.getDropped());
+		assertEquals("root\\f3", events.get(3).getPath());
+
+		process.execute(new String[] { "touch", "last" });
+
+		//la numeracion deja ver cuantos eventos se perdieron en el medio
+		assertEquals(10, drain(watcher).get(0).getSequence());
+	}
+
+	@Test
+	void consumerOnAnotherThreadGetsEveryEventInOrder() throws Exception {
+
+		final Arbol<String> arbol = new Arbol<String>("root");
+		final TreeWatcher watcher = arbol.watch("root", 64);
+		final int files = 20000;
+
+		ExecutorService consumer = Executors.newSingleThreadExecutor();
+		try {
+			Future<List<TreeEvent>> received = consumer.submit(new Callable<List<TreeEvent>>() {
+				@Override
+				public List<TreeEvent> call() {
+
+					List<TreeEvent> events = new ArrayList<TreeEvent>();
+
+					while (events.size() + watcher.getDropped() < files) {
+						if (watcher.drain(events, 16) == 0) {
+							Thread.yield();
+						}
+					}
+
+					return events;
+				}
+			});
+
+			CommandProcess process = new CommandProcess(arbol, new MemoryOutputSink());
+			for (int i = 0; i < files; i++) {
+				process.execute(new String[] { "touch", Integer.toString(i) });
+			}
+
+			List<TreeEvent> events = received.get();
+
+			assertEquals(files, events.size() + watcher.getDropped());
+
+			for (int i = 1; i < events.size(); i++) {
+				assertTrue(events.get(i - 1).getSequence() < events.get(i).getSequence());
+				assertEquals("root\\" + events.get(i).getSequence(), events.get(i).getPath());
+			}
+		} finally {
+			consumer.shutdown();
+		}
+	}
+
+	@Test
+	void removalsAndMovesReachWatchersOnBothSides() {
+
+		Arbol<String> arbol = new Arbol<String>("root");
+		CommandProcess process = new CommandProcess(arbol, new MemoryOutputSink());
+		process.execute(new String[] { "mkdir", "-p", "a\\x\\deep", "b", "touch", "-p", "a\\f" });
+
+		TreeWatcher all = arbol.watch("root", 16);
+		TreeWatcher a = arbol.watch("root\\a", 16);
+		TreeWatcher b = arbol.watch("root\\b", 16);
+		TreeWatcher deep = arbol.watch("root\\a\\x\\deep", 16);
+
+		process.execute(new String[] { "mv", "a\\x", "b\\y", "rm", "f", "mv", "a\\f", "b", "rm", "-r", "b" });
+
+		assertEquals("[DIRECTORY_MOVED root\\a\\x -> root\\b\\y, FILE_MOVED root\\a\\f -> root\\b\\f, DIRECTORY_REMOVED root\\b]",
+				drain(all).toString());
+		assertEquals("[DIRECTORY_MOVED root\\a\\x -> root\\b\\y, FILE_MOVED root\\a\\f -> root\\b\\f]", drain(a).toString());
+		assertEquals("[DIRECTORY_MOVED root\\a\\x -> root\\b\\y, FILE_MOVED root\\a\\f -> root\\b\\f, DIRECTORY_REMOVED root\\b]",
+				drain(b).toString());
+		assertEquals("[DIRECTORY_MOVED root\\a\\x -> root\\b\\y]", drain(deep).toString());
+	}
+
+	private static List<TreeEvent> drain(TreeWatcher watcher) {
+
+		List<TreeEvent> events = new ArrayList<TreeEvent>();
+		watcher.drain(events, Integer.MAX_VALUE);
+
+		return events;
+	}
+}
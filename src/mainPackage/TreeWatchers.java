@@ -0,0 +1,199 @@
+package mainPackage;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import mainPackage.CommandProcess.Nodo;
+
+//Los TreeWatcher de un Arbol, por prefijo. Para cada cambio se arma la ruta una sola vez y se buscan los watchers
+//de cada uno de sus prefijos (root, root\a, root\a\b...), asi el costo depende de la profundidad y no de la
+//cantidad de watchers. Sin watchers no se arma nada.
+//Quitar o mover un directorio tambien afecta a los watchers de rutas debajo de el; para esos se revisan todos los
+//prefijos registrados, solo en rm -r y mv de directorios.
+//Registrar y quitar reemplazan el mapa completo: los comandos lo leen sin locks.
+final class TreeWatchers {
+	
+	private static final char SEPARATOR = '\\';
+	
+	private volatile Map<String, TreeWatcher[]> byPrefix = new HashMap<String, TreeWatcher[]>();
+	
+	//la escriben solo los cambios, con el lock de escritura del arbol tomado
+	private long sequence;
+	
+	synchronized TreeWatcher add(String prefix, int capacity) {
+		
+		TreeWatcher watcher = new TreeWatcher(this, prefix, capacity);
+		
+		Map<String, TreeWatcher[]> copy = new HashMap<String, TreeWatcher[]>(byPrefix);
+		TreeWatcher[] current = copy.get(prefix);
+		
+		if (current == null) {
+			copy.put(prefix, new TreeWatcher[] { watcher });
+		} else {
+			TreeWatcher[] grown = Arrays.copyOf(current, current.length + 1);
+			grown[current.length] = watcher;
+			copy.put(prefix, grown);
+		}
+		
+		byPrefix = copy;
+		
+		return watcher;
+	}
+	
+	synchronized void remove(TreeWatcher watcher) {
+		
+		TreeWatcher[] current = byPrefix.get(watcher.getPrefix());
+		
+		if (current == null) {
+			return;
+		}
+		
+		TreeWatcher[] remaining = new TreeWatcher[current.length];
+		int count = 0;
+		
+		for (TreeWatcher other : current) {
+			if (other != watcher) {
+				remaining[count++] = other;
+			}
+		}
+		
+		Map<String, TreeWatcher[]> copy = new HashMap<String, TreeWatcher[]>(byPrefix);
+		
+		if (count == 0) {
+			copy.remove(watcher.getPrefix());
+		} else {
+			copy.put(watcher.getPrefix(), Arrays.copyOf(remaining, count));
+		}
+		
+		byPrefix = copy;
+	}
+	
+	boolean isEmpty() {
+		return byPrefix.isEmpty();
+	}
+	
+	//se llaman con el lock de escritura del arbol tomado, despues de agregar
+	void directoryCreated(Nodo<?> padre, String name) {
+		publish(TreeEvent.Type.DIRECTORY_CREATED, padre, name);
+	}
+	
+	void fileCreated(Nodo<?> padre, String name) {
+		publish(TreeEvent.Type.FILE_CREATED, padre, name);
+	}
+	
+	//se llaman despues de quitar o mover; los padres no cambian de ruta con la operacion
+	void directoryRemoved(Nodo<?> padre, String name) {
+		publishStructural(TreeEvent.Type.DIRECTORY_REMOVED, null, null, padre, name);
+	}
+	
+	void fileRemoved(Nodo<?> padre, String name) {
+		publishStructural(TreeEvent.Type.FILE_REMOVED, null, null, padre, name);
+	}
+	
+	void directoryMoved(Nodo<?> from, String fromName, Nodo<?> to, String toName) {
+		publishStructural(TreeEvent.Type.DIRECTORY_MOVED, to, toName, from, fromName);
+	}
+	
+	void fileMoved(Nodo<?> from, String fromName, Nodo<?> to, String toName) {
+		publishStructural(TreeEvent.Type.FILE_MOVED, to, toName, from, fromName);
+	}
+	
+	//to es null para rm: el evento lleva la ruta de lo que se quito
+	private void publishStructural(TreeEvent.Type type, Nodo<?> to, String toName, Nodo<?> from, String fromName) {
+		
+		Map<String, TreeWatcher[]> watchers = byPrefix;
+		long number = sequence++;
+		
+		if (watchers.isEmpty()) {
+			return;
+		}
+		
+		String previousPath = from.getFullPath() + SEPARATOR + fromName;
+		String path = to == null ? previousPath : to.getFullPath() + SEPARATOR + toName;
+		
+		//un mv dentro del prefijo de un watcher le llega una sola vez
+		Set<TreeWatcher> matched = Collections.newSetFromMap(new IdentityHashMap<TreeWatcher, Boolean>());
+		
+		collectAncestors(watchers, path, matched);
+		
+		if (to != null) {
+			collectAncestors(watchers, previousPath, matched);
+		}
+		
+		if (type == TreeEvent.Type.DIRECTORY_REMOVED || type == TreeEvent.Type.DIRECTORY_MOVED) {
+			for (Map.Entry<String, TreeWatcher[]> entry : watchers.entrySet()) {
+				if (isBelow(entry.getKey(), path) || isBelow(entry.getKey(), previousPath)) {
+					matched.addAll(Arrays.asList(entry.getValue()));
+				}
+			}
+		}
+		
+		if (matched.isEmpty()) {
+			return;
+		}
+		
+		TreeEvent event = new TreeEvent(type, path, to == null ? null : previousPath, number);
+		
+		for (TreeWatcher watcher : matched) {
+			watcher.offer(event);
+		}
+	}
+	
+	private static void collectAncestors(Map<String, TreeWatcher[]> watchers, String path, Set<TreeWatcher> matched) {
+		
+		for (int end = path.indexOf(SEPARATOR); ; end = path.indexOf(SEPARATOR, end + 1)) {
+			
+			TreeWatcher[] found = watchers.get(end < 0 ? path : path.substring(0, end));
+			
+			if (found != null) {
+				matched.addAll(Arrays.asList(found));
+			}
+			
+			if (end < 0) {
+				return;
+			}
+		}
+	}
+	
+	//prefix es una ruta dentro de directory, sin ser directory
+	private static boolean isBelow(String prefix, String directory) {
+		return prefix.length() > directory.length() && prefix.charAt(directory.length()) == SEPARATOR && prefix.startsWith(directory);
+	}
+	
+	private void publish(TreeEvent.Type type, Nodo<?> padre, String name) {
+		
+		Map<String, TreeWatcher[]> watchers = byPrefix;
+		long number = sequence++;
+		
+		if (watchers.isEmpty()) {
+			return;
+		}
+		
+		String path = padre.getFullPath() + SEPARATOR + name;
+		TreeEvent event = null;
+		
+		for (int end = path.indexOf(SEPARATOR); ; end = path.indexOf(SEPARATOR, end + 1)) {
+			
+			TreeWatcher[] matched = watchers.get(end < 0 ? path : path.substring(0, end));
+			
+			if (matched != null) {
+				
+				if (event == null) {
+					event = new TreeEvent(type, path, null, number);
+				}
+				
+				for (TreeWatcher watcher : matched) {
+					watcher.offer(event);
+				}
+			}
+			
+			if (end < 0) {
+				return;
+			}
+		}
+	}
+}